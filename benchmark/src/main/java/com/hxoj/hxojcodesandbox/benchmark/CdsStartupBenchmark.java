@@ -0,0 +1,27 @@
+package com.hxoj.hxojcodesandbox.benchmark;
+
+import com.hxoj.hxojcodesandbox.HxojCodeSandboxMasterApplication;
+import com.hxoj.hxojcodesandbox.cds.CdsArchiveManager;
+import com.hxoj.hxojcodesandbox.cds.CdsBenchmarkResult;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 共享归档启动耗时对比入口，参数为每组启动次数（默认 20）
+ */
+public class CdsStartupBenchmark {
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(HxojCodeSandboxMasterApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        CdsArchiveManager cdsArchiveManager = context.getBean(CdsArchiveManager.class);
+        CdsBenchmarkResult cdsBenchmarkResult = cdsArchiveManager.benchmark(rounds);
+        System.out.println("不使用共享归档：平均 " + String.format("%.1f", cdsBenchmarkResult.getWithoutArchiveAvgTime())
+                + " 毫秒，中位数 " + cdsBenchmarkResult.getWithoutArchiveMedianTime() + " 毫秒");
+        System.out.println("使用共享归档：平均 " + String.format("%.1f", cdsBenchmarkResult.getWithArchiveAvgTime())
+                + " 毫秒，中位数 " + cdsBenchmarkResult.getWithArchiveMedianTime() + " 毫秒");
+        context.close();
+    }
+}
@@ -0,0 +1,549 @@
+package com.hxoj.hxojcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测入口，向运行中的沙箱服务发送请求并统计吞吐、延迟分位数与错误率，用于评估单实例容量。
+ * <p>
+ * 参数均为 --key=value 形式：
+ * <ul>
+ *     <li>url：服务地址，默认 http://localhost:8090</li>
+ *     <li>sandbox：javaNativeCodeSandbox 或 javaDockerCodeSandbox，默认 javaNativeCodeSandbox</li>
+ *     <li>mode：rate 按固定速率发送（开环），concurrency 按固定并发循环发送（闭环），replay 回放请求记录，默认 rate</li>
+ *     <li>rate：每秒请求数，默认 10；concurrency：并发数，默认 4；duration：持续秒数，默认 60</li>
+ *     <li>mix：负载配比，如 normal:85,compileError:5,sleepError:5,memoryError:5，名称见 {@link #WORKLOAD_NAMES}</li>
+ *     <li>trace：回放的请求记录文件；speed：回放倍速，默认 1</li>
+ *     <li>maxInFlight：开环模式下允许同时未完成的请求数，超出的请求记为客户端丢弃，默认 512</li>
+ *     <li>timeout：单个请求的超时毫秒数，默认 120000；report：将汇总结果另存为 JSON 文件</li>
+ * </ul>
+ * 请求记录为 CSV，每行 到达时间(毫秒),用例数,输入字节数[,负载名称]，# 开头的行与无法解析的表头忽略；
+ * 到达时间可以是时间戳或相对偏移，回放时以第一行为起点。未指定负载名称时按 stdinSum 处理，
+ * 输入字节数平均分到各用例的标准输入中。
+ * <p>
+ * 开环模式下延迟从计划发送时刻开始计算，服务变慢时排队的时间也计入延迟
+ */
+public class LoadGenerator {
+
+    private static final String AUTH_REQUEST_HEADER = "auth";
+
+    private static final String AUTH_REQUEST_SECRET = "secretKey";
+
+    /**
+     * 读取全部标准输入并求和，用于按请求记录构造指定大小的输入
+     */
+    private static final String STDIN_SUM_CODE = "import java.io.*;\n\n"
+            + "public class Main {\n"
+            + "    public static void main(String[] args) throws IOException {\n"
+            + "        StreamTokenizer in = new StreamTokenizer(new BufferedReader(new InputStreamReader(System.in)));\n"
+            + "        long sum = 0;\n"
+            + "        while (in.nextToken() != StreamTokenizer.TT_EOF) {\n"
+            + "            sum += (long) in.nval;\n"
+            + "        }\n"
+            + "        System.out.println(sum);\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String COMPILE_ERROR_CODE = "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        int a = \n"
+            + "    }\n"
+            + "}\n";
+
+    private static final List<String> WORKLOAD_NAMES = Arrays.asList("normal", "stdin", "stdinSum", "compileError",
+            "sleepError", "memoryError", "readFileError", "writeFileError", "runFileError");
+
+    private static final String DEFAULT_MIX = "normal:85,compileError:5,sleepError:5,memoryError:5";
+
+    private static final int REPORT_INTERVAL_SECONDS = 5;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static String endpoint;
+
+    private static int timeout;
+
+    /**
+     * 负载名称 -> 统计
+     */
+    private static final Map<String, WorkloadStats> STATS_MAP = new ConcurrentHashMap<>();
+
+    private static final AtomicLong COMPLETED_COUNT = new AtomicLong();
+
+    private static final AtomicLong DROPPED_COUNT = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argMap = parseArgs(args);
+        endpoint = StrUtil.removeSuffix(argMap.getOrDefault("url", "http://localhost:8090"), "/")
+                + "/" + argMap.getOrDefault("sandbox", "javaNativeCodeSandbox");
+        timeout = Integer.parseInt(argMap.getOrDefault("timeout", "120000"));
+        String mode = argMap.getOrDefault("mode", "rate");
+        int duration = Integer.parseInt(argMap.getOrDefault("duration", "60"));
+
+        ScheduledExecutorService reportExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("load-report-").setDaemon(true).build());
+        long startTime = System.nanoTime();
+        reportExecutor.scheduleAtFixedRate(new ProgressReporter(),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        System.out.println("压测开始：" + endpoint + "，模式 " + mode);
+        switch (mode) {
+            case "rate":
+                runAtRate(Double.parseDouble(argMap.getOrDefault("rate", "10")), duration,
+                        parseMix(argMap.getOrDefault("mix", DEFAULT_MIX)),
+                        Integer.parseInt(argMap.getOrDefault("maxInFlight", "512")));
+                break;
+            case "concurrency":
+                runWithConcurrency(Integer.parseInt(argMap.getOrDefault("concurrency", "4")), duration,
+                        parseMix(argMap.getOrDefault("mix", DEFAULT_MIX)));
+                break;
+            case "replay":
+                String trace = argMap.get("trace");
+                if (trace == null) {
+                    throw new IllegalArgumentException("回放模式需要指定 --trace");
+                }
+                replay(readTrace(new File(trace)), Double.parseDouble(argMap.getOrDefault("speed", "1")),
+                        Integer.parseInt(argMap.getOrDefault("maxInFlight", "512")));
+                break;
+            default:
+                throw new IllegalArgumentException("未知的压测模式：" + mode);
+        }
+        reportExecutor.shutdownNow();
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        Map<String, Object> report = printReport(elapsedSeconds);
+        String reportPath = argMap.get("report");
+        if (reportPath != null) {
+            FileUtil.writeUtf8String(JSONUtil.toJsonPrettyStr(report), reportPath);
+            System.out.println("汇总结果已写入 " + reportPath);
+        }
+    }
+
+    /**
+     * 开环：按固定间隔发送，不等待前一个请求完成
+     *
+     * @param rate        每秒请求数
+     * @param duration    持续秒数
+     * @param mix         负载配比
+     * @param maxInFlight 同时未完成的请求上限
+     * @throws InterruptedException
+     */
+    private static void runAtRate(double rate, int duration, WorkloadMix mix, int maxInFlight) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long total = (long) (rate * duration);
+        List<Arrival> arrivalList = new ArrayList<>();
+        Random random = new Random();
+        for (long i = 0; i < total; i++) {
+            arrivalList.add(new Arrival(i * intervalNanos, mix.next(random)));
+        }
+        dispatch(arrivalList, maxInFlight);
+    }
+
+    /**
+     * 回放请求记录，按记录中的到达间隔（除以倍速）发送
+     *
+     * @param arrivalList 请求记录
+     * @param speed       回放倍速
+     * @param maxInFlight 同时未完成的请求上限
+     * @throws InterruptedException
+     */
+    private static void replay(List<Arrival> arrivalList, double speed, int maxInFlight) throws InterruptedException {
+        List<Arrival> scaledList = new ArrayList<>(arrivalList.size());
+        for (Arrival arrival : arrivalList) {
+            scaledList.add(new Arrival((long) (arrival.offsetNanos / speed), arrival.workload));
+        }
+        System.out.println("回放请求记录 " + arrivalList.size() + " 条，倍速 " + speed);
+        dispatch(scaledList, maxInFlight);
+    }
+
+    private static void dispatch(List<Arrival> arrivalList, int maxInFlight) throws InterruptedException {
+        ExecutorService requestExecutor = Executors.newCachedThreadPool(
+                ThreadFactoryBuilder.create().setNamePrefix("load-request-").setDaemon(true).build());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long startTime = System.nanoTime();
+        for (Arrival arrival : arrivalList) {
+            long scheduledTime = startTime + arrival.offsetNanos;
+            long waitNanos = scheduledTime - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            if (!inFlight.tryAcquire()) {
+                DROPPED_COUNT.incrementAndGet();
+                continue;
+            }
+            requestExecutor.execute(() -> {
+                try {
+                    send(arrival.workload, scheduledTime);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        // 等待所有已发出的请求完成
+        inFlight.acquire(maxInFlight);
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * 闭环：固定数量的线程各自循环发送，收到响应后立即发送下一个
+     *
+     * @param concurrency 并发数
+     * @param duration    持续秒数
+     * @param mix         负载配比
+     * @throws InterruptedException
+     */
+    private static void runWithConcurrency(int concurrency, int duration, WorkloadMix mix) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        CountDownLatch latch = new CountDownLatch(concurrency);
+        ExecutorService requestExecutor = Executors.newFixedThreadPool(concurrency,
+                ThreadFactoryBuilder.create().setNamePrefix("load-request-").setDaemon(true).build());
+        for (int i = 0; i < concurrency; i++) {
+            requestExecutor.execute(() -> {
+                Random random = new Random();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        send(mix.next(random), System.nanoTime());
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * 发送一个请求并记录结果
+     *
+     * @param workload      负载
+     * @param scheduledTime 计划发送时刻，延迟从该时刻开始计算
+     */
+    private static void send(Workload workload, long scheduledTime) {
+        String outcome;
+        try (HttpResponse httpResponse = HttpRequest.post(endpoint)
+                .header(AUTH_REQUEST_HEADER, AUTH_REQUEST_SECRET)
+                .body(workload.body)
+                .timeout(timeout)
+                .execute()) {
+            outcome = classify(workload, httpResponse);
+        } catch (Exception e) {
+            outcome = "exception";
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledTime);
+        STATS_MAP.computeIfAbsent(workload.name, name -> new WorkloadStats()).add(latencyMicros, outcome);
+        COMPLETED_COUNT.incrementAndGet();
+    }
+
+    /**
+     * 将响应归类：ok 为返回了预期的状态码，其余为 unexpected_N（响应状态码不符）、http_N（HTTP 错误）
+     *
+     * @param workload
+     * @param httpResponse
+     * @return
+     */
+    private static String classify(Workload workload, HttpResponse httpResponse) {
+        if (httpResponse.getStatus() != 200) {
+            return "http_" + httpResponse.getStatus();
+        }
+        JSONObject jsonObject = JSONUtil.parseObj(httpResponse.body());
+        Integer status = jsonObject.getInt("status");
+        return workload.expectedStatus.equals(status) ? "ok" : "unexpected_" + status;
+    }
+
+    private static Map<String, Object> printReport(double elapsedSeconds) {
+        WorkloadStats totalStats = new WorkloadStats();
+        Map<String, Object> workloadReportMap = new LinkedHashMap<>();
+        for (Map.Entry<String, WorkloadStats> entry : new TreeMap<>(STATS_MAP).entrySet()) {
+            WorkloadStats stats = entry.getValue();
+            totalStats.merge(stats);
+            workloadReportMap.put(entry.getKey(), stats.summary(elapsedSeconds));
+            System.out.println("[" + entry.getKey() + "] " + stats.describe(elapsedSeconds));
+        }
+        System.out.println("[总计] " + totalStats.describe(elapsedSeconds));
+        System.out.println("耗时 " + String.format("%.1f", elapsedSeconds) + " 秒，客户端丢弃 " + DROPPED_COUNT.get() + " 个请求");
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("endpoint", endpoint);
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("dropped", DROPPED_COUNT.get());
+        report.put("total", totalStats.summary(elapsedSeconds));
+        report.put("workloads", workloadReportMap);
+        return report;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> argMap = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value：" + arg);
+            }
+            argMap.put(StrUtil.subBetween(arg, "--", "="), StrUtil.subAfter(arg, "=", false));
+        }
+        return argMap;
+    }
+
+    private static WorkloadMix parseMix(String mix) {
+        WorkloadMix workloadMix = new WorkloadMix();
+        for (String item : StrUtil.split(mix, ',', true, true)) {
+            String name = StrUtil.subBefore(item, ":", false);
+            int weight = Integer.parseInt(StrUtil.subAfter(item, ":", false));
+            if (weight > 0) {
+                workloadMix.add(createWorkload(name, 0, 0), weight);
+            }
+        }
+        if (workloadMix.workloadList.isEmpty()) {
+            throw new IllegalArgumentException("负载配比为空：" + mix);
+        }
+        return workloadMix;
+    }
+
+    private static List<Arrival> readTrace(File traceFile) {
+        List<Arrival> arrivalList = new ArrayList<>();
+        // 同样大小的请求复用同一个请求体
+        Map<String, Workload> workloadCache = new LinkedHashMap<>();
+        Long firstTimestamp = null;
+        for (String line : FileUtil.readLines(traceFile, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> fieldList = StrUtil.split(line, ',', true, false);
+            long timestamp;
+            try {
+                timestamp = Long.parseLong(fieldList.get(0));
+            } catch (NumberFormatException e) {
+                // 表头
+                continue;
+            }
+            int caseCount = fieldList.size() > 1 ? Math.max(1, Integer.parseInt(fieldList.get(1))) : 1;
+            long inputBytes = fieldList.size() > 2 ? Long.parseLong(fieldList.get(2)) : 0;
+            String name = fieldList.size() > 3 && !fieldList.get(3).isEmpty() ? fieldList.get(3) : "stdinSum";
+            if (firstTimestamp == null) {
+                firstTimestamp = timestamp;
+            }
+            Workload workload = workloadCache.computeIfAbsent(name + ":" + caseCount + ":" + inputBytes,
+                    key -> createWorkload(name, caseCount, inputBytes));
+            arrivalList.add(new Arrival(TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp), workload));
+        }
+        arrivalList.sort((a, b) -> Long.compare(a.offsetNanos, b.offsetNanos));
+        return arrivalList;
+    }
+
+    /**
+     * 构造负载的请求体
+     *
+     * @param name       负载名称
+     * @param caseCount  用例数，只对 stdinSum 生效，0 表示默认
+     * @param inputBytes 输入字节数，只对 stdinSum 生效
+     * @return
+     */
+    private static Workload createWorkload(String name, int caseCount, long inputBytes) {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setLanguage("java");
+        int expectedStatus;
+        switch (name) {
+            case "normal":
+                executeCodeRequest.setCode(readSampleCode("simpleComputeArgs/Main.java"));
+                executeCodeRequest.setInputList(Arrays.asList("1 2", "3 4"));
+                executeCodeRequest.setExpectedOutputList(Arrays.asList("结果:3", "结果:7"));
+                expectedStatus = 1;
+                break;
+            case "stdin":
+                executeCodeRequest.setCode(readSampleCode("simpleCompute/Main.java"));
+                executeCodeRequest.setStdinList(Arrays.asList("1 2", "3 4"));
+                executeCodeRequest.setExpectedOutputList(Arrays.asList("3", "7"));
+                expectedStatus = 1;
+                break;
+            case "stdinSum":
+                int count = Math.max(1, caseCount);
+                // 每个数字 "1 " 占两个字节，输出为数字个数
+                long tokenCount = Math.max(1, inputBytes / count / 2);
+                String stdin = StrUtil.repeat("1 ", (int) tokenCount);
+                executeCodeRequest.setCode(STDIN_SUM_CODE);
+                executeCodeRequest.setStdinList(Collections.nCopies(count, stdin));
+                executeCodeRequest.setExpectedOutputList(Collections.nCopies(count, String.valueOf(tokenCount)));
+                expectedStatus = 1;
+                break;
+            case "compileError":
+                executeCodeRequest.setCode(COMPILE_ERROR_CODE);
+                executeCodeRequest.setInputList(Collections.singletonList("1 2"));
+                expectedStatus = 5;
+                break;
+            default:
+                if (!WORKLOAD_NAMES.contains(name)) {
+                    throw new IllegalArgumentException("未知的负载：" + name + "，可选 " + WORKLOAD_NAMES);
+                }
+                // 恶意程序：超时、超内存或访问文件，期望被沙箱判为执行异常
+                executeCodeRequest.setCode(readSampleCode("unsafeCode/" + StrUtil.upperFirst(name) + ".java"));
+                executeCodeRequest.setInputList(Collections.singletonList("1 2"));
+                expectedStatus = 3;
+                break;
+        }
+        return new Workload(name, JSONUtil.toJsonStr(executeCodeRequest), expectedStatus);
+    }
+
+    private static String readSampleCode(String path) {
+        return ResourceUtil.readStr("tmpCode/" + path, StandardCharsets.UTF_8);
+    }
+
+    private static class Workload {
+
+        private final String name;
+
+        private final String body;
+
+        private final Integer expectedStatus;
+
+        Workload(String name, String body, Integer expectedStatus) {
+            this.name = name;
+            this.body = body;
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private static class Arrival {
+
+        /**
+         * 相对压测开始的发送时刻
+         */
+        private final long offsetNanos;
+
+        private final Workload workload;
+
+        Arrival(long offsetNanos, Workload workload) {
+            this.offsetNanos = offsetNanos;
+            this.workload = workload;
+        }
+    }
+
+    /**
+     * 按权重随机选择负载
+     */
+    private static class WorkloadMix {
+
+        private final List<Workload> workloadList = new ArrayList<>();
+
+        private final List<Integer> cumulativeWeightList = new ArrayList<>();
+
+        private int totalWeight;
+
+        void add(Workload workload, int weight) {
+            totalWeight += weight;
+            workloadList.add(workload);
+            cumulativeWeightList.add(totalWeight);
+        }
+
+        Workload next(Random random) {
+            int value = random.nextInt(totalWeight);
+            for (int i = 0; i < cumulativeWeightList.size(); i++) {
+                if (value < cumulativeWeightList.get(i)) {
+                    return workloadList.get(i);
+                }
+            }
+            return workloadList.get(workloadList.size() - 1);
+        }
+    }
+
+    private static class WorkloadStats {
+
+        /**
+         * 延迟（微秒）
+         */
+        private final List<Long> latencyList = new ArrayList<>();
+
+        /**
+         * 结果归类 -> 次数
+         */
+        private final Map<String, Long> outcomeCountMap = new TreeMap<>();
+
+        synchronized void add(long latencyMicros, String outcome) {
+            latencyList.add(latencyMicros);
+            outcomeCountMap.merge(outcome, 1L, Long::sum);
+        }
+
+        synchronized void merge(WorkloadStats other) {
+            synchronized (other) {
+                latencyList.addAll(other.latencyList);
+                other.outcomeCountMap.forEach((outcome, count) -> outcomeCountMap.merge(outcome, count, Long::sum));
+            }
+        }
+
+        synchronized Map<String, Object> summary(double elapsedSeconds) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            List<Long> sortedList = new ArrayList<>(latencyList);
+            Collections.sort(sortedList);
+            long count = sortedList.size();
+            long okCount = outcomeCountMap.getOrDefault("ok", 0L);
+            summary.put("count", count);
+            summary.put("throughput", count / elapsedSeconds);
+            summary.put("errorRate", count == 0 ? 0.0 : (double) (count - okCount) / count);
+            Map<String, Object> latencyMap = new LinkedHashMap<>();
+            for (double percentile : PERCENTILES) {
+                latencyMap.put("p" + formatPercentile(percentile), percentile(sortedList, percentile) / 1000.0);
+            }
+            latencyMap.put("max", sortedList.isEmpty() ? 0 : sortedList.get(sortedList.size() - 1) / 1000.0);
+            summary.put("latencyMillis", latencyMap);
+            summary.put("outcomes", new LinkedHashMap<>(outcomeCountMap));
+            return summary;
+        }
+
+        String describe(double elapsedSeconds) {
+            Map<String, Object> summary = summary(elapsedSeconds);
+            return String.format("请求 %d，吞吐 %.2f/s，错误率 %.2f%%，延迟(ms) %s，结果 %s",
+                    (Long) summary.get("count"), (Double) summary.get("throughput"),
+                    (Double) summary.get("errorRate") * 100, summary.get("latencyMillis"), summary.get("outcomes"));
+        }
+
+        private static long percentile(List<Long> sortedList, double percentile) {
+            if (sortedList.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedList.size()) - 1;
+            return sortedList.get(Math.max(0, Math.min(index, sortedList.size() - 1)));
+        }
+
+        private static String formatPercentile(double percentile) {
+            return percentile == Math.floor(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+        }
+    }
+
+    /**
+     * 定期输出最近一段时间的完成数
+     */
+    private static class ProgressReporter implements Runnable {
+
+        private long lastCompleted;
+
+        @Override
+        public void run() {
+            long completed = COMPLETED_COUNT.get();
+            System.out.println(String.format("已完成 %d，最近 %d 秒吞吐 %.2f/s，客户端丢弃 %d", completed, REPORT_INTERVAL_SECONDS,
+                    (completed - lastCompleted) / (double) REPORT_INTERVAL_SECONDS, DROPPED_COUNT.get()));
+            lastCompleted = completed;
+        }
+    }
+}
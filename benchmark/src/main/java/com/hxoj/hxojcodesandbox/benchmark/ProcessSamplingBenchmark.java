@@ -0,0 +1,79 @@
+package com.hxoj.hxojcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.HxojCodeSandboxMasterApplication;
+import com.hxoj.hxojcodesandbox.JavaCodeSandboxTemplate;
+import com.hxoj.hxojcodesandbox.compiler.CodeCompiler;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.process.ProcessResourceSampler;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 进程资源采样开销对比入口，交替执行不采样与采样的短程序，参数为每组执行次数（默认 30）
+ */
+public class ProcessSamplingBenchmark {
+
+    private static final String HELLO_CODE = "public class Main { public static void main(String[] args) { System.out.println(\"hello\"); } }";
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(HxojCodeSandboxMasterApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        ProcessResourceSampler processResourceSampler = context.getBean(ProcessResourceSampler.class);
+        File benchmarkDir = new File(System.getProperty("user.dir") + File.separator + JavaCodeSandboxTemplate.GLOBAL_CODE_DIR_NAME,
+                "samplingBenchmark");
+        File codeFile = FileUtil.writeUtf8String(HELLO_CODE, new File(benchmarkDir, JavaCodeSandboxTemplate.GLOBAL_JAVA_CLASS_NAME));
+        CompileResult compileResult = context.getBean(CodeCompiler.class).compile(HELLO_CODE, codeFile);
+        compileResult.writeClassFiles(benchmarkDir);
+        String[] runCmd = {"java", "-Xmx256m", "-cp", benchmarkDir.getAbsolutePath(), "Main"};
+        // 预热，排除首次启动的文件缓存影响
+        for (int i = 0; i < 3; i++) {
+            ProcessUtils.runProcessAndGetMessage(new ProcessBuilder(runCmd).start(), "预热");
+        }
+        List<Long> withoutSamplingTimeList = new ArrayList<>();
+        List<Long> withSamplingTimeList = new ArrayList<>();
+        long sampleCountBefore = processResourceSampler.getSampleCount();
+        long sampleTimeBefore = processResourceSampler.getSampleTime();
+        for (int i = 0; i < rounds; i++) {
+            long startTime = System.nanoTime();
+            ProcessUtils.runProcessAndGetMessage(new ProcessBuilder(runCmd).start(), "不采样");
+            withoutSamplingTimeList.add((System.nanoTime() - startTime) / 1000L);
+
+            startTime = System.nanoTime();
+            Process process = new ProcessBuilder(runCmd).start();
+            ProcessResourceSampler.Sampling sampling = processResourceSampler.start(process);
+            ProcessUtils.runProcessAndGetMessage(process, "采样", ProcessUtils.DEFAULT_OUTPUT_LIMIT, sampling::finish);
+            sampling.finish();
+            withSamplingTimeList.add((System.nanoTime() - startTime) / 1000L);
+        }
+        long sampleCount = processResourceSampler.getSampleCount() - sampleCountBefore;
+        long sampleTime = processResourceSampler.getSampleTime() - sampleTimeBefore;
+        System.out.println("不采样：平均 " + String.format("%.2f", average(withoutSamplingTimeList) / 1000D)
+                + " 毫秒，中位数 " + String.format("%.2f", median(withoutSamplingTimeList) / 1000D) + " 毫秒");
+        System.out.println("采样：平均 " + String.format("%.2f", average(withSamplingTimeList) / 1000D)
+                + " 毫秒，中位数 " + String.format("%.2f", median(withSamplingTimeList) / 1000D) + " 毫秒");
+        System.out.println("采样次数 " + sampleCount + "，单次采样平均 "
+                + (sampleCount == 0 ? 0 : sampleTime / sampleCount / 1000L) + " 微秒");
+        FileUtil.del(benchmarkDir);
+        context.close();
+    }
+
+    private static double average(List<Long> timeList) {
+        return timeList.stream().mapToLong(Long::longValue).average().orElse(0D);
+    }
+
+    private static long median(List<Long> timeList) {
+        List<Long> sortedTimeList = new ArrayList<>(timeList);
+        Collections.sort(sortedTimeList);
+        return sortedTimeList.get(sortedTimeList.size() / 2);
+    }
+}
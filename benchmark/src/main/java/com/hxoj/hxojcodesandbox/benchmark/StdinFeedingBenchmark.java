@@ -0,0 +1,172 @@
+package com.hxoj.hxojcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.JavaCodeSandboxTemplate;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * 标准输入写入吞吐对比入口，分别以后台分块写入与文件重定向的方式向 wc -l 提供输入，
+ * 参数为输入大小列表（支持 k、m、g 后缀，默认 1m 100m 1g），每种大小各执行 3 次取中位数
+ */
+public class StdinFeedingBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    /**
+     * 统计行数必须读完全部输入，wc -c 遇到文件时直接读取文件大小，不能用于对比
+     */
+    private static final String[] COUNT_CMD = {"wc", "-l"};
+
+    public static void main(String[] args) throws Exception {
+        String[] sizeArgs = args.length > 0 ? args : new String[]{"1m", "100m", "1g"};
+        File benchmarkDir = new File(System.getProperty("user.dir") + File.separator + JavaCodeSandboxTemplate.GLOBAL_CODE_DIR_NAME,
+                "stdinBenchmark");
+        FileUtil.mkdir(benchmarkDir);
+        try {
+            for (String sizeArg : sizeArgs) {
+                long size = parseSize(sizeArg);
+                File inputFile = new File(benchmarkDir, "input-" + sizeArg);
+                try (InputStream in = new PatternInputStream(size); OutputStream out = Files.newOutputStream(inputFile.toPath())) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int length;
+                    while ((length = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, length);
+                    }
+                }
+                List<Long> feedTimeList = new ArrayList<>();
+                List<Long> redirectTimeList = new ArrayList<>();
+                for (int i = 0; i < ROUNDS; i++) {
+                    feedTimeList.add(runWithFeeding(size));
+                    redirectTimeList.add(runWithRedirect(inputFile, size));
+                }
+                System.out.println(sizeArg + " 后台分块写入：中位数 " + formatThroughput(size, median(feedTimeList))
+                        + "，文件重定向：中位数 " + formatThroughput(size, median(redirectTimeList)));
+                FileUtil.del(inputFile);
+            }
+        } finally {
+            FileUtil.del(benchmarkDir);
+        }
+    }
+
+    /**
+     * 由 JVM 生成输入并在后台写入，同时读取输出
+     *
+     * @param size
+     * @return 耗时（纳秒）
+     * @throws Exception
+     */
+    private static long runWithFeeding(long size) throws Exception {
+        long startTime = System.nanoTime();
+        Process process = new ProcessBuilder(COUNT_CMD).start();
+        Future<Long> feedFuture = ProcessUtils.feedStdin(process, new PatternInputStream(size));
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "后台写入");
+        long elapsed = System.nanoTime() - startTime;
+        check(executeMessage, size, feedFuture.get());
+        return elapsed;
+    }
+
+    /**
+     * 标准输入直接重定向到文件，输入不经过 JVM
+     *
+     * @param inputFile
+     * @param size
+     * @return 耗时（纳秒）
+     * @throws Exception
+     */
+    private static long runWithRedirect(File inputFile, long size) throws Exception {
+        long startTime = System.nanoTime();
+        Process process = new ProcessBuilder(COUNT_CMD).redirectInput(inputFile).start();
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "文件重定向");
+        long elapsed = System.nanoTime() - startTime;
+        check(executeMessage, size, size);
+        return elapsed;
+    }
+
+    private static void check(ExecuteMessage executeMessage, long expectedSize, long writtenSize) {
+        long countedLines = Long.parseLong(executeMessage.getMessage().trim());
+        if (writtenSize != expectedSize || countedLines != PatternInputStream.lineCount(expectedSize)) {
+            throw new IllegalStateException("输入不完整，期望：" + expectedSize + "字节，写入：" + writtenSize + "字节，读到：" + countedLines + "行");
+        }
+    }
+
+    private static long parseSize(String sizeArg) {
+        String lowerCaseSizeArg = sizeArg.toLowerCase();
+        char unit = lowerCaseSizeArg.charAt(lowerCaseSizeArg.length() - 1);
+        String number = lowerCaseSizeArg.substring(0, lowerCaseSizeArg.length() - 1);
+        switch (unit) {
+            case 'k':
+                return Long.parseLong(number) * 1024L;
+            case 'm':
+                return Long.parseLong(number) * 1024L * 1024L;
+            case 'g':
+                return Long.parseLong(number) * 1024L * 1024L * 1024L;
+            default:
+                return Long.parseLong(lowerCaseSizeArg);
+        }
+    }
+
+    private static String formatThroughput(long size, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%.2f 毫秒，%.1f MB/s", elapsedNanos / 1e6, size / 1024D / 1024D / seconds);
+    }
+
+    private static long median(List<Long> timeList) {
+        List<Long> sortedTimeList = new ArrayList<>(timeList);
+        Collections.sort(sortedTimeList);
+        return sortedTimeList.get(sortedTimeList.size() / 2);
+    }
+
+    /**
+     * 按需生成指定大小的多行数字输入，不在内存中保留完整内容
+     */
+    private static class PatternInputStream extends InputStream {
+
+        private static final byte[] LINE = "1234567 89012345 678901 2345678\n".getBytes();
+
+        private final long size;
+
+        private long position = 0L;
+
+        PatternInputStream(long size) {
+            this.size = size;
+        }
+
+        /**
+         * 换行是每行的最后一个字节，不完整的最后一行不计数
+         */
+        static long lineCount(long size) {
+            return size / LINE.length;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            return LINE[(int) (position++ % LINE.length)];
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                bytes[offset + i] = LINE[(int) ((position + i) % LINE.length)];
+            }
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import com.hxoj.hxojcodesandbox.JavaNativeCodeSandbox;
+import com.hxoj.hxojcodesandbox.model.CaseVerdict;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收集整理 10000 个用例的执行信息，分别为返回输出与只返回判定结果两种方式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectOutputBenchmark {
+
+    private static final int CASE_COUNT = 10000;
+
+    /**
+     * output：返回每个用例的输出；verdict：携带期望输出，只返回判定结果
+     */
+    @Param({"output", "verdict"})
+    public String mode;
+
+    /**
+     * collectOutput 不依赖注入的组件，直接创建实例
+     */
+    private final JavaNativeCodeSandbox javaNativeCodeSandbox = new JavaNativeCodeSandbox();
+
+    private List<ExecuteMessage> executeMessageList;
+
+    @Setup
+    public void setup() {
+        executeMessageList = new ArrayList<>(CASE_COUNT);
+        for (int i = 0; i < CASE_COUNT; i++) {
+            ExecuteMessage executeMessage = new ExecuteMessage();
+            executeMessage.setExitValue(0);
+            executeMessage.setStatus(ExecuteStatus.SUCCESS);
+            executeMessage.setTime((long) (i % 100));
+            executeMessage.setMemory(32L * 1024 * 1024 + i);
+            if ("verdict".equals(mode)) {
+                executeMessage.setCaseVerdict(CaseVerdict.builder()
+                        .index(i)
+                        .verdict(JudgeVerdict.ACCEPTED)
+                        .time(executeMessage.getTime())
+                        .memory(executeMessage.getMemory())
+                        .build());
+            } else {
+                executeMessage.setMessage("结果:" + i);
+            }
+            executeMessageList.add(executeMessage);
+        }
+    }
+
+    @Benchmark
+    public ExecuteCodeResponse collectOutput() {
+        return javaNativeCodeSandbox.collectOutput(executeMessageList);
+    }
+}
@@ -0,0 +1,106 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.JavaCodeSandboxTemplate;
+import com.hxoj.hxojcodesandbox.compiler.CodeCompiler;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译耗时：进程内编译与 javac 子进程编译，小源码（示例程序）与大源码（生成的上千个方法）。
+ * 直接调用编译器，不经过编译缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompileBenchmark {
+
+    /**
+     * 大源码中的方法数
+     */
+    private static final int LARGE_METHOD_COUNT = 1000;
+
+    @Param({"memory", "javac"})
+    public String compilerType;
+
+    @Param({"small", "large"})
+    public String sourceSize;
+
+    private ConfigurableApplicationContext context;
+
+    private CodeCompiler codeCompiler;
+
+    private String code;
+
+    private File codeDir;
+
+    private File userCodeFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // 只测量编译耗时，放宽编译超时，避免大源码在首次编译时超时
+        context = SandboxContexts.start("--codesandbox.compiler.type=" + compilerType, "--codesandbox.compiler.timeout=120000");
+        codeCompiler = context.getBean(CodeCompiler.class);
+        code = "small".equals(sourceSize) ? SandboxContexts.readSampleCode("simpleComputeArgs") : generateLargeSource();
+        codeDir = Files.createTempDirectory("compile-benchmark").toFile();
+        userCodeFile = FileUtil.writeUtf8String(code, new File(codeDir, JavaCodeSandboxTemplate.GLOBAL_JAVA_CLASS_NAME));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtil.del(codeDir);
+        context.close();
+    }
+
+    @Benchmark
+    public CompileResult compile() {
+        CompileResult compileResult = codeCompiler.compile(code, userCodeFile);
+        if (!compileResult.isSuccess()) {
+            throw new IllegalStateException("编译失败：" + compileResult.getDiagnosticMessage());
+        }
+        return compileResult;
+    }
+
+    private static String generateLargeSource() {
+        StringBuilder stringBuilder = new StringBuilder("import java.util.*;\n\npublic class Main {\n");
+        for (int i = 0; i < LARGE_METHOD_COUNT; i++) {
+            stringBuilder.append("    static long method").append(i).append("(long x) {\n")
+                    .append("        List<Long> list = new ArrayList<>();\n")
+                    .append("        for (long j = 0; j < x; j++) {\n")
+                    .append("            list.add(j * ").append(i).append("L);\n")
+                    .append("        }\n")
+                    .append("        long sum = 0;\n")
+                    .append("        for (Long value : list) {\n")
+                    .append("            sum += value;\n")
+                    .append("        }\n")
+                    .append("        return sum;\n")
+                    .append("    }\n");
+        }
+        stringBuilder.append("    public static void main(String[] args) {\n        long sum = 0;\n");
+        for (int i = 0; i < LARGE_METHOD_COUNT; i++) {
+            stringBuilder.append("        sum += method").append(i).append("(3);\n");
+        }
+        stringBuilder.append("        System.out.println(sum);\n    }\n}\n");
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.hxoj.hxojcodesandbox.docker.ExecOutputCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收集 Docker exec 的 1MB 标准输出：原实现每帧转换一次字符串（只保留最后一帧），
+ * 逐帧解码后拼接，以及追加到池化缓冲区、结束时解码一次。
+ * 使用 -prof gc 运行，gc.alloc.rate.norm 即每 MB 输出分配的字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DockerFrameCollectBenchmark {
+
+    private static final int OUTPUT_BYTES = 1024 * 1024;
+
+    private static final byte[] LINE = "结果:1234567890\n".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"4096", "32768"})
+    public int frameBytes;
+
+    private Frame[] frames;
+
+    @Setup
+    public void setup() {
+        byte[] output = new byte[OUTPUT_BYTES];
+        for (int i = 0; i < OUTPUT_BYTES; i++) {
+            output[i] = LINE[i % LINE.length];
+        }
+        output[OUTPUT_BYTES - 1] = '\n';
+        // 帧的边界与字符边界无关，多字节字符可能被拆到两个帧中
+        frames = new Frame[OUTPUT_BYTES / frameBytes];
+        for (int i = 0; i < frames.length; i++) {
+            byte[] payload = new byte[frameBytes];
+            System.arraycopy(output, i * frameBytes, payload, 0, frameBytes);
+            frames[i] = new Frame(StreamType.STDOUT, payload);
+        }
+    }
+
+    @Benchmark
+    public String stringPerFrame() {
+        String message = null;
+        for (Frame frame : frames) {
+            message = new String(frame.getPayload());
+        }
+        return message;
+    }
+
+    @Benchmark
+    public String stringBuilderPerFrame() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Frame frame : frames) {
+            stringBuilder.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+        }
+        return stringBuilder.toString();
+    }
+
+    @Benchmark
+    public String pooledCollector() {
+        ExecOutputCollector execOutputCollector = new ExecOutputCollector(OUTPUT_BYTES, null, () -> {
+        });
+        try {
+            for (Frame frame : frames) {
+                execOutputCollector.onNext(frame);
+            }
+            return execOutputCollector.getMessage();
+        } finally {
+            execOutputCollector.release();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import com.hxoj.hxojcodesandbox.JavaNativeCodeSandbox;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原生代码沙箱的完整执行流程，使用 resources/tmpCode 下的示例程序：
+ * simpleComputeArgs 从启动参数读取输入，simpleCompute 从标准输入读取输入。
+ * 关闭编译缓存时每次都完整编译
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExecuteCodeBenchmark {
+
+    @Param({"simpleComputeArgs", "simpleCompute"})
+    public String program;
+
+    @Param({"true", "false"})
+    public boolean compileCache;
+
+    private ConfigurableApplicationContext context;
+
+    private JavaNativeCodeSandbox javaNativeCodeSandbox;
+
+    private ExecuteCodeRequest executeCodeRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SandboxContexts.start("--codesandbox.compiler.cache-enabled=" + compileCache);
+        javaNativeCodeSandbox = context.getBean(JavaNativeCodeSandbox.class);
+        executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setCode(SandboxContexts.readSampleCode(program));
+        executeCodeRequest.setLanguage("java");
+        if ("simpleCompute".equals(program)) {
+            executeCodeRequest.setStdinList(Arrays.asList("1 2", "3 4"));
+        } else {
+            executeCodeRequest.setInputList(Arrays.asList("1 2", "3 4"));
+        }
+        executeCodeRequest.setExpectedOutputList("simpleCompute".equals(program)
+                ? Arrays.asList("3", "7") : Arrays.asList("结果:3", "结果:7"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ExecuteCodeResponse executeCode() {
+        ExecuteCodeResponse executeCodeResponse = javaNativeCodeSandbox.executeCode(executeCodeRequest);
+        if (executeCodeResponse.getStatus() == null || executeCodeResponse.getStatus() != 1
+                || executeCodeResponse.getCaseVerdictList().stream().anyMatch(caseVerdict -> caseVerdict.getVerdict() != JudgeVerdict.ACCEPTED)) {
+            throw new IllegalStateException("执行结果不正确：" + executeCodeResponse);
+        }
+        return executeCodeResponse;
+    }
+}
@@ -0,0 +1,44 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动进程并读取输出：head 产生指定大小的标准输出，由 ProcessUtils 读取并解码，
+ * 包含进程启动、管道读取、输出缓冲与解码的开销，不包含 JVM 启动
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ProcessOutputBenchmark {
+
+    @Param({"1024", "1048576", "10485760"})
+    public long outputBytes;
+
+    @Benchmark
+    public ExecuteMessage launchAndCapture() throws IOException {
+        Process process = new ProcessBuilder("head", "-c", String.valueOf(outputBytes), "/dev/zero").start();
+        // 上限略大于输出，完整读取不截断
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "基准测试", outputBytes + 1);
+        if (executeMessage.getMessage() == null || executeMessage.getMessage().length() != outputBytes) {
+            throw new IllegalStateException("输出不完整：" + executeMessage);
+        }
+        return executeMessage;
+    }
+}
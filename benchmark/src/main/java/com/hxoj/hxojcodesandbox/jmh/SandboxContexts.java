@@ -0,0 +1,41 @@
+package com.hxoj.hxojcodesandbox.jmh;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.hxoj.hxojcodesandbox.HxojCodeSandboxMasterApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基准测试共用的工具方法
+ */
+final class SandboxContexts {
+
+    private SandboxContexts() {
+    }
+
+    /**
+     * 以非 Web 方式启动沙箱的 Spring 容器，参数为额外的配置项，如 --codesandbox.compiler.type=javac
+     *
+     * @param args
+     * @return
+     */
+    static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(HxojCodeSandboxMasterApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    /**
+     * 读取 resources/tmpCode 下的示例程序
+     *
+     * @param name 示例程序目录名，如 simpleComputeArgs
+     * @return
+     */
+    static String readSampleCode(String name) {
+        return ResourceUtil.readStr("tmpCode/" + name + "/Main.java", StandardCharsets.UTF_8);
+    }
+}
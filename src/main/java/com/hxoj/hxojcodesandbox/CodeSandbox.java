@@ -16,4 +16,15 @@ public interface CodeSandbox {
      * @return
      */
     ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest);
+
+    /**
+     * 执行代码，执行过程中通过监听器逐个回调编译与用例结果
+     *
+     * @param executeCodeRequest
+     * @param executeListener
+     * @return
+     */
+    default ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteListener executeListener) {
+        return executeCode(executeCodeRequest);
+    }
 }
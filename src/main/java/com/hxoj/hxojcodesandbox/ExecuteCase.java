@@ -0,0 +1,77 @@
+package com.hxoj.hxojcodesandbox;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 单个用例的输入
+ */
+@Data
+@AllArgsConstructor
+public class ExecuteCase {
+
+    /**
+     * 用例在输入用例列表中的下标
+     */
+    private int index;
+
+    /**
+     * 启动参数，以空格分隔
+     */
+    private String inputArgs;
+
+    /**
+     * 标准输入文件（测试数据存储中的文件），为空时不提供标准输入
+     */
+    private File stdinFile;
+
+    /**
+     * 标准输入内容，与标准输入文件二选一
+     */
+    private String stdin;
+
+    /**
+     * 是否提供了标准输入
+     *
+     * @return
+     */
+    public boolean hasStdin() {
+        return stdinFile != null || stdin != null;
+    }
+
+    /**
+     * 打开标准输入的字节来源，没有标准输入时返回 null
+     *
+     * @return
+     * @throws IOException
+     */
+    public InputStream openStdin() throws IOException {
+        if (stdinFile != null) {
+            return Files.newInputStream(stdinFile.toPath());
+        }
+        if (stdin != null) {
+            return new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    /**
+     * 启动参数数组，按空白切分，与多用例执行器的切分方式一致，参数为空时返回空数组
+     *
+     * @return
+     */
+    public String[] getInputArgsArray() {
+        if (StrUtil.isBlank(inputArgs)) {
+            return new String[0];
+        }
+        return inputArgs.trim().split("\\s+");
+    }
+}
@@ -0,0 +1,34 @@
+package com.hxoj.hxojcodesandbox;
+
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+
+/**
+ * 执行过程监听器，用于在全部用例执行完之前逐个获取结果。
+ * 并行执行时会在不同的线程中回调，实现需要线程安全
+ */
+public interface ExecuteListener {
+
+    /**
+     * 不做任何处理的监听器
+     */
+    ExecuteListener NONE = new ExecuteListener() {
+    };
+
+    /**
+     * 编译结束（成功或失败）
+     *
+     * @param compileResult
+     */
+    default void onCompile(CompileResult compileResult) {
+    }
+
+    /**
+     * 单个输入用例执行结束
+     *
+     * @param index          用例在输入用例列表中的下标
+     * @param executeMessage
+     */
+    default void onCase(int index, ExecuteMessage executeMessage) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.hxoj.hxojcodesandbox;
+
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.cgroup.CgroupManager;
+import com.hxoj.hxojcodesandbox.cgroup.TransientCgroup;
+import com.hxoj.hxojcodesandbox.config.CgroupProperties;
+import com.hxoj.hxojcodesandbox.judge.OutputComparator;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * cgroup v2 代码沙箱实现类，每个用例在单独的临时 cgroup 中启动 java 进程，
+ * 由内核限制内存、CPU与进程数，启动开销与原生模式接近。
+ * 资源上限按进程生效，不使用多用例执行器
+ */
+@Component
+@Slf4j
+public class JavaCgroupCodeSandbox extends JavaCodeSandboxTemplate {
+
+    /**
+     * 先把 shell 自身加入 cgroup，再 exec 成 java 进程，保证 java 从第一条指令起就受限制。
+     * cgroup 目录与 java 命令通过位置参数传入，不需要拼接转义用户输入
+     */
+    private static final String JOIN_CGROUP_SCRIPT = "echo $$ > \"$0/cgroup.procs\" && exec \"$@\"";
+
+    @Resource
+    private CgroupManager cgroupManager;
+
+    @Resource
+    private ProcessTimeoutService processTimeoutService;
+
+    @Resource
+    private CgroupProperties cgroupProperties;
+
+    /**
+     * cgroup 的资源限制同样影响执行结果
+     *
+     * @return
+     */
+    @Override
+    protected String getLimitIdentity() {
+        return super.getLimitIdentity() + ",memoryLimit=" + cgroupProperties.getMemoryLimit() + ",cpuCount=" + cgroupProperties.getCpuCount()
+                + ",pidsLimit=" + cgroupProperties.getPidsLimit();
+    }
+
+    @Override
+    public List<ExecuteMessage> executeTheCode(File userCodeFile, ExecuteCodeRequest executeCodeRequest, List<ExecuteCase> caseList,
+                                               OutputJudge outputJudge, ExecuteListener executeListener) {
+        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
+        return runCases(caseList, getParallelism(executeCodeRequest),
+                (slot, executeCase, outputComparator) -> runCaseInCgroup(userCodeParentPath, executeCase, outputComparator),
+                outputJudge, executeListener);
+    }
+
+    /**
+     * 在临时 cgroup 中执行单个输入用例
+     *
+     * @param userCodeParentPath
+     * @param executeCase
+     * @param outputComparator 标准输出比较器，可以为空
+     * @return
+     */
+    private ExecuteMessage runCaseInCgroup(String userCodeParentPath, ExecuteCase executeCase, OutputComparator outputComparator) {
+        TransientCgroup transientCgroup = cgroupManager.create();
+        try {
+            List<String> runCmd = new ArrayList<>(Arrays.asList("sh", "-c", JOIN_CGROUP_SCRIPT,
+                    transientCgroup.getCgroupDir().getAbsolutePath(), "java", "-Xmx256m"));
+            runCmd.addAll(getCdsJvmOptions());
+            runCmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", userCodeParentPath, "Main"));
+            runCmd.addAll(Arrays.asList(executeCase.getInputArgsArray()));
+            // shell 的标准输入在 exec 后由 java 进程继承
+            Process process = startProcess(new ProcessBuilder(runCmd), executeCase);
+            // 超时时通过 cgroup.kill 一次结束 cgroup 中的全部进程
+            ProcessTimeoutService.Deadline deadline = processTimeoutService.register(process, TIME_OUT, transientCgroup::kill);
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行", executeProperties.getOutputLimit(),
+                    null, outputComparator);
+            boolean timeout = deadline.cancel();
+            // 进程已退出，cgroup 中的统计是最终值
+            executeMessage.setMemory(transientCgroup.getPeakMemory());
+            executeMessage.setCpuTime(transientCgroup.getCpuTime());
+            if (timeout) {
+                executeMessage.setTimeout(true);
+                executeMessage.setStatus(ExecuteStatus.TIMEOUT);
+                executeMessage.setErrorMessage(StrUtil.nullToEmpty(executeMessage.getErrorMessage()) + "程序执行超时");
+            } else if (transientCgroup.isOomKilled()) {
+                executeMessage.setStatus(ExecuteStatus.MEMORY_LIMIT_EXCEEDED);
+                executeMessage.setErrorMessage(StrUtil.nullToEmpty(executeMessage.getErrorMessage()) + "程序内存超出限制");
+            }
+            if (executeMessage.getExitValue() != null && executeMessage.getExitValue() == 0) {
+                log.info("执行成功:" + executeMessage);
+            } else {
+                log.info("执行失败:" + executeMessage);
+            }
+            return executeMessage;
+        } catch (IOException e) {
+            throw new RuntimeException("执行代码异常", e);
+        } finally {
+            // 用户进程可能留下后台子进程，删除前先清空 cgroup
+            transientCgroup.kill();
+            transientCgroup.remove();
+        }
+    }
+}
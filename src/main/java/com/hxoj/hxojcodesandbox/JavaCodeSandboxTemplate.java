@@ -1,19 +1,52 @@
 package com.hxoj.hxojcodesandbox;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.cache.ExecuteResultCache;
+import com.hxoj.hxojcodesandbox.cds.CdsArchiveManager;
+import com.hxoj.hxojcodesandbox.compiler.CodeCompiler;
+import com.hxoj.hxojcodesandbox.compiler.CompiledClassCache;
+import com.hxoj.hxojcodesandbox.compiler.CompileException;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import com.hxoj.hxojcodesandbox.judge.OutputComparator;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.metrics.SandboxMetrics;
+import com.hxoj.hxojcodesandbox.model.CaseVerdict;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
 import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
 import com.hxoj.hxojcodesandbox.model.JudgeInfo;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import com.hxoj.hxojcodesandbox.process.ProcessResourceSampler;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import com.hxoj.hxojcodesandbox.runner.MultiCaseRunner;
+import com.hxoj.hxojcodesandbox.runner.MultiCaseRunnerSupport;
+import com.hxoj.hxojcodesandbox.testdata.TestDataLease;
+import com.hxoj.hxojcodesandbox.testdata.TestDataStore;
 import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import com.hxoj.hxojcodesandbox.workspace.WorkspaceManager;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 /**
  * 代码沙箱模版方法实现类
@@ -24,6 +57,44 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
     public static final String GLOBAL_JAVA_CLASS_NAME = "Main.java";
     public static final Long TIME_OUT = 5000L;
 
+    @Resource
+    private CodeCompiler codeCompiler;
+
+    @Resource
+    private CompiledClassCache compiledClassCache;
+
+    @Resource
+    protected ExecuteProperties executeProperties;
+
+    @Resource
+    private ExecutorService caseExecutorService;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    @Resource
+    private ProcessTimeoutService processTimeoutService;
+
+    @Resource
+    private ProcessResourceSampler processResourceSampler;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private SandboxMetrics sandboxMetrics;
+
+    @Resource
+    private ExecuteResultCache executeResultCache;
+
+    /**
+     * 指标中的沙箱类型，与接口路径中的沙箱类型一致，如 javaNativeCodeSandbox
+     */
+    private final String sandboxType = StrUtil.lowerFirst(getClass().getSimpleName());
+
     /**
      * java原生代码沙箱完整流程
      *
@@ -32,25 +103,172 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
      */
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        return executeCode(executeCodeRequest, ExecuteListener.NONE);
+    }
+
+    /**
+     * java原生代码沙箱完整流程，编译结束与每个用例执行结束时回调监听器
+     *
+     * @param executeCodeRequest
+     * @param executeListener
+     * @return
+     */
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, ExecuteListener executeListener) {
         String code = executeCodeRequest.getCode();
-        List<String> inputList = executeCodeRequest.getInputList();
-        String language = executeCodeRequest.getLanguage();
-        // 1.保存代码到文件中
-        File userCodeFile = saveCodeToFile(code);
-        // 2.编译代码得到class文件
-        compileTheCode(userCodeFile);
-        // 3.执行class文件，并获取输出结果
-        List<ExecuteMessage> executeMessageArrayList = executeTheCode(userCodeFile, inputList);
-        // 4.收集整理输出结果
-        ExecuteCodeResponse executeCodeResponse = collectOutput(executeMessageArrayList);
-        // 5.删除用户的代码文件、减少空间占用
-        Boolean deleteCodeFile = deleteCodeFile(userCodeFile);
-        if (!deleteCodeFile) {
-            log.error("删除用户代码文件失败");
+        // 命中缓存的用例没有实际执行，不记入用例指标
+        ExecuteListener cachedCaseListener = executeListener;
+        // 每个用例结束时记录耗时与内存
+        executeListener = sandboxMetrics.wrap(sandboxType, executeListener);
+        String outcome = SandboxMetrics.OUTCOME_SANDBOX_ERROR;
+        // 租用请求引用的测试数据，执行期间不会被淘汰，缺失时直接拒绝
+        TestDataLease testDataLease = testDataStore.lease(getTestDataHashList(executeCodeRequest));
+        ExecuteCodeResponse executeCodeResponse;
+        try {
+            List<ExecuteCase> caseList = getCaseList(executeCodeRequest, testDataLease);
+            // 携带期望输出时边执行边比较，期望输出与用例数量不一致时直接拒绝
+            OutputJudge outputJudge = OutputJudge.of(executeCodeRequest, caseList.size(), testDataLease);
+            // 相同代码、相同输入与限制的用例全部命中缓存时直接返回，不再编译执行
+            List<String> cacheKeyList = executeResultCache.buildKeyList(sandboxType, getLimitIdentity(), executeCodeRequest, caseList);
+            List<ExecuteMessage> cachedMessageList = cacheKeyList == null ? null : executeResultCache.getAll(cacheKeyList, outputJudge);
+            if (cachedMessageList != null) {
+                CompileResult compileResult = new CompileResult();
+                compileResult.setSuccess(true);
+                compileResult.setTime(0L);
+                cachedCaseListener.onCompile(compileResult);
+                for (int i = 0; i < cachedMessageList.size(); i++) {
+                    cachedCaseListener.onCase(i, cachedMessageList.get(i));
+                }
+                executeCodeResponse = collectOutput(cachedMessageList);
+                executeCodeResponse.setFromCache(true);
+                outcome = SandboxMetrics.getOutcome(cachedMessageList);
+                return executeCodeResponse;
+            }
+            // 1.保存代码到文件中
+            long stageStartTime = System.nanoTime();
+            File userCodeFile = saveCodeToFile(code);
+            sandboxMetrics.recordStage(sandboxType, SandboxMetrics.STAGE_SAVE, stageStartTime);
+            try {
+                // 2.编译代码得到class文件
+                stageStartTime = System.nanoTime();
+                CompileResult compileResult;
+                try {
+                    compileResult = compileTheCode(userCodeFile, code);
+                } finally {
+                    sandboxMetrics.recordStage(sandboxType, SandboxMetrics.STAGE_COMPILE, stageStartTime);
+                }
+                executeListener.onCompile(compileResult);
+                // 3.执行class文件，并获取输出结果
+                stageStartTime = System.nanoTime();
+                List<ExecuteMessage> executeMessageArrayList = executeTheCode(userCodeFile, executeCodeRequest, caseList, outputJudge, executeListener);
+                sandboxMetrics.recordStage(sandboxType, SandboxMetrics.STAGE_EXECUTE, stageStartTime);
+                // 4.收集整理输出结果
+                stageStartTime = System.nanoTime();
+                executeCodeResponse = collectOutput(executeMessageArrayList);
+                executeCodeResponse.setFromCache(false);
+                sandboxMetrics.recordStage(sandboxType, SandboxMetrics.STAGE_COLLECT, stageStartTime);
+                if (cacheKeyList != null) {
+                    executeResultCache.putAll(cacheKeyList, executeMessageArrayList);
+                }
+                outcome = SandboxMetrics.getOutcome(executeMessageArrayList);
+            } catch (CompileException e) {
+                executeListener.onCompile(e.getCompileResult());
+                executeCodeResponse = getCompileErrorResponse(e.getCompileResult());
+                outcome = SandboxMetrics.OUTCOME_COMPILE_ERROR;
+            } finally {
+                // 5.删除用户的代码文件、减少空间占用
+                stageStartTime = System.nanoTime();
+                Boolean deleteCodeFile = deleteCodeFile(userCodeFile);
+                sandboxMetrics.recordStage(sandboxType, SandboxMetrics.STAGE_DELETE, stageStartTime);
+                if (!deleteCodeFile) {
+                    log.error("删除用户代码文件失败");
+                }
+            }
+        } finally {
+            testDataLease.close();
+            sandboxMetrics.recordOutcome(sandboxType, outcome);
         }
         return executeCodeResponse;
     }
 
+    /**
+     * 请求引用的全部测试数据哈希
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    private List<String> getTestDataHashList(ExecuteCodeRequest executeCodeRequest) {
+        List<String> hashList = new ArrayList<>();
+        if (executeCodeRequest.getInputFileList() != null) {
+            // 元素为空的用例使用标准输入内容或没有标准输入
+            executeCodeRequest.getInputFileList().stream().filter(Objects::nonNull).forEach(hashList::add);
+        }
+        if (executeCodeRequest.getExpectedOutputFileList() != null) {
+            hashList.addAll(executeCodeRequest.getExpectedOutputFileList());
+        }
+        return hashList;
+    }
+
+    /**
+     * 组装每个用例的启动参数与标准输入
+     *
+     * @param executeCodeRequest
+     * @param testDataLease
+     * @return
+     */
+    private List<ExecuteCase> getCaseList(ExecuteCodeRequest executeCodeRequest, TestDataLease testDataLease) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        List<String> inputFileList = executeCodeRequest.getInputFileList();
+        List<String> stdinList = executeCodeRequest.getStdinList();
+        int caseCount = getCaseCount(executeCodeRequest);
+        if (inputFileList != null && inputFileList.size() != caseCount) {
+            throw new IllegalArgumentException("标准输入文件数量与输入用例数量不一致");
+        }
+        if (stdinList != null && stdinList.size() != caseCount) {
+            throw new IllegalArgumentException("标准输入数量与输入用例数量不一致");
+        }
+        List<ExecuteCase> caseList = new ArrayList<>(caseCount);
+        for (int i = 0; i < caseCount; i++) {
+            String inputArgs = inputList == null ? "" : inputList.get(i);
+            File stdinFile = inputFileList == null || inputFileList.get(i) == null ? null : testDataLease.getFile(inputFileList.get(i));
+            String stdin = stdinList == null ? null : stdinList.get(i);
+            if (stdinFile != null && stdin != null) {
+                throw new IllegalArgumentException("第" + (i + 1) + "个用例同时提供了标准输入与标准输入文件");
+            }
+            caseList.add(new ExecuteCase(i, inputArgs, stdinFile, stdin));
+        }
+        return caseList;
+    }
+
+    /**
+     * 用例数，以输入用例列表为准，未提供时依次以标准输入文件列表、标准输入列表为准
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    protected static int getCaseCount(ExecuteCodeRequest executeCodeRequest) {
+        if (executeCodeRequest.getInputList() != null) {
+            return executeCodeRequest.getInputList().size();
+        }
+        if (executeCodeRequest.getInputFileList() != null) {
+            return executeCodeRequest.getInputFileList().size();
+        }
+        if (executeCodeRequest.getStdinList() != null) {
+            return executeCodeRequest.getStdinList().size();
+        }
+        return 0;
+    }
+
+    /**
+     * 影响执行结果的限制与执行环境，作为执行结果缓存 key 的一部分，限制不同时不复用结果
+     *
+     * @return
+     */
+    protected String getLimitIdentity() {
+        return "compiler=" + codeCompiler.getIdentity() + ",timeout=" + TIME_OUT + ",xmx=256m"
+                + ",outputLimit=" + executeProperties.getOutputLimit() + ",multiCaseRunner=" + executeProperties.getMultiCaseRunner();
+    }
+
     /**
      * 保存代码到文件中
      *
@@ -58,18 +276,10 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
      */
     public File saveCodeToFile(String code) {
         // 1、将用户提交的代码保存为文件
-        // 获取当前的工作目录
-        String property = System.getProperty("user.dir");
-        // File.separator获取系统文件分隔符
-        String globalCodePathName = property + File.separator + GLOBAL_CODE_DIR_NAME;
-        // 判断全局代码目录是否存在，没有则创建
-        if (!FileUtil.exist(globalCodePathName)) {
-            FileUtil.mkdir(globalCodePathName);
-        }
-        // 1.将用户的代码写入文件中,把用户的代码进行隔离存放
-        String userCodeParentPath = globalCodePathName + File.separator + UUID.randomUUID();
+        // 从工作目录管理器获取一个独立的空目录（默认位于 tmpfs，不落盘），把用户的代码进行隔离存放
+        File userCodeParentFile = workspaceManager.acquire();
         // 实际存放文件的目录
-        String userCodePath = userCodeParentPath + File.separator + GLOBAL_JAVA_CLASS_NAME;
+        String userCodePath = userCodeParentFile.getAbsolutePath() + File.separator + GLOBAL_JAVA_CLASS_NAME;
         File userCodeFile = FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
         return userCodeFile;
     }
@@ -78,81 +288,387 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
      * 编译代码得到class文件
      *
      * @param userCodeFile
+     * @param code
+     * @return
+     */
+    public CompileResult compileTheCode(File userCodeFile, String code) {
+        // 相同代码命中缓存时直接复用字节码，跳过编译
+        CompileResult compileResult = compiledClassCache.get(code, codeCompiler.getIdentity(),
+                () -> codeCompiler.compile(code, userCodeFile));
+        if (!compileResult.isSuccess()) {
+            log.info("编译失败:" + compileResult.getDiagnosticMessage());
+            throw new CompileException(compileResult);
+        }
+        log.info("编译成功，耗时：" + compileResult.getTime() + "毫秒");
+        // 进程内编译的字节码只在内存中，写入用户代码目录供执行阶段使用
+        compileResult.writeClassFiles(userCodeFile.getParentFile());
+        return compileResult;
+    }
+
+    /**
+     * 预先编译代码并写入编译缓存，之后执行同一份代码时直接命中缓存。
+     * 编译错误同样会被缓存，执行时再返回给调用方
+     *
+     * @param code
+     */
+    public void precompile(String code) {
+        File userCodeFile = saveCodeToFile(code);
+        try {
+            compiledClassCache.get(code, codeCompiler.getIdentity(), () -> codeCompiler.compile(code, userCodeFile));
+        } finally {
+            deleteCodeFile(userCodeFile);
+        }
+    }
+
+    /**
+     * 执行class文件，并获取输出结果
+     *
+     * @param userCodeFile
+     * @param executeCodeRequest
+     * @param caseList
+     * @param outputJudge
+     * @param executeListener
+     */
+    public List<ExecuteMessage> executeTheCode(File userCodeFile, ExecuteCodeRequest executeCodeRequest, List<ExecuteCase> caseList,
+                                               OutputJudge outputJudge, ExecuteListener executeListener) {
+        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
+        if (useMultiCaseRunner(caseList)) {
+            // 每个槽位只启动一次 JVM，在其中依次执行分到的用例
+            MultiCaseRunnerSupport.copyRunnerClasses(userCodeFile.getParentFile());
+            return runCasesInBatches(caseList, getParallelism(executeCodeRequest), (slot, batchCaseList) -> runNativeRunner(userCodeParentPath, batchCaseList),
+                    outputJudge, executeListener);
+        }
+        // 原生模式下每个并行槽位同时运行一个独立的 java 进程，各自受 -Xmx256m 限制
+        return runCases(caseList, getParallelism(executeCodeRequest),
+                (slot, executeCase, outputComparator) -> runNativeCase(userCodeParentPath, executeCase, outputComparator), outputJudge, executeListener);
+    }
+
+    /**
+     * 是否使用多用例执行器。执行器的标准输入用于传递用例，标准输入内容随用例一起编码，
+     * 用例需要标准输入文件时仍为每个用例单独启动进程，文件直接重定向为进程的标准输入
+     *
+     * @param caseList
+     * @return
+     */
+    protected boolean useMultiCaseRunner(List<ExecuteCase> caseList) {
+        return Boolean.TRUE.equals(executeProperties.getMultiCaseRunner())
+                && caseList.stream().allMatch(executeCase -> executeCase.getStdinFile() == null);
+    }
+
+    /**
+     * 启动一个 java 进程执行单个输入用例
+     *
+     * @param userCodeParentPath
+     * @param executeCase
+     * @param outputComparator 标准输出比较器，可以为空
+     * @return
      */
-    public void compileTheCode(File userCodeFile) {
-        // String.format()方法用于创建格式化的字符串
-        String format = String.format("javac -encoding UTF-8 %s", userCodeFile.getAbsoluteFile());
+    private ExecuteMessage runNativeCase(String userCodeParentPath, ExecuteCase executeCase, OutputComparator outputComparator) {
+        // 解决无限占用空间（浪费系统内存）问题，在执行class文件的时候，限制最大内存为256m---“-Xmx256m”
+        // 共享归档参数为空时不影响原有命令
+        List<String> runCmd = new ArrayList<>(Arrays.asList("java", "-Xmx256m"));
+        runCmd.addAll(getCdsJvmOptions());
+        runCmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", userCodeParentPath, "Main"));
+        runCmd.addAll(Arrays.asList(executeCase.getInputArgsArray()));
+        // 实际情况下，不应该在主类（开发者自己写的程序）中做限制，只需要限制子程序的权限即可
+        // 启动子进程执行命令时，设置安全管理器，而不是在外层设置（会限制住测试用例的读写和子命令的执行）
+//        String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s;%s -Djava.security.manager=%s Main %s",
+//                userCodeParentPath,
+//                SECURITY_MANAGER_PATH,
+//                SECURITY_MANAGER_CLASS_NAME,
+//                inputArgs);
+        // -----------------------------
+        // java 的 -Djava.security.manager 选项只启用安全管理器，并不接受类名作为参数。你需要在代码中手动设置 SecurityManager
+//        String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s;%s -Djava.security.manager Main %s",
+//                userCodeParentPath,
+//                SECURITY_MANAGER_PATH,
+//                inputArgs);
         try {
-            // javac执行编译命令
-            Process process = Runtime.getRuntime().exec(format);
-            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "编译");
-            if (executeMessage.getExitValue() == 0) {
-                log.info("编译成功:" + executeMessage);
+            Process process = startProcess(new ProcessBuilder(runCmd), executeCase);
+            // 解决无限睡眠（阻塞程序执行）问题，在共享的超时服务中登记截止时间，到期结束整个进程树
+            ProcessTimeoutService.Deadline deadline = processTimeoutService.register(process, TIME_OUT);
+            // 运行期间定时采样CPU时间与内存峰值，输出关闭时再采样一次
+            ProcessResourceSampler.Sampling sampling = processResourceSampler.start(process);
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行", executeProperties.getOutputLimit(),
+                    sampling::finish, outputComparator);
+            sampling.finish();
+            executeMessage.setCpuTime(sampling.getCpuTime());
+            executeMessage.setMemory(sampling.getPeakMemory());
+            if (deadline.cancel()) {
+                executeMessage.setTimeout(true);
+                executeMessage.setStatus(ExecuteStatus.TIMEOUT);
+                executeMessage.setErrorMessage(StrUtil.nullToEmpty(executeMessage.getErrorMessage()) + "程序执行超时");
+            }
+            // 以交互式的方式执行进程并获取信息
+//            ExecuteMessage executeMessage = ProcessUtils.runInteractProcessAndGetMessage(process, inputArgs);
+            if (executeMessage.getExitValue() != null && executeMessage.getExitValue() == 0) {
+                log.info("执行成功:" + executeMessage);
             } else {
-                log.info("编译失败:" + executeMessage);
-                throw new RuntimeException("编译错误！");
+                log.info("执行失败:" + executeMessage);
             }
+            return executeMessage;
         } catch (IOException e) {
-            throw new RuntimeException("编译代码异常", e);
+            throw new RuntimeException("执行代码异常", e);
         }
     }
 
     /**
-     * 执行class文件，并获取输出结果
+     * 启动进程并提供用例的标准输入。标准输入文件直接重定向，内容不经过 JVM；
+     * 标准输入内容在后台分块写入，与读取输出同时进行；没有标准输入时立即关闭，程序读到的是输入结束
      *
-     * @param userCodeFile
-     * @param inputList
+     * @param processBuilder
+     * @param executeCase
+     * @return
+     * @throws IOException
      */
-    public List<ExecuteMessage> executeTheCode(File userCodeFile, List<String> inputList) {
+    protected Process startProcess(ProcessBuilder processBuilder, ExecuteCase executeCase) throws IOException {
+        if (executeCase.getStdinFile() != null) {
+            processBuilder.redirectInput(executeCase.getStdinFile());
+        }
+        Process process = processBuilder.start();
+        if (executeCase.getStdinFile() == null) {
+            ProcessUtils.feedStdin(process, executeCase.openStdin());
+        }
+        return process;
+    }
+
+    /**
+     * 启动多用例执行器，在同一个 JVM 中依次执行一批输入用例
+     *
+     * @param userCodeParentPath
+     * @param batchCaseList
+     * @return 已完成的用例结果，执行器提前退出时少于输入用例数
+     */
+    private List<ExecuteMessage> runNativeRunner(String userCodeParentPath, List<ExecuteCase> batchCaseList) {
+        List<String> runCmd = new ArrayList<>(Arrays.asList("java", "-Xmx256m"));
+        runCmd.addAll(cdsArchiveManager.getJvmOptions());
+        runCmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", userCodeParentPath,
+                MultiCaseRunnerSupport.RUNNER_CLASS_NAME, String.valueOf(TIME_OUT), String.valueOf(executeProperties.getOutputLimit()),
+                userCodeParentPath));
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        byte[] caseBytes = MultiCaseRunnerSupport.encodeCases(runKey, batchCaseList);
+        try {
+            // 执行器自身的错误输出（JVM 警告等）写入文件，不与用例输出混在一起
+            Process process = new ProcessBuilder(runCmd)
+                    .redirectError(new File(userCodeParentPath, "runner.err"))
+                    .start();
+            // 后台写入用例，避免与读取结果互相阻塞
+            ProcessUtils.feedStdin(process, new ByteArrayInputStream(caseBytes));
+            // 执行器会对单个用例超时，这里兜底整批用例的总时长
+            ProcessTimeoutService.Deadline deadline = processTimeoutService.register(process, TIME_OUT * (batchCaseList.size() + 1));
+            List<MultiCaseRunner.CaseResult> caseResultList = MultiCaseRunner.readResults(
+                    new DataInputStream(new BufferedInputStream(process.getInputStream())), runKey, executeProperties.getOutputLimit());
+            process.waitFor();
+            if (deadline.cancel()) {
+                log.info("执行器执行超时");
+            }
+            List<ExecuteMessage> executeMessageList = new ArrayList<>();
+            for (MultiCaseRunner.CaseResult caseResult : caseResultList) {
+                ExecuteMessage executeMessage = MultiCaseRunnerSupport.toExecuteMessage(caseResult);
+                log.info("执行器执行结果:" + executeMessage);
+                executeMessageList.add(executeMessage);
+            }
+            return executeMessageList;
+        } catch (IOException e) {
+            throw new RuntimeException("执行代码异常", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行代码异常", e);
+        }
+    }
+
+    /**
+     * 在宿主机上启动的用户 JVM 的共享归档参数，归档不可用时为空
+     *
+     * @return
+     */
+    protected List<String> getCdsJvmOptions() {
+        return cdsArchiveManager.getJvmOptions();
+    }
+
+    /**
+     * 计算本次提交实际的并行度，不超过配置上限与用例数
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    protected int getParallelism(ExecuteCodeRequest executeCodeRequest) {
+        Integer parallelism = executeCodeRequest.getParallelism();
+        int caseCount = getCaseCount(executeCodeRequest);
+        if (parallelism == null || parallelism <= 1 || caseCount == 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(Math.min(parallelism, executeProperties.getMaxParallelism()), caseCount));
+    }
+
+    /**
+     * 在若干个槽位上执行输入用例，每个槽位依次领取下一个未执行的用例，结果按输入顺序返回
+     *
+     * @param caseList
+     * @param slots      槽位数，为 1 时在当前线程中逐个执行
+     * @param caseRunner 执行单个用例
+     * @param outputJudge 每个用例执行结束后给出判定结果，遇错即停时不再领取新的用例
+     * @param executeListener 每个用例执行结束后回调
+     * @return
+     */
+    protected List<ExecuteMessage> runCases(List<ExecuteCase> caseList, int slots, CaseRunner caseRunner, OutputJudge outputJudge,
+                                            ExecuteListener executeListener) {
         List<ExecuteMessage> executeMessageArrayList = new ArrayList<>();
-        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        for (String inputArgs : inputList) {
-            // 解决无限占用空间（浪费系统内存）问题，在执行class文件的时候，限制最大内存为256m---“-Xmx256m”
-            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", userCodeParentPath, inputArgs);
-            // 实际情况下，不应该在主类（开发者自己写的程序）中做限制，只需要限制子程序的权限即可
-            // 启动子进程执行命令时，设置安全管理器，而不是在外层设置（会限制住测试用例的读写和子命令的执行）
-//            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s;%s -Djava.security.manager=%s Main %s",
-//                    userCodeParentPath,
-//                    SECURITY_MANAGER_PATH,
-//                    SECURITY_MANAGER_CLASS_NAME,
-//                    inputArgs);
-            // -----------------------------
-            // java 的 -Djava.security.manager 选项只启用安全管理器，并不接受类名作为参数。你需要在代码中手动设置 SecurityManager
-//            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s;%s -Djava.security.manager Main %s",
-//                    userCodeParentPath,
-//                    SECURITY_MANAGER_PATH,
-//                    inputArgs);
-            try {
-                Process process = Runtime.getRuntime().exec(runCmd);
-                // 解决无限睡眠（阻塞程序执行）问题，在执行class文件的时候，开启一个守护进程同步计时
-                new Thread(() -> {
-                    try {
-                        //让线程睡3秒，如果3秒后进程还未结束，则强制结束进程
-                        Thread.sleep(TIME_OUT);
-                        if (process.isAlive()) {
-                            log.info("进程执行超时，强制结束进程");
-                            process.destroy();
-                        }
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }).start();
-                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行");
+        if (slots <= 1) {
+            for (int i = 0; i < caseList.size(); i++) {
+                if (outputJudge.isStopped()) {
+                    executeMessageArrayList.add(outputJudge.skipped(i));
+                    continue;
+                }
+                OutputComparator outputComparator = outputJudge.newComparator(i);
+                ExecuteMessage executeMessage = caseRunner.run(0, caseList.get(i), outputComparator);
+                outputJudge.judge(i, executeMessage, outputComparator);
+                executeListener.onCase(i, executeMessage);
                 executeMessageArrayList.add(executeMessage);
-                // 以交互式的方式执行进程并获取信息
-//                ExecuteMessage executeMessage = ProcessUtils.runInteractProcessAndGetMessage(process, inputArgs);
-                if (executeMessage.getExitValue() == 0) {
-                    log.info("执行成功:" + executeMessage);
-                } else {
-                    log.info("执行失败:" + executeMessage);
+            }
+            return executeMessageArrayList;
+        }
+        ExecuteMessage[] executeMessages = new ExecuteMessage[caseList.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Future<?>> futureList = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            int slot = i;
+            futureList.add(caseExecutorService.submit(() -> {
+                int index;
+                while (!outputJudge.isStopped() && (index = nextIndex.getAndIncrement()) < caseList.size()) {
+                    OutputComparator outputComparator = outputJudge.newComparator(index);
+                    ExecuteMessage executeMessage = caseRunner.run(slot, caseList.get(index), outputComparator);
+                    outputJudge.judge(index, executeMessage, outputComparator);
+                    executeMessages[index] = executeMessage;
+                    executeListener.onCase(index, executeMessage);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行代码异常", e);
+        } catch (ExecutionException e) {
+            // 让其余槽位尽快停止领取新的用例
+            nextIndex.set(caseList.size());
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("执行代码异常", cause);
+        }
+        // 遇错即停时未领取的用例记为未执行
+        for (int i = 0; i < executeMessages.length; i++) {
+            executeMessageArrayList.add(executeMessages[i] == null ? outputJudge.skipped(i) : executeMessages[i]);
+        }
+        return executeMessageArrayList;
+    }
+
+    /**
+     * 在若干个槽位上分批执行输入用例，每个槽位负责连续的一段用例，结果按输入顺序返回
+     *
+     * @param caseList
+     * @param slots       槽位数，为 1 时在当前线程中执行
+     * @param batchRunner 执行一批用例，参数为槽位下标与这一批输入，返回已完成的用例结果
+     * @param outputJudge 执行器返回一批结果后逐个给出判定结果
+     * @param executeListener 执行器返回一批结果后逐个回调
+     * @return
+     */
+    protected List<ExecuteMessage> runCasesInBatches(List<ExecuteCase> caseList, int slots,
+                                                     BiFunction<Integer, List<ExecuteCase>, List<ExecuteMessage>> batchRunner,
+                                                     OutputJudge outputJudge, ExecuteListener executeListener) {
+        if (slots <= 1) {
+            return runBatchUntilDone(0, 0, caseList, batchRunner, outputJudge, executeListener);
+        }
+        int batchSize = (caseList.size() + slots - 1) / slots;
+        List<Future<List<ExecuteMessage>>> futureList = new ArrayList<>();
+        for (int i = 0; i < slots && i * batchSize < caseList.size(); i++) {
+            int slot = i;
+            List<ExecuteCase> batchCaseList = caseList.subList(i * batchSize, Math.min((i + 1) * batchSize, caseList.size()));
+            int startIndex = i * batchSize;
+            futureList.add(caseExecutorService.submit(() -> runBatchUntilDone(slot, startIndex, batchCaseList, batchRunner,
+                    outputJudge, executeListener)));
+        }
+        List<ExecuteMessage> executeMessageArrayList = new ArrayList<>();
+        try {
+            for (Future<List<ExecuteMessage>> future : futureList) {
+                executeMessageArrayList.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行代码异常", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("执行代码异常", cause);
+        }
+        return executeMessageArrayList;
+    }
+
+    /**
+     * 执行一批用例，执行器因用例超时或调用 System.exit 提前退出时，从下一个用例重新启动执行器。
+     * 执行器一次执行整批用例，遇错即停只在拿到结果后生效，之后的用例记为未执行
+     *
+     * @param slot
+     * @param startIndex     这一批第一个用例在输入用例列表中的下标
+     * @param batchCaseList
+     * @param batchRunner
+     * @param outputJudge
+     * @param executeListener
+     * @return
+     */
+    private List<ExecuteMessage> runBatchUntilDone(int slot, int startIndex, List<ExecuteCase> batchCaseList,
+                                                   BiFunction<Integer, List<ExecuteCase>, List<ExecuteMessage>> batchRunner,
+                                                   OutputJudge outputJudge, ExecuteListener executeListener) {
+        List<ExecuteMessage> executeMessageArrayList = new ArrayList<>();
+        while (executeMessageArrayList.size() < batchCaseList.size()) {
+            if (outputJudge.isStopped()) {
+                executeMessageArrayList.add(outputJudge.skipped(startIndex + executeMessageArrayList.size()));
+                continue;
+            }
+            List<ExecuteCase> remainCaseList = batchCaseList.subList(executeMessageArrayList.size(), batchCaseList.size());
+            List<ExecuteMessage> executeMessageList = batchRunner.apply(slot, remainCaseList);
+            if (executeMessageList.isEmpty()) {
+                // 执行器没有返回任何结果（例如启动失败），记为当前用例执行失败，避免无限重启
+                ExecuteMessage executeMessage = new ExecuteMessage();
+                executeMessage.setExitValue(MultiCaseRunner.UNKNOWN_EXIT_VALUE);
+                executeMessage.setErrorMessage("执行器异常退出");
+                executeMessageList = Collections.singletonList(executeMessage);
+            }
+            for (ExecuteMessage executeMessage : executeMessageList) {
+                int index = startIndex + executeMessageArrayList.size();
+                if (outputJudge.isStopped()) {
+                    executeMessageArrayList.add(outputJudge.skipped(index));
+                    continue;
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("执行代码异常", e);
+                outputJudge.judge(index, executeMessage, null);
+                executeListener.onCase(index, executeMessage);
+                executeMessageArrayList.add(executeMessage);
             }
         }
         return executeMessageArrayList;
     }
 
+    /**
+     * 执行单个用例
+     */
+    @FunctionalInterface
+    protected interface CaseRunner {
+
+        /**
+         * @param slot             槽位下标
+         * @param executeCase      用例输入
+         * @param outputComparator 标准输出比较器，请求未携带期望输出时为空
+         * @return
+         */
+        ExecuteMessage run(int slot, ExecuteCase executeCase, OutputComparator outputComparator);
+    }
+
     /**
      * 收集整理输出结果
      *
@@ -166,7 +682,15 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
         List<Long> timeList = new ArrayList<>();
         List<Long> MemoryList = new ArrayList<>();
         JudgeInfo judgeInfo = new JudgeInfo();
+        // 携带期望输出时只返回判定结果，不返回输出
+        List<CaseVerdict> caseVerdictList = executeMessageArrayList.stream()
+                .map(ExecuteMessage::getCaseVerdict)
+                .filter(caseVerdict -> caseVerdict != null)
+                .collect(Collectors.toList());
         for (ExecuteMessage executeMessage1 : executeMessageArrayList) {
+            if (executeMessage1.getCaseVerdict() != null && executeMessage1.getCaseVerdict().getVerdict() == JudgeVerdict.SKIPPED) {
+                continue;
+            }
             // 如果executeMessage的errorMessage不为空，则说明执行失败，返回错误信息
             if (executeMessage1.getErrorMessage() != null) {
                 executeCodeResponse.setMessage("代码沙盒执行错误，原因：" + executeMessage1.getErrorMessage());
@@ -180,7 +704,9 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
                 // 设置状态码 1 表示代码沙盒执行成功
                 executeCodeResponse.setStatus(1);
             }
-            outputList.add(executeMessage1.getMessage());
+            if (caseVerdictList.isEmpty()) {
+                outputList.add(executeMessage1.getMessage());
+            }
             timeList.add(executeMessage1.getTime());
             if (executeMessage1.getMemory() != null) {
                 MemoryList.add(executeMessage1.getMemory());
@@ -188,6 +714,9 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
         }
         // 设置输出结果
         executeCodeResponse.setOutputList(outputList);
+        if (!caseVerdictList.isEmpty()) {
+            executeCodeResponse.setCaseVerdictList(caseVerdictList);
+        }
         // 设置时间,获取最大的时间
         timeList.stream().max(Long::compareTo).ifPresent(time -> judgeInfo.setTime(time));
         // 设置内存,获取最大的内存
@@ -197,20 +726,36 @@ public class JavaCodeSandboxTemplate implements CodeSandbox {
     }
 
     /**
-     * 删除用户的代码文件、减少空间占用
+     * 删除用户的代码文件、减少空间占用。目录归还给工作目录管理器，由后台线程清空后复用，不阻塞请求
      *
      * @param userCodeFile
      * @return
      */
     public Boolean deleteCodeFile(File userCodeFile) {
-        String userCodeParentPath = userCodeFile.getParent();
-        boolean del = false;
-        if (userCodeFile.getParentFile() != null) {
-            // 删除用户代码目录
-            del = FileUtil.del(userCodeParentPath);
-            System.out.println("删除" + (del ? "成功" : "失败"));
-        }
-        return del;
+        if (userCodeFile.getParentFile() == null) {
+            return false;
+        }
+        workspaceManager.release(userCodeFile.getParentFile());
+        return true;
+    }
+
+    /**
+     * 获取编译错误响应
+     *
+     * @param compileResult
+     * @return
+     */
+    private ExecuteCodeResponse getCompileErrorResponse(CompileResult compileResult) {
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        executeCodeResponse.setOutputList(new ArrayList<>());
+        executeCodeResponse.setMessage("编译错误：" + compileResult.getDiagnosticMessage());
+        // 设置状态码 5 表示用户提交的代码编译错误
+        executeCodeResponse.setStatus(5);
+        executeCodeResponse.setCompileDiagnosticList(compileResult.getDiagnosticList());
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage("编译错误");
+        executeCodeResponse.setJudgeInfo(judgeInfo);
+        return executeCodeResponse;
     }
 
     /**
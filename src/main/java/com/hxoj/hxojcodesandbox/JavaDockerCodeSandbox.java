@@ -1,21 +1,37 @@
 package com.hxoj.hxojcodesandbox;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ArrayUtil;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.docker.ContainerCgroupSampler;
+import com.hxoj.hxojcodesandbox.docker.ContainerPoolExhaustedException;
+import com.hxoj.hxojcodesandbox.docker.DockerContainerPool;
+import com.hxoj.hxojcodesandbox.docker.ExecOutputCollector;
+import com.hxoj.hxojcodesandbox.docker.PooledContainer;
+import com.hxoj.hxojcodesandbox.judge.OutputComparator;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
 import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.runner.MultiCaseRunner;
+import com.hxoj.hxojcodesandbox.runner.MultiCaseRunnerSupport;
+import com.hxoj.hxojcodesandbox.testdata.TestDataStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
-import java.io.Closeable;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -25,179 +41,332 @@ import java.util.concurrent.TimeUnit;
 @Component
 @Slf4j
 public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
-    private static final Boolean FIRST_INIT = true;
+
+    /**
+     * 标准输入文件与 java 命令通过位置参数传入，不需要拼接转义用户输入
+     */
+    private static final String REDIRECT_STDIN_SCRIPT = "exec \"$@\" < \"$0\"";
+
+    @Resource
+    private DockerClient dockerClient;
+
+    @Resource
+    private DockerContainerPool dockerContainerPool;
+
+    @Resource
+    private ContainerCgroupSampler containerCgroupSampler;
+
+    @Resource
+    private DockerProperties dockerProperties;
+
+    /**
+     * 容器镜像与容器的资源限制同样影响执行结果
+     *
+     * @return
+     */
+    @Override
+    protected String getLimitIdentity() {
+        return super.getLimitIdentity() + ",image=" + dockerProperties.getImage() + ",memoryLimit=" + dockerProperties.getMemoryLimit()
+                + ",cpuCount=" + dockerProperties.getCpuCount();
+    }
 
     /**
      * 对JavaCodeSandboxTemplate的方法进行重写，实现Docker代码沙箱的执行功能
      *
      * @param userCodeFile
-     * @param inputList
+     * @param executeCodeRequest
+     * @param caseList
+     * @param outputJudge
+     * @param executeListener
      * @return
      */
     @Override
-    public List<ExecuteMessage> executeTheCode(File userCodeFile, List<String> inputList) {
-        // 1. 准备工作，拉取镜像，创建容器
-        // 获取默认的dockerClient
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
-        String imageName = "openjdk:8-alpine";
-        if (FIRST_INIT) {
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(imageName);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
-                @Override
-                public void onNext(PullResponseItem item) {
-                    log.info("下载镜像：" + item.getStatus());
-                    super.onNext(item);
-                }
-            };
-            try {
-                pullImageCmd
-                        .exec(pullImageResultCallback)
-                        .awaitCompletion();
-            } catch (InterruptedException e) {
-                log.info("拉取镜像异常");
-                throw new RuntimeException("拉取镜像异常");
+    public List<ExecuteMessage> executeTheCode(File userCodeFile, ExecuteCodeRequest executeCodeRequest, List<ExecuteCase> caseList,
+                                               OutputJudge outputJudge, ExecuteListener executeListener) {
+        // 1. 从容器池租用已启动的容器，并行执行时每个槽位一个容器，保证每个用例仍受单个容器的CPU、内存限制
+        int parallelism = getParallelism(executeCodeRequest);
+        List<PooledContainer> pooledContainerList = new ArrayList<>();
+        pooledContainerList.add(dockerContainerPool.lease());
+        try {
+            for (int i = 1; i < parallelism; i++) {
+                pooledContainerList.add(dockerContainerPool.lease());
             }
+        } catch (ContainerPoolExhaustedException e) {
+            // 额外的槽位只是加速，容器不足时用已租到的容器执行
+            log.info("容器池容器不足，并行度降为：" + pooledContainerList.size());
         }
-        log.info("镜像下载完成");
-
-        // 2.创建一个可交互的容器
-        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        CreateContainerCmd containerCmd = dockerClient.createContainerCmd(imageName);
-        HostConfig hostConfig = new HostConfig();
-        // 通过HostConfig的withMemory等方法，设置容器的最大内存和资源限制
-        // 限制内存
-        hostConfig.withMemory(100 * 1000 * 1000L);
-        // 设置内存交换的值
-        hostConfig.withMemorySwap(0L);
-        // 限制CPU
-        hostConfig.withCpuCount(1L);
-        // 设置Linux安全配置
-//        hostConfig.withSecurityOpts(Arrays.asList("seccomp=安全管理配置字符串"));
-        // 设置容器挂载目录
-        hostConfig.setBinds(new Bind(userCodeParentPath, new Volume("/app")));
-        CreateContainerResponse createContainerResponse = containerCmd
-                .withHostConfig(hostConfig)
-                .withNetworkDisabled(true) // 安全设置， 禁用网络
-                .withReadonlyRootfs(true)  // 安全设置， 限制用户不能向root根目录写入文件
-                .withAttachStderr(true) // 开启控制台输入输出
-                .withAttachStdin(true)
-                .withAttachStdout(true)
-                .withTty(true) // 开启一个交互终端
-                .exec();
-        String containerId = createContainerResponse.getId();
-        log.info("创建容器Id" + containerId);
-
-        // 3.在容器中执行代码，得到输出结果
-        // 启动容器
-        dockerClient.startContainerCmd(containerId).exec();
-        // 执行命令并获取结果 ， Docker执行容器命令：docker exec [OPTIONS] CONTAINER COMMAND [ARG...]
-        ArrayList<ExecuteMessage> executeMessageArrayList = new ArrayList<>();
-        for (String inputArgs : inputList) {
-            StopWatch stopWatch = new StopWatch();
-            String[] inputArgsArray = inputArgs.split(" ");
-            String[] cmdArray = ArrayUtil.append(new String[]{"java", "-cp", "/app", "Main"}, inputArgsArray);
-            ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
-                    .withCmd(cmdArray)
-                    .withAttachStderr(true) // 开启控制台输出输出
-                    .withAttachStdin(true)
-                    .withAttachStdout(true)
-                    .exec();
-            String execCreateCmdResponseId = execCreateCmdResponse.getId();
-            log.info("执行命令Id：" + execCreateCmdResponseId);
-            if (execCreateCmdResponseId == null) {
-                throw new RuntimeException("执行命令异常");
+        // 本次租用期间是否出现超时、内存超限、非零退出等异常情况，出现则归还时销毁容器
+        boolean[] abnormal = new boolean[pooledContainerList.size()];
+        Arrays.fill(abnormal, true);
+        boolean multiCaseRunner = useMultiCaseRunner(caseList);
+        try {
+            // 2.将编译得到的class文件复制到容器挂载的代码目录
+            if (multiCaseRunner) {
+                MultiCaseRunnerSupport.copyRunnerClasses(userCodeFile.getParentFile());
             }
-            // 通过回调接口来获取程序的输出结果，并且通过 StreamType 来区分标准输出和错误输出
-            ExecuteMessage executeMessage = new ExecuteMessage();
-            final String[] message = {null};
-            final String[] errorMessage = {null};
-            long time = 0L;
-            // 判断是否超时
-            final boolean[] timeout = {true};
-            // 启动执行命令，异步获取结果
-            ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
-                @Override
-                public void onComplete() {
-                    // 如果执行完成，则表示没超时
-                    timeout[0] = false;
-                    super.onComplete();
-                }
-
-                @Override
-                public void onNext(Frame frame) {
-                    StreamType streamType = frame.getStreamType();
-                    if (StreamType.STDERR.equals(streamType)) {
-                        errorMessage[0] = new String(frame.getPayload());
-                        log.info("输出错误结果：" + errorMessage[0]);
-                    } else {
-                        message[0] = new String(frame.getPayload());
-                        log.info("输出结果：" + message[0]);
+            for (PooledContainer pooledContainer : pooledContainerList) {
+                log.info("租用容器Id" + pooledContainer.getContainerId());
+                copyClassFiles(userCodeFile.getParentFile(), pooledContainer.getCodeDir());
+            }
+            Arrays.fill(abnormal, false);
+            // 3.在容器中执行代码，得到输出结果，每个槽位在自己的容器中发起 exec
+            if (multiCaseRunner) {
+                // 每个槽位在自己的容器中只启动一次 JVM，依次执行分到的用例
+                return runCasesInBatches(caseList, pooledContainerList.size(), (slot, batchCaseList) -> {
+                    List<ExecuteMessage> executeMessageList = runRunnerInContainer(pooledContainerList.get(slot).getContainerId(), batchCaseList);
+                    if (executeMessageList.size() < batchCaseList.size()
+                            || executeMessageList.stream().anyMatch(JavaDockerCodeSandbox::isAbnormalExit)) {
+                        abnormal[slot] = true;
                     }
-                    super.onNext(frame);
-                }
-            };
-
-            final long[] maxMemory = {0L};
-            // 获取占用的内存
-            StatsCmd statsCmd = dockerClient.statsCmd(containerId);
-            ResultCallback<Statistics> statisticsResultCallback = statsCmd.exec(new ResultCallback<Statistics>() {
-                @Override
-                public void onNext(Statistics statistics) {
-                    log.info("内存占用：" + statistics.getMemoryStats().getUsage());
-                    maxMemory[0] = Math.max(statistics.getMemoryStats().getUsage(), maxMemory[0]);
+                    return executeMessageList;
+                }, outputJudge, executeListener);
+            }
+            return runCases(caseList, pooledContainerList.size(), (slot, executeCase, outputComparator) -> {
+                ExecuteMessage executeMessage = runCaseInContainer(pooledContainerList.get(slot).getContainerId(), executeCase, outputComparator);
+                if (isAbnormalExit(executeMessage)) {
+                    abnormal[slot] = true;
                 }
+                return executeMessage;
+            }, outputJudge, executeListener);
+        } catch (RuntimeException e) {
+            Arrays.fill(abnormal, true);
+            throw e;
+        } finally {
+            // 4.归还容器，清空代码目录
+            for (int i = 0; i < pooledContainerList.size(); i++) {
+                dockerContainerPool.giveBack(pooledContainerList.get(i), abnormal[i]);
+            }
+        }
+    }
 
-                @Override
-                public void close() throws IOException {
+    /**
+     * 用例是否没有正常结束（超时、被 OOM 结束、非零退出、被强制结束等），容器内可能留下了不可信的状态
+     *
+     * @param executeMessage
+     * @return
+     */
+    private static boolean isAbnormalExit(ExecuteMessage executeMessage) {
+        return executeMessage.getStatus() != ExecuteStatus.SUCCESS;
+    }
 
-                }
+    /**
+     * 复制class文件，保持包目录结构
+     *
+     * @param userCodeParentFile
+     * @param codeDir
+     */
+    private void copyClassFiles(File userCodeParentFile, File codeDir) {
+        List<File> classFileList = FileUtil.loopFiles(userCodeParentFile, file -> file.getName().endsWith(".class"));
+        for (File classFile : classFileList) {
+            String relativePath = FileUtil.subPath(userCodeParentFile.getAbsolutePath(), classFile);
+            FileUtil.copy(classFile, new File(codeDir, relativePath), true);
+        }
+    }
 
-                @Override
-                public void onStart(Closeable closeable) {
+    /**
+     * 容器内启动 java 的命令前缀，镜像中已生成共享归档时开启类数据共享
+     *
+     * @return
+     */
+    private String[] getJavaCmd() {
+        if (Boolean.TRUE.equals(dockerProperties.getCdsEnabled())) {
+            return new String[]{"java", "-Xshare:auto", "-cp", "/app"};
+        }
+        return new String[]{"java", "-cp", "/app"};
+    }
 
-                }
+    /**
+     * 在容器中启动多用例执行器，依次执行一批输入用例
+     *
+     * @param containerId
+     * @param batchCaseList
+     * @return 已完成的用例结果，执行器提前退出时少于输入用例数
+     */
+    private List<ExecuteMessage> runRunnerInContainer(String containerId, List<ExecuteCase> batchCaseList) {
+        long outputLimit = executeProperties.getOutputLimit();
+        String[] cmdArray = ArrayUtil.append(getJavaCmd(), MultiCaseRunnerSupport.RUNNER_CLASS_NAME, String.valueOf(TIME_OUT),
+                String.valueOf(outputLimit), "/app");
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmdArray)
+                .withAttachStderr(true)
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .exec();
+        String execId = execCreateCmdResponse.getId();
+        log.info("执行器命令Id：" + execId);
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        // 结果帧是二进制数据，按顺序拼接所有标准输出帧后再解析。
+        // 用户代码可以直接写标准输出，超出全部结果帧的上限后结束容器内的进程
+        long maxResultBytes = MultiCaseRunner.getMaxFrameLength(outputLimit) * batchCaseList.size();
+        ByteArrayOutputStream resultOutputStream = new ByteArrayOutputStream();
+        ResultCallback.Adapter<Frame> execStartResultCallback = new ResultCallback.Adapter<Frame>() {
 
-                @Override
-                public void onError(Throwable throwable) {
+            private boolean overflowed = false;
 
+            @Override
+            public void onNext(Frame frame) {
+                if (!StreamType.STDOUT.equals(frame.getStreamType()) && !StreamType.RAW.equals(frame.getStreamType())) {
+                    return;
                 }
-
-                @Override
-                public void onComplete() {
-
+                if (overflowed) {
+                    return;
                 }
-            });
-            statsCmd.exec(statisticsResultCallback);
+                if (resultOutputStream.size() + (long) frame.getPayload().length > maxResultBytes) {
+                    overflowed = true;
+                    log.info("执行器输出超出限制");
+                    killUserProcesses(containerId);
+                    return;
+                }
+                resultOutputStream.write(frame.getPayload(), 0, frame.getPayload().length);
+            }
+        };
+        try {
+            // 执行器会对单个用例超时，这里兜底整批用例的总时长
+            boolean completed = dockerClient.execStartCmd(execId)
+                    .withStdIn(new ByteArrayInputStream(MultiCaseRunnerSupport.encodeCases(runKey, batchCaseList)))
+                    .exec(execStartResultCallback)
+                    .awaitCompletion(TIME_OUT * (batchCaseList.size() + 1), TimeUnit.MILLISECONDS);
+            if (!completed) {
+                log.info("执行器执行超时");
+            }
+            List<MultiCaseRunner.CaseResult> caseResultList = MultiCaseRunner.readResults(
+                    new DataInputStream(new ByteArrayInputStream(resultOutputStream.toByteArray())), runKey, outputLimit);
+            List<ExecuteMessage> executeMessageList = new ArrayList<>();
+            for (MultiCaseRunner.CaseResult caseResult : caseResultList) {
+                ExecuteMessage executeMessage = MultiCaseRunnerSupport.toExecuteMessage(caseResult);
+                log.info("执行器执行结果:" + executeMessage);
+                executeMessageList.add(executeMessage);
+            }
+            return executeMessageList;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行命令异常");
+        } catch (IOException e) {
+            throw new RuntimeException("读取执行器结果异常", e);
+        }
+    }
 
-            // 执行启动命令
+    /**
+     * 在容器中执行单个输入用例
+     *
+     * @param containerId
+     * @param executeCase
+     * @param outputComparator 标准输出比较器，可以为空，不为空时输出边收边比较，不保留
+     * @return
+     */
+    private ExecuteMessage runCaseInContainer(String containerId, ExecuteCase executeCase, OutputComparator outputComparator) {
+        // 执行命令并获取结果 ， Docker执行容器命令：docker exec [OPTIONS] CONTAINER COMMAND [ARG...]
+        StopWatch stopWatch = new StopWatch();
+        String[] cmdArray = ArrayUtil.append(ArrayUtil.append(getJavaCmd(), "Main"), executeCase.getInputArgsArray());
+        if (executeCase.getStdinFile() != null) {
+            // 测试数据目录只读挂载在容器中，由 shell 重定向标准输入后 exec 成 java 进程
+            String containerStdinPath = TestDataStore.CONTAINER_DATA_DIR + "/" + executeCase.getStdinFile().getName();
+            cmdArray = ArrayUtil.append(new String[]{"sh", "-c", REDIRECT_STDIN_SCRIPT, containerStdinPath}, cmdArray);
+        }
+        // 标准输入内容通过 exec 的附加连接传入，没有时不附加标准输入，程序读到的是输入结束
+        boolean attachStdin = executeCase.getStdin() != null;
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmdArray)
+                .withAttachStderr(true) // 开启控制台输出输出
+                .withAttachStdin(attachStdin)
+                .withAttachStdout(true)
+                .exec();
+        String execCreateCmdResponseId = execCreateCmdResponse.getId();
+        log.info("执行命令Id：" + execCreateCmdResponseId);
+        if (execCreateCmdResponseId == null) {
+            throw new RuntimeException("执行命令异常");
+        }
+        // 通过回调接口来获取程序的输出结果，按 StreamType 把标准输出和错误输出分别追加到缓冲区，结束后统一解码
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        long time = 0L;
+        // 启动执行命令，异步获取结果，命令结束时回调完成，不再轮询
+        ExecOutputCollector execStartResultCallback = new ExecOutputCollector(executeProperties.getOutputLimit(), outputComparator,
+                () -> killUserProcesses(containerId));
+        // 内存峰值与CPU时间在用例前后各读一次 cgroup 文件
+        ContainerCgroupSampler.Sample sample = containerCgroupSampler.begin(containerId);
+        boolean completed;
+        // 执行启动命令
+        try {
+            // 解决无限睡眠（阻塞程序执行）问题并获取时间，超时控制
+            stopWatch.start();
+            ExecStartCmd execStartCmd = dockerClient.execStartCmd(execCreateCmdResponseId);
+            if (attachStdin) {
+                // 客户端在单独的线程中把输入分块写入连接，与接收输出帧同时进行
+                execStartCmd.withStdIn(executeCase.openStdin());
+            }
+            completed = execStartCmd
+                    .exec(execStartResultCallback)
+                    // 超时控制参数（单位：毫秒）
+                    .awaitCompletion(TIME_OUT, TimeUnit.MILLISECONDS);
+            stopWatch.stop();
+            time = stopWatch.getLastTaskTimeMillis();
+            log.info("执行命令耗时：" + time + "毫秒");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行命令异常");
+        } catch (IOException e) {
+            throw new RuntimeException("读取标准输入异常", e);
+        } finally {
             try {
-                // 解决无限睡眠（阻塞程序执行）问题并获取时间，超时控制
-                stopWatch.start();
-                dockerClient.execStartCmd(execCreateCmdResponseId)
-                        .exec(execStartResultCallback)
-//                        .awaitCompletion();
-                        // 超时控制参数（单位：微秒）
-                        .awaitCompletion(TIME_OUT, TimeUnit.MILLISECONDS);
-                stopWatch.stop();
-                time = stopWatch.getLastTaskTimeMillis();
-                log.info("执行命令耗时：" + time + "毫秒");
-                // 关闭内存监听
-                statsCmd.close();
-            } catch (InterruptedException e) {
-                throw new RuntimeException("执行命令异常");
+                execStartResultCallback.close();
+            } catch (IOException e) {
+                log.warn("关闭执行命令回调失败", e);
+            }
+        }
+        try {
+            containerCgroupSampler.end(sample, executeMessage);
+            // 4.封装数据，输出只在最后解码一次
+            // 与本地进程一致，只有执行失败时才返回错误输出，正常退出时错误输出中的警告等不视为执行错误
+            executeMessage.setMessage(execStartResultCallback.getMessage());
+            executeMessage.setTruncated(execStartResultCallback.isTruncated());
+            if (!completed) {
+                executeMessage.setTimeout(true);
+                executeMessage.setStatus(ExecuteStatus.TIMEOUT);
+                executeMessage.setErrorMessage(execStartResultCallback.getErrorMessage() + "同时程序执行超时");
+                executeMessage.setTime(time);
+                return executeMessage;
             }
-            // 4.封装数据
-            if (timeout[0]) {
-                executeMessage.setErrorMessage(errorMessage[0] + "同时程序执行超时");
+            // 退出码由 Docker 记录，命令结束后查询一次即可
+            Long exitCode = dockerClient.inspectExecCmd(execCreateCmdResponseId).exec().getExitCodeLong();
+            if (exitCode != null) {
+                executeMessage.setExitValue(exitCode.intValue());
+            }
+            if (execStartResultCallback.isMismatchStopped()) {
+                executeMessage.setStatus(ExecuteStatus.OUTPUT_MISMATCH);
+            } else if (execStartResultCallback.isTruncated()) {
+                log.info("输出超出限制");
+                executeMessage.setStatus(ExecuteStatus.OUTPUT_LIMIT_EXCEEDED);
+                executeMessage.setErrorMessage(execStartResultCallback.getErrorMessage() + "输出超出限制");
+            } else if (Integer.valueOf(0).equals(executeMessage.getExitValue())) {
+                executeMessage.setStatus(ExecuteStatus.SUCCESS);
+            } else {
+                executeMessage.setStatus(ExecuteStatus.RUNTIME_ERROR);
+                executeMessage.setErrorMessage(execStartResultCallback.getErrorMessage());
             }
-            executeMessage.setErrorMessage(errorMessage[0]);
-            executeMessage.setMessage(message[0]);
             executeMessage.setTime(time);
-            executeMessage.setMemory(maxMemory[0]);
-            executeMessageArrayList.add(executeMessage);
+            return executeMessage;
+        } finally {
+            execStartResultCallback.release();
+        }
+    }
+
+    /**
+     * Docker 没有结束单个 exec 的接口，在容器中再执行一次 kill 结束用户进程。
+     * 容器同一时间只执行一个用例，除 1 号进程外的进程都属于当前用例。
+     * 在输出回调线程中调用，只启动 kill 不等待其结束，用例的执行命令随用户进程结束而完成。
+     * 结束失败时用户进程继续运行直到超时，容器随后作为异常容器销毁
+     *
+     * @param containerId
+     */
+    private void killUserProcesses(String containerId) {
+        try {
+            String execId = dockerClient.execCreateCmd(containerId)
+                    .withCmd("kill", "-9", "-1")
+                    .exec()
+                    .getId();
+            dockerClient.execStartCmd(execId).exec(new ResultCallback.Adapter<>());
+        } catch (Exception e) {
+            log.warn("结束容器中的用户进程失败：" + containerId, e);
         }
-        // 5.删除容器，释放资源
-        dockerClient.removeContainerCmd(containerId).withForce(true).exec();
-        return executeMessageArrayList;
     }
-}
\ No newline at end of file
+}
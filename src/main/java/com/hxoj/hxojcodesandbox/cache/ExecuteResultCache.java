@@ -0,0 +1,368 @@
+package com.hxoj.hxojcodesandbox.cache;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.hxoj.hxojcodesandbox.ExecuteCase;
+import com.hxoj.hxojcodesandbox.config.ResultCacheProperties;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行结果缓存，以（沙箱类型、限制、编译器、源码、单个用例的输入与判定方式）的 SHA-256 为 key，
+ * 缓存每个用例的执行信息，分为内存 LRU 与磁盘两级，均按写入时间过期。
+ * 只有一次提交的全部用例都命中时才直接返回，否则完整执行并写入缓存
+ */
+@Component
+@Slf4j
+public class ExecuteResultCache {
+
+    public static final String CACHE_DIR_NAME = "resultCache";
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String TMP_MARK = ".tmp-";
+
+    @Resource
+    private ResultCacheProperties resultCacheProperties;
+
+    /**
+     * 内存缓存，值为执行信息的 JSON，每次读取都得到新的对象。按访问顺序排列，实现 LRU
+     */
+    private final LinkedHashMap<String, CacheEntry> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryCacheSize = 0L;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong bypassCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private File cacheDir;
+
+    /**
+     * 磁盘缓存占用（字节），启动时统计一次，之后增量维护
+     */
+    private final AtomicLong diskCacheSize = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!Boolean.TRUE.equals(resultCacheProperties.getDiskEnabled())) {
+            return;
+        }
+        String diskDir = resultCacheProperties.getDiskDir();
+        cacheDir = StrUtil.isBlank(diskDir)
+                ? new File(System.getProperty("user.dir") + File.separator + "tmpCode", CACHE_DIR_NAME) : new File(diskDir);
+        FileUtil.mkdir(cacheDir);
+        // 清理上次进程退出时残留的临时文件与已过期的缓存
+        long diskSize = 0L;
+        for (File file : FileUtil.loopFiles(cacheDir)) {
+            if (file.getName().contains(TMP_MARK) || isExpired(file)) {
+                FileUtil.del(file);
+            } else {
+                diskSize += file.length();
+            }
+        }
+        diskCacheSize.set(diskSize);
+        log.info("执行结果磁盘缓存目录：" + cacheDir.getAbsolutePath() + "，占用 " + diskSize + " 字节");
+    }
+
+    /**
+     * 计算一次提交中每个用例的 key，不使用缓存时返回空
+     *
+     * @param sandboxType      沙箱类型
+     * @param limitIdentity    执行限制与编译器标识，限制不同的结果不能复用
+     * @param executeCodeRequest
+     * @param caseList
+     * @return
+     */
+    public List<String> buildKeyList(String sandboxType, String limitIdentity, ExecuteCodeRequest executeCodeRequest,
+                                     List<ExecuteCase> caseList) {
+        if (!Boolean.TRUE.equals(resultCacheProperties.getEnabled())) {
+            return null;
+        }
+        // 输出不确定的题目（随机、与时间相关、特殊判题等）每次都要执行
+        if (Boolean.FALSE.equals(executeCodeRequest.getDeterministic())) {
+            bypassCount.incrementAndGet();
+            return null;
+        }
+        String submissionKey = DigestUtil.sha256Hex(sandboxType + "\n" + limitIdentity + "\n"
+                + DigestUtil.sha256Hex(executeCodeRequest.getCode()) + "\n"
+                + executeCodeRequest.getCompareMode() + "\n" + executeCodeRequest.getTolerance());
+        List<String> inputFileList = executeCodeRequest.getInputFileList();
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        List<String> expectedOutputFileList = executeCodeRequest.getExpectedOutputFileList();
+        List<String> keyList = new ArrayList<>(caseList.size());
+        for (ExecuteCase executeCase : caseList) {
+            int index = executeCase.getIndex();
+            // 标准输入文件与期望输出文件本身以内容哈希命名，直接使用
+            String stdinHash = executeCase.getStdin() != null ? DigestUtil.sha256Hex(executeCase.getStdin())
+                    : inputFileList != null && inputFileList.get(index) != null ? "file:" + inputFileList.get(index) : "";
+            String expectedHash = expectedOutputList != null ? DigestUtil.sha256Hex(expectedOutputList.get(index))
+                    : expectedOutputFileList != null ? "file:" + expectedOutputFileList.get(index) : "";
+            keyList.add(DigestUtil.sha256Hex(submissionKey + "\n" + DigestUtil.sha256Hex(executeCase.getInputArgs())
+                    + "\n" + stdinHash + "\n" + expectedHash));
+        }
+        return keyList;
+    }
+
+    /**
+     * 查询一次提交的全部用例，有任意一个未命中时返回空。
+     * 遇错即停时命中的未通过用例之后的用例不再需要，直接记为未执行
+     *
+     * @param keyList
+     * @param outputJudge
+     * @return 按用例顺序排列的执行信息
+     */
+    public List<ExecuteMessage> getAll(List<String> keyList, OutputJudge outputJudge) {
+        List<ExecuteMessage> executeMessageList = new ArrayList<>(keyList.size());
+        boolean stopped = false;
+        for (int i = 0; i < keyList.size(); i++) {
+            if (stopped) {
+                executeMessageList.add(outputJudge.skipped(i));
+                continue;
+            }
+            String json = get(keyList.get(i));
+            if (json == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            ExecuteMessage executeMessage = JSONUtil.toBean(json, ExecuteMessage.class);
+            // 相同的用例在另一次提交中的位置可能不同
+            if (executeMessage.getCaseVerdict() != null) {
+                executeMessage.getCaseVerdict().setIndex(i);
+                stopped = outputJudge.isStopOnFirstMismatch() && executeMessage.getCaseVerdict().getVerdict() != JudgeVerdict.ACCEPTED;
+            }
+            executeMessageList.add(executeMessage);
+        }
+        hitCount.incrementAndGet();
+        return executeMessageList;
+    }
+
+    /**
+     * 写入一次提交的执行信息，超时与未执行的用例不写入
+     *
+     * @param keyList
+     * @param executeMessageList
+     */
+    public void putAll(List<String> keyList, List<ExecuteMessage> executeMessageList) {
+        for (int i = 0; i < keyList.size() && i < executeMessageList.size(); i++) {
+            ExecuteMessage executeMessage = executeMessageList.get(i);
+            if (!isCacheable(executeMessage)) {
+                continue;
+            }
+            String json = JSONUtil.toJsonStr(executeMessage);
+            putToMemory(keyList.get(i), json, System.currentTimeMillis() + resultCacheProperties.getTtl());
+            if (cacheDir != null) {
+                putToDisk(keyList.get(i), json);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getBypassCount() {
+        return bypassCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public synchronized long getMemoryCacheSize() {
+        return memoryCacheSize;
+    }
+
+    public long getDiskCacheSize() {
+        return diskCacheSize.get();
+    }
+
+    /**
+     * 超时受机器负载影响，未执行的用例没有结果，都不缓存
+     *
+     * @param executeMessage
+     * @return
+     */
+    private boolean isCacheable(ExecuteMessage executeMessage) {
+        if (executeMessage == null || executeMessage.getExitValue() == null) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(executeMessage.getTimeout()) || executeMessage.getStatus() == ExecuteStatus.TIMEOUT) {
+            return false;
+        }
+        return executeMessage.getCaseVerdict() == null
+                || (executeMessage.getCaseVerdict().getVerdict() != JudgeVerdict.SKIPPED
+                && executeMessage.getCaseVerdict().getVerdict() != JudgeVerdict.TIME_LIMIT_EXCEEDED);
+    }
+
+    private String get(String key) {
+        String json = getFromMemory(key);
+        if (json != null || cacheDir == null) {
+            return json;
+        }
+        File entryFile = getEntryFile(key);
+        if (!entryFile.exists()) {
+            return null;
+        }
+        if (isExpired(entryFile)) {
+            deleteFromDisk(entryFile);
+            return null;
+        }
+        try {
+            json = FileUtil.readString(entryFile, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.warn("读取执行结果缓存失败：" + key, e);
+            return null;
+        }
+        diskHitCount.incrementAndGet();
+        // 过期时间仍以写入磁盘的时间为准
+        putToMemory(key, json, entryFile.lastModified() + resultCacheProperties.getTtl());
+        return json;
+    }
+
+    private synchronized String getFromMemory(String key) {
+        CacheEntry cacheEntry = memoryCache.get(key);
+        if (cacheEntry == null) {
+            return null;
+        }
+        if (cacheEntry.expireTime <= System.currentTimeMillis()) {
+            memoryCache.remove(key);
+            memoryCacheSize -= cacheEntry.size();
+            return null;
+        }
+        return cacheEntry.json;
+    }
+
+    private synchronized void putToMemory(String key, String json, long expireTime) {
+        CacheEntry cacheEntry = new CacheEntry(json, expireTime);
+        if (cacheEntry.size() > resultCacheProperties.getMemorySize()) {
+            return;
+        }
+        CacheEntry previous = memoryCache.put(key, cacheEntry);
+        if (previous != null) {
+            memoryCacheSize -= previous.size();
+        }
+        memoryCacheSize += cacheEntry.size();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = memoryCache.entrySet().iterator();
+        while (memoryCacheSize > resultCacheProperties.getMemorySize() && iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> eldest = iterator.next();
+            memoryCacheSize -= eldest.getValue().size();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 按 key 的前两位分目录存放，避免单个目录下文件过多
+     *
+     * @param key
+     * @return
+     */
+    private File getEntryFile(String key) {
+        return new File(new File(cacheDir, key.substring(0, 2)), key + ENTRY_SUFFIX);
+    }
+
+    private boolean isExpired(File entryFile) {
+        return entryFile.lastModified() + resultCacheProperties.getTtl() <= System.currentTimeMillis();
+    }
+
+    private void putToDisk(String key, String json) {
+        File entryFile = getEntryFile(key);
+        // 先写入临时文件再重命名，避免读到写了一半的缓存
+        File tmpFile = new File(entryFile.getParentFile(), entryFile.getName() + TMP_MARK + UUID.randomUUID());
+        try {
+            FileUtil.writeString(json, tmpFile, StandardCharsets.UTF_8);
+            long previousSize = entryFile.length();
+            Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskCacheSize.addAndGet(entryFile.length() - previousSize) > resultCacheProperties.getDiskSize()) {
+                evictDisk();
+            }
+        } catch (Exception e) {
+            log.warn("写入执行结果缓存失败：" + key, e);
+            FileUtil.del(tmpFile);
+        }
+    }
+
+    private void deleteFromDisk(File entryFile) {
+        long size = entryFile.length();
+        if (entryFile.delete()) {
+            diskCacheSize.addAndGet(-size);
+        }
+    }
+
+    /**
+     * 磁盘缓存超出容量时，先删除已过期的缓存，再按写入时间淘汰
+     */
+    private synchronized void evictDisk() {
+        List<File> entryFileList = FileUtil.loopFiles(cacheDir, file -> !file.getName().contains(TMP_MARK));
+        long diskSize = 0L;
+        List<File> liveFileList = new ArrayList<>(entryFileList.size());
+        for (File entryFile : entryFileList) {
+            if (isExpired(entryFile)) {
+                FileUtil.del(entryFile);
+                evictionCount.incrementAndGet();
+            } else {
+                diskSize += entryFile.length();
+                liveFileList.add(entryFile);
+            }
+        }
+        liveFileList.sort(Comparator.comparingLong(File::lastModified));
+        // 淘汰到容量的 90%，避免每次写入都触发全量扫描
+        long targetSize = resultCacheProperties.getDiskSize() / 10 * 9;
+        for (File entryFile : liveFileList) {
+            if (diskSize <= targetSize) {
+                break;
+            }
+            diskSize -= entryFile.length();
+            FileUtil.del(entryFile);
+            evictionCount.incrementAndGet();
+        }
+        diskCacheSize.set(diskSize);
+    }
+
+    private static class CacheEntry {
+
+        private final String json;
+
+        private final long expireTime;
+
+        CacheEntry(String json, long expireTime) {
+            this.json = json;
+            this.expireTime = expireTime;
+        }
+
+        long size() {
+            return 64L + json.length() * 2L;
+        }
+    }
+}
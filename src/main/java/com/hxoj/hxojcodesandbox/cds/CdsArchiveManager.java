@@ -0,0 +1,321 @@
+package com.hxoj.hxojcodesandbox.cds;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hxoj.hxojcodesandbox.compiler.CodeCompiler;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类数据共享（CDS）归档管理，为原生模式启动的用户 JVM 生成共享归档，
+ * 减少每次启动时加载、校验 JDK 类的耗时。归档按 JDK 指纹存放，JDK 变化后重新生成
+ */
+@Component
+@Slf4j
+public class CdsArchiveManager {
+
+    public static final String CDS_DIR_NAME = "cds";
+
+    /**
+     * 生成类列表时运行的示例程序，覆盖输入输出等判题程序常用的 JDK 类
+     */
+    private static final String SAMPLE_CODE = "import java.util.*;\n"
+            + "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        Scanner cin = new Scanner(System.in);\n"
+            + "        List<Integer> list = new ArrayList<>();\n"
+            + "        Map<String, Integer> map = new HashMap<>();\n"
+            + "        while (cin.hasNextInt()) { int x = cin.nextInt(); list.add(x); map.put(String.valueOf(x), x); }\n"
+            + "        StringBuilder sb = new StringBuilder();\n"
+            + "        for (String arg : args) { sb.append(Integer.parseInt(arg)).append(' '); }\n"
+            + "        System.out.println(sb.toString() + list.size() + map.size() + Math.max(1, 2) + String.format(\"%.2f\", 1.0));\n"
+            + "    }\n"
+            + "}\n";
+
+    @Resource
+    private ExecuteProperties executeProperties;
+
+    @Resource
+    private CodeCompiler codeCompiler;
+
+    private File cdsDir;
+
+    /**
+     * 当前可用的归档文件，为空表示未生成或生成失败
+     */
+    private volatile File archiveFile;
+
+    /**
+     * 当前可用归档对应的 JDK 指纹
+     */
+    private volatile String jdkFingerprint;
+
+    /**
+     * 当前 JDK 的主版本号
+     */
+    private volatile int jdkMajorVersion;
+
+    private ScheduledExecutorService cdsExecutor;
+
+    @PostConstruct
+    public void init() {
+        cdsDir = new File(System.getProperty("user.dir") + File.separator + "tmpCode", CDS_DIR_NAME);
+        if (!Boolean.TRUE.equals(executeProperties.getCdsEnabled())) {
+            return;
+        }
+        cdsExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("cds-archive-").setDaemon(true).build());
+        // 生成归档需要启动多次 JVM，放到后台执行，生成完成前用户 JVM 不带归档参数启动
+        long interval = executeProperties.getCdsCheckInterval();
+        cdsExecutor.scheduleWithFixedDelay(this::refresh, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (cdsExecutor != null) {
+            cdsExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 启动用户 JVM 时需要追加的共享归档参数
+     *
+     * @return
+     */
+    public List<String> getJvmOptions() {
+        File currentArchiveFile = archiveFile;
+        if (currentArchiveFile == null) {
+            return Collections.emptyList();
+        }
+        return buildJvmOptions(currentArchiveFile, jdkMajorVersion);
+    }
+
+    /**
+     * 检查 JDK 指纹，JDK 变化或归档不存在时重新生成，并删除其他指纹的旧归档
+     */
+    public synchronized void refresh() {
+        try {
+            Map<String, String> jdkProperties = readJdkProperties();
+            String fingerprint = buildFingerprint(jdkProperties);
+            int majorVersion = parseMajorVersion(jdkProperties.get("java.version"));
+            File targetArchiveFile = new File(cdsDir, fingerprint + ".jsa");
+            if (fingerprint.equals(jdkFingerprint) && targetArchiveFile.exists()) {
+                return;
+            }
+            if (archiveFile != null) {
+                log.info("检测到 JDK 变化，重新生成共享归档");
+            }
+            // JDK 变化后旧归档立即失效，新归档生成前不再传递归档参数
+            archiveFile = null;
+            FileUtil.mkdir(cdsDir);
+            if (!targetArchiveFile.exists()) {
+                dumpArchive(targetArchiveFile, majorVersion);
+            }
+            File[] staleFiles = cdsDir.listFiles(file -> !file.getName().startsWith(fingerprint));
+            if (staleFiles != null) {
+                Arrays.stream(staleFiles).forEach(FileUtil::del);
+            }
+            jdkFingerprint = fingerprint;
+            jdkMajorVersion = majorVersion;
+            archiveFile = targetArchiveFile;
+            log.info("共享归档已就绪：" + targetArchiveFile.getAbsolutePath());
+        } catch (Exception e) {
+            log.error("生成共享归档失败，用户 JVM 将不使用共享归档启动", e);
+        }
+    }
+
+    /**
+     * 对比使用与不使用共享归档时 JVM 的启动耗时，启动的是一个只输出一行的示例程序
+     *
+     * @param rounds 每组启动次数
+     * @return
+     */
+    public CdsBenchmarkResult benchmark(int rounds) {
+        File currentArchiveFile = archiveFile;
+        if (currentArchiveFile == null) {
+            refresh();
+            currentArchiveFile = archiveFile;
+            if (currentArchiveFile == null) {
+                throw new IllegalStateException("共享归档不可用");
+            }
+        }
+        File sampleDir = FileUtil.mkdir(new File(cdsDir, jdkFingerprint + "-benchmark"));
+        try {
+            writeSampleClasses(sampleDir);
+            List<String> withoutArchiveCmd = new ArrayList<>(Arrays.asList("java", "-Xshare:off", "-cp", sampleDir.getAbsolutePath(), "Main", "1"));
+            List<String> withArchiveCmd = new ArrayList<>(Collections.singletonList("java"));
+            withArchiveCmd.addAll(buildJvmOptions(currentArchiveFile, jdkMajorVersion));
+            withArchiveCmd.addAll(Arrays.asList("-cp", sampleDir.getAbsolutePath(), "Main", "1"));
+            // 预热一次，排除文件系统缓存的影响
+            measureStartTime(withoutArchiveCmd);
+            measureStartTime(withArchiveCmd);
+            List<Long> withoutArchiveTimeList = new ArrayList<>();
+            List<Long> withArchiveTimeList = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                // 交替执行，减少机器负载波动带来的偏差
+                withoutArchiveTimeList.add(measureStartTime(withoutArchiveCmd));
+                withArchiveTimeList.add(measureStartTime(withArchiveCmd));
+            }
+            CdsBenchmarkResult cdsBenchmarkResult = new CdsBenchmarkResult();
+            cdsBenchmarkResult.setRounds(rounds);
+            cdsBenchmarkResult.setWithoutArchiveAvgTime(withoutArchiveTimeList.stream().mapToLong(Long::longValue).average().orElse(0));
+            cdsBenchmarkResult.setWithoutArchiveMedianTime(median(withoutArchiveTimeList));
+            cdsBenchmarkResult.setWithArchiveAvgTime(withArchiveTimeList.stream().mapToLong(Long::longValue).average().orElse(0));
+            cdsBenchmarkResult.setWithArchiveMedianTime(median(withArchiveTimeList));
+            return cdsBenchmarkResult;
+        } finally {
+            FileUtil.del(sampleDir);
+        }
+    }
+
+    /**
+     * JDK 8 只能归档 JDK 自带的默认类列表；JDK 10 之后通过运行示例程序得到类列表，生成应用类数据共享归档
+     *
+     * @param targetArchiveFile
+     * @param majorVersion
+     */
+    private void dumpArchive(File targetArchiveFile, int majorVersion) throws IOException, InterruptedException {
+        File tmpArchiveFile = new File(cdsDir, targetArchiveFile.getName() + ".tmp");
+        List<String> dumpCmd = new ArrayList<>(Arrays.asList("java", "-Xshare:dump"));
+        if (majorVersion < 10) {
+            dumpCmd.add("-XX:+UnlockDiagnosticVMOptions");
+        } else {
+            File sampleDir = FileUtil.mkdir(new File(cdsDir, targetArchiveFile.getName() + ".sample"));
+            File classListFile = new File(cdsDir, targetArchiveFile.getName() + ".classlist");
+            try {
+                writeSampleClasses(sampleDir);
+                runJava(Arrays.asList("java", "-Xshare:off", "-XX:DumpLoadedClassList=" + classListFile.getAbsolutePath(),
+                        "-cp", sampleDir.getAbsolutePath(), "Main", "1", "2"), "1 2 3\n");
+            } finally {
+                FileUtil.del(sampleDir);
+            }
+            // 类列表中的用户类在转储时找不到会被跳过，只保留 JDK 类
+            dumpCmd.add("-XX:SharedClassListFile=" + classListFile.getAbsolutePath());
+        }
+        dumpCmd.add("-XX:SharedArchiveFile=" + tmpArchiveFile.getAbsolutePath());
+        dumpCmd.add("-version");
+        ExecuteMessage executeMessage = runJava(dumpCmd, null);
+        if (executeMessage.getExitValue() == null || executeMessage.getExitValue() != 0 || !tmpArchiveFile.exists()) {
+            FileUtil.del(tmpArchiveFile);
+            throw new IllegalStateException("生成共享归档失败：" + executeMessage.getMessage());
+        }
+        FileUtil.move(tmpArchiveFile, targetArchiveFile, true);
+    }
+
+    private List<String> buildJvmOptions(File currentArchiveFile, int majorVersion) {
+        List<String> jvmOptions = new ArrayList<>();
+        if (majorVersion < 10) {
+            jvmOptions.add("-XX:+UnlockDiagnosticVMOptions");
+        }
+        // auto 模式下归档与 JDK 不匹配时 JVM 会忽略归档正常启动
+        jvmOptions.add("-Xshare:auto");
+        jvmOptions.add("-XX:SharedArchiveFile=" + currentArchiveFile.getAbsolutePath());
+        return jvmOptions;
+    }
+
+    private void writeSampleClasses(File sampleDir) {
+        CompileResult compileResult = codeCompiler.compile(SAMPLE_CODE, FileUtil.writeString(SAMPLE_CODE,
+                new File(sampleDir, "Main.java"), StandardCharsets.UTF_8));
+        if (!compileResult.isSuccess()) {
+            throw new IllegalStateException("编译示例程序失败：" + compileResult.getDiagnosticMessage());
+        }
+        compileResult.writeClassFiles(sampleDir);
+    }
+
+    private long measureStartTime(List<String> cmd) {
+        long startTime = System.nanoTime();
+        try {
+            runJava(cmd, null);
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("启动 JVM 异常", e);
+        }
+        return (System.nanoTime() - startTime) / 1000000L;
+    }
+
+    private long median(List<Long> timeList) {
+        List<Long> sortedTimeList = new ArrayList<>(timeList);
+        Collections.sort(sortedTimeList);
+        return sortedTimeList.isEmpty() ? 0L : sortedTimeList.get(sortedTimeList.size() / 2);
+    }
+
+    /**
+     * 读取 PATH 中 java 的系统属性，沙箱启动用户代码用的也是这个 java
+     *
+     * @return
+     */
+    private Map<String, String> readJdkProperties() throws IOException, InterruptedException {
+        ExecuteMessage executeMessage = runJava(Arrays.asList("java", "-XshowSettings:properties", "-version"), null);
+        Map<String, String> jdkProperties = new HashMap<>();
+        for (String line : StrUtil.split(StrUtil.nullToEmpty(executeMessage.getMessage()), '\n')) {
+            int index = line.indexOf(" = ");
+            if (index > 0) {
+                jdkProperties.put(line.substring(0, index).trim(), line.substring(index + 3).trim());
+            }
+        }
+        if (!jdkProperties.containsKey("java.home")) {
+            throw new IllegalStateException("无法读取 JDK 信息");
+        }
+        return jdkProperties;
+    }
+
+    /**
+     * JDK 指纹：安装目录、版本以及类库文件的大小和修改时间，原地升级 JDK 也能识别
+     *
+     * @param jdkProperties
+     * @return
+     */
+    private String buildFingerprint(Map<String, String> jdkProperties) {
+        String javaHome = jdkProperties.get("java.home");
+        File modulesFile = new File(javaHome, "lib" + File.separator + "modules");
+        File classLibraryFile = modulesFile.exists() ? modulesFile : new File(javaHome, "lib" + File.separator + "rt.jar");
+        String fingerprintSource = javaHome + "|" + jdkProperties.get("java.version") + "|" + jdkProperties.get("java.vm.version")
+                + "|" + classLibraryFile.length() + "|" + classLibraryFile.lastModified();
+        return DigestUtil.sha256Hex(fingerprintSource).substring(0, 16);
+    }
+
+    private int parseMajorVersion(String javaVersion) {
+        if (StrUtil.isBlank(javaVersion)) {
+            return 8;
+        }
+        String[] parts = javaVersion.split("[.\\-+_]");
+        int major = Integer.parseInt(parts[0]);
+        // 1.8.0_xxx 形式的版本号
+        if (major == 1 && parts.length > 1) {
+            major = Integer.parseInt(parts[1]);
+        }
+        return major;
+    }
+
+    private ExecuteMessage runJava(List<String> cmd, String stdin) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        try (OutputStream outputStream = process.getOutputStream()) {
+            if (stdin != null) {
+                outputStream.write(stdin.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return ProcessUtils.runProcessAndGetMessage(process, "共享归档");
+    }
+}
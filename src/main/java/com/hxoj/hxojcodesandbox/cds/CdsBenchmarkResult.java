@@ -0,0 +1,35 @@
+package com.hxoj.hxojcodesandbox.cds;
+
+import lombok.Data;
+
+/**
+ * JVM 启动耗时对比结果
+ */
+@Data
+public class CdsBenchmarkResult {
+
+    /**
+     * 每组启动次数
+     */
+    private Integer rounds;
+
+    /**
+     * 不使用共享归档（-Xshare:off）的平均启动耗时（毫秒）
+     */
+    private Double withoutArchiveAvgTime;
+
+    /**
+     * 不使用共享归档的启动耗时中位数（毫秒）
+     */
+    private Long withoutArchiveMedianTime;
+
+    /**
+     * 使用沙箱生成的共享归档的平均启动耗时（毫秒）
+     */
+    private Double withArchiveAvgTime;
+
+    /**
+     * 使用沙箱生成的共享归档的启动耗时中位数（毫秒）
+     */
+    private Long withArchiveMedianTime;
+}
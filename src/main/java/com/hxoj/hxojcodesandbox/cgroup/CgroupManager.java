@@ -0,0 +1,109 @@
+package com.hxoj.hxojcodesandbox.cgroup;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.hxoj.hxojcodesandbox.config.CgroupProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * cgroup v2 管理，在沙箱的父 cgroup 下为每次执行创建临时子 cgroup 并设置资源上限
+ */
+@Component
+@Slf4j
+public class CgroupManager {
+
+    /**
+     * 需要在父 cgroup 中开启的控制器
+     */
+    private static final String CONTROLLERS = "+memory +cpu +pids";
+
+    /**
+     * cpu.max 的统计周期（微秒）
+     */
+    private static final long CPU_PERIOD = 100000L;
+
+    @Resource
+    private CgroupProperties cgroupProperties;
+
+    private volatile File parentDir;
+
+    /**
+     * 创建一个设置好资源上限的临时子 cgroup
+     *
+     * @return
+     */
+    public TransientCgroup create() {
+        File cgroupDir = new File(ensureParent(), "run-" + IdUtil.simpleUUID());
+        if (!cgroupDir.mkdir()) {
+            throw new RuntimeException("创建 cgroup 失败：" + cgroupDir);
+        }
+        TransientCgroup transientCgroup = new TransientCgroup(cgroupDir);
+        try {
+            write(cgroupDir, "memory.max", String.valueOf(cgroupProperties.getMemoryLimit()));
+            write(cgroupDir, "pids.max", String.valueOf(cgroupProperties.getPidsLimit()));
+            long quota = (long) (cgroupProperties.getCpuCount() * CPU_PERIOD);
+            write(cgroupDir, "cpu.max", quota + " " + CPU_PERIOD);
+        } catch (RuntimeException e) {
+            transientCgroup.remove();
+            throw e;
+        }
+        // 禁止使用交换空间，内核未开启 swap 记账时没有该文件
+        File swapMaxFile = new File(cgroupDir, "memory.swap.max");
+        if (swapMaxFile.exists()) {
+            write(cgroupDir, "memory.swap.max", "0");
+        }
+        return transientCgroup;
+    }
+
+    /**
+     * 当前系统是否可以使用 cgroup v2 沙箱
+     *
+     * @return
+     */
+    public boolean isAvailable() {
+        return new File(cgroupProperties.getMountPoint(), "cgroup.controllers").exists();
+    }
+
+    /**
+     * 创建父 cgroup 并为子 cgroup 开启内存、CPU、进程数控制器。
+     * cgroup v2 要求开启控制器的 cgroup 中不能直接放进程，因此父 cgroup 只用来容纳子 cgroup
+     *
+     * @return
+     */
+    private File ensureParent() {
+        if (parentDir != null) {
+            return parentDir;
+        }
+        synchronized (this) {
+            if (parentDir != null) {
+                return parentDir;
+            }
+            if (!isAvailable()) {
+                throw new RuntimeException("当前系统不支持 cgroup v2：" + cgroupProperties.getMountPoint());
+            }
+            File mountPoint = new File(cgroupProperties.getMountPoint());
+            File dir = new File(mountPoint, cgroupProperties.getParentName());
+            FileUtil.mkdir(dir);
+            write(mountPoint, "cgroup.subtree_control", CONTROLLERS);
+            write(dir, "cgroup.subtree_control", CONTROLLERS);
+            log.info("cgroup 沙箱父目录：" + dir);
+            parentDir = dir;
+            return dir;
+        }
+    }
+
+    static void write(File cgroupDir, String fileName, String value) {
+        try {
+            Files.write(new File(cgroupDir, fileName).toPath(), value.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            throw new RuntimeException("写入 cgroup 文件失败：" + fileName, e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.hxoj.hxojcodesandbox.cgroup;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 单次执行使用的临时 cgroup，执行结束后读取资源统计并删除
+ */
+@Slf4j
+public class TransientCgroup {
+
+    private final File cgroupDir;
+
+    TransientCgroup(File cgroupDir) {
+        this.cgroupDir = cgroupDir;
+    }
+
+    /**
+     * cgroup 目录，进程启动时把自己的进程号写入其中的 cgroup.procs
+     *
+     * @return
+     */
+    public File getCgroupDir() {
+        return cgroupDir;
+    }
+
+    /**
+     * 结束 cgroup 中的全部进程，内核不支持 cgroup.kill（5.14 之前）时逐个结束
+     */
+    public void kill() {
+        if (new File(cgroupDir, "cgroup.kill").exists()) {
+            CgroupManager.write(cgroupDir, "cgroup.kill", "1");
+            return;
+        }
+        for (String pid : readLines("cgroup.procs")) {
+            try {
+                new ProcessBuilder("kill", "-9", pid.trim()).start().waitFor();
+            } catch (Exception e) {
+                log.warn("结束 cgroup 中的进程失败：" + pid, e);
+            }
+        }
+    }
+
+    /**
+     * 内存峰值（字节），内核不支持 memory.peak（5.19 之前）时返回 null
+     *
+     * @return
+     */
+    public Long getPeakMemory() {
+        File peakFile = new File(cgroupDir, "memory.peak");
+        if (!peakFile.exists()) {
+            return null;
+        }
+        return Long.parseLong(FileUtil.readUtf8String(peakFile).trim());
+    }
+
+    /**
+     * 用户态与内核态CPU时间之和（毫秒）
+     *
+     * @return
+     */
+    public Long getCpuTime() {
+        Long usage = readKey("cpu.stat", "usage_usec");
+        return usage == null ? null : usage / 1000L;
+    }
+
+    /**
+     * 是否因超出内存上限被 OOM 结束
+     *
+     * @return
+     */
+    public boolean isOomKilled() {
+        Long oomKill = readKey("memory.events", "oom_kill");
+        return oomKill != null && oomKill > 0;
+    }
+
+    /**
+     * 删除 cgroup，进程刚退出时内核可能尚未完成清理，短暂重试
+     */
+    public void remove() {
+        for (int i = 0; i < 10; i++) {
+            if (cgroupDir.delete() || !cgroupDir.exists()) {
+                return;
+            }
+            try {
+                Thread.sleep(10L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("删除 cgroup 失败：" + cgroupDir);
+    }
+
+    private Long readKey(String fileName, String key) {
+        for (String line : readLines(fileName)) {
+            if (line.startsWith(key + " ")) {
+                return Long.parseLong(line.substring(key.length() + 1).trim());
+            }
+        }
+        return null;
+    }
+
+    private List<String> readLines(String fileName) {
+        return FileUtil.readUtf8Lines(new File(cgroupDir, fileName));
+    }
+}
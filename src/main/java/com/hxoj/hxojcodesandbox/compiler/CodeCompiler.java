@@ -0,0 +1,25 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import java.io.File;
+
+/**
+ * 代码编译器接口定义
+ */
+public interface CodeCompiler {
+
+    /**
+     * 编译用户代码
+     *
+     * @param code         用户代码
+     * @param userCodeFile 保存到磁盘的用户代码文件（进程内编译器不需要读取）
+     * @return
+     */
+    CompileResult compile(String code, File userCodeFile);
+
+    /**
+     * 编译器标识，包含编译器版本与编译参数，相同源码在不同标识下的编译产物不能混用
+     *
+     * @return
+     */
+    String getIdentity();
+}
@@ -0,0 +1,17 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import lombok.Getter;
+
+/**
+ * 编译错误异常，携带完整的编译结果
+ */
+@Getter
+public class CompileException extends RuntimeException {
+
+    private final CompileResult compileResult;
+
+    public CompileException(CompileResult compileResult) {
+        super("编译错误！" + compileResult.getDiagnosticMessage());
+        this.compileResult = compileResult;
+    }
+}
@@ -0,0 +1,88 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.model.CompileDiagnostic;
+import lombok.Data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译结果
+ */
+@Data
+public class CompileResult {
+
+    /**
+     * 是否编译成功
+     */
+    private boolean success;
+
+    /**
+     * 编译得到的字节码，key 为类的全限定名
+     */
+    private Map<String, byte[]> classBytes = new LinkedHashMap<>();
+
+    /**
+     * 编译诊断信息
+     */
+    private List<CompileDiagnostic> diagnosticList = new ArrayList<>();
+
+    /**
+     * 编译耗时（毫秒）
+     */
+    private Long time;
+
+    /**
+     * 编译超时的结果
+     *
+     * @param timeoutMillis 编译超时时间（毫秒）
+     * @return
+     */
+    public static CompileResult timeout(long timeoutMillis) {
+        CompileResult compileResult = new CompileResult();
+        compileResult.setSuccess(false);
+        compileResult.setTime(timeoutMillis);
+        compileResult.getDiagnosticList().add(CompileDiagnostic.builder()
+                .kind("TIMEOUT")
+                .line(-1L)
+                .column(-1L)
+                .message("编译超时，超过" + timeoutMillis + "毫秒")
+                .build());
+        return compileResult;
+    }
+
+    /**
+     * 将字节码写入目录，包名对应子目录
+     *
+     * @param outputDir
+     */
+    public void writeClassFiles(File outputDir) {
+        for (Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+            String relativePath = entry.getKey().replace('.', File.separatorChar) + ".class";
+            FileUtil.writeBytes(entry.getValue(), new File(outputDir, relativePath));
+        }
+    }
+
+    /**
+     * 拼接诊断信息，便于日志输出与返回给调用方
+     *
+     * @return
+     */
+    public String getDiagnosticMessage() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (CompileDiagnostic diagnostic : diagnosticList) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append("\n");
+            }
+            if (diagnostic.getLine() != null && diagnostic.getLine() > 0) {
+                stringBuilder.append("第").append(diagnostic.getLine()).append("行：");
+            }
+            stringBuilder.append(diagnostic.getMessage());
+        }
+        return stringBuilder.toString();
+    }
+}
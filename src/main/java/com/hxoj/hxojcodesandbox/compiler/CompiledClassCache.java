@@ -0,0 +1,330 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.model.CompileDiagnostic;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 编译结果缓存，以（规范化源码、编译器版本、编译参数）的 SHA-256 为 key，
+ * 缓存编译得到的字节码或编译错误，分为内存 LRU 与磁盘两级
+ */
+@Component
+@Slf4j
+public class CompiledClassCache {
+
+    public static final String CACHE_DIR_NAME = "classCache";
+    private static final String RESULT_FILE_NAME = "result.json";
+
+    @Resource
+    private CompilerProperties compilerProperties;
+
+    /**
+     * 内存缓存，按访问顺序排列，实现 LRU
+     */
+    private final LinkedHashMap<String, CompileResult> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryCacheSize = 0L;
+
+    /**
+     * 正在编译中的任务，同一个 key 同时只编译一次
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<CompileResult>> inFlightMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong inFlightHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private File cacheDir;
+
+    /**
+     * 磁盘缓存占用（字节），启动时统计一次，之后增量维护
+     */
+    private final AtomicLong diskCacheSize = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        String globalCodePathName = System.getProperty("user.dir") + File.separator + "tmpCode";
+        cacheDir = new File(globalCodePathName, CACHE_DIR_NAME);
+        FileUtil.mkdir(cacheDir);
+        // 清理上次进程退出时残留的临时目录
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            Arrays.stream(files).filter(file -> file.getName().contains(".tmp-")).forEach(FileUtil::del);
+        }
+        diskCacheSize.set(FileUtil.size(cacheDir));
+    }
+
+    /**
+     * 查询缓存，未命中时调用 compileSupplier 编译并写入缓存。
+     * 命中缓存（包括等待相同代码的编译完成）时，编译耗时为本次查询实际花费的时间
+     *
+     * @param code            用户代码
+     * @param compilerIdentity 编译器标识
+     * @param compileSupplier 实际的编译过程
+     * @return
+     */
+    public CompileResult get(String code, String compilerIdentity, Supplier<CompileResult> compileSupplier) {
+        if (!Boolean.TRUE.equals(compilerProperties.getCacheEnabled())) {
+            return compileSupplier.get();
+        }
+        long startTime = System.currentTimeMillis();
+        String key = buildKey(code, compilerIdentity);
+        CompileResult compileResult = getFromMemory(key);
+        if (compileResult != null) {
+            memoryHitCount.incrementAndGet();
+            return asCacheHit(compileResult, startTime);
+        }
+        CompletableFuture<CompileResult> future = new CompletableFuture<>();
+        CompletableFuture<CompileResult> inFlightFuture = inFlightMap.putIfAbsent(key, future);
+        if (inFlightFuture != null) {
+            // 相同代码正在编译，等待其结果，没有再次编译，同样算作命中
+            compileResult = waitFor(inFlightFuture);
+            inFlightHitCount.incrementAndGet();
+            return asCacheHit(compileResult, startTime);
+        }
+        try {
+            compileResult = getFromDisk(key);
+            boolean diskHit = compileResult != null;
+            if (diskHit) {
+                diskHitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+                compileResult = compileSupplier.get();
+                if (isCacheable(compileResult)) {
+                    putToDisk(key, compileResult);
+                }
+            }
+            if (isCacheable(compileResult)) {
+                putToMemory(key, compileResult);
+            }
+            future.complete(compileResult);
+            return diskHit ? asCacheHit(compileResult, startTime) : compileResult;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightMap.remove(key, future);
+        }
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getInFlightHitCount() {
+        return inFlightHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public synchronized long getMemoryCacheSize() {
+        return memoryCacheSize;
+    }
+
+    public long getDiskCacheSize() {
+        return diskCacheSize.get();
+    }
+
+    /**
+     * 规范化源码后计算 key，换行符与行尾空白的差异不影响编译结果。
+     * 不去掉首尾的空行，缓存的诊断信息中的行号与本次提交的源码保持一致
+     *
+     * @param code
+     * @param compilerIdentity
+     * @return
+     */
+    static String buildKey(String code, String compilerIdentity) {
+        String normalizedCode = code.replace("\r\n", "\n").replace('\r', '\n').replaceAll("[ \t]+\n", "\n");
+        return DigestUtil.sha256Hex(compilerIdentity + "\n" + normalizedCode);
+    }
+
+    /**
+     * 命中缓存的结果，复制一份并把编译耗时改为本次查询花费的时间，不修改缓存中的对象
+     *
+     * @param compileResult
+     * @param startTime
+     * @return
+     */
+    private static CompileResult asCacheHit(CompileResult compileResult, long startTime) {
+        CompileResult cacheHit = new CompileResult();
+        cacheHit.setSuccess(compileResult.isSuccess());
+        cacheHit.setClassBytes(compileResult.getClassBytes());
+        cacheHit.setDiagnosticList(compileResult.getDiagnosticList());
+        cacheHit.setTime(System.currentTimeMillis() - startTime);
+        return cacheHit;
+    }
+
+    /**
+     * 编译超时与编译器自身的异常状况有关，不缓存
+     *
+     * @param compileResult
+     * @return
+     */
+    private boolean isCacheable(CompileResult compileResult) {
+        return compileResult.getDiagnosticList().stream().noneMatch(diagnostic -> "TIMEOUT".equals(diagnostic.getKind()));
+    }
+
+    private CompileResult waitFor(CompletableFuture<CompileResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待编译结果异常", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("编译代码异常", cause);
+        }
+    }
+
+    private synchronized CompileResult getFromMemory(String key) {
+        return memoryCache.get(key);
+    }
+
+    private synchronized void putToMemory(String key, CompileResult compileResult) {
+        long size = estimateSize(compileResult);
+        if (size > compilerProperties.getCacheMemorySize()) {
+            return;
+        }
+        CompileResult previous = memoryCache.put(key, compileResult);
+        if (previous != null) {
+            memoryCacheSize -= estimateSize(previous);
+        }
+        memoryCacheSize += size;
+        Iterator<Map.Entry<String, CompileResult>> iterator = memoryCache.entrySet().iterator();
+        while (memoryCacheSize > compilerProperties.getCacheMemorySize() && iterator.hasNext()) {
+            Map.Entry<String, CompileResult> eldest = iterator.next();
+            memoryCacheSize -= estimateSize(eldest.getValue());
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private long estimateSize(CompileResult compileResult) {
+        long size = 256L;
+        for (Map.Entry<String, byte[]> entry : compileResult.getClassBytes().entrySet()) {
+            size += entry.getKey().length() * 2L + entry.getValue().length;
+        }
+        for (CompileDiagnostic diagnostic : compileResult.getDiagnosticList()) {
+            size += diagnostic.getMessage() == null ? 0 : diagnostic.getMessage().length() * 2L;
+        }
+        return size;
+    }
+
+    private CompileResult getFromDisk(String key) {
+        File entryDir = new File(cacheDir, key);
+        File resultFile = new File(entryDir, RESULT_FILE_NAME);
+        if (!resultFile.exists()) {
+            return null;
+        }
+        try {
+            JSONObject jsonObject = JSONUtil.parseObj(FileUtil.readString(resultFile, StandardCharsets.UTF_8));
+            CompileResult compileResult = new CompileResult();
+            compileResult.setSuccess(jsonObject.getBool("success"));
+            compileResult.setTime(jsonObject.getLong("time"));
+            compileResult.setDiagnosticList(jsonObject.getJSONArray("diagnosticList").toList(CompileDiagnostic.class));
+            for (String className : jsonObject.getJSONArray("classNameList").toList(String.class)) {
+                compileResult.getClassBytes().put(className, FileUtil.readBytes(new File(entryDir, className + ".class")));
+            }
+            // 更新修改时间，磁盘淘汰时按最近使用排序
+            entryDir.setLastModified(System.currentTimeMillis());
+            return compileResult;
+        } catch (Exception e) {
+            log.warn("读取编译缓存失败，删除损坏的缓存：" + key, e);
+            FileUtil.del(entryDir);
+            return null;
+        }
+    }
+
+    private void putToDisk(String key, CompileResult compileResult) {
+        File entryDir = new File(cacheDir, key);
+        // 先写入临时目录再重命名，避免其他进程读到写了一半的缓存
+        File tmpDir = new File(cacheDir, key + ".tmp-" + UUID.randomUUID());
+        try {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.set("success", compileResult.isSuccess());
+            jsonObject.set("time", compileResult.getTime());
+            jsonObject.set("diagnosticList", compileResult.getDiagnosticList());
+            jsonObject.set("classNameList", new ArrayList<>(compileResult.getClassBytes().keySet()));
+            for (Map.Entry<String, byte[]> entry : compileResult.getClassBytes().entrySet()) {
+                FileUtil.writeBytes(entry.getValue(), new File(tmpDir, entry.getKey() + ".class"));
+            }
+            FileUtil.writeString(jsonObject.toString(), new File(tmpDir, RESULT_FILE_NAME), StandardCharsets.UTF_8);
+            long size = FileUtil.size(tmpDir);
+            if (!tmpDir.renameTo(entryDir)) {
+                FileUtil.del(tmpDir);
+                return;
+            }
+            if (diskCacheSize.addAndGet(size) > compilerProperties.getCacheDiskSize()) {
+                evictDisk();
+            }
+        } catch (Exception e) {
+            log.warn("写入编译缓存失败：" + key, e);
+            FileUtil.del(tmpDir);
+        }
+    }
+
+    /**
+     * 磁盘缓存超出容量时，按最近使用时间淘汰
+     */
+    private synchronized void evictDisk() {
+        File[] entryDirs = cacheDir.listFiles(file -> file.isDirectory() && !file.getName().contains(".tmp-"));
+        if (entryDirs == null) {
+            return;
+        }
+        long diskSize = 0L;
+        List<File> entryDirList = new ArrayList<>(Arrays.asList(entryDirs));
+        for (File entryDir : entryDirList) {
+            diskSize += FileUtil.size(entryDir);
+        }
+        entryDirList.sort(Comparator.comparingLong(File::lastModified));
+        // 淘汰到容量的 90%，避免每次写入都触发全量扫描
+        long targetSize = compilerProperties.getCacheDiskSize() / 10 * 9;
+        for (File entryDir : entryDirList) {
+            if (diskSize <= targetSize) {
+                break;
+            }
+            diskSize -= FileUtil.size(entryDir);
+            FileUtil.del(entryDir);
+            evictionCount.incrementAndGet();
+        }
+        diskCacheSize.set(diskSize);
+    }
+}
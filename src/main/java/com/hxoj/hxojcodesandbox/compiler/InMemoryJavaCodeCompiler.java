@@ -0,0 +1,248 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.model.CompileDiagnostic;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StopWatch;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内内存编译器，基于 javax.tools.JavaCompiler，编译器常驻沙箱进程，避免每次编译都冷启动一个 javac 进程
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "codesandbox.compiler", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryJavaCodeCompiler implements CodeCompiler {
+
+    private static final String MAIN_CLASS_NAME = "Main";
+    private static final String WARM_UP_CODE = "public class Main { public static void main(String[] args) { System.out.println(args.length); } }";
+
+    /**
+     * 编译任务的状态：排队中、编译中、已完成、超时后被放弃
+     */
+    private static final int TASK_QUEUED = 0;
+    private static final int TASK_RUNNING = 1;
+    private static final int TASK_DONE = 2;
+    private static final int TASK_ABANDONED = 3;
+
+    @Resource
+    private CompilerProperties compilerProperties;
+
+    @Resource
+    private ProcessTimeoutService processTimeoutService;
+
+    private final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+
+    /**
+     * 每个编译线程复用一个标准文件管理器，避免重复打开 JDK 类库
+     */
+    private final ThreadLocal<StandardJavaFileManager> fileManagerThreadLocal = new ThreadLocal<>();
+
+    private ThreadPoolExecutor compileExecutor;
+
+    /**
+     * 超时后仍在编译的任务数。javac 不响应中断，这些任务会一直占用编译线程直到编译结束，
+     * 线程池为每个这样的任务临时多开一个线程，最多再多开 threads 个，避免后续编译排队超时
+     */
+    private final AtomicInteger abandonedCount = new AtomicInteger();
+
+    private List<String> compileOptions;
+
+    private String identity;
+
+    /**
+     * 运行环境只有 JRE 时退回到 javac 子进程编译
+     */
+    private JavacProcessCodeCompiler fallbackCompiler;
+
+    @PostConstruct
+    public void init() {
+        fallbackCompiler = new JavacProcessCodeCompiler(compilerProperties, processTimeoutService);
+        int threads = compilerProperties.getThreads();
+        compileExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNamePrefix("code-compiler-").setDaemon(true).build());
+        compileOptions = buildCompileOptions();
+        identity = "memory:" + System.getProperty("java.vendor") + ":" + System.getProperty("java.version") + ":" + String.join(" ", compileOptions);
+        if (javaCompiler == null) {
+            log.warn("当前运行环境没有可用的 JavaCompiler，退回到 javac 子进程编译");
+            fallbackCompiler.init();
+            return;
+        }
+        // 异步预热编译器，让 javac 的类加载与 JIT 在第一份提交之前完成
+        compileExecutor.submit(() -> {
+            CompileResult compileResult = doCompile(WARM_UP_CODE);
+            log.info("编译器预热完成，耗时：" + compileResult.getTime() + "毫秒");
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        compileExecutor.shutdownNow();
+    }
+
+    @Override
+    public CompileResult compile(String code, File userCodeFile) {
+        if (javaCompiler == null) {
+            return fallbackCompiler.compile(code, userCodeFile);
+        }
+        AtomicInteger taskState = new AtomicInteger(TASK_QUEUED);
+        Future<CompileResult> future = compileExecutor.submit(() -> {
+            if (!taskState.compareAndSet(TASK_QUEUED, TASK_RUNNING)) {
+                // 排队期间已超时
+                return null;
+            }
+            try {
+                return doCompile(code);
+            } finally {
+                if (!taskState.compareAndSet(TASK_RUNNING, TASK_DONE)) {
+                    // 超时后被放弃的编译终于结束，收回临时多开的线程
+                    abandonedCount.decrementAndGet();
+                    resizeCompileExecutor();
+                }
+            }
+        });
+        try {
+            return future.get(compilerProperties.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // javac 不响应中断，超时的编译任务会在后台跑完后被丢弃
+            future.cancel(true);
+            if (taskState.compareAndSet(TASK_RUNNING, TASK_ABANDONED)) {
+                abandonedCount.incrementAndGet();
+                resizeCompileExecutor();
+            } else {
+                taskState.compareAndSet(TASK_QUEUED, TASK_ABANDONED);
+            }
+            log.info("编译超时");
+            return CompileResult.timeout(compilerProperties.getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("编译代码异常", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("编译代码异常", e.getCause());
+        }
+    }
+
+    /**
+     * 超时后仍在编译的任务数
+     *
+     * @return
+     */
+    public int getAbandonedCount() {
+        return abandonedCount.get();
+    }
+
+    /**
+     * 按超时后仍在编译的任务数调整线程数，扩容时先调大最大线程数，缩容时先调小核心线程数
+     */
+    private synchronized void resizeCompileExecutor() {
+        int threads = compilerProperties.getThreads();
+        int size = threads + Math.min(Math.max(abandonedCount.get(), 0), threads);
+        if (size > compileExecutor.getMaximumPoolSize()) {
+            compileExecutor.setMaximumPoolSize(size);
+            compileExecutor.setCorePoolSize(size);
+        } else if (size < compileExecutor.getCorePoolSize()) {
+            compileExecutor.setCorePoolSize(size);
+            compileExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    @Override
+    public String getIdentity() {
+        if (javaCompiler == null) {
+            return fallbackCompiler.getIdentity();
+        }
+        return identity;
+    }
+
+    /**
+     * 在编译线程中执行编译
+     *
+     * @param code
+     * @return
+     */
+    private CompileResult doCompile(String code) {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
+        MemoryJavaFileManager fileManager = new MemoryJavaFileManager(getStandardFileManager());
+        List<JavaFileObject> compilationUnits = Collections.singletonList(MemoryJavaFileManager.sourceOf(MAIN_CLASS_NAME, code));
+        Boolean success = javaCompiler.getTask(null, fileManager, diagnosticCollector, compileOptions, null, compilationUnits).call();
+        stopWatch.stop();
+
+        CompileResult compileResult = new CompileResult();
+        compileResult.setSuccess(Boolean.TRUE.equals(success));
+        compileResult.setTime(stopWatch.getTotalTimeMillis());
+        if (compileResult.isSuccess()) {
+            compileResult.setClassBytes(fileManager.getClassBytes());
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticCollector.getDiagnostics()) {
+            compileResult.getDiagnosticList().add(CompileDiagnostic.builder()
+                    .kind(diagnostic.getKind().name())
+                    .line(diagnostic.getLineNumber())
+                    .column(diagnostic.getColumnNumber())
+                    .code(diagnostic.getCode())
+                    .message(diagnostic.getMessage(null))
+                    .build());
+        }
+        return compileResult;
+    }
+
+    private StandardJavaFileManager getStandardFileManager() {
+        StandardJavaFileManager standardFileManager = fileManagerThreadLocal.get();
+        if (standardFileManager == null) {
+            standardFileManager = javaCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+            // 类路径默认是沙箱自身的类路径，用户代码不能引用沙箱依赖的类。
+            // -classpath "" 在 javac 中表示当前目录，这里直接设为空列表
+            try {
+                standardFileManager.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+            } catch (IOException e) {
+                throw new RuntimeException("设置编译类路径异常", e);
+            }
+            fileManagerThreadLocal.set(standardFileManager);
+        }
+        return standardFileManager;
+    }
+
+    private List<String> buildCompileOptions() {
+        List<String> options = new ArrayList<>();
+        options.add("-encoding");
+        options.add("UTF-8");
+        // 不运行注解处理器，否则沙箱类路径上的 Lombok 等处理器会在沙箱进程内执行
+        options.add("-proc:none");
+        Integer release = compilerProperties.getRelease();
+        // JDK 9 之后才支持 --release，JDK 8 运行时编译出的字节码本身就是 8
+        if (release != null && javaCompiler != null && javaCompiler.isSupportedOption("--release") >= 0) {
+            options.add("--release");
+            options.add(String.valueOf(release));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.model.CompileDiagnostic;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import com.hxoj.hxojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * javac 子进程编译器，每次编译都会启动一个新的 javac 进程
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "codesandbox.compiler", name = "type", havingValue = "javac")
+public class JavacProcessCodeCompiler implements CodeCompiler {
+
+    @Resource
+    private CompilerProperties compilerProperties;
+
+    @Resource
+    private ProcessTimeoutService processTimeoutService;
+
+    private String identity;
+
+    private List<String> compileOptions;
+
+    public JavacProcessCodeCompiler() {
+    }
+
+    /**
+     * 内存编译器在运行环境只有 JRE 时使用的备用实例，不由 Spring 创建，使用前需要调用 {@link #init()}
+     *
+     * @param compilerProperties
+     * @param processTimeoutService
+     */
+    JavacProcessCodeCompiler(CompilerProperties compilerProperties, ProcessTimeoutService processTimeoutService) {
+        this.compilerProperties = compilerProperties;
+        this.processTimeoutService = processTimeoutService;
+    }
+
+    /**
+     * 启动时获取一次 javac 版本，确定编译参数与编译器标识
+     */
+    @PostConstruct
+    public void init() {
+        String javacVersion = getJavacVersion();
+        compileOptions = buildCompileOptions(javacVersion);
+        identity = "javac:" + javacVersion + ":" + String.join(" ", compileOptions);
+        log.info("javac 子进程编译器：" + identity);
+    }
+
+    @Override
+    public CompileResult compile(String code, File userCodeFile) {
+        List<String> compileCmd = new ArrayList<>();
+        compileCmd.add("javac");
+        compileCmd.addAll(compileOptions);
+        compileCmd.add(userCodeFile.getAbsolutePath());
+        try {
+            // javac执行编译命令
+            // 在用户代码目录中编译，空类路径表示的当前目录中只有用户代码
+            Process process = new ProcessBuilder(compileCmd).directory(userCodeFile.getParentFile()).start();
+            // 超时后结束整个进程树，javac 可能由启动器再派生出 JVM 进程
+            ProcessTimeoutService.Deadline deadline = processTimeoutService.register(process, compilerProperties.getTimeout());
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "编译");
+            if (deadline.cancel()) {
+                log.info("编译超时");
+                return CompileResult.timeout(compilerProperties.getTimeout());
+            }
+            CompileResult compileResult = new CompileResult();
+            compileResult.setTime(executeMessage.getTime());
+            compileResult.setSuccess(executeMessage.getExitValue() != null && executeMessage.getExitValue() == 0);
+            if (compileResult.isSuccess()) {
+                // 读取 javac 输出的字节码，保持与内存编译器一致的结果
+                File userCodeParentFile = userCodeFile.getParentFile();
+                List<File> classFileList = FileUtil.loopFiles(userCodeParentFile, file -> file.getName().endsWith(".class"));
+                for (File classFile : classFileList) {
+                    String relativePath = FileUtil.subPath(userCodeParentFile.getAbsolutePath(), classFile);
+                    String className = relativePath.substring(0, relativePath.length() - ".class".length())
+                            .replace('/', '.').replace('\\', '.');
+                    compileResult.getClassBytes().put(className, FileUtil.readBytes(classFile));
+                }
+            } else {
+                // javac 的错误输出没有结构化信息，整体作为一条诊断返回
+                String errorMessage = executeMessage.getErrorMessage() != null ? executeMessage.getErrorMessage() : executeMessage.getMessage();
+                compileResult.getDiagnosticList().add(CompileDiagnostic.builder()
+                        .kind("ERROR")
+                        .line(-1L)
+                        .column(-1L)
+                        .message(errorMessage)
+                        .build());
+            }
+            return compileResult;
+        } catch (IOException e) {
+            throw new RuntimeException("编译代码异常", e);
+        }
+    }
+
+    @Override
+    public String getIdentity() {
+        return identity;
+    }
+
+    /**
+     * 与内存编译器一致的编译参数，不运行注解处理器，不使用环境变量 CLASSPATH 中的类。
+     * javac 9 之后才支持 --release，JDK 8 的 javac 编译出的字节码本身就是 8
+     *
+     * @param javacVersion
+     * @return
+     */
+    private List<String> buildCompileOptions(String javacVersion) {
+        List<String> options = new ArrayList<>(Arrays.asList("-encoding", "UTF-8", "-proc:none", "-classpath", ""));
+        Integer release = compilerProperties.getRelease();
+        if (release != null && !javacVersion.startsWith("javac 1.")) {
+            options.add("--release");
+            options.add(String.valueOf(release));
+        }
+        return options;
+    }
+
+    /**
+     * PATH 中的 javac 与沙箱自身的 JVM 不一定是同一个版本，以 javac -version 的输出为准，最多等待一次编译的超时时间
+     *
+     * @return
+     */
+    private String getJavacVersion() {
+        try {
+            // JDK 8 的 javac 把版本输出到错误流，合并到标准输出一起读取
+            Process process = new ProcessBuilder("javac", "-version").redirectErrorStream(true).start();
+            ProcessTimeoutService.Deadline deadline = processTimeoutService.register(process, compilerProperties.getTimeout());
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "获取javac版本");
+            if (deadline.cancel()) {
+                throw new IllegalStateException("获取javac版本超时");
+            }
+            return StrUtil.trim(executeMessage.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("获取javac版本异常", e);
+        }
+    }
+}
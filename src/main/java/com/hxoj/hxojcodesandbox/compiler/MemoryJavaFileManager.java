@@ -0,0 +1,68 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 内存文件管理器，编译输出的字节码保存在内存中，不落盘
+ */
+public class MemoryJavaFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    /**
+     * 本次编译产生的字节码，key 为类的全限定名
+     */
+    private final Map<String, ByteArrayOutputStream> classBytesMap = new LinkedHashMap<>();
+
+    public MemoryJavaFileManager(JavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        classBytesMap.put(className, outputStream);
+        return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                return outputStream;
+            }
+        };
+    }
+
+    /**
+     * 获取编译得到的字节码
+     *
+     * @return
+     */
+    public Map<String, byte[]> getClassBytes() {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        classBytesMap.forEach((className, outputStream) -> result.put(className, outputStream.toByteArray()));
+        return result;
+    }
+
+    /**
+     * 以字符串作为源码的文件对象
+     *
+     * @param className
+     * @param code
+     * @return
+     */
+    public static JavaFileObject sourceOf(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量执行配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.batch")
+public class BatchProperties {
+
+    /**
+     * 单个批次最多同时执行的提交数，应小于执行槽位数，给实时提交留出槽位
+     */
+    private Integer maxConcurrency = 2;
+
+    /**
+     * 单个批次最多包含的提交数
+     */
+    private Integer maxSubmissions = 1000;
+
+    /**
+     * 预先编译批次代码的线程数，所有批次共用
+     */
+    private Integer compileThreads = 2;
+
+    /**
+     * 单个批次的最长执行时间（毫秒），超时后连接关闭，已提交的执行不受影响
+     */
+    private Long timeout = 30 * 60 * 1000L;
+}
@@ -0,0 +1,39 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * cgroup v2 代码沙箱配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.cgroup")
+public class CgroupProperties {
+
+    /**
+     * cgroup v2 文件系统的挂载点
+     */
+    private String mountPoint = "/sys/fs/cgroup";
+
+    /**
+     * 沙箱使用的父 cgroup 名称，每次执行在其下创建临时子 cgroup
+     */
+    private String parentName = "hxoj-sandbox";
+
+    /**
+     * 单次执行的内存上限（字节），包含用户 JVM 的堆与非堆内存，超出时被 OOM 结束
+     */
+    private Long memoryLimit = 512 * 1024 * 1024L;
+
+    /**
+     * 单次执行可用的CPU数，可以是小数
+     */
+    private Double cpuCount = 1D;
+
+    /**
+     * 单次执行的进程（线程）数上限，JVM 自身需要数十个线程
+     */
+    private Integer pidsLimit = 128;
+}
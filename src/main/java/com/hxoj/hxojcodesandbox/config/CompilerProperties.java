@@ -0,0 +1,49 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 代码编译配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.compiler")
+public class CompilerProperties {
+
+    /**
+     * 编译器类型：memory（进程内内存编译）、javac（启动 javac 子进程编译）
+     */
+    private String type = "memory";
+
+    /**
+     * 编译超时时间（毫秒）
+     */
+    private Long timeout = 10000L;
+
+    /**
+     * 目标 Java 版本，需与执行代码的 JVM 保持一致（Docker 镜像为 openjdk:8），为空表示不指定
+     */
+    private Integer release = 8;
+
+    /**
+     * 同时进行的进程内编译任务数
+     */
+    private Integer threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 是否开启编译结果缓存
+     */
+    private Boolean cacheEnabled = true;
+
+    /**
+     * 内存缓存容量（字节）
+     */
+    private Long cacheMemorySize = 64 * 1024 * 1024L;
+
+    /**
+     * 磁盘缓存容量（字节）
+     */
+    private Long cacheDiskSize = 512 * 1024 * 1024L;
+}
@@ -0,0 +1,41 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+
+/**
+ * Docker客户端配置，全局共享一个基于 httpclient5 连接池的客户端
+ */
+@Configuration
+public class DockerClientConfig {
+
+    @Resource
+    private DockerProperties dockerProperties;
+
+    /**
+     * 创建客户端不会连接 Docker，第一次调用时才建立连接
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    public DockerClient dockerClient() {
+        DefaultDockerClientConfig dockerClientConfig = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+        DockerHttpClient dockerHttpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(dockerClientConfig.getDockerHost())
+                .sslConfig(dockerClientConfig.getSSLConfig())
+                // 每个执行中的用例会占用一个 exec 流连接，连接数需要大于同时执行的用例数
+                .maxConnections(dockerProperties.getMaxConnections())
+                .connectionTimeout(Duration.ofMillis(dockerProperties.getConnectionTimeout()))
+                .responseTimeout(Duration.ofMillis(dockerProperties.getResponseTimeout()))
+                .build();
+        return DockerClientImpl.getInstance(dockerClientConfig, dockerHttpClient);
+    }
+}
@@ -0,0 +1,94 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Docker代码沙箱配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.docker")
+public class DockerProperties {
+
+    /**
+     * Docker客户端连接池最大连接数
+     */
+    private Integer maxConnections = 100;
+
+    /**
+     * Docker客户端建立连接超时时间（毫秒）
+     */
+    private Long connectionTimeout = 3000L;
+
+    /**
+     * Docker客户端响应超时时间（毫秒），拉取镜像等长请求也受此限制
+     */
+    private Long responseTimeout = 10 * 60 * 1000L;
+
+    /**
+     * 宿主机 cgroup 文件系统的挂载点，用于读取容器的内存峰值与CPU时间
+     */
+    private String cgroupRoot = "/sys/fs/cgroup";
+
+    /**
+     * 执行用户代码的镜像
+     */
+    private String image = "openjdk:8-alpine";
+
+    /**
+     * 容器最大内存（字节）
+     */
+    private Long memoryLimit = 100 * 1000 * 1000L;
+
+    /**
+     * 容器可用CPU数
+     */
+    private Long cpuCount = 1L;
+
+    /**
+     * 镜像中是否已生成类数据共享归档（见 resources/docker/Dockerfile），开启后用户 JVM 以 -Xshare:auto 启动
+     */
+    private Boolean cdsEnabled = false;
+
+    /**
+     * 容器池最少空闲容器数
+     */
+    private Integer poolMinIdle = 2;
+
+    /**
+     * 容器池最多空闲容器数，归还时超出的容器会被销毁
+     */
+    private Integer poolMaxIdle = 8;
+
+    /**
+     * 容器池容器总数上限
+     */
+    private Integer poolMaxTotal = 16;
+
+    /**
+     * 单个容器最多被租用的次数，达到后销毁重建
+     */
+    private Integer poolMaxUses = 50;
+
+    /**
+     * 容器池耗尽时租用的最长等待时间（毫秒），超时快速失败
+     */
+    private Long poolLeaseTimeout = 200L;
+
+    /**
+     * 空闲容器健康检查间隔（毫秒）
+     */
+    private Long poolHealthCheckInterval = 30000L;
+
+    /**
+     * 归还容器时清理用户进程与 /dev/shm 的最长等待时间（毫秒），超时或失败的容器直接销毁
+     */
+    private Long poolScrubTimeout = 2000L;
+
+    /**
+     * 是否在服务启动时预热容器池
+     */
+    private Boolean poolPrewarm = false;
+}
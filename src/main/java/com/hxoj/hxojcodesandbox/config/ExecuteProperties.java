@@ -0,0 +1,50 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 代码执行配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.execute")
+public class ExecuteProperties {
+
+    /**
+     * 单次提交最多同时执行的输入用例数
+     */
+    private Integer maxParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 所有提交共享的用例执行线程数，决定整个沙箱同时运行的用例进程上限
+     */
+    private Integer caseThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 单个用例标准输出、错误输出各自最多保留的字节数，超出时结束进程
+     */
+    private Long outputLimit = 1024 * 1024L;
+
+    /**
+     * 原生模式下采样用户进程CPU时间与内存峰值的间隔（毫秒），Docker 模式无法重置容器内存峰值时按此间隔采样内存占用
+     */
+    private Long sampleInterval = 20L;
+
+    /**
+     * 是否使用多用例执行器：每次提交只启动一次 JVM，在其中依次执行所有用例，
+     * 用例共享同一个 JVM 的堆内存上限
+     */
+    private Boolean multiCaseRunner = false;
+
+    /**
+     * 是否为原生模式启动的用户 JVM 生成并使用类数据共享（CDS）归档
+     */
+    private Boolean cdsEnabled = true;
+
+    /**
+     * 检查 JDK 是否变化的间隔（毫秒），变化后重新生成归档
+     */
+    private Long cdsCheckInterval = 10 * 60 * 1000L;
+}
@@ -0,0 +1,34 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.Resource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池配置
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Resource
+    private ExecuteProperties executeProperties;
+
+    /**
+     * 并行执行输入用例的线程池
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService caseExecutorService() {
+        int threads = executeProperties.getCaseThreads();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNamePrefix("case-executor-").setDaemon(true).build());
+    }
+}
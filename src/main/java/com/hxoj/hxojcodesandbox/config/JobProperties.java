@@ -0,0 +1,39 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步执行任务配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.job")
+public class JobProperties {
+
+    /**
+     * 执行完成的结果保留时长（毫秒），过期后无法再查询
+     */
+    private Long resultTtl = 10 * 60 * 1000L;
+
+    /**
+     * 长轮询查询结果时最多等待的时长（毫秒）
+     */
+    private Long maxWait = 30 * 1000L;
+
+    /**
+     * 流式执行的连接最长保持时长（毫秒），包含排队与执行时间
+     */
+    private Long streamTimeout = 10 * 60 * 1000L;
+
+    /**
+     * 是否合并同时在排队或执行中的相同提交（同一沙箱、相同代码与输入），只执行一次，结果分发给所有等待方
+     */
+    private Boolean singleFlightEnabled = true;
+
+    /**
+     * 一次执行最多合并的提交数，超出后之后相同的提交合并到新的一次执行中
+     */
+    private Integer singleFlightMaxWaiters = 32;
+}
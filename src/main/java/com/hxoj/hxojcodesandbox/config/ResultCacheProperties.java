@@ -0,0 +1,44 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 执行结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.result-cache")
+public class ResultCacheProperties {
+
+    /**
+     * 是否开启执行结果缓存，开启后相同代码、相同输入、相同限制的用例直接返回上次的执行信息
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 缓存有效期（毫秒），从写入时开始计算
+     */
+    private Long ttl = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 内存缓存容量（字节）
+     */
+    private Long memorySize = 64 * 1024 * 1024L;
+
+    /**
+     * 是否开启磁盘缓存，开启后重启服务缓存仍然有效
+     */
+    private Boolean diskEnabled = false;
+
+    /**
+     * 磁盘缓存目录，为空时为工作目录下的 tmpCode/resultCache
+     */
+    private String diskDir = "";
+
+    /**
+     * 磁盘缓存容量（字节）
+     */
+    private Long diskSize = 512 * 1024 * 1024L;
+}
@@ -0,0 +1,34 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 执行调度配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.scheduler")
+public class SchedulerProperties {
+
+    /**
+     * 执行槽位数，即同时执行的提交数，小于等于 0 时按CPU核数与内存预算自动计算
+     */
+    private Integer slots = 0;
+
+    /**
+     * 所有槽位可用的内存预算（字节），小于等于 0 时取物理内存的四分之三
+     */
+    private Long memoryBudget = 0L;
+
+    /**
+     * 每个槽位预留的内存（字节），需覆盖用户 JVM 的堆上限与非堆开销
+     */
+    private Long slotMemory = 512 * 1024 * 1024L;
+
+    /**
+     * 等待执行的提交数上限，队列满时拒绝新的提交
+     */
+    private Integer queueCapacity = 100;
+}
@@ -0,0 +1,24 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 测试数据存储配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.test-data")
+public class TestDataProperties {
+
+    /**
+     * 测试数据目录，为空时为工作目录下的 testData
+     */
+    private String dataDir = "";
+
+    /**
+     * 测试数据占用的磁盘上限（字节），超出时按最近使用时间淘汰未在使用中的文件
+     */
+    private Long diskBudget = 10 * 1024 * 1024 * 1024L;
+}
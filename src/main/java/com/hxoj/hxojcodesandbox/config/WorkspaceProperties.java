@@ -0,0 +1,39 @@
+package com.hxoj.hxojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户代码工作目录配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "codesandbox.workspace")
+public class WorkspaceProperties {
+
+    /**
+     * 工作目录根路径，应位于 tmpfs 上。为空时使用 /dev/shm，不存在时退回工作目录下的 tmpCode
+     */
+    private String root = "";
+
+    /**
+     * 预先创建并复用的空目录数
+     */
+    private Integer poolSize = 16;
+
+    /**
+     * 所有工作目录占用的空间上限（字节），超出时拒绝新的提交
+     */
+    private Long diskBudget = 1024 * 1024 * 1024L;
+
+    /**
+     * 所有工作目录中的文件与目录总数上限，超出时拒绝新的提交
+     */
+    private Long inodeBudget = 100000L;
+
+    /**
+     * 后台统计占用空间的间隔（毫秒）
+     */
+    private Long scanInterval = 1000L;
+}
@@ -1,18 +1,41 @@
 package com.hxoj.hxojcodesandbox.controller;
 
+import com.hxoj.hxojcodesandbox.CodeSandbox;
+import com.hxoj.hxojcodesandbox.JavaCgroupCodeSandbox;
 import com.hxoj.hxojcodesandbox.JavaDockerCodeSandbox;
 import com.hxoj.hxojcodesandbox.JavaNativeCodeSandbox;
+import com.hxoj.hxojcodesandbox.job.BatchExecuteService;
+import com.hxoj.hxojcodesandbox.job.ExecuteJob;
+import com.hxoj.hxojcodesandbox.job.ExecuteJobService;
+import com.hxoj.hxojcodesandbox.job.JobQueueFullException;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteRequest;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteResult;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import com.hxoj.hxojcodesandbox.model.TestDataInfo;
+import com.hxoj.hxojcodesandbox.testdata.TestDataStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController("/")
+@Slf4j
 public class JavaCodeSandboxController {
 
     // 定义鉴权请求头和密钥,实现调用安全性校验
@@ -25,6 +48,18 @@ public class JavaCodeSandboxController {
     // Java原生代码沙箱
     @Resource
     private JavaNativeCodeSandbox javaNativeCodeSandbox;
+    // cgroup v2 代码沙箱
+    @Resource
+    private JavaCgroupCodeSandbox javaCgroupCodeSandbox;
+    // 执行任务服务，同步与异步接口共用
+    @Resource
+    private ExecuteJobService executeJobService;
+    // 批量执行服务
+    @Resource
+    private BatchExecuteService batchExecuteService;
+    // 测试数据存储
+    @Resource
+    private TestDataStore testDataStore;
 
     /**
      * 执行Java原生代码沙箱
@@ -33,15 +68,13 @@ public class JavaCodeSandboxController {
     public ExecuteCodeResponse executeJavaCodeSandbox(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request,
                                                       HttpServletResponse response) {
         // 基本的认证
-        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
-        if (!AUTH_REQUEST_SECRET.equals(authHeader)) {
-            response.setStatus(403);
+        if (!checkAuth(request, response)) {
             return null;
         }
         if (executeCodeRequest == null) {
             throw new IllegalArgumentException("executeCodeRequest cannot be null");
         }
-        ExecuteCodeResponse executeCodeResponse = javaNativeCodeSandbox.executeCode(executeCodeRequest);
+        ExecuteCodeResponse executeCodeResponse = executeJobService.execute(javaNativeCodeSandbox, executeCodeRequest);
         return executeCodeResponse;
     }
 
@@ -52,16 +85,243 @@ public class JavaCodeSandboxController {
     public ExecuteCodeResponse executeDockerCodeSandbox(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request,
                                                         HttpServletResponse response) {
         // 基本的认证
-        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
-        if (!AUTH_REQUEST_SECRET.equals(authHeader)) {
-            response.setStatus(403);
+        if (!checkAuth(request, response)) {
             return null;
         }
         if (executeCodeRequest == null) {
             throw new IllegalArgumentException("executeCodeRequest cannot be null");
         }
-        ExecuteCodeResponse executeCodeResponse = javaDockerCodeSandbox.executeCode(executeCodeRequest);
+        ExecuteCodeResponse executeCodeResponse = executeJobService.execute(javaDockerCodeSandbox, executeCodeRequest);
         return executeCodeResponse;
     }
 
+    /**
+     * 执行cgroup代码沙箱
+     */
+    @PostMapping("/javaCgroupCodeSandbox")
+    public ExecuteCodeResponse executeCgroupCodeSandbox(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request,
+                                                        HttpServletResponse response) {
+        // 基本的认证
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        if (executeCodeRequest == null) {
+            throw new IllegalArgumentException("executeCodeRequest cannot be null");
+        }
+        ExecuteCodeResponse executeCodeResponse = executeJobService.execute(javaCgroupCodeSandbox, executeCodeRequest);
+        return executeCodeResponse;
+    }
+
+    /**
+     * 异步提交任务，立即返回任务id，沙箱类型为 javaNativeCodeSandbox、javaDockerCodeSandbox 或 javaCgroupCodeSandbox
+     */
+    @PostMapping("/job/{sandboxType}")
+    public ExecuteJob submitJob(@PathVariable String sandboxType, @RequestBody ExecuteCodeRequest executeCodeRequest,
+                                HttpServletRequest request, HttpServletResponse response) {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        if (executeCodeRequest == null) {
+            throw new IllegalArgumentException("executeCodeRequest cannot be null");
+        }
+        CodeSandbox codeSandbox = getCodeSandbox(sandboxType);
+        if (codeSandbox == null) {
+            response.setStatus(404);
+            return null;
+        }
+        response.setStatus(202);
+        return executeJobService.submit(codeSandbox, executeCodeRequest);
+    }
+
+    /**
+     * 查询任务结果，wait 大于 0 时等待任务结束后再返回（长轮询，单位毫秒），
+     * 等待期间不占用请求线程
+     */
+    @GetMapping("/job/{jobId}")
+    public DeferredResult<ExecuteJob> getJob(@PathVariable String jobId, @RequestParam(defaultValue = "0") long wait,
+                                             HttpServletRequest request, HttpServletResponse response) {
+        DeferredResult<ExecuteJob> deferredResult = new DeferredResult<>();
+        if (!checkAuth(request, response)) {
+            deferredResult.setResult(null);
+            return deferredResult;
+        }
+        ExecuteJob executeJob = executeJobService.getJob(jobId);
+        if (executeJob == null) {
+            // 任务不存在或结果已过期
+            response.setStatus(404);
+            deferredResult.setResult(null);
+            return deferredResult;
+        }
+        long waitTime = executeJobService.getWaitTime(wait);
+        if (executeJob.isDone() || waitTime <= 0) {
+            deferredResult.setResult(executeJob);
+            return deferredResult;
+        }
+        // 等待超时返回任务的当前状态
+        deferredResult = new DeferredResult<>(waitTime, executeJob);
+        executeJob.getFuture().thenAccept(deferredResult::setResult);
+        return deferredResult;
+    }
+
+    /**
+     * 取消任务，排队中的任务不再执行，相同提交合并执行时所有等待方都取消才不再执行；
+     * 已开始的执行不会中止，结果不再保留
+     */
+    @DeleteMapping("/job/{jobId}")
+    public ExecuteJob cancelJob(@PathVariable String jobId, HttpServletRequest request, HttpServletResponse response) {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        ExecuteJob executeJob = executeJobService.cancelJob(jobId);
+        if (executeJob == null) {
+            // 任务不存在或结果已过期
+            response.setStatus(404);
+        }
+        return executeJob;
+    }
+
+    /**
+     * 流式执行，以 SSE 事件逐个推送编译结果、每个用例的结果和最终结果
+     */
+    @PostMapping("/stream/{sandboxType}")
+    public SseEmitter streamExecute(@PathVariable String sandboxType, @RequestBody ExecuteCodeRequest executeCodeRequest,
+                                    HttpServletRequest request, HttpServletResponse response) {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        if (executeCodeRequest == null) {
+            throw new IllegalArgumentException("executeCodeRequest cannot be null");
+        }
+        CodeSandbox codeSandbox = getCodeSandbox(sandboxType);
+        if (codeSandbox == null) {
+            response.setStatus(404);
+            return null;
+        }
+        SseEmitter sseEmitter = new SseEmitter(executeJobService.getStreamTimeout());
+        SseExecuteListener sseExecuteListener = new SseExecuteListener(sseEmitter);
+        // 与其他接口一样经过调度器排队，队列已满时抛出异常返回 429
+        ExecuteJob executeJob = executeJobService.submit(codeSandbox, executeCodeRequest, sseExecuteListener);
+        executeJob.getFuture().thenAccept(sseExecuteListener::onFinish);
+        return sseEmitter;
+    }
+
+    /**
+     * 批量执行，同一组输入用例与多份提交，全部执行结束后一次返回，结果按提交列表顺序排列。
+     * 等待超时或连接结束时取消本批仍在排队的提交
+     */
+    @PostMapping("/batch/{sandboxType}")
+    public DeferredResult<List<BatchExecuteResult>> executeBatch(@PathVariable String sandboxType,
+                                                                 @RequestBody BatchExecuteRequest batchExecuteRequest,
+                                                                 HttpServletRequest request, HttpServletResponse response) {
+        DeferredResult<List<BatchExecuteResult>> deferredResult = new DeferredResult<>(batchExecuteService.getTimeout());
+        if (!checkAuth(request, response)) {
+            deferredResult.setResult(null);
+            return deferredResult;
+        }
+        CodeSandbox codeSandbox = getCodeSandbox(sandboxType);
+        if (codeSandbox == null) {
+            response.setStatus(404);
+            deferredResult.setResult(null);
+            return deferredResult;
+        }
+        CompletableFuture<List<BatchExecuteResult>> batchFuture = batchExecuteService.submit(codeSandbox, batchExecuteRequest, null);
+        batchFuture.thenAccept(deferredResult::setResult);
+        deferredResult.onTimeout(() -> batchFuture.cancel(false));
+        deferredResult.onCompletion(() -> batchFuture.cancel(false));
+        return deferredResult;
+    }
+
+    /**
+     * 批量执行，每份提交执行结束后推送一个 result 事件，全部结束后推送 done 事件。
+     * 推送超时或调用方断开时取消本批仍在排队的提交
+     */
+    @PostMapping("/batch/{sandboxType}/stream")
+    public SseEmitter streamBatch(@PathVariable String sandboxType, @RequestBody BatchExecuteRequest batchExecuteRequest,
+                                  HttpServletRequest request, HttpServletResponse response) {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        CodeSandbox codeSandbox = getCodeSandbox(sandboxType);
+        if (codeSandbox == null) {
+            response.setStatus(404);
+            return null;
+        }
+        SseEmitter sseEmitter = new SseEmitter(batchExecuteService.getTimeout());
+        CompletableFuture<List<BatchExecuteResult>> batchFuture = batchExecuteService.submit(codeSandbox, batchExecuteRequest, batchExecuteResult -> {
+            try {
+                sseEmitter.send(SseEmitter.event().name("result").data(batchExecuteResult));
+            } catch (IOException | IllegalStateException e) {
+                log.info("批量执行推送失败，调用方可能已断开：" + e.getMessage());
+            }
+        });
+        batchFuture.thenAccept(batchExecuteResultList -> {
+            try {
+                sseEmitter.send(SseEmitter.event().name("done").data(batchExecuteResultList.size()));
+                sseEmitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                log.info("批量执行推送失败，调用方可能已断开：" + e.getMessage());
+            }
+        });
+        sseEmitter.onTimeout(() -> batchFuture.cancel(false));
+        sseEmitter.onCompletion(() -> batchFuture.cancel(false));
+        return sseEmitter;
+    }
+
+    /**
+     * 上传测试数据，请求体为文件内容（application/octet-stream），边接收边写入磁盘并计算哈希。
+     * hash 参数（可选）为调用方计算的 SHA-256，与实际内容不一致时拒绝
+     */
+    @PostMapping("/testData")
+    public TestDataInfo uploadTestData(@RequestParam(required = false) String hash, HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        return testDataStore.put(request.getInputStream(), hash);
+    }
+
+    /**
+     * 查询哪些测试数据已经存在，返回已存在的哈希，调用方只需上传其余文件
+     */
+    @PostMapping("/testData/exists")
+    public List<String> existsTestData(@RequestBody List<String> hashList, HttpServletRequest request,
+                                       HttpServletResponse response) {
+        if (!checkAuth(request, response)) {
+            return null;
+        }
+        return testDataStore.exists(hashList);
+    }
+
+    /**
+     * 执行队列已满，返回 429 并提示重试等待时间
+     */
+    @ExceptionHandler(JobQueueFullException.class)
+    public String handleJobQueueFull(JobQueueFullException e, HttpServletResponse response) {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return e.getMessage();
+    }
+
+    private CodeSandbox getCodeSandbox(String sandboxType) {
+        switch (sandboxType) {
+            case "javaNativeCodeSandbox":
+                return javaNativeCodeSandbox;
+            case "javaDockerCodeSandbox":
+                return javaDockerCodeSandbox;
+            case "javaCgroupCodeSandbox":
+                return javaCgroupCodeSandbox;
+            default:
+                return null;
+        }
+    }
+
+    private boolean checkAuth(HttpServletRequest request, HttpServletResponse response) {
+        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
+        if (!AUTH_REQUEST_SECRET.equals(authHeader)) {
+            response.setStatus(403);
+            return false;
+        }
+        return true;
+    }
+
 }
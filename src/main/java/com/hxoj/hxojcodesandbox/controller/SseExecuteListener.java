@@ -0,0 +1,87 @@
+package com.hxoj.hxojcodesandbox.controller;
+
+import com.hxoj.hxojcodesandbox.ExecuteListener;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.job.ExecuteJob;
+import com.hxoj.hxojcodesandbox.job.JobStatus;
+import com.hxoj.hxojcodesandbox.model.CompileEvent;
+import com.hxoj.hxojcodesandbox.model.ExecuteCaseEvent;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * 将执行过程以 SSE 事件推送给调用方：先推送 compile 事件，每个用例结束推送一个 case 事件，
+ * 最后推送与同步接口返回值相同的 summary 事件（沙箱异常时为 error 事件）
+ */
+@Slf4j
+class SseExecuteListener implements ExecuteListener {
+
+    private final SseEmitter sseEmitter;
+
+    /**
+     * 调用方断开后不再推送
+     */
+    private volatile boolean closed = false;
+
+    SseExecuteListener(SseEmitter sseEmitter) {
+        this.sseEmitter = sseEmitter;
+        sseEmitter.onCompletion(() -> closed = true);
+        sseEmitter.onTimeout(() -> closed = true);
+    }
+
+    @Override
+    public void onCompile(CompileResult compileResult) {
+        CompileEvent compileEvent = CompileEvent.builder()
+                .success(compileResult.isSuccess())
+                .time(compileResult.getTime())
+                .compileDiagnosticList(compileResult.getDiagnosticList())
+                .build();
+        send("compile", compileEvent);
+    }
+
+    @Override
+    public void onCase(int index, ExecuteMessage executeMessage) {
+        ExecuteCaseEvent executeCaseEvent = ExecuteCaseEvent.builder()
+                .index(index)
+                .output(executeMessage.getMessage())
+                .errorMessage(executeMessage.getErrorMessage())
+                .exitValue(executeMessage.getExitValue())
+                .time(executeMessage.getTime())
+                .cpuTime(executeMessage.getCpuTime())
+                .memory(executeMessage.getMemory())
+                .timeout(executeMessage.getTimeout())
+                .caseVerdict(executeMessage.getCaseVerdict())
+                .build();
+        send("case", executeCaseEvent);
+    }
+
+    /**
+     * 任务结束，推送最终结果并关闭连接
+     *
+     * @param executeJob
+     */
+    void onFinish(ExecuteJob executeJob) {
+        if (executeJob.getStatus() != JobStatus.FINISHED) {
+            send("error", executeJob.getErrorMessage());
+        } else {
+            send("summary", executeJob.getExecuteCodeResponse());
+        }
+        sseEmitter.complete();
+    }
+
+    private void send(String eventName, Object data) {
+        if (closed) {
+            return;
+        }
+        try {
+            // SseEmitter 的发送方法是同步的，并行执行的用例可以直接在各自线程中推送
+            sseEmitter.send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+            log.info("流式推送失败，调用方可能已断开：" + e.getMessage());
+        }
+    }
+}
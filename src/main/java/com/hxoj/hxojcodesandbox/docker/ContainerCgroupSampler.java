@@ -0,0 +1,260 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从宿主机的 cgroup 文件读取容器的内存峰值与CPU时间，每个用例只在开始和结束时各读一次，
+ * 代替持续推送的 stats 流。容器在多次提交间复用，无法重置内存峰值时（内核 6.12 之前的 cgroup v2 等）
+ * 不能读取容器整个生命周期的峰值，改为在用例执行期间定时采样当前内存占用取最大值。
+ * 沙箱与 Docker 不在同一台机器上时读取不到，内存与CPU时间为空
+ */
+@Component
+@Slf4j
+public class ContainerCgroupSampler {
+
+    @Resource
+    private DockerProperties dockerProperties;
+
+    @Resource
+    private ExecuteProperties executeProperties;
+
+    private volatile boolean missingLogged = false;
+
+    private ScheduledExecutorService samplerExecutor;
+
+    @PostConstruct
+    public void init() {
+        samplerExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("cgroup-sampler-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        samplerExecutor.shutdownNow();
+    }
+
+    /**
+     * 用例开始前记录CPU时间，并尽量重置内存峰值，无法重置时开始定时采样当前内存占用
+     *
+     * @param containerId
+     * @return 采样句柄，cgroup 不可用时返回 null
+     */
+    public Sample begin(String containerId) {
+        File cgroupRoot = new File(dockerProperties.getCgroupRoot());
+        Sample sample = new Sample();
+        if (new File(cgroupRoot, "cgroup.controllers").exists()) {
+            // cgroup v2：内存与CPU在同一个目录
+            File containerDir = findContainerDir(cgroupRoot, containerId);
+            if (containerDir == null) {
+                return logMissing(containerId);
+            }
+            sample.memoryDir = containerDir;
+            sample.cpuDir = containerDir;
+            sample.v2 = true;
+            sample.cpuStart = readCpuUsageMicros(sample);
+            File peakFile = new File(containerDir, "memory.peak");
+            try {
+                // 内核 6.12 之后向 memory.peak 写入会重置本文件描述符看到的峰值
+                sample.peakFile = new RandomAccessFile(peakFile, "rw");
+                sample.peakFile.write("reset\n".getBytes(StandardCharsets.UTF_8));
+                sample.peakResettable = true;
+            } catch (IOException e) {
+                sample.closePeakFile();
+                sample.usageFile = new File(containerDir, "memory.current");
+            }
+        } else {
+            File memoryDir = findContainerDir(new File(cgroupRoot, "memory"), containerId);
+            File cpuDir = findContainerDir(new File(cgroupRoot, "cpuacct"), containerId);
+            if (memoryDir == null || cpuDir == null) {
+                return logMissing(containerId);
+            }
+            sample.memoryDir = memoryDir;
+            sample.cpuDir = cpuDir;
+            sample.cpuStart = readCpuUsageMicros(sample);
+            try {
+                FileUtil.writeUtf8String("0", new File(memoryDir, "memory.max_usage_in_bytes"));
+                sample.peakResettable = true;
+            } catch (Exception e) {
+                sample.peakResettable = false;
+                sample.usageFile = new File(memoryDir, "memory.usage_in_bytes");
+            }
+        }
+        if (!sample.peakResettable) {
+            sample.sampleUsage();
+            long sampleInterval = executeProperties.getSampleInterval();
+            sample.samplingFuture = samplerExecutor.scheduleAtFixedRate(sample::sampleUsage,
+                    sampleInterval, sampleInterval, TimeUnit.MILLISECONDS);
+        }
+        return sample;
+    }
+
+    /**
+     * 用例结束后读取内存峰值与CPU时间，写入执行信息
+     *
+     * @param sample
+     * @param executeMessage
+     */
+    public void end(Sample sample, ExecuteMessage executeMessage) {
+        if (sample == null) {
+            return;
+        }
+        try {
+            long cpuEnd = readCpuUsageMicros(sample);
+            if (sample.cpuStart >= 0 && cpuEnd >= 0) {
+                executeMessage.setCpuTime((cpuEnd - sample.cpuStart) / 1000L);
+            }
+            Long memory;
+            if (!sample.peakResettable) {
+                // 峰值文件记录的是容器整个生命周期（包括之前的提交）的峰值，只使用用例期间的采样结果
+                sample.stopSampling();
+                sample.sampleUsage();
+                memory = sample.sampledPeak >= 0 ? sample.sampledPeak : null;
+            } else if (sample.v2) {
+                sample.peakFile.seek(0);
+                memory = parseLong(sample.peakFile.readLine());
+            } else {
+                memory = readLong(new File(sample.memoryDir, "memory.max_usage_in_bytes"));
+            }
+            executeMessage.setMemory(memory);
+        } catch (Exception e) {
+            log.warn("读取容器 cgroup 信息失败", e);
+        } finally {
+            sample.stopSampling();
+            sample.closePeakFile();
+        }
+    }
+
+    /**
+     * 兼容 systemd 与 cgroupfs 两种 cgroup 驱动的目录结构
+     *
+     * @param hierarchyRoot
+     * @param containerId
+     * @return
+     */
+    private File findContainerDir(File hierarchyRoot, String containerId) {
+        File[] candidates = {
+                new File(hierarchyRoot, "system.slice" + File.separator + "docker-" + containerId + ".scope"),
+                new File(hierarchyRoot, "docker" + File.separator + containerId)
+        };
+        for (File candidate : candidates) {
+            if (candidate.isDirectory()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private long readCpuUsageMicros(Sample sample) {
+        if (sample.v2) {
+            File cpuStatFile = new File(sample.cpuDir, "cpu.stat");
+            if (!cpuStatFile.exists()) {
+                return -1L;
+            }
+            for (String line : FileUtil.readUtf8Lines(cpuStatFile)) {
+                if (line.startsWith("usage_usec ")) {
+                    return Long.parseLong(line.substring("usage_usec ".length()).trim());
+                }
+            }
+            return -1L;
+        }
+        Long usageNanos = readLong(new File(sample.cpuDir, "cpuacct.usage"));
+        return usageNanos == null ? -1L : usageNanos / 1000L;
+    }
+
+    private static Long readLong(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        return parseLong(FileUtil.readUtf8String(file));
+    }
+
+    private static Long parseLong(String value) {
+        if (StrUtil.isBlank(value)) {
+            return null;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    private Sample logMissing(String containerId) {
+        if (!missingLogged) {
+            missingLogged = true;
+            log.warn("找不到容器的 cgroup 目录，无法统计内存与CPU时间：" + containerId);
+        }
+        return null;
+    }
+
+    /**
+     * 单个用例的采样句柄
+     */
+    public static class Sample {
+
+        private boolean v2;
+
+        private File memoryDir;
+
+        private File cpuDir;
+
+        private long cpuStart = -1L;
+
+        private boolean peakResettable;
+
+        private RandomAccessFile peakFile;
+
+        /**
+         * 无法重置峰值时定时读取的当前内存占用文件
+         */
+        private File usageFile;
+
+        private volatile long sampledPeak = -1L;
+
+        private ScheduledFuture<?> samplingFuture;
+
+        private void sampleUsage() {
+            try {
+                Long usage = readLong(usageFile);
+                if (usage != null && usage > sampledPeak) {
+                    sampledPeak = usage;
+                }
+            } catch (Exception ignored) {
+                // 容器可能已被销毁，保留已有的采样结果
+            }
+        }
+
+        private void stopSampling() {
+            if (samplingFuture != null) {
+                samplingFuture.cancel(false);
+                samplingFuture = null;
+            }
+        }
+
+        private void closePeakFile() {
+            if (peakFile != null) {
+                try {
+                    peakFile.close();
+                } catch (IOException ignored) {
+                    // 关闭失败不影响结果
+                }
+                peakFile = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+/**
+ * 容器池耗尽异常，在租用等待超时后抛出
+ */
+public class ContainerPoolExhaustedException extends RuntimeException {
+
+    public ContainerPoolExhaustedException(String message) {
+        super(message);
+    }
+}
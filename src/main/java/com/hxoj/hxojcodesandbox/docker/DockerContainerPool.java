@@ -0,0 +1,416 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.model.Volume;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.testdata.TestDataStore;
+import com.hxoj.hxojcodesandbox.workspace.WorkspaceManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Docker容器池，预先创建并启动禁用网络、只读根目录的容器，
+ * 每次提交租用一个容器执行，避免每次都创建、启动、删除容器
+ */
+@Component
+@Slf4j
+public class DockerContainerPool {
+
+    /**
+     * 归还容器时在容器内执行的清理脚本：结束除 1 号进程外的全部进程（kill -1 不包括调用者本身），
+     * 清空唯一可写的 /dev/shm，清空后目录不为空时脚本失败
+     */
+    private static final String SCRUB_SCRIPT = "kill -9 -1 2>/dev/null; rm -rf /dev/shm/* /dev/shm/.[!.]* 2>/dev/null; [ -z \"$(ls -A /dev/shm)\" ]";
+
+    /**
+     * 后台维护线程数，归还时的清理、销毁、补充与健康检查都在其中执行，多个归还的容器可以同时清理
+     */
+    private static final int MAINTAIN_THREADS = 4;
+
+    @Resource
+    private DockerProperties dockerProperties;
+
+    @Resource
+    private DockerClient dockerClient;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    /**
+     * 空闲容器，后进先出，让最近使用过的容器保持热状态
+     */
+    private final LinkedBlockingDeque<PooledContainer> idleDeque = new LinkedBlockingDeque<>();
+
+    /**
+     * 容器总数（空闲 + 租用中 + 创建中）
+     */
+    private final AtomicInteger totalCount = new AtomicInteger();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong returnCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong createCount = new AtomicLong();
+    private final AtomicLong destroyCount = new AtomicLong();
+    private final AtomicLong scrubFailCount = new AtomicLong();
+    private final AtomicLong leaseWaitTime = new AtomicLong();
+
+    private volatile boolean started = false;
+
+    private ScheduledExecutorService maintainExecutor;
+
+    @PostConstruct
+    public void init() {
+        maintainExecutor = Executors.newScheduledThreadPool(MAINTAIN_THREADS,
+                new ThreadFactoryBuilder().setNamePrefix("container-pool-").setDaemon(true).build());
+        if (Boolean.TRUE.equals(dockerProperties.getPoolPrewarm())) {
+            maintainExecutor.execute(() -> {
+                try {
+                    ensureStarted();
+                } catch (Exception e) {
+                    log.error("容器池预热失败", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        maintainExecutor.shutdownNow();
+        PooledContainer pooledContainer;
+        while ((pooledContainer = idleDeque.pollFirst()) != null) {
+            destroyContainer(pooledContainer);
+        }
+    }
+
+    /**
+     * 租用一个容器，容器池耗尽且等待超时后快速失败
+     *
+     * @return
+     */
+    public PooledContainer lease() {
+        ensureStarted();
+        long startTime = System.currentTimeMillis();
+        try {
+            PooledContainer pooledContainer = idleDeque.pollFirst();
+            if (pooledContainer == null) {
+                pooledContainer = tryCreate();
+            }
+            if (pooledContainer == null) {
+                pooledContainer = idleDeque.pollFirst(dockerProperties.getPoolLeaseTimeout(), TimeUnit.MILLISECONDS);
+            }
+            if (pooledContainer == null) {
+                exhaustedCount.incrementAndGet();
+                throw new ContainerPoolExhaustedException("容器池已耗尽，请稍后重试");
+            }
+            pooledContainer.setUseCount(pooledContainer.getUseCount() + 1);
+            leaseCount.incrementAndGet();
+            return pooledContainer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("租用容器异常", e);
+        } finally {
+            leaseWaitTime.addAndGet(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 归还容器，结束残留的用户进程并清空 /dev/shm，再由工作目录的清理线程清空代码目录，都完成后才放回空闲容器；
+     * 执行异常（超时、内存超限、非零退出等）、清理失败或达到使用次数上限的容器直接销毁。
+     * 清理与销毁都需要 Docker 调用或删除文件，放到后台线程中执行，不占用请求时间
+     *
+     * @param pooledContainer
+     * @param abnormal        本次租用期间是否出现异常退出
+     */
+    public void giveBack(PooledContainer pooledContainer, boolean abnormal) {
+        returnCount.incrementAndGet();
+        pooledContainer.setLastReturnTime(System.currentTimeMillis());
+        if (abnormal || pooledContainer.getUseCount() >= dockerProperties.getPoolMaxUses()
+                || idleDeque.size() >= dockerProperties.getPoolMaxIdle()) {
+            maintainExecutor.execute(() -> retire(pooledContainer));
+            return;
+        }
+        maintainExecutor.execute(() -> {
+            if (!scrub(pooledContainer)) {
+                retire(pooledContainer);
+                return;
+            }
+            workspaceManager.clean(pooledContainer.getCodeDir(), cleaned -> {
+                if (cleaned) {
+                    idleDeque.offerFirst(pooledContainer);
+                } else {
+                    log.warn("清空容器代码目录失败：" + pooledContainer.getContainerId());
+                    maintainExecutor.execute(() -> retire(pooledContainer));
+                }
+            });
+        });
+    }
+
+    public int getIdleCount() {
+        return idleDeque.size();
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    public int getActiveCount() {
+        return Math.max(totalCount.get() - idleDeque.size(), 0);
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public long getReturnCount() {
+        return returnCount.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    public long getCreateCount() {
+        return createCount.get();
+    }
+
+    public long getDestroyCount() {
+        return destroyCount.get();
+    }
+
+    public long getLeaseWaitTime() {
+        return leaseWaitTime.get();
+    }
+
+    public long getScrubFailCount() {
+        return scrubFailCount.get();
+    }
+
+    /**
+     * 首次使用时拉取镜像、创建最少空闲容器，并启动定时健康检查
+     */
+    private void ensureStarted() {
+        if (started) {
+            return;
+        }
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            pullImageIfAbsent();
+            replenish();
+            long interval = dockerProperties.getPoolHealthCheckInterval();
+            maintainExecutor.scheduleWithFixedDelay(this::healthCheck, interval, interval, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    private void pullImageIfAbsent() {
+        String imageName = dockerProperties.getImage();
+        try {
+            dockerClient.inspectImageCmd(imageName).exec();
+            return;
+        } catch (NotFoundException e) {
+            log.info("本地不存在镜像，开始拉取：" + imageName);
+        }
+        PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
+            @Override
+            public void onNext(PullResponseItem item) {
+                log.info("下载镜像：" + item.getStatus());
+                super.onNext(item);
+            }
+        };
+        try {
+            dockerClient.pullImageCmd(imageName)
+                    .exec(pullImageResultCallback)
+                    .awaitCompletion();
+        } catch (InterruptedException e) {
+            log.info("拉取镜像异常");
+            throw new RuntimeException("拉取镜像异常");
+        }
+        log.info("镜像下载完成");
+    }
+
+    /**
+     * 容器总数未达上限时创建新容器，否则返回 null
+     *
+     * @return
+     */
+    private PooledContainer tryCreate() {
+        while (true) {
+            int total = totalCount.get();
+            if (total >= dockerProperties.getPoolMaxTotal()) {
+                return null;
+            }
+            if (totalCount.compareAndSet(total, total + 1)) {
+                break;
+            }
+        }
+        try {
+            return createContainer();
+        } catch (RuntimeException e) {
+            totalCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * 创建并启动一个禁用网络、只读根目录的容器
+     *
+     * @return
+     */
+    private PooledContainer createContainer() {
+        // 代码目录与提交的工作目录一样位于 tmpfs 上，在容器的整个生命周期内挂载同一个目录
+        File codeDir = workspaceManager.acquire();
+        HostConfig hostConfig = new HostConfig();
+        // 通过HostConfig的withMemory等方法，设置容器的最大内存和资源限制
+        // 限制内存
+        hostConfig.withMemory(dockerProperties.getMemoryLimit());
+        // 设置内存交换的值
+        hostConfig.withMemorySwap(0L);
+        // 限制CPU
+        hostConfig.withCpuCount(dockerProperties.getCpuCount());
+        // 设置容器挂载目录，只读挂载，用户代码无法修改宿主机上的文件
+        // 测试数据目录同样只读挂载，用例的标准输入直接从中重定向
+        hostConfig.setBinds(new Bind(codeDir.getAbsolutePath(), new Volume("/app"), AccessMode.ro),
+                new Bind(testDataStore.getDataDir().getAbsolutePath(), new Volume(TestDataStore.CONTAINER_DATA_DIR), AccessMode.ro));
+        CreateContainerResponse createContainerResponse = dockerClient.createContainerCmd(dockerProperties.getImage())
+                .withHostConfig(hostConfig)
+                .withNetworkDisabled(true) // 安全设置， 禁用网络
+                .withReadonlyRootfs(true)  // 安全设置， 限制用户不能向root根目录写入文件
+                .withAttachStderr(true) // 开启控制台输入输出
+                .withAttachStdin(true)
+                .withAttachStdout(true)
+                .withTty(true) // 开启一个交互终端
+                .withCmd("tail", "-f", "/dev/null") // 保持容器常驻，用户代码通过 exec 执行
+                .exec();
+        String containerId = createContainerResponse.getId();
+        dockerClient.startContainerCmd(containerId).exec();
+        createCount.incrementAndGet();
+        log.info("容器池创建容器Id" + containerId);
+
+        PooledContainer pooledContainer = new PooledContainer();
+        pooledContainer.setContainerId(containerId);
+        pooledContainer.setCodeDir(codeDir);
+        pooledContainer.setCreateTime(System.currentTimeMillis());
+        return pooledContainer;
+    }
+
+    /**
+     * 在容器内执行清理脚本，下一次租用不会看到上一次提交遗留的进程与文件
+     *
+     * @param pooledContainer
+     * @return 是否清理成功
+     */
+    private boolean scrub(PooledContainer pooledContainer) {
+        String containerId = pooledContainer.getContainerId();
+        try {
+            String execId = dockerClient.execCreateCmd(containerId)
+                    .withCmd("sh", "-c", SCRUB_SCRIPT)
+                    .exec()
+                    .getId();
+            boolean completed = dockerClient.execStartCmd(execId)
+                    .exec(new ResultCallback.Adapter<>())
+                    .awaitCompletion(dockerProperties.getPoolScrubTimeout(), TimeUnit.MILLISECONDS);
+            Long exitCode = completed ? dockerClient.inspectExecCmd(execId).exec().getExitCodeLong() : null;
+            if (exitCode != null && exitCode == 0L) {
+                return true;
+            }
+            log.warn("清理容器失败：" + containerId + "，退出码：" + exitCode);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("清理容器被中断：" + containerId);
+        } catch (Exception e) {
+            log.warn("清理容器失败：" + containerId, e);
+        }
+        scrubFailCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 销毁容器并补足最少空闲容器
+     *
+     * @param pooledContainer
+     */
+    private void retire(PooledContainer pooledContainer) {
+        destroyContainer(pooledContainer);
+        replenish();
+    }
+
+    private void destroyContainer(PooledContainer pooledContainer) {
+        try {
+            dockerClient.removeContainerCmd(pooledContainer.getContainerId()).withForce(true).exec();
+        } catch (Exception e) {
+            log.error("删除容器失败：" + pooledContainer.getContainerId(), e);
+        } finally {
+            workspaceManager.release(pooledContainer.getCodeDir());
+            totalCount.decrementAndGet();
+            destroyCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 补足最少空闲容器
+     */
+    private void replenish() {
+        while (idleDeque.size() < dockerProperties.getPoolMinIdle()) {
+            try {
+                PooledContainer pooledContainer = tryCreate();
+                if (pooledContainer == null) {
+                    return;
+                }
+                idleDeque.offerLast(pooledContainer);
+            } catch (Exception e) {
+                log.error("容器池补充容器失败", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 检查空闲容器是否仍在运行，移除异常容器并补足最少空闲数
+     */
+    private void healthCheck() {
+        // 遍历快照，检查期间空闲容器仍可被正常租用
+        for (PooledContainer pooledContainer : new ArrayList<>(idleDeque)) {
+            boolean healthy;
+            try {
+                InspectContainerResponse inspectContainerResponse = dockerClient.inspectContainerCmd(pooledContainer.getContainerId()).exec();
+                healthy = Boolean.TRUE.equals(inspectContainerResponse.getState().getRunning());
+            } catch (Exception e) {
+                healthy = false;
+            }
+            boolean overflow = idleDeque.size() > dockerProperties.getPoolMaxIdle();
+            // remove 成功说明容器没有在检查期间被租走
+            if ((!healthy || overflow) && idleDeque.remove(pooledContainer)) {
+                log.info("容器池移除容器：" + pooledContainer.getContainerId());
+                destroyContainer(pooledContainer);
+            }
+        }
+        replenish();
+    }
+}
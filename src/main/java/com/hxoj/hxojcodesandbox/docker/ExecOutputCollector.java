@@ -0,0 +1,130 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.hxoj.hxojcodesandbox.judge.OutputComparator;
+import com.hxoj.hxojcodesandbox.utils.BoundedOutputBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 收集 Docker exec 的输出帧：标准输出与错误输出各自追加到池化的有上限缓冲区，
+ * 结束后只解码一次 UTF-8，帧的负载不再逐个转换为字符串。
+ * 任一输出超出上限，或比较器要求发现不一致就停止时，调用结束动作结束用户进程，之后的帧全部丢弃。
+ * 使用结束必须调用 {@link #release()} 归还缓冲区
+ */
+public class ExecOutputCollector extends ResultCallback.Adapter<Frame> {
+
+    private final long outputLimit;
+
+    private final OutputComparator outputComparator;
+
+    /**
+     * 结束用户进程，只调用一次
+     */
+    private final Runnable killAction;
+
+    private final BoundedOutputBuffer outputBuffer;
+
+    private final BoundedOutputBuffer errorBuffer;
+
+    /**
+     * 交给比较器的标准输出字节数
+     */
+    private long comparedSize = 0L;
+
+    private boolean truncated = false;
+
+    private boolean killed = false;
+
+    private boolean released = false;
+
+    /**
+     * @param outputLimit      标准输出、错误输出各自最多保留的字节数
+     * @param outputComparator 标准输出比较器，可以为空，不为空时标准输出边收边比较，不保留
+     * @param killAction       超出上限或需要提前停止时结束用户进程
+     */
+    public ExecOutputCollector(long outputLimit, OutputComparator outputComparator, Runnable killAction) {
+        this.outputLimit = outputLimit;
+        this.outputComparator = outputComparator;
+        this.killAction = killAction;
+        this.outputBuffer = new BoundedOutputBuffer(outputLimit);
+        this.errorBuffer = new BoundedOutputBuffer(outputLimit);
+    }
+
+    /**
+     * 等待超时后回调线程可能仍在投递帧，与读取结果互斥
+     *
+     * @param frame
+     */
+    @Override
+    public synchronized void onNext(Frame frame) {
+        if (killed || released) {
+            return;
+        }
+        byte[] payload = frame.getPayload();
+        if (StreamType.STDERR.equals(frame.getStreamType())) {
+            if (!errorBuffer.write(payload, 0, payload.length)) {
+                truncated = true;
+                kill();
+            }
+        } else if (outputComparator != null) {
+            comparedSize += payload.length;
+            if (comparedSize > outputLimit) {
+                truncated = true;
+                kill();
+            } else if (!outputComparator.feed(payload, 0, payload.length) && outputComparator.isStopOnMismatch()) {
+                kill();
+            }
+        } else if (!outputBuffer.write(payload, 0, payload.length)) {
+            truncated = true;
+            kill();
+        }
+    }
+
+    /**
+     * 标准输出，传入比较器时为 null
+     *
+     * @return
+     */
+    public synchronized String getMessage() {
+        return outputComparator == null ? outputBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8) : null;
+    }
+
+    public synchronized String getErrorMessage() {
+        return errorBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 是否有输出超出上限
+     *
+     * @return
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 是否因输出与期望不一致被提前结束
+     *
+     * @return
+     */
+    public synchronized boolean isMismatchStopped() {
+        return killed && !truncated;
+    }
+
+    /**
+     * 归还缓冲区，之后到达的帧直接丢弃
+     */
+    public synchronized void release() {
+        released = true;
+        outputBuffer.release();
+        errorBuffer.release();
+    }
+
+    private void kill() {
+        killed = true;
+        killAction.run();
+    }
+}
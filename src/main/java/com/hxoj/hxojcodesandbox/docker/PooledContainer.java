@@ -0,0 +1,37 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * 容器池中的容器
+ */
+@Data
+public class PooledContainer {
+
+    /**
+     * 容器Id
+     */
+    private String containerId;
+
+    /**
+     * 宿主机上的代码目录，以只读方式挂载到容器的 /app
+     */
+    private File codeDir;
+
+    /**
+     * 已被租用的次数
+     */
+    private int useCount;
+
+    /**
+     * 创建时间
+     */
+    private long createTime;
+
+    /**
+     * 最近一次归还时间
+     */
+    private long lastReturnTime;
+}
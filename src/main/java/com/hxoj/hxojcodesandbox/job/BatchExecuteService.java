@@ -0,0 +1,295 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.hxoj.hxojcodesandbox.CodeSandbox;
+import com.hxoj.hxojcodesandbox.JavaCodeSandboxTemplate;
+import com.hxoj.hxojcodesandbox.config.BatchProperties;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteRequest;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteResult;
+import com.hxoj.hxojcodesandbox.model.BatchSubmission;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecutePriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 批量执行服务：同一组输入用例与多份提交，先并行预编译写入编译缓存，
+ * 再以批量优先级逐个交给执行调度器，每批同时执行的提交数受限，避免重判挤占实时提交
+ */
+@Component
+@Slf4j
+public class BatchExecuteService {
+
+    @Resource
+    private BatchProperties batchProperties;
+
+    @Resource
+    private ExecuteJobService executeJobService;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong submissionCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+
+    private ExecutorService compileExecutor;
+
+    private ScheduledExecutorService retryExecutor;
+
+    @PostConstruct
+    public void init() {
+        compileExecutor = Executors.newFixedThreadPool(batchProperties.getCompileThreads(),
+                new ThreadFactoryBuilder().setNamePrefix("batch-compile-").setDaemon(true).build());
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("batch-retry-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        compileExecutor.shutdownNow();
+        retryExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交一个批次，立即返回
+     *
+     * @param codeSandbox
+     * @param batchExecuteRequest
+     * @param resultConsumer      每份提交执行结束后回调，可能在不同线程中调用，可以为空
+     * @return 全部提交执行结束后完成，结果按提交列表顺序排列。
+     * 调用方放弃等待时取消该 future，本批尚未开始执行的提交随之取消，正在执行的提交照常结束
+     */
+    public CompletableFuture<List<BatchExecuteResult>> submit(CodeSandbox codeSandbox, BatchExecuteRequest batchExecuteRequest,
+                                                              Consumer<BatchExecuteResult> resultConsumer) {
+        List<BatchSubmission> submissionList = batchExecuteRequest.getSubmissionList();
+        if (submissionList == null || submissionList.isEmpty()) {
+            throw new IllegalArgumentException("submissionList cannot be empty");
+        }
+        if (submissionList.size() > batchProperties.getMaxSubmissions()) {
+            throw new IllegalArgumentException("submissionList size exceeds " + batchProperties.getMaxSubmissions());
+        }
+        batchCount.incrementAndGet();
+        submissionCount.addAndGet(submissionList.size());
+        Batch batch = new Batch(codeSandbox, batchExecuteRequest, resultConsumer);
+        batch.start();
+        return batch.future;
+    }
+
+    /**
+     * 单份提交的并发上限，不超过配置值
+     *
+     * @param batchExecuteRequest
+     * @return
+     */
+    private int getConcurrency(BatchExecuteRequest batchExecuteRequest) {
+        Integer concurrency = batchExecuteRequest.getConcurrency();
+        int maxConcurrency = batchProperties.getMaxConcurrency();
+        if (concurrency == null || concurrency <= 0) {
+            return maxConcurrency;
+        }
+        return Math.min(concurrency, maxConcurrency);
+    }
+
+    public long getTimeout() {
+        return batchProperties.getTimeout();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getSubmissionCount() {
+        return submissionCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * 一个批次的执行状态
+     */
+    private class Batch {
+
+        private final CodeSandbox codeSandbox;
+
+        private final BatchExecuteRequest batchExecuteRequest;
+
+        private final Consumer<BatchExecuteResult> resultConsumer;
+
+        private final BatchExecuteResult[] results;
+
+        private final AtomicInteger remainCount;
+
+        private final int concurrency;
+
+        /**
+         * 已编译、等待执行的提交下标
+         */
+        private final Deque<Integer> readyDeque = new ArrayDeque<>();
+
+        private int runningCount = 0;
+
+        private boolean retryScheduled = false;
+
+        private boolean cancelled = false;
+
+        /**
+         * 已交给调度器、尚未结束的提交对应的任务
+         */
+        private final ExecuteJob[] dispatchedJobs;
+
+        private final CompletableFuture<List<BatchExecuteResult>> future = new CompletableFuture<>();
+
+        private Batch(CodeSandbox codeSandbox, BatchExecuteRequest batchExecuteRequest, Consumer<BatchExecuteResult> resultConsumer) {
+            this.codeSandbox = codeSandbox;
+            this.batchExecuteRequest = batchExecuteRequest;
+            this.resultConsumer = resultConsumer;
+            int size = batchExecuteRequest.getSubmissionList().size();
+            this.results = new BatchExecuteResult[size];
+            this.dispatchedJobs = new ExecuteJob[size];
+            this.remainCount = new AtomicInteger(size);
+            this.concurrency = getConcurrency(batchExecuteRequest);
+        }
+
+        private void start() {
+            future.whenComplete((batchExecuteResultList, e) -> {
+                if (future.isCancelled()) {
+                    cancel();
+                }
+            });
+            List<BatchSubmission> submissionList = batchExecuteRequest.getSubmissionList();
+            for (int i = 0; i < submissionList.size(); i++) {
+                int index = i;
+                String code = submissionList.get(i).getCode();
+                compileExecutor.execute(() -> {
+                    if (codeSandbox instanceof JavaCodeSandboxTemplate) {
+                        try {
+                            ((JavaCodeSandboxTemplate) codeSandbox).precompile(code);
+                        } catch (Exception e) {
+                            // 执行时会再次编译并返回错误
+                            log.warn("批量执行预编译失败", e);
+                        }
+                    }
+                    onReady(index);
+                });
+            }
+        }
+
+        private synchronized void onReady(int index) {
+            if (cancelled) {
+                return;
+            }
+            readyDeque.add(index);
+            dispatch();
+        }
+
+        /**
+         * 取消本批：不再交给调度器，已交给调度器但仍在排队的任务一并取消
+         */
+        private void cancel() {
+            List<ExecuteJob> queuedJobList = new ArrayList<>();
+            synchronized (this) {
+                cancelled = true;
+                readyDeque.clear();
+                for (ExecuteJob executeJob : dispatchedJobs) {
+                    if (executeJob != null && executeJob.getStatus() == JobStatus.QUEUED) {
+                        queuedJobList.add(executeJob);
+                    }
+                }
+            }
+            for (ExecuteJob executeJob : queuedJobList) {
+                executeJobService.cancelJob(executeJob.getJobId());
+            }
+            if (!queuedJobList.isEmpty()) {
+                log.info("批量执行已取消，取消排队中的提交数：" + queuedJobList.size());
+            }
+        }
+
+        /**
+         * 在并发上限内把已编译的提交交给调度器，调度队列已满时稍后重试
+         */
+        private synchronized void dispatch() {
+            retryScheduled = false;
+            while (!cancelled && runningCount < concurrency && !readyDeque.isEmpty()) {
+                int index = readyDeque.peek();
+                ExecuteJob executeJob;
+                try {
+                    executeJob = executeJobService.submit(codeSandbox, buildRequest(index));
+                } catch (JobQueueFullException e) {
+                    retryCount.incrementAndGet();
+                    retryScheduled = true;
+                    retryExecutor.schedule(this::dispatch, e.getRetryAfterSeconds(), TimeUnit.SECONDS);
+                    return;
+                }
+                readyDeque.poll();
+                runningCount++;
+                dispatchedJobs[index] = executeJob;
+                executeJob.getFuture().thenAccept(finishedJob -> onFinish(index, finishedJob));
+            }
+        }
+
+        private void onFinish(int index, ExecuteJob executeJob) {
+            // 结果直接交给调用方，不需要在任务列表中保留
+            executeJobService.removeJob(executeJob.getJobId());
+            BatchExecuteResult batchExecuteResult = BatchExecuteResult.builder()
+                    .index(index)
+                    .submissionId(batchExecuteRequest.getSubmissionList().get(index).getSubmissionId())
+                    .executeCodeResponse(executeJob.getExecuteCodeResponse())
+                    .errorMessage(executeJob.getErrorMessage())
+                    .build();
+            results[index] = batchExecuteResult;
+            if (resultConsumer != null) {
+                try {
+                    resultConsumer.accept(batchExecuteResult);
+                } catch (Exception e) {
+                    log.warn("批量执行结果回调失败", e);
+                }
+            }
+            synchronized (this) {
+                runningCount--;
+                dispatchedJobs[index] = null;
+                if (!retryScheduled) {
+                    dispatch();
+                }
+            }
+            if (remainCount.decrementAndGet() == 0) {
+                future.complete(Arrays.asList(results));
+            }
+        }
+
+        private ExecuteCodeRequest buildRequest(int index) {
+            BatchSubmission batchSubmission = batchExecuteRequest.getSubmissionList().get(index);
+            return ExecuteCodeRequest.builder()
+                    .inputList(batchExecuteRequest.getInputList())
+                    .inputFileList(batchExecuteRequest.getInputFileList())
+                    .stdinList(batchExecuteRequest.getStdinList())
+                    .code(batchSubmission.getCode())
+                    .language(batchSubmission.getLanguage())
+                    .parallelism(batchExecuteRequest.getParallelism())
+                    .expectedOutputList(batchExecuteRequest.getExpectedOutputList())
+                    .expectedOutputFileList(batchExecuteRequest.getExpectedOutputFileList())
+                    .compareMode(batchExecuteRequest.getCompareMode())
+                    .tolerance(batchExecuteRequest.getTolerance())
+                    .stopOnFirstMismatch(batchExecuteRequest.getStopOnFirstMismatch())
+                    .deterministic(batchExecuteRequest.getDeterministic())
+                    .priority(ExecutePriority.BATCH)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import lombok.Data;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 执行任务，查询接口直接返回该对象
+ */
+@Data
+public class ExecuteJob {
+
+    /**
+     * 任务id
+     */
+    private String jobId;
+
+    /**
+     * 任务状态
+     */
+    private volatile JobStatus status;
+
+    /**
+     * 代码沙箱执行返回结果，执行结束后才有值
+     */
+    private volatile ExecuteCodeResponse executeCodeResponse;
+
+    /**
+     * 沙箱内部异常信息
+     */
+    private volatile String errorMessage;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    private long submitTime;
+
+    /**
+     * 开始执行时间（毫秒时间戳）
+     */
+    private volatile Long startTime;
+
+    /**
+     * 执行结束时间（毫秒时间戳）
+     */
+    private volatile Long finishTime;
+
+    /**
+     * 执行结束时完成，用于同步等待与长轮询
+     */
+    @JsonIgnore
+    private final CompletableFuture<ExecuteJob> future = new CompletableFuture<>();
+
+    /**
+     * 是否已执行结束
+     *
+     * @return
+     */
+    @JsonIgnore
+    public boolean isDone() {
+        return future.isDone();
+    }
+}
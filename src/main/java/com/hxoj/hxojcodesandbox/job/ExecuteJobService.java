@@ -0,0 +1,473 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.hxoj.hxojcodesandbox.CodeSandbox;
+import com.hxoj.hxojcodesandbox.ExecuteListener;
+import com.hxoj.hxojcodesandbox.config.JobProperties;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行任务服务，所有提交（同步与异步接口）都交给执行调度器排队执行，
+ * 请求线程不再决定沙箱的并发度
+ */
+@Component
+@Slf4j
+public class ExecuteJobService {
+
+    @Resource
+    private JobProperties jobProperties;
+
+    @Resource
+    private ExecutionScheduler executionScheduler;
+
+    private final Map<String, ExecuteJob> jobMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitCount = new AtomicLong();
+    private final AtomicLong finishCount = new AtomicLong();
+    private final AtomicLong failCount = new AtomicLong();
+    private final AtomicLong cancelCount = new AtomicLong();
+
+    /**
+     * 正在接受合并的执行，key 为沙箱类与请求内容的哈希。与 jobFlightMap 一起在该对象上加锁读写
+     */
+    private final Map<String, Flight> flightMap = new HashMap<>();
+
+    /**
+     * 任务id -> 任务所在的尚未结束的合并执行
+     */
+    private final Map<String, Flight> jobFlightMap = new HashMap<>();
+
+    private final AtomicLong flightLeaderCount = new AtomicLong();
+    private final AtomicLong flightJoinCount = new AtomicLong();
+    private final AtomicLong flightOverflowCount = new AtomicLong();
+    private final AtomicLong flightCancelCount = new AtomicLong();
+
+    private ScheduledExecutorService cleanExecutor;
+
+    @PostConstruct
+    public void init() {
+        cleanExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("execute-job-clean-").setDaemon(true).build());
+        long cleanInterval = Math.max(1000L, jobProperties.getResultTtl() / 10);
+        cleanExecutor.scheduleWithFixedDelay(this::cleanExpiredJobs, cleanInterval, cleanInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleanExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交任务，立即返回
+     *
+     * @param codeSandbox
+     * @param executeCodeRequest
+     * @return
+     * @throws JobQueueFullException 等待队列已满
+     */
+    public ExecuteJob submit(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        return submit(codeSandbox, executeCodeRequest, ExecuteListener.NONE);
+    }
+
+    /**
+     * 提交任务，立即返回，执行过程中回调监听器
+     *
+     * @param codeSandbox
+     * @param executeCodeRequest
+     * @param executeListener
+     * @return
+     * @throws JobQueueFullException 等待队列已满
+     */
+    public ExecuteJob submit(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest, ExecuteListener executeListener) {
+        ExecuteJob executeJob = new ExecuteJob();
+        executeJob.setJobId(IdUtil.simpleUUID());
+        executeJob.setStatus(JobStatus.QUEUED);
+        executeJob.setSubmitTime(System.currentTimeMillis());
+        // 先登记再排队，任务很快执行完时也能查询到
+        jobMap.put(executeJob.getJobId(), executeJob);
+        String flightKey = getFlightKey(codeSandbox, executeCodeRequest, executeListener);
+        try {
+            if (flightKey == null) {
+                executionScheduler.schedule(executeCodeRequest.getPriority(), () -> runJob(executeJob, codeSandbox, executeCodeRequest, executeListener));
+            } else {
+                submitToFlight(flightKey, executeJob, codeSandbox, executeCodeRequest);
+            }
+        } catch (JobQueueFullException e) {
+            jobMap.remove(executeJob.getJobId());
+            throw e;
+        }
+        submitCount.incrementAndGet();
+        return executeJob;
+    }
+
+    /**
+     * 加入相同提交的执行，没有时排队并作为新的执行登记
+     *
+     * @param flightKey
+     * @param executeJob
+     * @param codeSandbox
+     * @param executeCodeRequest
+     * @throws JobQueueFullException 需要排队且等待队列已满
+     */
+    private void submitToFlight(String flightKey, ExecuteJob executeJob, CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        synchronized (flightMap) {
+            Flight flight = flightMap.get(flightKey);
+            if (flight != null && flight.waiterList.size() < jobProperties.getSingleFlightMaxWaiters()) {
+                if (flight.started) {
+                    startJob(executeJob, System.currentTimeMillis());
+                }
+                flight.waiterList.add(executeJob);
+                flight.activeCount++;
+                jobFlightMap.put(executeJob.getJobId(), flight);
+                flightJoinCount.incrementAndGet();
+                return;
+            }
+            Flight newFlight = new Flight(flightKey);
+            // 先排队再登记，队列已满时不会留下不会执行的记录；执行线程要等这里释放锁后才能开始
+            executionScheduler.schedule(executeCodeRequest.getPriority(), () -> runFlight(newFlight, codeSandbox, executeCodeRequest));
+            newFlight.waiterList.add(executeJob);
+            newFlight.activeCount++;
+            jobFlightMap.put(executeJob.getJobId(), newFlight);
+            // 已满的执行不再接受合并，之后相同的提交合并到新的执行中
+            flightMap.put(flightKey, newFlight);
+            if (flight != null) {
+                flightOverflowCount.incrementAndGet();
+            } else {
+                flightLeaderCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 执行一次合并的提交，结果分发给所有尚未取消的等待方。
+     * 排队期间所有等待方都已取消时不再执行；开始执行后不会因等待方取消而中止
+     *
+     * @param flight
+     * @param codeSandbox
+     * @param executeCodeRequest
+     */
+    private void runFlight(Flight flight, CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        synchronized (flightMap) {
+            if (flight.activeCount == 0) {
+                // 等待方取消时已各自结束，这里只需不再接受合并
+                removeFlight(flight);
+                flightCancelCount.incrementAndGet();
+                return;
+            }
+            flight.started = true;
+            long startTime = System.currentTimeMillis();
+            for (ExecuteJob executeJob : flight.waiterList) {
+                startJob(executeJob, startTime);
+            }
+        }
+        // 执行不属于任何一个等待方，最先提交的任务取消后其余等待方仍能拿到结果
+        ExecuteCodeResponse executeCodeResponse = null;
+        String errorMessage = null;
+        JobStatus status = JobStatus.FINISHED;
+        try {
+            executeCodeResponse = codeSandbox.executeCode(executeCodeRequest, ExecuteListener.NONE);
+        } catch (Throwable e) {
+            log.error("执行合并的任务异常，key：" + flight.key, e);
+            errorMessage = e.getMessage();
+            status = JobStatus.FAILED;
+        }
+        List<ExecuteJob> waiterList;
+        synchronized (flightMap) {
+            removeFlight(flight);
+            waiterList = new ArrayList<>(flight.waiterList);
+        }
+        long finishTime = System.currentTimeMillis();
+        for (ExecuteJob executeJob : waiterList) {
+            finishJob(executeJob, status, executeCodeResponse, errorMessage, finishTime);
+        }
+    }
+
+    /**
+     * 执行结束或取消后不再接受合并，需在 flightMap 上加锁调用
+     *
+     * @param flight
+     */
+    private void removeFlight(Flight flight) {
+        flightMap.remove(flight.key, flight);
+        for (ExecuteJob executeJob : flight.waiterList) {
+            jobFlightMap.remove(executeJob.getJobId());
+        }
+    }
+
+    /**
+     * 等待方离开合并的执行，所有等待方都离开且尚未开始执行时不再执行
+     *
+     * @param jobId
+     */
+    private void leaveFlight(String jobId) {
+        synchronized (flightMap) {
+            Flight flight = jobFlightMap.remove(jobId);
+            if (flight != null) {
+                flight.activeCount--;
+            }
+        }
+    }
+
+    /**
+     * 可以合并的提交的 key。流式执行需要逐个用例回调，输出不确定的题目每次都要实际执行，都不合并。
+     * 同一进程内同一沙箱的执行限制相同，请求内容（含优先级与并行度）完全相同即可合并
+     *
+     * @param codeSandbox
+     * @param executeCodeRequest
+     * @param executeListener
+     * @return 不合并时返回 null
+     */
+    private String getFlightKey(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest, ExecuteListener executeListener) {
+        if (!Boolean.TRUE.equals(jobProperties.getSingleFlightEnabled()) || executeListener != ExecuteListener.NONE
+                || Boolean.FALSE.equals(executeCodeRequest.getDeterministic())) {
+            return null;
+        }
+        return codeSandbox.getClass().getName() + ":" + DigestUtil.sha256Hex(JSONUtil.toJsonStr(executeCodeRequest));
+    }
+
+    /**
+     * 同步执行：提交任务并等待结果，与异步接口共用同一个调度队列和执行槽位
+     *
+     * @param codeSandbox
+     * @param executeCodeRequest
+     * @return
+     */
+    public ExecuteCodeResponse execute(CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest) {
+        ExecuteJob executeJob = submit(codeSandbox, executeCodeRequest);
+        try {
+            executeJob.getFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待执行结果被中断");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("执行任务异常", e.getCause());
+        } finally {
+            // 同步调用方已拿到结果，不需要保留到过期
+            removeJob(executeJob.getJobId());
+        }
+        if (executeJob.getStatus() != JobStatus.FINISHED) {
+            throw new RuntimeException(executeJob.getErrorMessage());
+        }
+        return executeJob.getExecuteCodeResponse();
+    }
+
+    /**
+     * 查询任务
+     *
+     * @param jobId
+     * @return 任务不存在或已过期时返回 null
+     */
+    public ExecuteJob getJob(String jobId) {
+        return jobMap.get(jobId);
+    }
+
+    /**
+     * 调用方已取得结果后移除任务，不再保留到过期
+     *
+     * @param jobId
+     */
+    public void removeJob(String jobId) {
+        jobMap.remove(jobId);
+    }
+
+    /**
+     * 取消并移除任务。排队中的任务不再执行；合并执行的等待方离开合并的执行，
+     * 所有等待方都取消且尚未开始执行时整次执行不再进行。已开始的执行不会中止，结果不再返回给该任务
+     *
+     * @param jobId
+     * @return 任务不存在或已过期时返回 null
+     */
+    public ExecuteJob cancelJob(String jobId) {
+        ExecuteJob executeJob = jobMap.remove(jobId);
+        if (executeJob == null) {
+            return null;
+        }
+        leaveFlight(jobId);
+        finishJob(executeJob, JobStatus.CANCELLED, null, "任务已取消", System.currentTimeMillis());
+        return executeJob;
+    }
+
+    private void runJob(ExecuteJob executeJob, CodeSandbox codeSandbox, ExecuteCodeRequest executeCodeRequest,
+                        ExecuteListener executeListener) {
+        if (!startJob(executeJob, System.currentTimeMillis())) {
+            // 排队期间已取消
+            return;
+        }
+        try {
+            ExecuteCodeResponse executeCodeResponse = codeSandbox.executeCode(executeCodeRequest, executeListener);
+            finishJob(executeJob, JobStatus.FINISHED, executeCodeResponse, null, System.currentTimeMillis());
+        } catch (Throwable e) {
+            log.error("执行任务异常，jobId：" + executeJob.getJobId(), e);
+            finishJob(executeJob, JobStatus.FAILED, null, e.getMessage(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 任务开始执行，已结束（已取消）的任务不再改为执行中
+     *
+     * @param executeJob
+     * @param startTime
+     * @return 任务是否仍需执行
+     */
+    private boolean startJob(ExecuteJob executeJob, long startTime) {
+        synchronized (executeJob) {
+            if (executeJob.getStatus().isEnded()) {
+                return false;
+            }
+            executeJob.setStartTime(startTime);
+            executeJob.setStatus(JobStatus.RUNNING);
+            return true;
+        }
+    }
+
+    /**
+     * 写入结果并结束任务，只有第一次调用生效，取消后到达的执行结果被丢弃。
+     * 等待方的回调在锁外触发，回调中可以再提交任务
+     *
+     * @param executeJob
+     * @param status
+     * @param executeCodeResponse
+     * @param errorMessage
+     * @param finishTime
+     */
+    private void finishJob(ExecuteJob executeJob, JobStatus status, ExecuteCodeResponse executeCodeResponse, String errorMessage,
+                           long finishTime) {
+        synchronized (executeJob) {
+            if (executeJob.getStatus().isEnded()) {
+                return;
+            }
+            executeJob.setExecuteCodeResponse(executeCodeResponse);
+            executeJob.setErrorMessage(errorMessage);
+            executeJob.setFinishTime(finishTime);
+            executeJob.setStatus(status);
+        }
+        if (status == JobStatus.FINISHED) {
+            finishCount.incrementAndGet();
+        } else if (status == JobStatus.FAILED) {
+            failCount.incrementAndGet();
+        } else {
+            cancelCount.incrementAndGet();
+        }
+        executeJob.getFuture().complete(executeJob);
+    }
+
+    /**
+     * 清理结束超过保留时长的任务
+     */
+    private void cleanExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - jobProperties.getResultTtl();
+        Iterator<ExecuteJob> iterator = jobMap.values().iterator();
+        while (iterator.hasNext()) {
+            Long finishTime = iterator.next().getFinishTime();
+            if (finishTime != null && finishTime < expireBefore) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 长轮询的等待时长，不超过配置的最长等待时间
+     *
+     * @param waitTime
+     * @return
+     */
+    public long getWaitTime(long waitTime) {
+        return Math.min(waitTime, jobProperties.getMaxWait());
+    }
+
+    public long getStreamTimeout() {
+        return jobProperties.getStreamTimeout();
+    }
+
+    public int getJobCount() {
+        return jobMap.size();
+    }
+
+    public long getSubmitCount() {
+        return submitCount.get();
+    }
+
+    public long getFinishCount() {
+        return finishCount.get();
+    }
+
+    public long getFailCount() {
+        return failCount.get();
+    }
+
+    public long getCancelCount() {
+        return cancelCount.get();
+    }
+
+    /**
+     * 尚未结束的合并执行中的任务数
+     *
+     * @return
+     */
+    public int getFlightWaiterCount() {
+        synchronized (flightMap) {
+            return jobFlightMap.size();
+        }
+    }
+
+    public long getFlightLeaderCount() {
+        return flightLeaderCount.get();
+    }
+
+    public long getFlightJoinCount() {
+        return flightJoinCount.get();
+    }
+
+    public long getFlightOverflowCount() {
+        return flightOverflowCount.get();
+    }
+
+    public long getFlightCancelCount() {
+        return flightCancelCount.get();
+    }
+
+    /**
+     * 合并执行的一组相同提交
+     */
+    private static class Flight {
+
+        private final String key;
+
+        /**
+         * 所有等待方的任务，包括已取消的
+         */
+        private final List<ExecuteJob> waiterList = new ArrayList<>();
+
+        /**
+         * 尚未离开的等待方数量
+         */
+        private int activeCount;
+
+        private boolean started;
+
+        Flight(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.hxoj.hxojcodesandbox.config.SchedulerProperties;
+import com.hxoj.hxojcodesandbox.model.ExecutePriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行调度器，所有提交在这里排队，按优先级获取执行槽位。
+ * 槽位数按CPU核数与内存预算确定，一个提交从编译到执行结束始终占用同一个槽位，
+ * 避免突发请求时进程数超过CPU核数，拉长所有提交的计时
+ */
+@Component
+@Slf4j
+public class ExecutionScheduler {
+
+    @Resource
+    private SchedulerProperties schedulerProperties;
+
+    /**
+     * 排队中的提交数，按优先级分别统计
+     */
+    private final AtomicInteger[] queuedCounts = new AtomicInteger[ExecutePriority.values().length];
+
+    /**
+     * 提交顺序号，同一优先级内先提交先执行
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong scheduleCount = new AtomicLong();
+    private final AtomicLong rejectCount = new AtomicLong();
+    private final AtomicLong startCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    /**
+     * 最近提交的平均执行耗时（毫秒），用于估算重试等待时间
+     */
+    private volatile double averageRunTime = 1000D;
+
+    private int slots;
+
+    private ThreadPoolExecutor slotExecutor;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < queuedCounts.length; i++) {
+            queuedCounts[i] = new AtomicInteger();
+        }
+        slots = computeSlots();
+        slotExecutor = new ThreadPoolExecutor(slots, slots, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNamePrefix("execute-slot-").setDaemon(true).build());
+        log.info("执行槽位数：" + slots);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        slotExecutor.shutdownNow();
+    }
+
+    /**
+     * 将提交加入队列，获得槽位后执行
+     *
+     * @param priority 为空时按练习提交处理
+     * @param task
+     * @throws JobQueueFullException 排队的提交数已达上限
+     */
+    public void schedule(ExecutePriority priority, Runnable task) {
+        if (priority == null) {
+            priority = ExecutePriority.PRACTICE;
+        }
+        AtomicInteger queuedCount = queuedCounts[priority.ordinal()];
+        queuedCount.incrementAndGet();
+        if (getQueueSize() > schedulerProperties.getQueueCapacity()) {
+            queuedCount.decrementAndGet();
+            rejectCount.incrementAndGet();
+            throw new JobQueueFullException("执行队列已满，请稍后重试", getRetryAfterSeconds());
+        }
+        scheduleCount.incrementAndGet();
+        slotExecutor.execute(new SlotTask(priority, sequence.incrementAndGet(), task));
+    }
+
+    /**
+     * 按槽位数、排队数与平均耗时估算队列腾出空位的时间
+     *
+     * @return
+     */
+    public long getRetryAfterSeconds() {
+        double waitMillis = (getQueueSize() + 1) * averageRunTime / slots;
+        return Math.max(1L, (long) Math.ceil(waitMillis / 1000D));
+    }
+
+    /**
+     * 槽位数取CPU核数与内存预算可容纳数的较小值
+     *
+     * @return
+     */
+    private int computeSlots() {
+        if (schedulerProperties.getSlots() != null && schedulerProperties.getSlots() > 0) {
+            return schedulerProperties.getSlots();
+        }
+        int cpuSlots = Runtime.getRuntime().availableProcessors();
+        long memoryBudget = schedulerProperties.getMemoryBudget();
+        if (memoryBudget <= 0) {
+            memoryBudget = getPhysicalMemory() / 4 * 3;
+        }
+        int memorySlots = memoryBudget > 0 ? (int) Math.min(Integer.MAX_VALUE, memoryBudget / schedulerProperties.getSlotMemory()) : cpuSlots;
+        return Math.max(1, Math.min(cpuSlots, memorySlots));
+    }
+
+    private long getPhysicalMemory() {
+        OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) operatingSystemMXBean).getTotalPhysicalMemorySize();
+        }
+        return -1L;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getRunningCount() {
+        return slotExecutor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        int queueSize = 0;
+        for (AtomicInteger queuedCount : queuedCounts) {
+            queueSize += queuedCount.get();
+        }
+        return queueSize;
+    }
+
+    public int getQueueSize(ExecutePriority priority) {
+        return queuedCounts[priority.ordinal()].get();
+    }
+
+    public long getScheduleCount() {
+        return scheduleCount.get();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.get();
+    }
+
+    public long getStartCount() {
+        return startCount.get();
+    }
+
+    public long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * 排队中的提交，优先级高的排在前面，同一优先级按提交顺序
+     */
+    private class SlotTask implements Runnable, Comparable<SlotTask> {
+
+        private final ExecutePriority priority;
+
+        private final long sequence;
+
+        private final Runnable task;
+
+        private final long queueTime = System.currentTimeMillis();
+
+        private SlotTask(ExecutePriority priority, long sequence, Runnable task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            queuedCounts[priority.ordinal()].decrementAndGet();
+            long startTime = System.currentTimeMillis();
+            long waitTime = startTime - queueTime;
+            startCount.incrementAndGet();
+            totalWaitTime.addAndGet(waitTime);
+            maxWaitTime.accumulateAndGet(waitTime, Math::max);
+            try {
+                task.run();
+            } finally {
+                averageRunTime = averageRunTime * 0.9 + (System.currentTimeMillis() - startTime) * 0.1;
+            }
+        }
+
+        @Override
+        public int compareTo(SlotTask other) {
+            int result = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import lombok.Getter;
+
+/**
+ * 任务队列已满异常，携带建议的重试等待时间
+ */
+@Getter
+public class JobQueueFullException extends RuntimeException {
+
+    /**
+     * 建议客户端等待多少秒后重试
+     */
+    private final long retryAfterSeconds;
+
+    public JobQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hxoj.hxojcodesandbox.job;
+
+/**
+ * 执行任务状态
+ */
+public enum JobStatus {
+
+    /**
+     * 排队等待执行
+     */
+    QUEUED,
+
+    /**
+     * 正在编译或执行
+     */
+    RUNNING,
+
+    /**
+     * 执行结束，结果见执行返回结果
+     */
+    FINISHED,
+
+    /**
+     * 沙箱内部异常
+     */
+    FAILED,
+
+    /**
+     * 调用方已取消，排队中的任务不再执行，已开始的执行结果不再返回
+     */
+    CANCELLED;
+
+    /**
+     * 是否已结束，结束后状态与结果不再改变
+     *
+     * @return
+     */
+    public boolean isEnded() {
+        return this == FINISHED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,432 @@
+package com.hxoj.hxojcodesandbox.judge;
+
+import com.hxoj.hxojcodesandbox.model.CompareMode;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式输出比较器，程序输出边读边与期望输出比较，不保留完整输出。
+ * 发现第一处不一致后只再收集一小段输出作为片段，之后的输出全部丢弃。
+ * 非线程安全，每个用例单独使用一个
+ */
+public class OutputComparator {
+
+    /**
+     * 不一致位置前后各保留的字节数
+     */
+    private static final int EXCERPT_SIZE = 32;
+
+    /**
+     * 浮点比较时单个数字的最大长度，超过的按普通字符串比较
+     */
+    private static final int MAX_NUMBER_LENGTH = 64;
+
+    /**
+     * 期望输出，可以是内存映射的测试数据文件
+     */
+    private final ByteBuffer expected;
+
+    /**
+     * 参与比较的期望输出长度，逐字节比较时不含末尾换行
+     */
+    private final int expectedLength;
+
+    private final CompareMode compareMode;
+
+    private final double tolerance;
+
+    /**
+     * 发现不一致时是否提前结束程序
+     */
+    private final boolean stopOnMismatch;
+
+    /**
+     * 期望输出中下一个待比较字节的位置
+     */
+    private int position = 0;
+
+    /**
+     * 实际输出当前所在行号
+     */
+    private long line = 1L;
+
+    /**
+     * 逐字节比较时尚未确认的换行数，末尾的换行不参与比较
+     */
+    private int pendingNewlines = 0;
+
+    private boolean pendingCarriageReturn = false;
+
+    /**
+     * 按空白切分比较时是否处在一个单词中
+     */
+    private boolean inToken = false;
+
+    /**
+     * 当前单词在期望输出中的起始位置
+     */
+    private int tokenStart = 0;
+
+    /**
+     * 当前单词是否已经逐字节不一致，浮点比较时等单词结束再按数字比较
+     */
+    private boolean tokenDiffers = false;
+
+    private final byte[] numberBuffer = new byte[MAX_NUMBER_LENGTH];
+
+    private int numberLength = 0;
+
+    /**
+     * 最近的实际输出，环形缓冲
+     */
+    private final byte[] recent = new byte[EXCERPT_SIZE];
+
+    private long recentCount = 0L;
+
+    private boolean mismatched = false;
+
+    private boolean finished = false;
+
+    private long mismatchLine;
+
+    private int mismatchPosition;
+
+    private byte[] actualHead;
+
+    private final byte[] actualTail = new byte[EXCERPT_SIZE];
+
+    private int actualTailLength = 0;
+
+    /**
+     * @param expectedOutput 期望输出
+     * @param compareMode    比较方式
+     * @param tolerance      浮点比较允许的绝对误差或相对误差
+     * @param stopOnMismatch 发现不一致时是否提前结束程序
+     */
+    public OutputComparator(String expectedOutput, CompareMode compareMode, double tolerance, boolean stopOnMismatch) {
+        this(ByteBuffer.wrap(expectedOutput == null ? new byte[0] : expectedOutput.getBytes(StandardCharsets.UTF_8)),
+                compareMode, tolerance, stopOnMismatch);
+    }
+
+    /**
+     * @param expectedOutput 期望输出，只按绝对位置读取，不改变缓冲区的位置
+     * @param compareMode    比较方式
+     * @param tolerance      浮点比较允许的绝对误差或相对误差
+     * @param stopOnMismatch 发现不一致时是否提前结束程序
+     */
+    public OutputComparator(ByteBuffer expectedOutput, CompareMode compareMode, double tolerance, boolean stopOnMismatch) {
+        this.compareMode = compareMode;
+        this.tolerance = tolerance;
+        this.stopOnMismatch = stopOnMismatch;
+        this.expected = expectedOutput;
+        this.expectedLength = getExpectedLength(expectedOutput, compareMode);
+    }
+
+    /**
+     * 读入一段实际输出
+     *
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return 是否还需要后续输出，已经不一致且片段收集完毕时返回 false
+     */
+    public boolean feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (mismatched) {
+                if (actualTailLength == EXCERPT_SIZE) {
+                    return false;
+                }
+                actualTail[actualTailLength++] = b;
+                continue;
+            }
+            if (compareMode == CompareMode.EXACT) {
+                compareExact(b);
+            } else {
+                compareToken(b);
+            }
+            if (mismatched) {
+                actualTail[actualTailLength++] = b;
+            } else {
+                recent[(int) (recentCount++ % EXCERPT_SIZE)] = b;
+            }
+            if (b == '\n') {
+                line++;
+            }
+        }
+        return !mismatched || actualTailLength < EXCERPT_SIZE;
+    }
+
+    /**
+     * 实际输出结束，比较剩余部分，可以重复调用
+     *
+     * @return 是否与期望输出一致
+     */
+    public boolean finish() {
+        if (finished) {
+            return !mismatched;
+        }
+        finished = true;
+        if (mismatched) {
+            return false;
+        }
+        if (compareMode == CompareMode.EXACT) {
+            if (pendingCarriageReturn) {
+                pendingCarriageReturn = false;
+                matchByte((byte) '\r');
+            }
+            // 末尾的换行不参与比较，期望输出也已去掉末尾换行
+            if (!mismatched && position != expectedLength) {
+                mismatch(position);
+            }
+        } else {
+            if (inToken) {
+                endToken();
+            }
+            if (!mismatched) {
+                skipExpectedWhitespace();
+                if (position != expectedLength) {
+                    mismatch(position);
+                }
+            }
+        }
+        return !mismatched;
+    }
+
+    public boolean isMismatched() {
+        return mismatched;
+    }
+
+    public boolean isStopOnMismatch() {
+        return stopOnMismatch;
+    }
+
+    /**
+     * 第一处不一致所在的实际输出行号
+     *
+     * @return
+     */
+    public long getMismatchLine() {
+        return mismatchLine;
+    }
+
+    /**
+     * 第一处不一致附近的期望输出片段
+     *
+     * @return
+     */
+    public String getExpectedExcerpt() {
+        if (!mismatched) {
+            return null;
+        }
+        int start = Math.max(0, mismatchPosition - EXCERPT_SIZE);
+        int end = Math.min(expected.limit(), mismatchPosition + EXCERPT_SIZE);
+        return new String(copyExpected(start, end), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 第一处不一致附近的实际输出片段
+     *
+     * @return
+     */
+    public String getActualExcerpt() {
+        if (!mismatched) {
+            return null;
+        }
+        byte[] excerpt = new byte[actualHead.length + actualTailLength];
+        System.arraycopy(actualHead, 0, excerpt, 0, actualHead.length);
+        System.arraycopy(actualTail, 0, excerpt, actualHead.length, actualTailLength);
+        return new String(excerpt, StandardCharsets.UTF_8);
+    }
+
+    private void compareExact(byte b) {
+        if (pendingCarriageReturn) {
+            pendingCarriageReturn = false;
+            if (b == '\n') {
+                pendingNewlines++;
+                return;
+            }
+            matchByte((byte) '\r');
+            if (mismatched) {
+                return;
+            }
+        }
+        if (b == '\r') {
+            pendingCarriageReturn = true;
+            return;
+        }
+        if (b == '\n') {
+            pendingNewlines++;
+            return;
+        }
+        matchByte(b);
+    }
+
+    /**
+     * 比较一个非换行字节，之前累积的换行先与期望输出比较
+     *
+     * @param b
+     */
+    private void matchByte(byte b) {
+        for (; pendingNewlines > 0; pendingNewlines--) {
+            if (position < expectedLength && expected.get(position) == '\n') {
+                position++;
+            } else if (position + 1 < expectedLength && expected.get(position) == '\r' && expected.get(position + 1) == '\n') {
+                position += 2;
+            } else {
+                mismatch(position);
+                return;
+            }
+        }
+        if (position < expectedLength && expected.get(position) == b) {
+            position++;
+        } else {
+            mismatch(position);
+        }
+    }
+
+    private void compareToken(byte b) {
+        if (isWhitespace(b)) {
+            if (inToken) {
+                endToken();
+            }
+            return;
+        }
+        if (!inToken) {
+            inToken = true;
+            skipExpectedWhitespace();
+            tokenStart = position;
+            tokenDiffers = false;
+            numberLength = 0;
+        }
+        if (numberLength < MAX_NUMBER_LENGTH) {
+            numberBuffer[numberLength] = b;
+        }
+        numberLength++;
+        if (tokenDiffers) {
+            return;
+        }
+        if (position < expectedLength && expected.get(position) == b) {
+            position++;
+        } else if (compareMode == CompareMode.FLOAT) {
+            // 可能只是数字的写法不同，等单词结束再按数字比较
+            tokenDiffers = true;
+        } else {
+            mismatch(tokenStart);
+        }
+    }
+
+    /**
+     * 实际输出的一个单词结束，期望输出的单词也必须在同一位置结束
+     */
+    private void endToken() {
+        inToken = false;
+        boolean boundary = position == expectedLength || isWhitespace(expected.get(position));
+        if (!tokenDiffers && boundary) {
+            return;
+        }
+        if (compareMode == CompareMode.FLOAT) {
+            int tokenEnd = tokenStart;
+            while (tokenEnd < expectedLength && !isWhitespace(expected.get(tokenEnd))) {
+                tokenEnd++;
+            }
+            if (numbersMatch(tokenEnd)) {
+                position = tokenEnd;
+                return;
+            }
+        }
+        mismatch(tokenStart);
+    }
+
+    /**
+     * 当前单词与期望输出中的单词是否都是数字且在误差范围内
+     *
+     * @param tokenEnd 期望输出中单词的结束位置
+     * @return
+     */
+    private boolean numbersMatch(int tokenEnd) {
+        if (numberLength > MAX_NUMBER_LENGTH || tokenEnd - tokenStart > MAX_NUMBER_LENGTH) {
+            return false;
+        }
+        byte[] expectedToken = copyExpected(tokenStart, tokenEnd);
+        if (!isNumber(numberBuffer, 0, numberLength) || !isNumber(expectedToken, 0, expectedToken.length)) {
+            return false;
+        }
+        try {
+            double actualValue = Double.parseDouble(new String(numberBuffer, 0, numberLength, StandardCharsets.US_ASCII));
+            double expectedValue = Double.parseDouble(new String(expectedToken, StandardCharsets.US_ASCII));
+            double difference = Math.abs(actualValue - expectedValue);
+            return difference <= tolerance || difference <= tolerance * Math.abs(expectedValue);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void skipExpectedWhitespace() {
+        while (position < expectedLength && isWhitespace(expected.get(position))) {
+            position++;
+        }
+    }
+
+    private void mismatch(int expectedPosition) {
+        mismatched = true;
+        mismatchLine = line;
+        mismatchPosition = expectedPosition;
+        int headLength = (int) Math.min(recentCount, EXCERPT_SIZE);
+        actualHead = new byte[headLength];
+        for (int i = 0; i < headLength; i++) {
+            actualHead[i] = recent[(int) ((recentCount - headLength + i) % EXCERPT_SIZE)];
+        }
+    }
+
+    private byte[] copyExpected(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = expected.get(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * 逐字节比较时末尾的换行（\n 或 \r\n）不参与比较，其余方式比较全部内容
+     *
+     * @param expectedOutput
+     * @param compareMode
+     * @return
+     */
+    private static int getExpectedLength(ByteBuffer expectedOutput, CompareMode compareMode) {
+        int length = expectedOutput.limit();
+        if (compareMode != CompareMode.EXACT) {
+            return length;
+        }
+        while (length > 0 && expectedOutput.get(length - 1) == '\n') {
+            length--;
+            if (length > 0 && expectedOutput.get(length - 1) == '\r') {
+                length--;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * 只接受十进制数字写法，排除 NaN、Infinity、十六进制等 Double.parseDouble 也能解析的形式
+     */
+    private static boolean isNumber(byte[] bytes, int offset, int length) {
+        boolean digit = false;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                digit = true;
+            } else if (b != '+' && b != '-' && b != '.' && b != 'e' && b != 'E') {
+                return false;
+            }
+        }
+        return digit;
+    }
+}
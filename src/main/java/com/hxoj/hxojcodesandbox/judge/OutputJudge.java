@@ -0,0 +1,211 @@
+package com.hxoj.hxojcodesandbox.judge;
+
+import com.hxoj.hxojcodesandbox.model.CaseVerdict;
+import com.hxoj.hxojcodesandbox.model.CompareMode;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import com.hxoj.hxojcodesandbox.testdata.TestDataLease;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 一次提交的输出判定，请求携带期望输出时为每个用例创建比较器并给出判定结果，
+ * 开启遇错即停时记录是否已有用例未通过，之后的用例不再执行
+ */
+public class OutputJudge {
+
+    /**
+     * 未携带期望输出，不做比较
+     */
+    public static final OutputJudge NONE = new OutputJudge(null, null, TestDataLease.EMPTY, CompareMode.EXACT, 0D, false);
+
+    /**
+     * 未指定时浮点比较允许的误差
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private final List<String> expectedOutputList;
+
+    /**
+     * 期望输出文件的哈希列表，与 expectedOutputList 二选一
+     */
+    private final List<String> expectedOutputFileList;
+
+    private final TestDataLease testDataLease;
+
+    private final CompareMode compareMode;
+
+    private final double tolerance;
+
+    private final boolean stopOnFirstMismatch;
+
+    private volatile boolean stopped = false;
+
+    private OutputJudge(List<String> expectedOutputList, List<String> expectedOutputFileList, TestDataLease testDataLease,
+                        CompareMode compareMode, double tolerance, boolean stopOnFirstMismatch) {
+        this.expectedOutputList = expectedOutputList;
+        this.expectedOutputFileList = expectedOutputFileList;
+        this.testDataLease = testDataLease;
+        this.compareMode = compareMode;
+        this.tolerance = tolerance;
+        this.stopOnFirstMismatch = stopOnFirstMismatch;
+    }
+
+    /**
+     * 根据请求创建输出判定，未携带期望输出时返回 {@link #NONE}
+     *
+     * @param executeCodeRequest
+     * @param caseCount     用例数
+     * @param testDataLease 请求引用的测试数据，期望输出文件从中获取
+     * @return
+     */
+    public static OutputJudge of(ExecuteCodeRequest executeCodeRequest, int caseCount, TestDataLease testDataLease) {
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        List<String> expectedOutputFileList = executeCodeRequest.getExpectedOutputFileList();
+        if (expectedOutputList == null && expectedOutputFileList == null) {
+            return NONE;
+        }
+        if (expectedOutputList != null && expectedOutputFileList != null) {
+            throw new IllegalArgumentException("期望输出与期望输出文件只能提供一个");
+        }
+        int expectedCount = expectedOutputList != null ? expectedOutputList.size() : expectedOutputFileList.size();
+        if (caseCount != expectedCount) {
+            throw new IllegalArgumentException("期望输出数量与输入用例数量不一致");
+        }
+        CompareMode compareMode = executeCodeRequest.getCompareMode() == null ? CompareMode.EXACT : executeCodeRequest.getCompareMode();
+        double tolerance = executeCodeRequest.getTolerance() == null ? DEFAULT_TOLERANCE : executeCodeRequest.getTolerance();
+        return new OutputJudge(expectedOutputList, expectedOutputFileList, testDataLease, compareMode, tolerance,
+                Boolean.TRUE.equals(executeCodeRequest.getStopOnFirstMismatch()));
+    }
+
+    public boolean isEnabled() {
+        return expectedOutputList != null || expectedOutputFileList != null;
+    }
+
+    public boolean isStopOnFirstMismatch() {
+        return stopOnFirstMismatch;
+    }
+
+    /**
+     * 是否已有用例未通过且开启了遇错即停
+     *
+     * @return
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * 为用例创建流式比较器，未携带期望输出时返回 null
+     *
+     * @param index
+     * @return
+     */
+    public OutputComparator newComparator(int index) {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (expectedOutputList != null) {
+            return new OutputComparator(expectedOutputList.get(index), compareMode, tolerance, stopOnFirstMismatch);
+        }
+        return new OutputComparator(map(testDataLease.getFile(expectedOutputFileList.get(index))), compareMode, tolerance, stopOnFirstMismatch);
+    }
+
+    /**
+     * 以只读方式映射期望输出文件，比较时按需读入，不复制到堆中
+     *
+     * @param file
+     * @return
+     */
+    private static ByteBuffer map(File file) {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("期望输出文件过大：" + file.getName());
+            }
+            // 映射在通道关闭后仍然有效
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("读取期望输出文件异常", e);
+        }
+    }
+
+    /**
+     * 给出用例的判定结果并写入执行信息。
+     * 比较器为空或执行信息中带有完整输出（多用例执行器模式）时，用完整输出比较
+     *
+     * @param index
+     * @param executeMessage
+     * @param outputComparator
+     */
+    public void judge(int index, ExecuteMessage executeMessage, OutputComparator outputComparator) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (outputComparator == null) {
+            outputComparator = newComparator(index);
+        }
+        if (executeMessage.getMessage() != null) {
+            byte[] output = executeMessage.getMessage().getBytes(StandardCharsets.UTF_8);
+            outputComparator.feed(output, 0, output.length);
+            // 完整输出只用于比较，不再返回给调用方
+            executeMessage.setMessage(null);
+        }
+        boolean accepted = outputComparator.finish();
+        JudgeVerdict verdict = getVerdict(executeMessage, outputComparator, accepted);
+        CaseVerdict caseVerdict = CaseVerdict.builder()
+                .index(index)
+                .verdict(verdict)
+                .time(executeMessage.getTime())
+                .memory(executeMessage.getMemory())
+                .build();
+        if (verdict == JudgeVerdict.WRONG_ANSWER) {
+            caseVerdict.setMismatchLine(outputComparator.getMismatchLine());
+            caseVerdict.setExpectedExcerpt(outputComparator.getExpectedExcerpt());
+            caseVerdict.setActualExcerpt(outputComparator.getActualExcerpt());
+        }
+        executeMessage.setCaseVerdict(caseVerdict);
+        if (verdict != JudgeVerdict.ACCEPTED && stopOnFirstMismatch) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * 未执行的用例
+     *
+     * @param index
+     * @return
+     */
+    public ExecuteMessage skipped(int index) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setCaseVerdict(CaseVerdict.builder().index(index).verdict(JudgeVerdict.SKIPPED).build());
+        return executeMessage;
+    }
+
+    private JudgeVerdict getVerdict(ExecuteMessage executeMessage, OutputComparator outputComparator, boolean accepted) {
+        if (Boolean.TRUE.equals(executeMessage.getTimeout())) {
+            return JudgeVerdict.TIME_LIMIT_EXCEEDED;
+        }
+        // 因输出不一致被提前结束，退出码没有意义
+        if (executeMessage.getStatus() == ExecuteStatus.OUTPUT_MISMATCH) {
+            return JudgeVerdict.WRONG_ANSWER;
+        }
+        if (executeMessage.getStatus() == ExecuteStatus.MEMORY_LIMIT_EXCEEDED) {
+            return JudgeVerdict.MEMORY_LIMIT_EXCEEDED;
+        }
+        if (executeMessage.getStatus() == ExecuteStatus.OUTPUT_LIMIT_EXCEEDED || Boolean.TRUE.equals(executeMessage.getTruncated())) {
+            return JudgeVerdict.OUTPUT_LIMIT_EXCEEDED;
+        }
+        if (executeMessage.getExitValue() == null || executeMessage.getExitValue() != 0) {
+            return JudgeVerdict.RUNTIME_ERROR;
+        }
+        return accepted ? JudgeVerdict.ACCEPTED : JudgeVerdict.WRONG_ANSWER;
+    }
+}
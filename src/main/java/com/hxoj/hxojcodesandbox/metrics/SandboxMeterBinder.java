@@ -0,0 +1,156 @@
+package com.hxoj.hxojcodesandbox.metrics;
+
+import com.hxoj.hxojcodesandbox.cache.ExecuteResultCache;
+import com.hxoj.hxojcodesandbox.compiler.CompiledClassCache;
+import com.hxoj.hxojcodesandbox.docker.DockerContainerPool;
+import com.hxoj.hxojcodesandbox.job.BatchExecuteService;
+import com.hxoj.hxojcodesandbox.job.ExecuteJobService;
+import com.hxoj.hxojcodesandbox.job.ExecutionScheduler;
+import com.hxoj.hxojcodesandbox.model.ExecutePriority;
+import com.hxoj.hxojcodesandbox.process.ProcessResourceSampler;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import com.hxoj.hxojcodesandbox.testdata.TestDataStore;
+import com.hxoj.hxojcodesandbox.workspace.WorkspaceManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 把各组件已有的计数器与状态注册为指标，采集时直接读取，不改变组件的计数方式
+ */
+@Component
+public class SandboxMeterBinder implements MeterBinder {
+
+    @Resource
+    private ProcessTimeoutService processTimeoutService;
+
+    @Resource
+    private ProcessResourceSampler processResourceSampler;
+
+    @Resource
+    private DockerContainerPool dockerContainerPool;
+
+    @Resource
+    private ExecutionScheduler executionScheduler;
+
+    @Resource
+    private ExecuteJobService executeJobService;
+
+    @Resource
+    private BatchExecuteService batchExecuteService;
+
+    @Resource
+    private CompiledClassCache compiledClassCache;
+
+    @Resource
+    private ExecuteResultCache executeResultCache;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 正在运行的用户进程：登记了截止时间且尚未结束的进程
+        gauge(registry, "hxoj.process.running", "正在运行的用户进程数", processTimeoutService, ProcessTimeoutService::getPendingCount);
+        counter(registry, "hxoj.process.started", "已启动的用户进程数", processTimeoutService, ProcessTimeoutService::getRegisterCount);
+        counter(registry, "hxoj.process.timeouts", "超时被结束的用户进程数", processTimeoutService, ProcessTimeoutService::getExpireCount);
+        counter(registry, "hxoj.process.samples", "进程资源采样次数", processResourceSampler, ProcessResourceSampler::getSampleCount);
+        FunctionCounter.builder("hxoj.process.sample.time", processResourceSampler,
+                        sampler -> sampler.getSampleTime() / 1e9)
+                .description("进程资源采样累计耗时")
+                .baseUnit("seconds")
+                .register(registry);
+
+        gauge(registry, "hxoj.container.active", "已租出的容器数", dockerContainerPool, DockerContainerPool::getActiveCount);
+        gauge(registry, "hxoj.container.idle", "空闲容器数", dockerContainerPool, DockerContainerPool::getIdleCount);
+        gauge(registry, "hxoj.container.total", "容器总数", dockerContainerPool, DockerContainerPool::getTotalCount);
+        counter(registry, "hxoj.container.leases", "容器租用次数", dockerContainerPool, DockerContainerPool::getLeaseCount);
+        counter(registry, "hxoj.container.exhausted", "容器池耗尽次数", dockerContainerPool, DockerContainerPool::getExhaustedCount);
+        counter(registry, "hxoj.container.created", "创建的容器数", dockerContainerPool, DockerContainerPool::getCreateCount);
+        counter(registry, "hxoj.container.destroyed", "销毁的容器数", dockerContainerPool, DockerContainerPool::getDestroyCount);
+        counter(registry, "hxoj.container.scrub.failed", "归还时清理失败而销毁的容器数", dockerContainerPool, DockerContainerPool::getScrubFailCount);
+
+        gauge(registry, "hxoj.scheduler.slots", "执行槽位数", executionScheduler, ExecutionScheduler::getSlots);
+        gauge(registry, "hxoj.scheduler.running", "正在执行的提交数", executionScheduler, ExecutionScheduler::getRunningCount);
+        for (ExecutePriority priority : ExecutePriority.values()) {
+            Gauge.builder("hxoj.scheduler.queued", executionScheduler, scheduler -> scheduler.getQueueSize(priority))
+                    .description("等待执行的提交数")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry);
+        }
+        counter(registry, "hxoj.scheduler.rejected", "执行队列已满被拒绝的提交数", executionScheduler, ExecutionScheduler::getRejectCount);
+
+        gauge(registry, "hxoj.job.retained", "保留中的执行任务数", executeJobService, ExecuteJobService::getJobCount);
+        counter(registry, "hxoj.job.submitted", "提交的执行任务数", executeJobService, ExecuteJobService::getSubmitCount);
+        counter(registry, "hxoj.job.failed", "失败的执行任务数", executeJobService, ExecuteJobService::getFailCount);
+        counter(registry, "hxoj.job.cancelled", "调用方取消的执行任务数", executeJobService, ExecuteJobService::getCancelCount);
+        // 合并率 = joined / (leader + joined + overflow)
+        FunctionCounter.builder("hxoj.job.singleflight", executeJobService, ExecuteJobService::getFlightLeaderCount)
+                .description("可合并的提交数").tag("result", "leader").register(registry);
+        FunctionCounter.builder("hxoj.job.singleflight", executeJobService, ExecuteJobService::getFlightJoinCount)
+                .description("可合并的提交数").tag("result", "joined").register(registry);
+        FunctionCounter.builder("hxoj.job.singleflight", executeJobService, ExecuteJobService::getFlightOverflowCount)
+                .description("可合并的提交数").tag("result", "overflow").register(registry);
+        counter(registry, "hxoj.job.singleflight.cancelled", "等待方全部离开而取消的合并执行数", executeJobService,
+                ExecuteJobService::getFlightCancelCount);
+        gauge(registry, "hxoj.job.singleflight.waiters", "等待合并执行结果的任务数", executeJobService, ExecuteJobService::getFlightWaiterCount);
+        counter(registry, "hxoj.batch.submissions", "批量重判的提交数", batchExecuteService, BatchExecuteService::getSubmissionCount);
+        counter(registry, "hxoj.batch.retries", "批量重判的重试次数", batchExecuteService, BatchExecuteService::getRetryCount);
+
+        FunctionCounter.builder("hxoj.compile.cache.requests", compiledClassCache, CompiledClassCache::getMemoryHitCount)
+                .description("编译缓存查询次数").tag("result", "memory_hit").register(registry);
+        FunctionCounter.builder("hxoj.compile.cache.requests", compiledClassCache, CompiledClassCache::getDiskHitCount)
+                .description("编译缓存查询次数").tag("result", "disk_hit").register(registry);
+        FunctionCounter.builder("hxoj.compile.cache.requests", compiledClassCache, CompiledClassCache::getInFlightHitCount)
+                .description("编译缓存查询次数").tag("result", "inflight_hit").register(registry);
+        FunctionCounter.builder("hxoj.compile.cache.requests", compiledClassCache, CompiledClassCache::getMissCount)
+                .description("编译缓存查询次数").tag("result", "miss").register(registry);
+        Gauge.builder("hxoj.compile.cache.size", compiledClassCache, CompiledClassCache::getMemoryCacheSize)
+                .description("编译缓存占用").tag("tier", "memory").baseUnit("bytes").register(registry);
+        Gauge.builder("hxoj.compile.cache.size", compiledClassCache, CompiledClassCache::getDiskCacheSize)
+                .description("编译缓存占用").tag("tier", "disk").baseUnit("bytes").register(registry);
+
+        FunctionCounter.builder("hxoj.result.cache.requests", executeResultCache, ExecuteResultCache::getHitCount)
+                .description("执行结果缓存查询次数（按提交）").tag("result", "hit").register(registry);
+        FunctionCounter.builder("hxoj.result.cache.requests", executeResultCache, ExecuteResultCache::getMissCount)
+                .description("执行结果缓存查询次数（按提交）").tag("result", "miss").register(registry);
+        FunctionCounter.builder("hxoj.result.cache.requests", executeResultCache, ExecuteResultCache::getBypassCount)
+                .description("执行结果缓存查询次数（按提交）").tag("result", "bypass").register(registry);
+        FunctionCounter.builder("hxoj.result.cache.disk.hits", executeResultCache, ExecuteResultCache::getDiskHitCount)
+                .description("从磁盘读取的用例执行信息数").register(registry);
+        FunctionCounter.builder("hxoj.result.cache.evictions", executeResultCache, ExecuteResultCache::getEvictionCount)
+                .description("执行结果缓存淘汰数").register(registry);
+        Gauge.builder("hxoj.result.cache.size", executeResultCache, ExecuteResultCache::getMemoryCacheSize)
+                .description("执行结果缓存占用").tag("tier", "memory").baseUnit("bytes").register(registry);
+        Gauge.builder("hxoj.result.cache.size", executeResultCache, ExecuteResultCache::getDiskCacheSize)
+                .description("执行结果缓存占用").tag("tier", "disk").baseUnit("bytes").register(registry);
+
+        Gauge.builder("hxoj.testdata.size", testDataStore, TestDataStore::getTotalSize)
+                .description("测试数据占用").baseUnit("bytes").register(registry);
+        gauge(registry, "hxoj.testdata.files", "测试数据文件数", testDataStore, TestDataStore::getFileCount);
+        counter(registry, "hxoj.testdata.evictions", "淘汰的测试数据文件数", testDataStore, TestDataStore::getEvictionCount);
+
+        Gauge.builder("hxoj.workspace.used", workspaceManager, WorkspaceManager::getUsedBytes)
+                .description("工作目录占用").baseUnit("bytes").register(registry);
+        gauge(registry, "hxoj.workspace.inodes", "工作目录中的文件与目录数", workspaceManager, WorkspaceManager::getUsedInodes);
+        gauge(registry, "hxoj.workspace.idle", "空目录池中的目录数", workspaceManager, WorkspaceManager::getIdleCount);
+        gauge(registry, "hxoj.workspace.pending", "等待清理的目录数", workspaceManager, WorkspaceManager::getPendingCount);
+        counter(registry, "hxoj.workspace.rejected", "空间不足被拒绝的提交数", workspaceManager, WorkspaceManager::getRejectCount);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String description, T obj, ToDoubleFunction<T> function) {
+        Gauge.builder(name, obj, function).description(description).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String description, T obj, ToDoubleFunction<T> function) {
+        FunctionCounter.builder(name, obj, function).description(description).register(registry);
+    }
+}
@@ -0,0 +1,149 @@
+package com.hxoj.hxojcodesandbox.metrics;
+
+import com.hxoj.hxojcodesandbox.ExecuteListener;
+import com.hxoj.hxojcodesandbox.compiler.CompileResult;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码沙箱执行指标：模板方法各阶段耗时、单个用例耗时与内存、按结果分类的提交数。
+ * 耗时以直方图发布（见 application.yml 中 management.metrics.distribution），可在 Prometheus 中按实例汇总计算分位数
+ */
+@Component
+public class SandboxMetrics {
+
+    public static final String STAGE_SAVE = "save";
+    public static final String STAGE_COMPILE = "compile";
+    public static final String STAGE_EXECUTE = "execute";
+    public static final String STAGE_COLLECT = "collect";
+    public static final String STAGE_DELETE = "delete";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_WRONG_ANSWER = "wrong_answer";
+    public static final String OUTCOME_COMPILE_ERROR = "compile_error";
+    public static final String OUTCOME_RUNTIME_ERROR = "runtime_error";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_SANDBOX_ERROR = "sandbox_error";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param sandbox   沙箱类型
+     * @param stage     阶段
+     * @param startTime 阶段开始时的 {@link System#nanoTime()}
+     */
+    public void recordStage(String sandbox, String stage, long startTime) {
+        Timer.builder("hxoj.sandbox.stage")
+                .description("代码沙箱模板方法各阶段耗时")
+                .tag("sandbox", sandbox)
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次提交的结果
+     *
+     * @param sandbox
+     * @param outcome
+     */
+    public void recordOutcome(String sandbox, String outcome) {
+        Counter.builder("hxoj.sandbox.submissions")
+                .description("按结果分类的提交数")
+                .tag("sandbox", sandbox)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 包装执行监听器，每个用例结束时记录耗时与内存
+     *
+     * @param sandbox
+     * @param executeListener
+     * @return
+     */
+    public ExecuteListener wrap(String sandbox, ExecuteListener executeListener) {
+        return new ExecuteListener() {
+            @Override
+            public void onCompile(CompileResult compileResult) {
+                executeListener.onCompile(compileResult);
+            }
+
+            @Override
+            public void onCase(int index, ExecuteMessage executeMessage) {
+                recordCase(sandbox, executeMessage);
+                executeListener.onCase(index, executeMessage);
+            }
+        };
+    }
+
+    /**
+     * 根据各用例的执行信息判断提交的结果，与 collectOutput 判断执行错误的方式一致
+     *
+     * @param executeMessageList
+     * @return
+     */
+    public static String getOutcome(List<ExecuteMessage> executeMessageList) {
+        boolean wrongAnswer = false;
+        for (ExecuteMessage executeMessage : executeMessageList) {
+            if (Boolean.TRUE.equals(executeMessage.getTimeout())) {
+                return OUTCOME_TIMEOUT;
+            }
+        }
+        for (ExecuteMessage executeMessage : executeMessageList) {
+            JudgeVerdict verdict = executeMessage.getCaseVerdict() == null ? null : executeMessage.getCaseVerdict().getVerdict();
+            if (verdict == JudgeVerdict.SKIPPED) {
+                continue;
+            }
+            if (executeMessage.getErrorMessage() != null) {
+                return OUTCOME_RUNTIME_ERROR;
+            }
+            if (verdict != null && verdict != JudgeVerdict.ACCEPTED) {
+                wrongAnswer = true;
+            }
+        }
+        return wrongAnswer ? OUTCOME_WRONG_ANSWER : OUTCOME_SUCCESS;
+    }
+
+    private void recordCase(String sandbox, ExecuteMessage executeMessage) {
+        String status;
+        if (Boolean.TRUE.equals(executeMessage.getTimeout())) {
+            status = OUTCOME_TIMEOUT;
+        } else if (executeMessage.getStatus() != null) {
+            status = executeMessage.getStatus().name().toLowerCase();
+        } else {
+            // 容器与多用例执行器只记录退出码
+            status = executeMessage.getExitValue() != null && executeMessage.getExitValue() == 0
+                    ? OUTCOME_SUCCESS : OUTCOME_RUNTIME_ERROR;
+        }
+        if (executeMessage.getTime() != null) {
+            Timer.builder("hxoj.sandbox.case")
+                    .description("单个用例执行耗时")
+                    .tag("sandbox", sandbox)
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(executeMessage.getTime(), TimeUnit.MILLISECONDS);
+        }
+        if (executeMessage.getMemory() != null) {
+            DistributionSummary.builder("hxoj.sandbox.case.memory")
+                    .description("单个用例内存峰值")
+                    .baseUnit("bytes")
+                    .tag("sandbox", sandbox)
+                    .register(meterRegistry)
+                    .record(executeMessage.getMemory());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量执行请求：一组输入用例与多份提交，常用于重判
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchExecuteRequest {
+
+    /**
+     * 所有提交共用的输入用例列表
+     */
+    private List<String> inputList;
+
+    /**
+     * 所有提交共用的标准输入文件列表（可选），含义同 {@link ExecuteCodeRequest#getInputFileList()}
+     */
+    private List<String> inputFileList;
+
+    /**
+     * 所有提交共用的标准输入内容列表（可选），含义同 {@link ExecuteCodeRequest#getStdinList()}
+     */
+    private List<String> stdinList;
+
+    /**
+     * 提交列表
+     */
+    private List<BatchSubmission> submissionList;
+
+    /**
+     * 本批最多同时执行的提交数（可选），不超过配置上限
+     */
+    private Integer concurrency;
+
+    /**
+     * 单份提交内并行执行用例数（可选），含义同 {@link ExecuteCodeRequest#getParallelism()}
+     */
+    private Integer parallelism;
+
+    /**
+     * 所有提交共用的期望输出列表（可选），含义同 {@link ExecuteCodeRequest#getExpectedOutputList()}
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 所有提交共用的期望输出文件列表（可选），含义同 {@link ExecuteCodeRequest#getExpectedOutputFileList()}
+     */
+    private List<String> expectedOutputFileList;
+
+    /**
+     * 输出比较方式（可选），含义同 {@link ExecuteCodeRequest#getCompareMode()}
+     */
+    private CompareMode compareMode;
+
+    /**
+     * 浮点比较允许的误差（可选），含义同 {@link ExecuteCodeRequest#getTolerance()}
+     */
+    private Double tolerance;
+
+    /**
+     * 是否遇到第一个未通过的用例就停止（可选），含义同 {@link ExecuteCodeRequest#getStopOnFirstMismatch()}
+     */
+    private Boolean stopOnFirstMismatch;
+
+    /**
+     * 题目输出是否确定（可选），含义同 {@link ExecuteCodeRequest#getDeterministic()}
+     */
+    private Boolean deterministic;
+}
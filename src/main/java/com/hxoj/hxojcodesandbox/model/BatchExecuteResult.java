@@ -0,0 +1,36 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量执行中单份提交的结果
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchExecuteResult {
+
+    /**
+     * 提交在提交列表中的下标
+     */
+    private Integer index;
+
+    /**
+     * 调用方的提交id
+     */
+    private String submissionId;
+
+    /**
+     * 代码沙箱执行返回结果，沙箱异常时为空
+     */
+    private ExecuteCodeResponse executeCodeResponse;
+
+    /**
+     * 沙箱异常信息
+     */
+    private String errorMessage;
+}
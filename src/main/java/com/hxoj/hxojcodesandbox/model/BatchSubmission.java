@@ -0,0 +1,31 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量执行中的单份提交
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchSubmission {
+
+    /**
+     * 调用方的提交id，原样返回，便于对应结果
+     */
+    private String submissionId;
+
+    /**
+     * 提交的代码
+     */
+    private String code;
+
+    /**
+     * 编程语言
+     */
+    private String language;
+}
@@ -0,0 +1,51 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例的判定结果，只在请求携带期望输出时返回
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CaseVerdict {
+
+    /**
+     * 用例在输入用例列表中的下标
+     */
+    private Integer index;
+
+    /**
+     * 判定结果
+     */
+    private JudgeVerdict verdict;
+
+    /**
+     * 执行耗时（毫秒，墙上时间）
+     */
+    private Long time;
+
+    /**
+     * 内存占用
+     */
+    private Long memory;
+
+    /**
+     * 第一处不一致所在的输出行号（从 1 开始），输出不一致时返回
+     */
+    private Long mismatchLine;
+
+    /**
+     * 第一处不一致附近的期望输出片段，输出不一致时返回
+     */
+    private String expectedExcerpt;
+
+    /**
+     * 第一处不一致附近的实际输出片段，输出不一致时返回
+     */
+    private String actualExcerpt;
+}
@@ -0,0 +1,22 @@
+package com.hxoj.hxojcodesandbox.model;
+
+/**
+ * 输出比较方式
+ */
+public enum CompareMode {
+
+    /**
+     * 逐字节比较，只忽略换行符的差异（\r\n 与 \n）以及末尾的空行
+     */
+    EXACT,
+
+    /**
+     * 按空白字符切分后逐个比较，忽略空格、换行的数量与位置
+     */
+    IGNORE_WHITESPACE,
+
+    /**
+     * 与 IGNORE_WHITESPACE 相同，但两边都是数字时允许在误差范围内不同
+     */
+    FLOAT
+}
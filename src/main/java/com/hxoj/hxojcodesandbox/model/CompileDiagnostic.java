@@ -0,0 +1,41 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 编译诊断信息
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompileDiagnostic {
+
+    /**
+     * 诊断类型（ERROR、WARNING、NOTE 等）
+     */
+    private String kind;
+
+    /**
+     * 行号，无法定位时为 -1
+     */
+    private Long line;
+
+    /**
+     * 列号，无法定位时为 -1
+     */
+    private Long column;
+
+    /**
+     * 编译器诊断码，例如 compiler.err.cant.resolve.location
+     */
+    private String code;
+
+    /**
+     * 诊断信息
+     */
+    private String message;
+}
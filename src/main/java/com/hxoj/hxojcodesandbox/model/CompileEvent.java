@@ -0,0 +1,33 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 流式执行时推送的编译事件
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompileEvent {
+
+    /**
+     * 是否编译成功
+     */
+    private Boolean success;
+
+    /**
+     * 编译耗时（毫秒）
+     */
+    private Long time;
+
+    /**
+     * 编译诊断信息
+     */
+    private List<CompileDiagnostic> compileDiagnosticList;
+}
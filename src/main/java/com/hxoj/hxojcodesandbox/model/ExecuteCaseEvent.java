@@ -0,0 +1,61 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式执行时推送的单个用例结果事件，用例执行完立即推送，顺序不一定与输入顺序一致
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecuteCaseEvent {
+
+    /**
+     * 用例在输入用例列表中的下标
+     */
+    private Integer index;
+
+    /**
+     * 程序输出
+     */
+    private String output;
+
+    /**
+     * 错误输出
+     */
+    private String errorMessage;
+
+    /**
+     * 退出码
+     */
+    private Integer exitValue;
+
+    /**
+     * 执行耗时（毫秒，墙上时间）
+     */
+    private Long time;
+
+    /**
+     * CPU时间（毫秒）
+     */
+    private Long cpuTime;
+
+    /**
+     * 内存占用
+     */
+    private Long memory;
+
+    /**
+     * 是否执行超时
+     */
+    private Boolean timeout;
+
+    /**
+     * 判定结果，请求携带期望输出时才有
+     */
+    private CaseVerdict caseVerdict;
+}
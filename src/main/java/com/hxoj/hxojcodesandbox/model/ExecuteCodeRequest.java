@@ -20,6 +20,18 @@ public class ExecuteCodeRequest {
      */
     private List<String> inputList;
 
+    /**
+     * 标准输入文件列表（可选），元素为测试数据存储中文件的哈希，与输入用例一一对应。
+     * 只提供该列表时每个用例没有启动参数，用例数以该列表为准
+     */
+    private List<String> inputFileList;
+
+    /**
+     * 标准输入内容列表（可选），与输入用例一一对应，执行时边写入边读取输出。
+     * 同一用例不能同时提供标准输入内容与标准输入文件，只提供该列表时用例数以该列表为准
+     */
+    private List<String> stdinList;
+
     /**
      * 题目的代码
      */
@@ -29,4 +41,47 @@ public class ExecuteCodeRequest {
      * 编程语言
      */
     private String language;
+
+    /**
+     * 并行执行用例数（可选），为空或小于等于 1 时逐个执行，
+     * 并行执行时各用例的耗时会受同时运行的其他用例影响
+     */
+    private Integer parallelism;
+
+    /**
+     * 执行优先级（可选），为空时按练习提交处理
+     */
+    private ExecutePriority priority;
+
+    /**
+     * 期望输出列表（可选），与输入用例一一对应。
+     * 携带时沙箱边执行边比较输出，只返回每个用例的判定结果，不再返回完整输出
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 期望输出文件列表（可选），元素为测试数据存储中文件的哈希，与 expectedOutputList 二选一
+     */
+    private List<String> expectedOutputFileList;
+
+    /**
+     * 输出比较方式（可选），为空时逐字节比较
+     */
+    private CompareMode compareMode;
+
+    /**
+     * 浮点比较允许的绝对误差或相对误差（可选），为空时为 1e-6
+     */
+    private Double tolerance;
+
+    /**
+     * 是否遇到第一个未通过的用例就停止（可选），之后的用例不再执行，判定为 SKIPPED
+     */
+    private Boolean stopOnFirstMismatch;
+
+    /**
+     * 题目输出是否确定（可选），为空视为确定。
+     * 输出随机、与时间相关或需要特殊判题的题目应为 false，此时不使用执行结果缓存
+     */
+    private Boolean deterministic;
 }
@@ -35,4 +35,19 @@ public class ExecuteCodeResponse {
      * 题目判题信息
      */
     private JudgeInfo judgeInfo;
+
+    /**
+     * 编译诊断信息，编译错误时返回
+     */
+    private List<CompileDiagnostic> compileDiagnosticList;
+
+    /**
+     * 每个用例的判定结果，请求携带期望输出时返回，此时不返回输出用例列表
+     */
+    private List<CaseVerdict> caseVerdictList;
+
+    /**
+     * 是否直接返回了执行结果缓存中的结果，此时没有编译与执行
+     */
+    private Boolean fromCache;
 }
@@ -28,4 +28,28 @@ public class ExecuteMessage {
      * 内存使用
      */
     private Long memory;
+    /**
+     * CPU时间（用户态 + 内核态，毫秒）
+     */
+    private Long cpuTime;
+    /**
+     * 用户主线程分配的内存（字节），仅多用例执行器模式下统计
+     */
+    private Long allocatedMemory;
+    /**
+     * 是否执行超时
+     */
+    private Boolean timeout;
+    /**
+     * 执行状态
+     */
+    private ExecuteStatus status;
+    /**
+     * 输出是否超出上限被截断
+     */
+    private Boolean truncated;
+    /**
+     * 与期望输出比较后的判定结果，请求携带期望输出时才有
+     */
+    private CaseVerdict caseVerdict;
 }
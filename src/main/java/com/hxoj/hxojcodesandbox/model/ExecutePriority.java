@@ -0,0 +1,22 @@
+package com.hxoj.hxojcodesandbox.model;
+
+/**
+ * 提交的执行优先级，队列中优先级高的先执行，同一优先级按提交顺序执行
+ */
+public enum ExecutePriority {
+
+    /**
+     * 比赛提交
+     */
+    CONTEST,
+
+    /**
+     * 日常练习提交
+     */
+    PRACTICE,
+
+    /**
+     * 批量重判等后台提交，只在没有其他提交排队时执行
+     */
+    BATCH
+}
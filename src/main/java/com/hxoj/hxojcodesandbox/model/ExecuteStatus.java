@@ -0,0 +1,37 @@
+package com.hxoj.hxojcodesandbox.model;
+
+/**
+ * 单个用例的执行状态
+ */
+public enum ExecuteStatus {
+
+    /**
+     * 正常退出
+     */
+    SUCCESS,
+
+    /**
+     * 非零退出码
+     */
+    RUNTIME_ERROR,
+
+    /**
+     * 执行超时被结束
+     */
+    TIMEOUT,
+
+    /**
+     * 输出超出上限被结束
+     */
+    OUTPUT_LIMIT_EXCEEDED,
+
+    /**
+     * 内存超出上限被结束
+     */
+    MEMORY_LIMIT_EXCEEDED,
+
+    /**
+     * 输出与期望输出不一致被提前结束
+     */
+    OUTPUT_MISMATCH
+}
@@ -0,0 +1,42 @@
+package com.hxoj.hxojcodesandbox.model;
+
+/**
+ * 与期望输出比较后单个用例的判定结果
+ */
+public enum JudgeVerdict {
+
+    /**
+     * 输出与期望一致
+     */
+    ACCEPTED,
+
+    /**
+     * 输出与期望不一致
+     */
+    WRONG_ANSWER,
+
+    /**
+     * 执行超时
+     */
+    TIME_LIMIT_EXCEEDED,
+
+    /**
+     * 内存超出上限
+     */
+    MEMORY_LIMIT_EXCEEDED,
+
+    /**
+     * 输出超出上限
+     */
+    OUTPUT_LIMIT_EXCEEDED,
+
+    /**
+     * 非零退出码
+     */
+    RUNTIME_ERROR,
+
+    /**
+     * 之前的用例未通过，该用例没有执行
+     */
+    SKIPPED
+}
@@ -0,0 +1,26 @@
+package com.hxoj.hxojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 已上传的测试数据
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TestDataInfo {
+
+    /**
+     * 文件内容的 SHA-256，之后在请求中以此引用该文件
+     */
+    private String hash;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+}
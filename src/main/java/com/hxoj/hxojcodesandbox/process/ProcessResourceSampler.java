@@ -0,0 +1,273 @@
+package com.hxoj.hxojcodesandbox.process;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程资源采样器，读取 /proc/[pid]/stat 的用户态与内核态CPU时间和 /proc/[pid]/status 的内存峰值（VmHWM）。
+ * 进程退出后会被 JVM 立即回收，/proc 下的信息随之消失，因此运行期间定时采样，
+ * 并在进程关闭输出（即将退出）时再采样一次
+ */
+@Component
+@Slf4j
+public class ProcessResourceSampler {
+
+    private static final boolean PROC_AVAILABLE = new File("/proc/self/stat").exists();
+
+    private static final byte[] VM_HWM = "VmHWM:".getBytes(StandardCharsets.US_ASCII);
+
+    @Resource
+    private ExecuteProperties executeProperties;
+
+    private final Set<Sampling> activeSamplingSet = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong sampleTime = new AtomicLong();
+
+    /**
+     * 每秒的时钟节拍数，/proc/[pid]/stat 中的CPU时间以节拍为单位
+     */
+    private long clockTicks = 100L;
+
+    private ScheduledExecutorService samplerExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!PROC_AVAILABLE) {
+            log.info("当前系统没有 /proc，不统计进程的CPU时间与内存峰值");
+            return;
+        }
+        clockTicks = readClockTicks();
+        samplerExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("process-sampler-").setDaemon(true).build());
+        long sampleInterval = executeProperties.getSampleInterval();
+        samplerExecutor.scheduleAtFixedRate(this::sampleAll, sampleInterval, sampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (samplerExecutor != null) {
+            samplerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 开始采样进程
+     *
+     * @param process
+     * @return 采样结果，进程输出关闭后调用 {@link Sampling#finish()}
+     */
+    public Sampling start(Process process) {
+        Sampling sampling = new Sampling(PROC_AVAILABLE ? ProcessTree.getPid(process) : -1L);
+        if (sampling.pid > 0) {
+            activeSamplingSet.add(sampling);
+        }
+        return sampling;
+    }
+
+    private void sampleAll() {
+        for (Sampling sampling : activeSamplingSet) {
+            sampling.sample();
+        }
+    }
+
+    private long readClockTicks() {
+        try {
+            Process process = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line = bufferedReader.readLine();
+                process.waitFor();
+                return Long.parseLong(line.trim());
+            }
+        } catch (Exception e) {
+            return 100L;
+        }
+    }
+
+    /**
+     * 已采样次数
+     *
+     * @return
+     */
+    public long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    /**
+     * 采样累计耗时（纳秒），用于评估采样开销
+     *
+     * @return
+     */
+    public long getSampleTime() {
+        return sampleTime.get();
+    }
+
+    /**
+     * 单个进程的采样结果
+     */
+    public class Sampling {
+
+        private final long pid;
+
+        private final File statFile;
+
+        private final File statusFile;
+
+        /**
+         * 读取 /proc 文件的缓冲区，status 文件通常不超过 2KB
+         */
+        private final byte[] buffer = new byte[4096];
+
+        /**
+         * 最近一次采样得到的CPU节拍数
+         */
+        private long cpuTicks = -1L;
+
+        /**
+         * 采样到的最大内存峰值（字节）
+         */
+        private long peakMemory = -1L;
+
+        private Sampling(long pid) {
+            this.pid = pid;
+            this.statFile = new File("/proc/" + pid + "/stat");
+            this.statusFile = new File("/proc/" + pid + "/status");
+        }
+
+        /**
+         * 读取一次，进程已退出时保留上一次的结果。
+         * 采样器调用次数少，代码通常处于解释执行状态，这里直接读字节并手工解析，避免逐行解码的开销
+         */
+        private synchronized void sample() {
+            if (pid <= 0) {
+                return;
+            }
+            long startTime = System.nanoTime();
+            try {
+                // 进程名可能包含空格，从最后一个右括号之后解析，第 14、15 个字段为 utime、stime
+                int length = readProcFile(statFile);
+                int position = lastIndexOf(length, (byte) ')') + 2;
+                for (int field = 3; field < 14 && position < length; field++) {
+                    position = indexOf(position, length, (byte) ' ') + 1;
+                }
+                long utime = parseLong(position, length);
+                position = indexOf(position, length, (byte) ' ') + 1;
+                long stime = parseLong(position, length);
+                cpuTicks = utime + stime;
+                length = readProcFile(statusFile);
+                position = indexOf(0, length, VM_HWM);
+                if (position >= 0) {
+                    // 单位为 kB
+                    peakMemory = Math.max(peakMemory, parseLong(position + VM_HWM.length, length) * 1024L);
+                }
+            } catch (IOException e) {
+                // 进程已退出或已成为僵尸进程
+            } finally {
+                sampleCount.incrementAndGet();
+                sampleTime.addAndGet(System.nanoTime() - startTime);
+            }
+        }
+
+        private int readProcFile(File file) throws IOException {
+            try (FileInputStream fileInputStream = new FileInputStream(file)) {
+                int length = 0;
+                int count;
+                while (length < buffer.length && (count = fileInputStream.read(buffer, length, buffer.length - length)) > 0) {
+                    length += count;
+                }
+                return length;
+            }
+        }
+
+        private int indexOf(int from, int length, byte target) {
+            for (int i = from; i < length; i++) {
+                if (buffer[i] == target) {
+                    return i;
+                }
+            }
+            return length;
+        }
+
+        private int indexOf(int from, int length, byte[] target) {
+            outer:
+            for (int i = from; i <= length - target.length; i++) {
+                for (int j = 0; j < target.length; j++) {
+                    if (buffer[i + j] != target[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private int lastIndexOf(int length, byte target) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer[i] == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 跳过前导空白后解析十进制数字
+         */
+        private long parseLong(int position, int length) {
+            while (position < length && (buffer[position] == ' ' || buffer[position] == '\t')) {
+                position++;
+            }
+            long value = 0L;
+            while (position < length && buffer[position] >= '0' && buffer[position] <= '9') {
+                value = value * 10 + (buffer[position] - '0');
+                position++;
+            }
+            return value;
+        }
+
+        /**
+         * 最后采样一次并停止定时采样，可以重复调用
+         */
+        public void finish() {
+            if (activeSamplingSet.remove(this)) {
+                sample();
+            }
+        }
+
+        /**
+         * 用户态与内核态CPU时间之和（毫秒）
+         *
+         * @return 未采样到时返回 null
+         */
+        public synchronized Long getCpuTime() {
+            return cpuTicks < 0 ? null : cpuTicks * 1000L / clockTicks;
+        }
+
+        /**
+         * 内存峰值（字节）
+         *
+         * @return 未采样到时返回 null
+         */
+        public synchronized Long getPeakMemory() {
+            return peakMemory < 0 ? null : peakMemory;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.hxoj.hxojcodesandbox.process;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程超时服务，所有进程的截止时间登记在同一个定时线程上，
+ * 进程结束时取消，到期时结束整个进程树，不再为每个用例启动一个睡眠线程
+ */
+@Component
+@Slf4j
+public class ProcessTimeoutService {
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong registerCount = new AtomicLong();
+    private final AtomicLong expireCount = new AtomicLong();
+
+    private ScheduledThreadPoolExecutor timeoutExecutor;
+
+    @PostConstruct
+    public void init() {
+        timeoutExecutor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNamePrefix("process-timeout-").setDaemon(true).build());
+        // 取消的截止时间立即移出队列，避免大量提前结束的进程堆积在队列中
+        timeoutExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timeoutExecutor.shutdownNow();
+    }
+
+    /**
+     * 登记进程的截止时间
+     *
+     * @param process
+     * @param timeoutMillis
+     * @return 截止时间，进程结束后必须调用 {@link Deadline#cancel()}
+     */
+    public Deadline register(Process process, long timeoutMillis) {
+        return register(process, timeoutMillis, () -> ProcessTree.killTree(process));
+    }
+
+    /**
+     * 登记进程的截止时间，到期时用指定的方式结束进程
+     *
+     * @param process
+     * @param timeoutMillis
+     * @param killer        到期且进程仍在运行时执行
+     * @return 截止时间，进程结束后必须调用 {@link Deadline#cancel()}
+     */
+    public Deadline register(Process process, long timeoutMillis, Runnable killer) {
+        Deadline deadline = new Deadline(process, killer);
+        pendingCount.incrementAndGet();
+        registerCount.incrementAndGet();
+        deadline.future = timeoutExecutor.schedule(deadline::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        return deadline;
+    }
+
+    /**
+     * 尚未到期也未取消的截止时间数
+     *
+     * @return
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getRegisterCount() {
+        return registerCount.get();
+    }
+
+    public long getExpireCount() {
+        return expireCount.get();
+    }
+
+    /**
+     * 单个进程的截止时间
+     */
+    public class Deadline {
+
+        private final Process process;
+
+        private final Runnable killer;
+
+        /**
+         * 到期或取消只生效一次
+         */
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private volatile boolean expired = false;
+
+        private volatile ScheduledFuture<?> future;
+
+        private Deadline(Process process, Runnable killer) {
+            this.process = process;
+            this.killer = killer;
+        }
+
+        private void expire() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            if (!process.isAlive()) {
+                return;
+            }
+            expired = true;
+            expireCount.incrementAndGet();
+            log.info("进程执行超时，强制结束进程树");
+            try {
+                killer.run();
+            } catch (Exception e) {
+                log.error("结束超时进程失败", e);
+                process.destroyForcibly();
+            }
+        }
+
+        /**
+         * 进程已结束，取消截止时间
+         *
+         * @return 是否因超时被结束
+         */
+        public boolean cancel() {
+            if (finished.compareAndSet(false, true)) {
+                pendingCount.decrementAndGet();
+                future.cancel(false);
+            }
+            return expired;
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.hxoj.hxojcodesandbox.process;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 进程树工具类，通过 /proc 查找子孙进程，兼容 Java 8（没有 ProcessHandle）。
+ * 非 Linux 系统上只能结束进程本身
+ */
+@Slf4j
+public class ProcessTree {
+
+    private static final File PROC_DIR = new File("/proc");
+
+    private ProcessTree() {
+    }
+
+    /**
+     * 获取进程号，Java 9 及以上调用 Process.pid()，Java 8 读取 UNIXProcess 的 pid 字段
+     *
+     * @param process
+     * @return 获取不到时返回 -1
+     */
+    public static long getPid(Process process) {
+        try {
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+        } catch (Exception e) {
+            return -1L;
+        }
+        try {
+            Field pidField = process.getClass().getDeclaredField("pid");
+            pidField.setAccessible(true);
+            return pidField.getLong(process);
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 查找所有子孙进程，父进程在前
+     *
+     * @param pid
+     * @return
+     */
+    public static List<Long> getDescendants(long pid) {
+        List<Long> descendantList = new ArrayList<>();
+        File[] procFiles = PROC_DIR.listFiles();
+        if (pid <= 0 || procFiles == null) {
+            return descendantList;
+        }
+        // 一次扫描建立父进程到子进程的映射
+        Map<Long, List<Long>> childrenMap = new HashMap<>();
+        for (File procFile : procFiles) {
+            String name = procFile.getName();
+            if (name.isEmpty() || !Character.isDigit(name.charAt(0))) {
+                continue;
+            }
+            long parentPid = readParentPid(procFile);
+            if (parentPid > 0) {
+                childrenMap.computeIfAbsent(parentPid, key -> new ArrayList<>()).add(Long.parseLong(name));
+            }
+        }
+        Deque<Long> pidDeque = new ArrayDeque<>();
+        pidDeque.add(pid);
+        while (!pidDeque.isEmpty()) {
+            List<Long> childList = childrenMap.get(pidDeque.poll());
+            if (childList != null) {
+                descendantList.addAll(childList);
+                pidDeque.addAll(childList);
+            }
+        }
+        return descendantList;
+    }
+
+    /**
+     * 强制结束进程及其全部子孙进程，子孙进程一次性发送 SIGKILL，避免先结束父进程后子进程被收养
+     *
+     * @param process
+     */
+    public static void killTree(Process process) {
+        List<Long> descendantList = getDescendants(getPid(process));
+        if (!descendantList.isEmpty()) {
+            List<String> killCmd = new ArrayList<>();
+            killCmd.add("kill");
+            killCmd.add("-9");
+            for (Long descendant : descendantList) {
+                killCmd.add(String.valueOf(descendant));
+            }
+            try {
+                new ProcessBuilder(killCmd).redirectErrorStream(true).start().waitFor();
+            } catch (IOException e) {
+                log.warn("结束子进程失败", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * 读取 /proc/[pid]/stat 中的父进程号（第 4 个字段），进程名可能包含空格，从最后一个右括号之后解析
+     *
+     * @param procFile
+     * @return
+     */
+    private static long readParentPid(File procFile) {
+        try {
+            String stat = new String(Files.readAllBytes(new File(procFile, "stat").toPath()), StandardCharsets.UTF_8);
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[1]);
+        } catch (Exception e) {
+            // 进程已退出
+            return -1L;
+        }
+    }
+}
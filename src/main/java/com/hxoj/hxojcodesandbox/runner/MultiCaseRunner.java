@@ -0,0 +1,708 @@
+package com.hxoj.hxojcodesandbox.runner;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Permission;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 单 JVM 多用例执行器，每次提交只启动一次 JVM，依次执行所有输入用例。
+ * 每个用例使用全新的类加载器加载用户的 Main，用例之间的静态变量互不影响。
+ * <p>
+ * 启动参数：用例超时时间（毫秒） 单个输出流的字节上限 用户代码目录 [主类名]
+ * 标准输入：结果帧的签名密钥，用例数，以及每个用例的启动参数与标准输入
+ * 标准输出：每个用例的结果帧，帧内容带 HMAC 签名，用户代码直接写入标准输出的数据无法伪造结果
+ * <p>
+ * 用例超时、输出超出限制、调用 System.exit 无法拦截或者遗留了仍在运行的线程时，
+ * 上报该用例后直接退出，剩余用例由沙箱重新启动执行器执行，避免影响后续用例。
+ * <p>
+ * 该类会被复制到用户代码目录（包括 Docker 容器内）运行，只能依赖 JDK 8 自带的类，
+ * 不能使用 lambda 或匿名内部类，新增内部类时需要同步修改 CLASS_NAMES
+ */
+public class MultiCaseRunner {
+
+    /**
+     * 结果帧的起始标记
+     */
+    public static final int RESULT_MAGIC = 0x48584F4A;
+
+    /**
+     * 执行器用到的全部类，复制到用户代码目录时使用
+     */
+    public static final String[] CLASS_NAMES = {
+            "MultiCaseRunner",
+            "MultiCaseRunner$CaseResult",
+            "MultiCaseRunner$CaseThread",
+            "MultiCaseRunner$CaseOutputStream",
+            "MultiCaseRunner$ExitException",
+            "MultiCaseRunner$ExitTrapSecurityManager",
+            "MultiCaseRunner$ExitReportHook"
+    };
+
+    /**
+     * 用户代码调用 System.exit 时无法拦截、或者用例被提前结束时的退出码
+     */
+    public static final int UNKNOWN_EXIT_VALUE = -1;
+
+    /**
+     * 结果帧中除标准输出与错误输出以外的字节数上限
+     */
+    private static final int FRAME_OVERHEAD = 128;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final String DEFAULT_MAIN_CLASS_NAME = "Main";
+
+    /**
+     * 等待用例线程时检查输出上限与退出请求的间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL = 10L;
+
+    /**
+     * 关闭钩子等待主线程上报结果的时长（毫秒）
+     */
+    private static final long EXIT_REPORT_WAIT = 1000L;
+
+    /**
+     * 是否正在执行用例，安全管理器与关闭钩子据此判断 System.exit 是否来自用户代码
+     */
+    private static volatile boolean caseRunning;
+
+    /**
+     * 无法拦截 System.exit 时由关闭钩子设置，主线程据此上报被打断的用例
+     */
+    private static volatile boolean exitRequested;
+
+    public static void main(String[] args) throws Exception {
+        long timeout = Long.parseLong(args[0]);
+        long outputLimit = Long.parseLong(args[1]);
+        URL[] classPath = {new File(args[2]).toURI().toURL()};
+        String mainClassName = args.length > 3 ? args[3] : DEFAULT_MAIN_CLASS_NAME;
+        // 执行用户代码前读完全部输入，用户代码读取标准输入的文件描述符不会影响后续用例
+        DataInputStream caseInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        // 签名密钥只保存在局部变量中，用户代码无法通过静态字段反射获取
+        Mac mac = newMac(readBytes(caseInputStream));
+        int caseCount = caseInputStream.readInt();
+        List<String[]> argsList = new ArrayList<String[]>();
+        List<byte[]> stdinList = new ArrayList<byte[]>();
+        for (int index = 0; index < caseCount; index++) {
+            argsList.add(readStringArray(caseInputStream));
+            stdinList.add(readBytes(caseInputStream));
+        }
+        // 直接使用文件描述符，用户代码替换 System.out 不影响结果帧
+        DataOutputStream resultOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        PrintStream originalErr = System.err;
+        boolean exitTrapped = installExitTrap();
+        if (!exitTrapped) {
+            Runtime.getRuntime().addShutdownHook(new ExitReportHook());
+        }
+        Properties originalProperties = copyOf(System.getProperties());
+
+        for (int index = 0; index < caseCount; index++) {
+            CaseResult caseResult = runCase(index, classPath, mainClassName, argsList.get(index), stdinList.get(index),
+                    timeout, outputLimit);
+            // 恢复系统属性，避免用户代码修改的属性影响后续用例
+            System.setProperties(copyOf(originalProperties));
+            writeResult(resultOutputStream, mac, caseResult);
+            resultOutputStream.flush();
+            if (caseResult.timeout || caseResult.outputLimitExceeded || caseResult.exitRequested || caseResult.threadLeaked) {
+                // 仍在运行的用户线程无法安全结束，直接退出，剩余用例由沙箱重新启动执行器执行
+                originalErr.flush();
+                Runtime.getRuntime().halt(0);
+            }
+        }
+        resultOutputStream.flush();
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 执行单个用例。与单独启动 JVM 一致，main 方法返回后还要等待用例创建的非守护线程结束
+     */
+    private static CaseResult runCase(int index, URL[] classPath, String mainClassName, String[] caseArgs, byte[] stdin,
+                                      long timeout, long outputLimit) throws IOException, InterruptedException {
+        CaseResult caseResult = new CaseResult();
+        caseResult.index = index;
+        CaseOutputStream stdout = new CaseOutputStream(outputLimit);
+        CaseOutputStream stderr = new CaseOutputStream(outputLimit);
+        PrintStream casePrintStream = new PrintStream(stdout, false, "UTF-8");
+        PrintStream caseErrPrintStream = new PrintStream(stderr, false, "UTF-8");
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        Set<Thread> baselineThreads = getLiveThreads();
+        System.setIn(new ByteArrayInputStream(stdin));
+        System.setOut(casePrintStream);
+        System.setErr(caseErrPrintStream);
+        // 父加载器为扩展类加载器，用户的 Main 不会被应用类加载器缓存
+        URLClassLoader classLoader = new URLClassLoader(classPath, ClassLoader.getSystemClassLoader().getParent());
+        CaseThread caseThread = new CaseThread(classLoader, mainClassName, caseArgs);
+        caseThread.setContextClassLoader(classLoader);
+        boolean peakMemoryReset = resetPeakMemory();
+        caseRunning = true;
+        long startTime = System.nanoTime();
+        long deadline = startTime + timeout * 1000000L;
+        try {
+            caseThread.start();
+            while (true) {
+                if (stdout.isOverflowed() || stderr.isOverflowed()) {
+                    caseResult.outputLimitExceeded = true;
+                    break;
+                }
+                if (exitRequested) {
+                    caseResult.exitRequested = true;
+                    break;
+                }
+                Thread waitingThread = caseThread.isAlive() ? caseThread : findNewThread(baselineThreads, true);
+                if (waitingThread == null) {
+                    break;
+                }
+                long remainMillis = (deadline - System.nanoTime()) / 1000000L;
+                if (remainMillis <= 0) {
+                    caseResult.timeout = true;
+                    break;
+                }
+                waitingThread.join(Math.min(remainMillis, POLL_INTERVAL));
+            }
+            caseResult.elapsedNanos = System.nanoTime() - startTime;
+            caseResult.peakMemory = getPeakMemory(peakMemoryReset);
+            if (caseResult.timeout || caseResult.outputLimitExceeded || caseResult.exitRequested) {
+                caseResult.exitValue = UNKNOWN_EXIT_VALUE;
+            } else {
+                caseResult.exitValue = caseThread.exitValue;
+            }
+            caseResult.allocatedBytes = caseThread.isAlive() ? getAllocatedBytes(caseThread.getId()) : caseThread.allocatedBytes;
+            // 守护线程同样会继续使用全局的 System.out 等状态，不能留给下一个用例
+            caseResult.threadLeaked = findNewThread(baselineThreads, false) != null;
+        } finally {
+            caseRunning = false;
+            casePrintStream.flush();
+            caseErrPrintStream.flush();
+            // 仍有用户线程运行时保留用例的输出流，避免用户输出写入结果帧所在的标准输出，执行器随后直接退出
+            if (!caseResult.threadLeaked && !caseThread.isAlive()) {
+                System.setIn(originalIn);
+                System.setOut(originalOut);
+                System.setErr(originalErr);
+                classLoader.close();
+            }
+        }
+        caseResult.stdoutBytes = stdout.toByteArray();
+        caseResult.stderrBytes = stderr.toByteArray();
+        return caseResult;
+    }
+
+    private static Set<Thread> getLiveThreads() {
+        return new HashSet<Thread>(Thread.getAllStackTraces().keySet());
+    }
+
+    /**
+     * 查找用例开始后创建、仍在运行的线程
+     *
+     * @param baselineThreads 用例开始前的线程
+     * @param nonDaemonOnly   是否只查找非守护线程
+     * @return 找不到时为 null
+     */
+    private static Thread findNewThread(Set<Thread> baselineThreads, boolean nonDaemonOnly) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && !baselineThreads.contains(thread) && thread != Thread.currentThread()
+                    && (!nonDaemonOnly || !thread.isDaemon())) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 重置进程的内存峰值，与单独启动进程时一样统计每个用例的峰值驻留内存
+     *
+     * @return 是否重置了进程的 VmHWM，失败时只能统计堆内存的峰值
+     */
+    private static boolean resetPeakMemory() {
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            memoryPoolMXBean.resetPeakUsage();
+        }
+        try {
+            FileOutputStream clearRefsOutputStream = new FileOutputStream("/proc/self/clear_refs");
+            try {
+                // 5 表示重置 VmHWM
+                clearRefsOutputStream.write('5');
+            } finally {
+                clearRefsOutputStream.close();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 用例执行期间的内存峰值（字节），无法统计时为 -1
+     */
+    private static long getPeakMemory(boolean peakMemoryReset) {
+        if (peakMemoryReset) {
+            long vmHwm = readVmHwm();
+            if (vmHwm >= 0) {
+                return vmHwm;
+            }
+        }
+        long heapPeak = 0L;
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP && memoryPoolMXBean.getPeakUsage() != null) {
+                heapPeak += memoryPoolMXBean.getPeakUsage().getUsed();
+            }
+        }
+        return heapPeak > 0 ? heapPeak : -1L;
+    }
+
+    private static long readVmHwm() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream("/proc/self/status"), StandardCharsets.UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("VmHWM:")) {
+                        String value = line.substring("VmHWM:".length()).trim();
+                        int spaceIndex = value.indexOf(' ');
+                        return Long.parseLong(spaceIndex < 0 ? value : value.substring(0, spaceIndex)) * 1024L;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // 非 Linux 系统没有 /proc
+        }
+        return -1L;
+    }
+
+    /**
+     * 通过安全管理器把 System.exit 转换为异常，JDK 18 之后默认不允许设置安全管理器
+     */
+    private static boolean installExitTrap() {
+        try {
+            System.setSecurityManager(new ExitTrapSecurityManager());
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static long getAllocatedBytes(long threadId) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadId);
+        }
+        return -1L;
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    /**
+     * 生成一次启动使用的结果帧签名密钥，由沙箱调用
+     *
+     * @return
+     */
+    public static byte[] newRunKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    /**
+     * 单个结果帧的字节数上限，标准输出与错误输出各不超过输出上限
+     *
+     * @param outputLimit
+     * @return
+     */
+    public static long getMaxFrameLength(long outputLimit) {
+        return outputLimit * 2 + FRAME_OVERHEAD;
+    }
+
+    /**
+     * 写入签名密钥、用例数与每个用例的参数、标准输入，由沙箱调用
+     *
+     * @param outputStream
+     * @param key
+     * @param argsList
+     * @param stdinList
+     * @throws IOException
+     */
+    public static void writeCases(DataOutputStream outputStream, byte[] key, List<String[]> argsList, List<byte[]> stdinList) throws IOException {
+        writeBytes(outputStream, key);
+        outputStream.writeInt(argsList.size());
+        for (int i = 0; i < argsList.size(); i++) {
+            String[] caseArgs = argsList.get(i);
+            outputStream.writeInt(caseArgs.length);
+            for (String caseArg : caseArgs) {
+                writeBytes(outputStream, caseArg.getBytes(StandardCharsets.UTF_8));
+            }
+            writeBytes(outputStream, stdinList.get(i));
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * 读取全部结果帧，由沙箱调用。
+     * 跳过用户代码直接写入标准输出的数据，签名不正确的帧一律丢弃；
+     * 用例下标不连续时停止读取，之后的用例由沙箱重新执行
+     *
+     * @param inputStream
+     * @param key         本次启动的签名密钥
+     * @param outputLimit 单个输出流的字节上限
+     * @return
+     * @throws IOException
+     */
+    public static List<CaseResult> readResults(DataInputStream inputStream, byte[] key, long outputLimit) throws IOException {
+        Mac mac = newMac(key);
+        int maxPayloadLength = (int) Math.min(Integer.MAX_VALUE - FRAME_OVERHEAD, getMaxFrameLength(outputLimit));
+        boolean markSupported = inputStream.markSupported();
+        List<CaseResult> caseResultList = new ArrayList<CaseResult>();
+        int window = 0;
+        while (true) {
+            int b = inputStream.read();
+            if (b < 0) {
+                return caseResultList;
+            }
+            window = (window << 8) | b;
+            if (window != RESULT_MAGIC) {
+                continue;
+            }
+            window = 0;
+            if (markSupported) {
+                inputStream.mark(maxPayloadLength + FRAME_OVERHEAD);
+            }
+            CaseResult caseResult = readFrame(inputStream, mac, maxPayloadLength);
+            if (caseResult == null) {
+                // 伪造或不完整的帧，从起始标记之后继续查找
+                if (markSupported) {
+                    inputStream.reset();
+                }
+                continue;
+            }
+            if (caseResult.index != caseResultList.size()) {
+                return caseResultList;
+            }
+            caseResultList.add(caseResult);
+        }
+    }
+
+    /**
+     * 读取起始标记之后的帧长度、帧内容与签名
+     *
+     * @return 帧不合法时为 null
+     */
+    private static CaseResult readFrame(DataInputStream inputStream, Mac mac, int maxPayloadLength) throws IOException {
+        try {
+            int payloadLength = inputStream.readInt();
+            if (payloadLength < 0 || payloadLength > maxPayloadLength) {
+                return null;
+            }
+            byte[] payload = new byte[payloadLength];
+            inputStream.readFully(payload);
+            byte[] signature = new byte[mac.getMacLength()];
+            inputStream.readFully(signature);
+            if (!MessageDigest.isEqual(mac.doFinal(payload), signature)) {
+                return null;
+            }
+            DataInputStream payloadInputStream = new DataInputStream(new ByteArrayInputStream(payload));
+            CaseResult caseResult = new CaseResult();
+            caseResult.index = payloadInputStream.readInt();
+            caseResult.exitValue = payloadInputStream.readInt();
+            caseResult.timeout = payloadInputStream.readBoolean();
+            caseResult.outputLimitExceeded = payloadInputStream.readBoolean();
+            caseResult.elapsedNanos = payloadInputStream.readLong();
+            caseResult.allocatedBytes = payloadInputStream.readLong();
+            caseResult.peakMemory = payloadInputStream.readLong();
+            caseResult.stdoutBytes = readBytes(payloadInputStream);
+            caseResult.stderrBytes = readBytes(payloadInputStream);
+            return caseResult;
+        } catch (EOFException e) {
+            // 执行器退出，丢弃写了一半的结果帧
+            return null;
+        }
+    }
+
+    /**
+     * 写入一个结果帧：起始标记、帧长度、帧内容与帧内容的签名
+     */
+    static void writeResult(DataOutputStream outputStream, Mac mac, CaseResult caseResult) throws IOException {
+        ByteArrayOutputStream payloadOutputStream = new ByteArrayOutputStream();
+        DataOutputStream payloadDataOutputStream = new DataOutputStream(payloadOutputStream);
+        payloadDataOutputStream.writeInt(caseResult.index);
+        payloadDataOutputStream.writeInt(caseResult.exitValue);
+        payloadDataOutputStream.writeBoolean(caseResult.timeout);
+        payloadDataOutputStream.writeBoolean(caseResult.outputLimitExceeded);
+        payloadDataOutputStream.writeLong(caseResult.elapsedNanos);
+        payloadDataOutputStream.writeLong(caseResult.allocatedBytes);
+        payloadDataOutputStream.writeLong(caseResult.peakMemory);
+        writeBytes(payloadDataOutputStream, caseResult.stdoutBytes);
+        writeBytes(payloadDataOutputStream, caseResult.stderrBytes);
+        byte[] payload = payloadOutputStream.toByteArray();
+        outputStream.writeInt(RESULT_MAGIC);
+        outputStream.writeInt(payload.length);
+        outputStream.write(payload);
+        outputStream.write(mac.doFinal(payload));
+    }
+
+    static Mac newMac(byte[] key) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("初始化结果帧签名失败", e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream outputStream, byte[] bytes) throws IOException {
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream inputStream) throws IOException {
+        byte[] bytes = new byte[inputStream.readInt()];
+        inputStream.readFully(bytes);
+        return bytes;
+    }
+
+    private static String[] readStringArray(DataInputStream inputStream) throws IOException {
+        String[] strings = new String[inputStream.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = new String(readBytes(inputStream), StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * 单个用例的执行结果
+     */
+    public static class CaseResult {
+
+        /**
+         * 用例下标（本次启动内）
+         */
+        public int index;
+
+        /**
+         * 退出码：正常返回为 0，抛出未捕获异常为 1，调用 System.exit 为其参数
+         */
+        public int exitValue;
+
+        /**
+         * 是否超时
+         */
+        public boolean timeout;
+
+        /**
+         * 标准输出或错误输出是否超出上限，超出的部分已丢弃
+         */
+        public boolean outputLimitExceeded;
+
+        /**
+         * 执行耗时（纳秒）
+         */
+        public long elapsedNanos;
+
+        /**
+         * 用户主线程分配的字节数，无法统计时为 -1
+         */
+        public long allocatedBytes;
+
+        /**
+         * 执行期间的内存峰值（字节），无法统计时为 -1
+         */
+        public long peakMemory = -1L;
+
+        /**
+         * 标准输出
+         */
+        public byte[] stdoutBytes;
+
+        /**
+         * 错误输出
+         */
+        public byte[] stderrBytes;
+
+        /**
+         * 用户代码调用了无法拦截的 System.exit，只在执行器内使用
+         */
+        private boolean exitRequested;
+
+        /**
+         * 用例结束后仍有用户线程在运行，只在执行器内使用
+         */
+        private boolean threadLeaked;
+    }
+
+    /**
+     * 以 main 线程的方式调用用户的 main 方法
+     */
+    private static class CaseThread extends Thread {
+
+        private final ClassLoader classLoader;
+        private final String mainClassName;
+        private final String[] caseArgs;
+        private volatile int exitValue;
+        private volatile long allocatedBytes = -1L;
+
+        CaseThread(ClassLoader classLoader, String mainClassName, String[] caseArgs) {
+            super("main");
+            this.classLoader = classLoader;
+            this.mainClassName = mainClassName;
+            this.caseArgs = caseArgs;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Class<?> mainClass = Class.forName(mainClassName, true, classLoader);
+                Method mainMethod = mainClass.getMethod("main", String[].class);
+                mainMethod.invoke(null, (Object) caseArgs);
+                exitValue = 0;
+            } catch (InvocationTargetException e) {
+                handleThrowable(e.getCause());
+            } catch (Throwable e) {
+                handleThrowable(e);
+            } finally {
+                allocatedBytes = getAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        private void handleThrowable(Throwable throwable) {
+            if (throwable instanceof ExitException) {
+                exitValue = ((ExitException) throwable).status;
+                return;
+            }
+            // 与 JVM 默认的未捕获异常处理保持一致
+            System.err.print("Exception in thread \"main\" ");
+            throwable.printStackTrace(System.err);
+            exitValue = 1;
+        }
+    }
+
+    /**
+     * 有上限的用例输出，超出上限的部分丢弃并记为超出，执行器随后结束该用例
+     */
+    private static class CaseOutputStream extends OutputStream {
+
+        private final long limit;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private volatile boolean overflowed;
+
+        CaseOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            int writable = (int) Math.max(0L, Math.min(length, limit - buffer.size()));
+            buffer.write(bytes, offset, writable);
+            if (writable < length) {
+                overflowed = true;
+            }
+        }
+
+        boolean isOverflowed() {
+            return overflowed;
+        }
+
+        synchronized byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * 用户代码调用 System.exit 时抛出的异常
+     */
+    private static class ExitException extends SecurityException {
+
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * 只拦截 System.exit，其余权限不做限制
+     */
+    private static class ExitTrapSecurityManager extends SecurityManager {
+
+        @Override
+        public void checkExit(int status) {
+            if (caseRunning) {
+                throw new ExitException(status);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+    }
+
+    /**
+     * 无法拦截 System.exit 时，通知主线程上报正在执行的用例，并等待主线程结束 JVM。
+     * 关闭钩子不持有签名密钥，结果帧只由主线程写入
+     */
+    private static class ExitReportHook extends Thread {
+
+        @Override
+        public void run() {
+            if (!caseRunning) {
+                return;
+            }
+            exitRequested = true;
+            try {
+                Thread.sleep(EXIT_REPORT_WAIT);
+            } catch (InterruptedException ignored) {
+                // JVM 正在退出，无法再上报
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.hxoj.hxojcodesandbox.runner;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.ExecuteCase;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 沙箱侧使用多用例执行器的工具类
+ */
+public class MultiCaseRunnerSupport {
+
+    /**
+     * 执行器的主类名
+     */
+    public static final String RUNNER_CLASS_NAME = MultiCaseRunner.class.getName();
+
+    /**
+     * 执行器的字节码，key 为相对于类路径根目录的文件路径
+     */
+    private static volatile Map<String, byte[]> runnerClassBytes;
+
+    private MultiCaseRunnerSupport() {
+    }
+
+    /**
+     * 将执行器的class文件复制到用户代码目录，与用户代码放在同一个类路径下
+     *
+     * @param userCodeParentFile
+     */
+    public static void copyRunnerClasses(File userCodeParentFile) {
+        for (Map.Entry<String, byte[]> entry : getRunnerClassBytes().entrySet()) {
+            FileUtil.writeBytes(entry.getValue(), new File(userCodeParentFile, entry.getKey()));
+        }
+    }
+
+    /**
+     * 将签名密钥与输入用例（启动参数与标准输入内容）编码为执行器的标准输入
+     *
+     * @param runKey   本次启动的结果帧签名密钥，见 {@link MultiCaseRunner#newRunKey()}
+     * @param caseList
+     * @return
+     */
+    public static byte[] encodeCases(byte[] runKey, List<ExecuteCase> caseList) {
+        List<String[]> argsList = new ArrayList<>();
+        List<byte[]> stdinList = new ArrayList<>();
+        for (ExecuteCase executeCase : caseList) {
+            argsList.add(executeCase.getInputArgsArray());
+            stdinList.add(executeCase.getStdin() == null ? new byte[0] : executeCase.getStdin().getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try {
+            MultiCaseRunner.writeCases(new DataOutputStream(byteArrayOutputStream), runKey, argsList, stdinList);
+        } catch (IOException e) {
+            throw new RuntimeException("编码输入用例异常", e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * 将执行器的结果转换为进程执行信息，与单独启动进程时的结果保持一致
+     *
+     * @param caseResult
+     * @return
+     */
+    public static ExecuteMessage toExecuteMessage(MultiCaseRunner.CaseResult caseResult) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(caseResult.exitValue);
+        executeMessage.setMessage(normalizeOutput(new String(caseResult.stdoutBytes, StandardCharsets.UTF_8)));
+        executeMessage.setTruncated(caseResult.outputLimitExceeded);
+        String stderr = normalizeOutput(new String(caseResult.stderrBytes, StandardCharsets.UTF_8));
+        if (caseResult.timeout) {
+            executeMessage.setTimeout(true);
+            executeMessage.setStatus(ExecuteStatus.TIMEOUT);
+            executeMessage.setErrorMessage(stderr + "同时程序执行超时");
+        } else if (caseResult.outputLimitExceeded) {
+            executeMessage.setStatus(ExecuteStatus.OUTPUT_LIMIT_EXCEEDED);
+            executeMessage.setErrorMessage(stderr + "输出超出限制");
+        } else if (caseResult.exitValue == 0) {
+            executeMessage.setStatus(ExecuteStatus.SUCCESS);
+        } else {
+            executeMessage.setStatus(ExecuteStatus.RUNTIME_ERROR);
+            executeMessage.setErrorMessage(stderr);
+        }
+        executeMessage.setTime(caseResult.elapsedNanos / 1000000L);
+        if (caseResult.peakMemory >= 0) {
+            executeMessage.setMemory(caseResult.peakMemory);
+        }
+        if (caseResult.allocatedBytes >= 0) {
+            executeMessage.setAllocatedMemory(caseResult.allocatedBytes);
+        }
+        return executeMessage;
+    }
+
+    /**
+     * 按行读取输出时会去掉换行符，这里保持相同的格式
+     *
+     * @param output
+     * @return
+     */
+    private static String normalizeOutput(String output) {
+        String normalized = output.replace("\r\n", "\n");
+        return StrUtil.removeSuffix(normalized, "\n");
+    }
+
+    private static Map<String, byte[]> getRunnerClassBytes() {
+        if (runnerClassBytes == null) {
+            synchronized (MultiCaseRunnerSupport.class) {
+                if (runnerClassBytes == null) {
+                    Map<String, byte[]> classBytes = new LinkedHashMap<>();
+                    String packagePath = MultiCaseRunner.class.getPackage().getName().replace('.', '/');
+                    for (String className : MultiCaseRunner.CLASS_NAMES) {
+                        String resourcePath = packagePath + "/" + className + ".class";
+                        InputStream inputStream = MultiCaseRunner.class.getClassLoader().getResourceAsStream(resourcePath);
+                        if (inputStream == null) {
+                            throw new IllegalStateException("找不到执行器的class文件：" + resourcePath);
+                        }
+                        classBytes.put(resourcePath, IoUtil.readBytes(inputStream));
+                    }
+                    runnerClassBytes = classBytes;
+                }
+            }
+        }
+        return runnerClassBytes;
+    }
+}
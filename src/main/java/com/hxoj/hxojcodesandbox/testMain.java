@@ -3,6 +3,9 @@ package com.hxoj.hxojcodesandbox;
 import cn.hutool.core.io.resource.ResourceUtil;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
 import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -13,10 +16,14 @@ import java.util.List;
  */
 public class testMain {
     public static void main(String[] args) {
+        // 代码沙箱依赖编译器等组件，以非 Web 方式启动 Spring 容器获取
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(HxojCodeSandboxMasterApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
         // java原生代码测试入口
-        JavaNativeCodeSandbox javaNativeCodeSandbox = new JavaNativeCodeSandbox();
+        JavaNativeCodeSandbox javaNativeCodeSandbox = context.getBean(JavaNativeCodeSandbox.class);
         // 切换为docker沙箱代码测试入口
-//        JavaDockerCodeSandbox javaNativeCodeSandbox = new JavaDockerCodeSandbox();
+//        JavaDockerCodeSandbox javaNativeCodeSandbox = context.getBean(JavaDockerCodeSandbox.class);
         ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
         List<String> inputStr = Arrays.asList("1 2", "3 4");
         executeCodeRequest.setInputList(inputStr);
@@ -28,6 +35,6 @@ public class testMain {
         executeCodeRequest.setLanguage("java");
         ExecuteCodeResponse executeCodeResponse = javaNativeCodeSandbox.executeCode(executeCodeRequest);
         System.out.println(executeCodeResponse);
-
+        context.close();
     }
 }
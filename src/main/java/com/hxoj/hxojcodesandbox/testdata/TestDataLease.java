@@ -0,0 +1,50 @@
+package com.hxoj.hxojcodesandbox.testdata;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 一次执行引用的测试数据，租用期间文件不会被淘汰，执行结束后必须调用 {@link #close()}
+ */
+public class TestDataLease implements AutoCloseable {
+
+    /**
+     * 不引用任何测试数据
+     */
+    public static final TestDataLease EMPTY = new TestDataLease(null, Collections.emptyMap());
+
+    private final TestDataStore testDataStore;
+
+    private final Map<String, File> fileMap;
+
+    private boolean closed = false;
+
+    TestDataLease(TestDataStore testDataStore, Map<String, File> fileMap) {
+        this.testDataStore = testDataStore;
+        this.fileMap = fileMap;
+    }
+
+    /**
+     * 获取测试数据文件
+     *
+     * @param hash
+     * @return
+     */
+    public File getFile(String hash) {
+        File file = fileMap.get(hash);
+        if (file == null) {
+            throw new IllegalArgumentException("测试数据未租用：" + hash);
+        }
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed || testDataStore == null) {
+            return;
+        }
+        closed = true;
+        testDataStore.release(fileMap.keySet());
+    }
+}
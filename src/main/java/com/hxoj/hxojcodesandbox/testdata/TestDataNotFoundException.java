@@ -0,0 +1,22 @@
+package com.hxoj.hxojcodesandbox.testdata;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 请求引用的测试数据不存在（未上传或已被淘汰），调用方需要重新上传
+ */
+@Getter
+public class TestDataNotFoundException extends RuntimeException {
+
+    /**
+     * 不存在的测试数据哈希
+     */
+    private final List<String> missingHashList;
+
+    public TestDataNotFoundException(List<String> missingHashList) {
+        super("测试数据不存在，请重新上传：" + missingHashList);
+        this.missingHashList = missingHashList;
+    }
+}
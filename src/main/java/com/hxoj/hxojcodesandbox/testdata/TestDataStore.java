@@ -0,0 +1,269 @@
+package com.hxoj.hxojcodesandbox.testdata;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.config.TestDataProperties;
+import com.hxoj.hxojcodesandbox.model.TestDataInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 测试数据存储，文件以内容的 SHA-256 命名，调用方上传一次后在请求中按哈希引用。
+ * 执行时通过标准输入重定向直接把文件交给用户进程，Docker 容器中以只读方式挂载，
+ * 文件内容不经过 JVM 堆。占用超出磁盘上限时按最近使用时间淘汰未在使用中的文件
+ */
+@Component
+@Slf4j
+public class TestDataStore {
+
+    public static final String DEFAULT_DATA_DIR_NAME = "testData";
+
+    /**
+     * 测试数据目录在容器中的挂载点
+     */
+    public static final String CONTAINER_DATA_DIR = "/data";
+
+    private static final String TMP_FILE_MARK = ".tmp-";
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Resource
+    private TestDataProperties testDataProperties;
+
+    private File dataDir;
+
+    /**
+     * 文件大小索引，按访问顺序排列，实现 LRU
+     */
+    private final LinkedHashMap<String, Long> sizeMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 正在被执行使用的文件及其租用次数，不参与淘汰
+     */
+    private final Map<String, Integer> leaseCountMap = new HashMap<>();
+
+    private long totalSize = 0L;
+
+    private final AtomicLong uploadCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        String configuredDir = testDataProperties.getDataDir();
+        dataDir = StrUtil.isBlank(configuredDir)
+                ? new File(System.getProperty("user.dir"), DEFAULT_DATA_DIR_NAME)
+                : new File(configuredDir);
+        FileUtil.mkdir(dataDir);
+        File[] files = dataDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        // 清理上次进程退出时残留的临时文件，其余文件按最近使用时间重建索引
+        List<File> fileList = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().contains(TMP_FILE_MARK)) {
+                FileUtil.del(file);
+            } else if (file.isFile() && HASH_PATTERN.matcher(file.getName()).matches()) {
+                fileList.add(file);
+            }
+        }
+        fileList.sort(Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File file : fileList) {
+                sizeMap.put(file.getName(), file.length());
+                totalSize += file.length();
+            }
+        }
+        log.info("测试数据目录：" + dataDir.getAbsolutePath() + "，文件数：" + fileList.size() + "，占用：" + totalSize + "字节");
+    }
+
+    /**
+     * 保存上传的测试数据，边读边计算哈希，内容已存在时直接返回
+     *
+     * @param inputStream
+     * @param expectedHash 调用方计算的哈希（可选），与实际内容不一致时拒绝
+     * @return
+     */
+    public TestDataInfo put(InputStream inputStream, String expectedHash) {
+        if (expectedHash != null && !HASH_PATTERN.matcher(expectedHash).matches()) {
+            throw new IllegalArgumentException("测试数据哈希格式错误：" + expectedHash);
+        }
+        File tmpFile = new File(dataDir, UUID.randomUUID() + TMP_FILE_MARK);
+        String hash;
+        long size = 0L;
+        try (InputStream in = inputStream; OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, length);
+                out.write(buffer, 0, length);
+                size += length;
+            }
+            hash = HexUtil.encodeHexStr(messageDigest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            FileUtil.del(tmpFile);
+            throw new RuntimeException("保存测试数据异常", e);
+        }
+        if (expectedHash != null && !expectedHash.equals(hash)) {
+            FileUtil.del(tmpFile);
+            throw new IllegalArgumentException("测试数据哈希不一致，期望：" + expectedHash + "，实际：" + hash);
+        }
+        synchronized (this) {
+            if (sizeMap.containsKey(hash)) {
+                FileUtil.del(tmpFile);
+                new File(dataDir, hash).setLastModified(System.currentTimeMillis());
+            } else {
+                try {
+                    Files.move(tmpFile.toPath(), new File(dataDir, hash).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    FileUtil.del(tmpFile);
+                    throw new RuntimeException("保存测试数据异常", e);
+                }
+                sizeMap.put(hash, size);
+                totalSize += size;
+                uploadCount.incrementAndGet();
+                evict(hash);
+            }
+        }
+        return TestDataInfo.builder().hash(hash).size(size).build();
+    }
+
+    /**
+     * 查询哪些测试数据已经存在
+     *
+     * @param hashList
+     * @return 已存在的哈希
+     */
+    public synchronized List<String> exists(List<String> hashList) {
+        List<String> presentHashList = new ArrayList<>();
+        for (String hash : hashList) {
+            // 只查询，不影响淘汰顺序
+            if (hash != null && HASH_PATTERN.matcher(hash).matches() && sizeMap.containsKey(hash)) {
+                presentHashList.add(hash);
+            }
+        }
+        return presentHashList;
+    }
+
+    /**
+     * 租用一次执行引用的测试数据，任一文件不存在时抛出异常并列出全部缺失的哈希
+     *
+     * @param hashCollection
+     * @return
+     */
+    public TestDataLease lease(Collection<String> hashCollection) {
+        if (hashCollection.isEmpty()) {
+            return TestDataLease.EMPTY;
+        }
+        Map<String, File> fileMap = new LinkedHashMap<>();
+        List<String> missingHashList = new ArrayList<>();
+        synchronized (this) {
+            for (String hash : hashCollection) {
+                if (fileMap.containsKey(hash)) {
+                    continue;
+                }
+                if (hash == null || !HASH_PATTERN.matcher(hash).matches() || sizeMap.get(hash) == null) {
+                    missingHashList.add(hash);
+                    continue;
+                }
+                fileMap.put(hash, new File(dataDir, hash));
+            }
+            if (!missingHashList.isEmpty()) {
+                throw new TestDataNotFoundException(missingHashList);
+            }
+            for (String hash : fileMap.keySet()) {
+                leaseCountMap.merge(hash, 1, Integer::sum);
+            }
+        }
+        // 更新修改时间，重启后按最近使用时间重建淘汰顺序
+        long now = System.currentTimeMillis();
+        for (File file : fileMap.values()) {
+            file.setLastModified(now);
+        }
+        return new TestDataLease(this, fileMap);
+    }
+
+    /**
+     * 测试数据目录，Docker 容器以只读方式挂载到 {@link #CONTAINER_DATA_DIR}
+     *
+     * @return
+     */
+    public File getDataDir() {
+        return dataDir;
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    public synchronized int getFileCount() {
+        return sizeMap.size();
+    }
+
+    public long getUploadCount() {
+        return uploadCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    synchronized void release(Collection<String> hashCollection) {
+        for (String hash : hashCollection) {
+            leaseCountMap.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        evict(null);
+    }
+
+    /**
+     * 超出磁盘上限时从最久未使用的文件开始淘汰，跳过使用中的文件
+     *
+     * @param keepHash 刚上传的文件，调用方马上要引用，不淘汰
+     */
+    private void evict(String keepHash) {
+        long diskBudget = testDataProperties.getDiskBudget();
+        if (totalSize <= diskBudget) {
+            return;
+        }
+        // 淘汰到上限的 90%，避免每次上传都触发淘汰
+        long targetSize = diskBudget / 10 * 9;
+        Iterator<Map.Entry<String, Long>> iterator = sizeMap.entrySet().iterator();
+        while (totalSize > targetSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (leaseCountMap.containsKey(eldest.getKey()) || eldest.getKey().equals(keepHash)) {
+                continue;
+            }
+            FileUtil.del(new File(dataDir, eldest.getKey()));
+            totalSize -= eldest.getValue();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+            log.info("淘汰测试数据：" + eldest.getKey());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.hxoj.hxojcodesandbox.utils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有上限的输出缓冲区，由池化的固定大小字节块组成，超出上限的部分丢弃并记为截断。
+ * 写入完成后一次性解码为字符串，使用结束必须调用 {@link #release()} 归还字节块。
+ * 非线程安全，每个输出流单独使用一个
+ */
+public class BoundedOutputBuffer {
+
+    /**
+     * 字节块大小
+     */
+    public static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * 池中最多保留的空闲字节块数，超出的直接丢弃交给GC
+     */
+    private static final int MAX_POOLED_CHUNKS = 1024;
+
+    private static final ConcurrentLinkedQueue<byte[]> CHUNK_POOL = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger POOLED_COUNT = new AtomicInteger();
+
+    private final long limit;
+
+    private final List<byte[]> chunkList = new ArrayList<>();
+
+    /**
+     * 已写入的字节数
+     */
+    private long size = 0L;
+
+    private boolean truncated = false;
+
+    /**
+     * @param limit 最多保留的字节数
+     */
+    public BoundedOutputBuffer(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 写入数据，超出上限的部分被丢弃
+     *
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return 是否全部写入，返回 false 表示已超出上限
+     */
+    public boolean write(byte[] bytes, int offset, int length) {
+        int writable = (int) Math.min(length, limit - size);
+        if (writable < length) {
+            truncated = true;
+        }
+        while (writable > 0) {
+            int chunkOffset = (int) (size % CHUNK_SIZE);
+            if (chunkOffset == 0) {
+                chunkList.add(borrowChunk());
+            }
+            int count = Math.min(writable, CHUNK_SIZE - chunkOffset);
+            System.arraycopy(bytes, offset, chunkList.get(chunkList.size() - 1), chunkOffset, count);
+            offset += count;
+            writable -= count;
+            size += count;
+        }
+        return !truncated;
+    }
+
+    /**
+     * 一次性解码全部数据
+     *
+     * @param charset
+     * @return
+     */
+    public String decode(Charset charset) {
+        return decode(charset, (int) size);
+    }
+
+    /**
+     * 去掉末尾的一个换行（\n 或 \r\n）后一次性解码，中间的换行保持原样。
+     * 直接在字节上去掉换行，避免解码后再截取子串复制一遍，仅适用于兼容 ASCII 的编码
+     *
+     * @param charset
+     * @return
+     */
+    public String decodeWithoutLastLineSeparator(Charset charset) {
+        int length = (int) size;
+        if (length > 0 && byteAt(length - 1) == '\n') {
+            length--;
+            if (length > 0 && byteAt(length - 1) == '\r') {
+                length--;
+            }
+        }
+        return decode(charset, length);
+    }
+
+    /**
+     * 按行解码，与逐行读取（{@link java.io.BufferedReader#readLine()}）再用 \n 拼接得到的结果一致：
+     * \r\n 与单独的 \r 都视为换行并统一为 \n，末尾的一个换行去掉。
+     * 输出中没有 \r 时直接解码，不额外复制，仅适用于兼容 ASCII 的编码
+     *
+     * @param charset
+     * @return
+     */
+    public String decodeLines(Charset charset) {
+        int length = (int) size;
+        if (length > 0 && byteAt(length - 1) == '\n') {
+            length--;
+            if (length > 0 && byteAt(length - 1) == '\r') {
+                length--;
+            }
+        } else if (length > 0 && byteAt(length - 1) == '\r') {
+            length--;
+        }
+        String decoded = decode(charset, length);
+        if (!containsCarriageReturn(length)) {
+            return decoded;
+        }
+        return decoded.replace("\r\n", "\n").replace('\r', '\n');
+    }
+
+    /**
+     * 归还字节块，之后不能再使用该缓冲区
+     */
+    public void release() {
+        for (byte[] chunk : chunkList) {
+            if (POOLED_COUNT.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+                CHUNK_POOL.offer(chunk);
+            } else {
+                POOLED_COUNT.decrementAndGet();
+            }
+        }
+        chunkList.clear();
+        size = 0L;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    private String decode(Charset charset, int length) {
+        if (chunkList.size() == 1) {
+            return new String(chunkList.get(0), 0, length, charset);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < chunkList.size() && i * CHUNK_SIZE < length; i++) {
+            int offset = i * CHUNK_SIZE;
+            System.arraycopy(chunkList.get(i), 0, bytes, offset, Math.min(CHUNK_SIZE, length - offset));
+        }
+        return new String(bytes, charset);
+    }
+
+    private boolean containsCarriageReturn(int length) {
+        for (int i = 0; i < chunkList.size() && i * CHUNK_SIZE < length; i++) {
+            byte[] chunk = chunkList.get(i);
+            int end = Math.min(CHUNK_SIZE, length - i * CHUNK_SIZE);
+            for (int j = 0; j < end; j++) {
+                if (chunk[j] == '\r') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private byte byteAt(int index) {
+        return chunkList.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+    }
+
+    private static byte[] borrowChunk() {
+        byte[] chunk = CHUNK_POOL.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        POOLED_COUNT.decrementAndGet();
+        return chunk;
+    }
+}
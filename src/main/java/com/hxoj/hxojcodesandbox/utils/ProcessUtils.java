@@ -1,19 +1,42 @@
 package com.hxoj.hxojcodesandbox.utils;
 
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.judge.OutputComparator;
 import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
-import org.apache.commons.lang3.StringUtils;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 进程工具类
  */
+@Slf4j
 public class ProcessUtils {
 
+    /**
+     * 未指定时单个输出流最多保留的字节数
+     */
+    public static final long DEFAULT_OUTPUT_LIMIT = 1024 * 1024L;
+
+    /**
+     * 读取错误输出的线程池，与调用线程同时排空两个管道
+     */
+    private static final ExecutorService DRAIN_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNamePrefix("process-drain-").setDaemon(true).build());
+
+    /**
+     * 每个线程复用的读取缓冲区
+     */
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[BoundedOutputBuffer.CHUNK_SIZE]);
+
     /**
      * 执行进程并获取信息
      *
@@ -22,58 +45,195 @@ public class ProcessUtils {
      * @return
      */
     public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName) {
+        return runProcessAndGetMessage(runProcess, opName, DEFAULT_OUTPUT_LIMIT);
+    }
+
+    /**
+     * 执行进程并获取信息，进程运行期间同时读取标准输出和错误输出，
+     * 任一输出超过上限时结束进程
+     *
+     * @param runProcess
+     * @param opName
+     * @param outputLimit 标准输出、错误输出各自最多保留的字节数
+     * @return
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, long outputLimit) {
+        return runProcessAndGetMessage(runProcess, opName, outputLimit, null);
+    }
+
+    /**
+     * 执行进程并获取信息，进程运行期间同时读取标准输出和错误输出，
+     * 任一输出超过上限时结束进程
+     *
+     * @param runProcess
+     * @param opName
+     * @param outputLimit    标准输出、错误输出各自最多保留的字节数
+     * @param outputCallback 输出读取完毕、等待进程退出之前的回调，此时进程通常正在退出但尚未被回收，可以为空
+     * @return
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, long outputLimit, Runnable outputCallback) {
+        return runProcessAndGetMessage(runProcess, opName, outputLimit, outputCallback, null);
+    }
+
+    /**
+     * 执行进程并获取信息，进程运行期间同时读取标准输出和错误输出，
+     * 任一输出超过上限时结束进程。
+     * 传入比较器时标准输出边读边比较，不保留在返回结果中
+     *
+     * @param runProcess
+     * @param opName
+     * @param outputLimit      标准输出、错误输出各自最多读取的字节数
+     * @param outputCallback   输出读取完毕、等待进程退出之前的回调，此时进程通常正在退出但尚未被回收，可以为空
+     * @param outputComparator 标准输出比较器，可以为空
+     * @return
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, long outputLimit, Runnable outputCallback,
+                                                         OutputComparator outputComparator) {
         ExecuteMessage executeMessage = new ExecuteMessage();
-        // 等待编译完成,获取返回值
+        BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer(outputLimit);
+        BoundedOutputBuffer errorBuffer = new BoundedOutputBuffer(outputLimit);
         try {
             StopWatch stopWatch = new StopWatch();
             // 开始计时
             stopWatch.start();
-            // 等待编译完成
+            // 先读完输出再等待退出，避免输出写满管道后进程阻塞
+            Future<Boolean> errorFuture = DRAIN_EXECUTOR.submit(() -> drain(runProcess.getErrorStream(), errorBuffer, runProcess));
+            boolean outputComplete = outputComparator == null
+                    ? drain(runProcess.getInputStream(), outputBuffer, runProcess)
+                    : drainToComparator(runProcess.getInputStream(), outputComparator, outputLimit, runProcess);
+            boolean errorComplete = errorFuture.get();
+            if (outputCallback != null) {
+                outputCallback.run();
+            }
             int exitValue = runProcess.waitFor();
+            // 停止计时
+            stopWatch.stop();
             executeMessage.setExitValue(exitValue);
-            // 编译成功
-            if (exitValue == 0) {
-                System.out.println(opName + "成功");
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputList = new ArrayList<>();
-                // 循环读取输出
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    outputList.add(line);
-                }
-                executeMessage.setMessage(StringUtils.join(outputList, "\n"));
+            boolean truncated = !outputComplete || !errorComplete;
+            executeMessage.setTruncated(truncated);
+            // 输出只在最后按行解码一次，换行统一为 \n，边读边比较时不保留输出
+            if (outputComparator == null) {
+                executeMessage.setMessage(outputBuffer.decodeLines(StandardCharsets.UTF_8));
+            }
+            if (outputComparator != null && outputComparator.isMismatched() && outputComparator.isStopOnMismatch()) {
+                log.info(opName + "输出与期望不一致，提前结束");
+                executeMessage.setStatus(ExecuteStatus.OUTPUT_MISMATCH);
+            } else if (truncated) {
+                log.warn(opName + "输出超出限制");
+                executeMessage.setStatus(ExecuteStatus.OUTPUT_LIMIT_EXCEEDED);
+                executeMessage.setErrorMessage(errorBuffer.decodeLines(StandardCharsets.UTF_8) + "输出超出限制");
+            } else if (exitValue == 0) {
+                log.info(opName + "成功");
+                executeMessage.setStatus(ExecuteStatus.SUCCESS);
             } else {
-                // 编译失败
-                System.out.println(opName + "失败,错误码： " + exitValue);
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputList = new ArrayList<>();
-                // 循环读取输出
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    outputList.add(line);
-                }
-                executeMessage.setMessage(StringUtils.join(outputList, "\n"));
-                // 分批获取进程的异常输出
-                BufferedReader bufferedErrorReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                List<String> errorOutputStr = new ArrayList<>();
-                // 循环读取输出
-                while ((line = bufferedErrorReader.readLine()) != null) {
-                    errorOutputStr.add(line);
-                }
-                executeMessage.setErrorMessage(StringUtils.join(errorOutputStr, "\n"));
+                log.info(opName + "失败,错误码： " + exitValue);
+                executeMessage.setStatus(ExecuteStatus.RUNTIME_ERROR);
+                executeMessage.setErrorMessage(errorBuffer.decodeLines(StandardCharsets.UTF_8));
             }
-            // 停止计时
-            stopWatch.stop();
             // 获取时间
             executeMessage.setTime(stopWatch.getTotalTimeMillis());
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error(opName + "读取进程输出异常", e);
+        } finally {
+            outputBuffer.release();
+            errorBuffer.release();
         }
         return executeMessage;
     }
 
+    /**
+     * 读取输出流直到结束，超出缓冲区上限时强制结束进程
+     *
+     * @param inputStream
+     * @param buffer
+     * @param process
+     * @return 是否完整读取，超出上限时返回 false
+     * @throws IOException
+     */
+    private static boolean drain(InputStream inputStream, BoundedOutputBuffer buffer, Process process) throws IOException {
+        byte[] bytes = READ_BUFFER.get();
+        try (InputStream in = inputStream) {
+            int length;
+            while ((length = in.read(bytes)) != -1) {
+                if (!buffer.write(bytes, 0, length)) {
+                    process.destroyForcibly();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取标准输出交给比较器，不保留输出。超出上限时强制结束进程，
+     * 比较器要求发现不一致就停止时同样强制结束进程，之后的输出不再读取
+     *
+     * @param inputStream
+     * @param outputComparator
+     * @param outputLimit
+     * @param process
+     * @return 是否完整读取，超出上限时返回 false
+     * @throws IOException
+     */
+    private static boolean drainToComparator(InputStream inputStream, OutputComparator outputComparator, long outputLimit,
+                                             Process process) throws IOException {
+        byte[] bytes = READ_BUFFER.get();
+        long size = 0L;
+        try (InputStream in = inputStream) {
+            int length;
+            while ((length = in.read(bytes)) != -1) {
+                size += length;
+                if (size > outputLimit) {
+                    process.destroyForcibly();
+                    return false;
+                }
+                if (!outputComparator.feed(bytes, 0, length) && outputComparator.isStopOnMismatch()) {
+                    process.destroyForcibly();
+                    return true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在后台线程中把字节来源分块写入进程的标准输入，写完后关闭标准输入。
+     * 与读取输出同时进行，输入再大也不会因双方都写满管道而互相阻塞，内容不会整体读入内存。
+     * 来源为空时直接关闭标准输入，读取标准输入的程序立即读到结束
+     *
+     * @param runProcess
+     * @param source 标准输入的字节来源，写完后关闭，可以为空
+     * @return 写入任务，写入的字节数
+     */
+    public static Future<Long> feedStdin(Process runProcess, InputStream source) {
+        if (source == null) {
+            closeQuietly(runProcess.getOutputStream());
+            return CompletableFuture.completedFuture(0L);
+        }
+        return DRAIN_EXECUTOR.submit(() -> {
+            byte[] bytes = READ_BUFFER.get();
+            long size = 0L;
+            try (InputStream in = source; OutputStream out = runProcess.getOutputStream()) {
+                int length;
+                while ((length = in.read(bytes)) != -1) {
+                    out.write(bytes, 0, length);
+                    size += length;
+                }
+            } catch (IOException e) {
+                // 进程没有读完标准输入就退出（或被结束）时管道已关闭，剩余内容不再写入
+                log.info("写入标准输入中止，已写入" + size + "字节");
+            }
+            return size;
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     /**
      * 执行交互式进程并获取信息
      *
@@ -85,19 +245,15 @@ public class ProcessUtils {
         ExecuteMessage executeMessage = new ExecuteMessage();
 
         try {
-            // 向控制台输入程序
-            OutputStream outputStream = runProcess.getOutputStream();
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
+            // 每个参数一行，相当于在控制台逐个输入并按回车
             String[] s = args.split(" ");
             String join = StrUtil.join("\n", s) + "\n";
-            // 向控制台输入参数
-            outputStreamWriter.write(join);
-            // 相当于按了回车，执行输入的发送
-            outputStreamWriter.flush();
+            // 输入与读取输出同时进行，输入较大时不会互相阻塞
+            Future<Long> feedFuture = feedStdin(runProcess, new ByteArrayInputStream(join.getBytes(StandardCharsets.UTF_8)));
 
             // 分批获取进程的正常输出
             InputStream inputStream = runProcess.getInputStream();
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
             StringBuilder compileOutputStringBuilder = new StringBuilder();
             // 逐行读取
             String compileOutputLine;
@@ -105,13 +261,12 @@ public class ProcessUtils {
                 compileOutputStringBuilder.append(compileOutputLine);
             }
             executeMessage.setMessage(compileOutputStringBuilder.toString());
+            feedFuture.get();
             // 记得资源的释放，否则会卡死
-            outputStreamWriter.close();
-            outputStream.close();
             inputStream.close();
             runProcess.destroy();
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("交互式执行异常", e);
         }
         return executeMessage;
     }
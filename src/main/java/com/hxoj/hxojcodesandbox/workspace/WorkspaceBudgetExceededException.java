@@ -0,0 +1,11 @@
+package com.hxoj.hxojcodesandbox.workspace;
+
+/**
+ * 工作目录占用超出空间或文件数上限，在分配新的工作目录时抛出
+ */
+public class WorkspaceBudgetExceededException extends RuntimeException {
+
+    public WorkspaceBudgetExceededException(String message) {
+        super(message);
+    }
+}
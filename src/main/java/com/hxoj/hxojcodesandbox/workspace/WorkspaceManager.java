@@ -0,0 +1,418 @@
+package com.hxoj.hxojcodesandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.hxoj.hxojcodesandbox.JavaCodeSandboxTemplate;
+import com.hxoj.hxojcodesandbox.config.WorkspaceProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 用户代码工作目录管理，每次提交分配一个独立的空目录，默认位于 tmpfs 上，代码与字节码不落盘。
+ * 用完的目录交给后台线程清空，放回空目录池复用，请求线程不再等待删除。
+ * 每个服务实例使用根路径下单独的实例目录并持有同名的锁文件，启动时清理锁已释放（实例已退出）的残留目录
+ */
+@Component
+@Slf4j
+public class WorkspaceManager {
+
+    public static final String DEFAULT_TMPFS_ROOT = "/dev/shm";
+
+    private static final String ROOT_DIR_NAME = "hxoj-workspace";
+
+    private static final String LOCK_FILE_SUFFIX = ".lock";
+
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    @Resource
+    private WorkspaceProperties workspaceProperties;
+
+    private File instanceDir;
+
+    private FileChannel lockChannel;
+
+    private FileLock instanceLock;
+
+    /**
+     * 已清空、可直接分配的目录
+     */
+    private BlockingQueue<File> idleQueue;
+
+    /**
+     * 等待后台清理的目录
+     */
+    private final BlockingQueue<ReapTask> reapQueue = new LinkedBlockingQueue<>();
+
+    private ExecutorService reaperExecutor;
+
+    /**
+     * 最近一次统计的占用空间与文件数，包括正在使用与等待清理的目录
+     */
+    private volatile long usedBytes = 0L;
+    private volatile long usedInodes = 0L;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong poolHitCount = new AtomicLong();
+    private final AtomicLong rejectCount = new AtomicLong();
+    private final AtomicLong reapCount = new AtomicLong();
+    private final AtomicLong reapTime = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        File rootDir = resolveRootDir();
+        FileUtil.mkdir(rootDir);
+        sweepOrphans(rootDir);
+        sweepLegacyDirs();
+        String instanceName = UUID.randomUUID().toString();
+        // 先持有锁再创建实例目录，其他实例启动时不会把正在创建的目录当作残留
+        lockChannel = FileChannel.open(new File(rootDir, instanceName + LOCK_FILE_SUFFIX).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        instanceLock = lockChannel.lock();
+        instanceDir = FileUtil.mkdir(new File(rootDir, instanceName));
+        idleQueue = new LinkedBlockingQueue<>(Math.max(1, workspaceProperties.getPoolSize()));
+        refillPool();
+        reaperExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNamePrefix("workspace-reaper-").setDaemon(true).build());
+        reaperExecutor.execute(this::reapLoop);
+        log.info("工作目录：" + instanceDir.getAbsolutePath() + "，预创建目录数：" + idleQueue.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        reaperExecutor.shutdownNow();
+        deleteTree(instanceDir.toPath(), true);
+        try {
+            instanceLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("释放工作目录锁失败", e);
+        }
+        FileUtil.del(new File(instanceDir.getParentFile(), instanceDir.getName() + LOCK_FILE_SUFFIX));
+    }
+
+    /**
+     * 分配一个空的工作目录，优先复用空目录池中的目录
+     *
+     * @return
+     */
+    public File acquire() {
+        if (usedBytes >= workspaceProperties.getDiskBudget() || usedInodes >= workspaceProperties.getInodeBudget()) {
+            rejectCount.incrementAndGet();
+            throw new WorkspaceBudgetExceededException("工作目录空间不足，请稍后重试");
+        }
+        acquireCount.incrementAndGet();
+        File workspaceDir = idleQueue.poll();
+        if (workspaceDir != null) {
+            poolHitCount.incrementAndGet();
+            return workspaceDir;
+        }
+        return FileUtil.mkdir(new File(instanceDir, UUID.randomUUID().toString()));
+    }
+
+    /**
+     * 归还工作目录，由后台线程清空后放回空目录池
+     *
+     * @param workspaceDir
+     */
+    public void release(File workspaceDir) {
+        if (workspaceDir == null || !instanceDir.equals(workspaceDir.getParentFile())) {
+            log.warn("归还的目录不是本实例分配的工作目录：" + workspaceDir);
+            return;
+        }
+        reapQueue.offer(new ReapTask(workspaceDir, null));
+    }
+
+    /**
+     * 由后台线程清空目录但保留目录本身，不放回空目录池，用于被 Docker 容器长期挂载的代码目录。
+     * 清空后在后台线程中回调是否清理干净，目录不再使用时仍需调用 {@link #release(File)}
+     *
+     * @param workspaceDir 本实例分配的工作目录
+     * @param onCleaned    清空后的回调，参数为是否全部删除成功
+     */
+    public void clean(File workspaceDir, Consumer<Boolean> onCleaned) {
+        if (workspaceDir == null || !instanceDir.equals(workspaceDir.getParentFile())) {
+            log.warn("清空的目录不是本实例分配的工作目录：" + workspaceDir);
+            onCleaned.accept(false);
+            return;
+        }
+        reapQueue.offer(new ReapTask(workspaceDir, onCleaned));
+    }
+
+    public File getInstanceDir() {
+        return instanceDir;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getUsedInodes() {
+        return usedInodes;
+    }
+
+    public int getIdleCount() {
+        return idleQueue.size();
+    }
+
+    public int getPendingCount() {
+        return reapQueue.size();
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getPoolHitCount() {
+        return poolHitCount.get();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.get();
+    }
+
+    public long getReapCount() {
+        return reapCount.get();
+    }
+
+    /**
+     * 后台清理累计耗时（毫秒）
+     *
+     * @return
+     */
+    public long getReapTime() {
+        return reapTime.get();
+    }
+
+    /**
+     * 后台线程：清理归还的目录，空闲时补足空目录池，并定期统计占用
+     */
+    private void reapLoop() {
+        long lastScanTime = 0L;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                ReapTask reapTask = reapQueue.poll(workspaceProperties.getScanInterval(), TimeUnit.MILLISECONDS);
+                if (reapTask != null) {
+                    reap(reapTask);
+                } else {
+                    refillPool();
+                }
+                if (System.currentTimeMillis() - lastScanTime >= workspaceProperties.getScanInterval()) {
+                    scanUsage();
+                    lastScanTime = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("清理工作目录异常", e);
+            }
+        }
+    }
+
+    private void reap(ReapTask reapTask) {
+        long startTime = System.currentTimeMillis();
+        File workspaceDir = reapTask.workspaceDir;
+        boolean cleaned = deleteTree(workspaceDir.toPath(), false);
+        reapCount.incrementAndGet();
+        reapTime.addAndGet(System.currentTimeMillis() - startTime);
+        if (reapTask.onCleaned != null) {
+            reapTask.onCleaned.accept(cleaned);
+            return;
+        }
+        // 清理不干净的目录不再复用
+        if (!cleaned || !idleQueue.offer(workspaceDir)) {
+            deleteTree(workspaceDir.toPath(), true);
+        }
+    }
+
+    private void refillPool() {
+        while (idleQueue.remainingCapacity() > 0) {
+            if (!idleQueue.offer(FileUtil.mkdir(new File(instanceDir, UUID.randomUUID().toString())))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 统计实例目录的占用空间与文件数，不跟随符号链接
+     */
+    private void scanUsage() {
+        long[] usage = new long[2];
+        try {
+            Files.walkFileTree(instanceDir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    usage[1]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    usage[0] += attrs.size();
+                    usage[1]++;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // 统计期间目录可能正在被清理
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("统计工作目录占用失败", e);
+            return;
+        }
+        usedBytes = usage[0];
+        usedInodes = usage[1];
+    }
+
+    /**
+     * 删除目录中的全部内容，不跟随符号链接，用户代码创建的链接只删除链接本身
+     *
+     * @param dir
+     * @param deleteSelf 是否同时删除目录本身
+     * @return 是否全部删除成功
+     */
+    private static boolean deleteTree(Path dir, boolean deleteSelf) {
+        boolean[] success = {true};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    if (!(exc instanceof NoSuchFileException)) {
+                        success[0] = false;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path subDir, IOException exc) {
+                    if (deleteSelf || !subDir.equals(dir)) {
+                        delete(subDir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private void delete(Path path) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        success[0] = false;
+                    }
+                }
+            });
+        } catch (IOException e) {
+            return false;
+        }
+        return success[0];
+    }
+
+    private File resolveRootDir() {
+        if (StrUtil.isNotBlank(workspaceProperties.getRoot())) {
+            return new File(workspaceProperties.getRoot());
+        }
+        if (new File(DEFAULT_TMPFS_ROOT).isDirectory()) {
+            return new File(DEFAULT_TMPFS_ROOT, ROOT_DIR_NAME);
+        }
+        log.warn(DEFAULT_TMPFS_ROOT + " 不存在，工作目录退回到磁盘");
+        return new File(System.getProperty("user.dir") + File.separator + JavaCodeSandboxTemplate.GLOBAL_CODE_DIR_NAME, ROOT_DIR_NAME);
+    }
+
+    /**
+     * 清理已退出实例的残留目录：锁文件能被锁定说明持有者已退出，没有锁文件的实例目录同样视为残留
+     *
+     * @param rootDir
+     */
+    private void sweepOrphans(File rootDir) {
+        File[] files = rootDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        int sweptCount = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile() && name.endsWith(LOCK_FILE_SUFFIX)) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    FileLock fileLock = channel.tryLock();
+                    if (fileLock == null) {
+                        continue;
+                    }
+                    deleteTree(new File(rootDir, StrUtil.removeSuffix(name, LOCK_FILE_SUFFIX)).toPath(), true);
+                    fileLock.release();
+                } catch (IOException e) {
+                    log.warn("检查工作目录锁失败：" + name, e);
+                    continue;
+                }
+                FileUtil.del(file);
+                sweptCount++;
+            } else if (file.isDirectory() && !new File(rootDir, name + LOCK_FILE_SUFFIX).exists()) {
+                deleteTree(file.toPath(), true);
+                sweptCount++;
+            }
+        }
+        if (sweptCount > 0) {
+            log.info("清理残留工作目录：" + sweptCount + "个");
+        }
+    }
+
+    /**
+     * 清理旧版本直接放在 tmpCode 下、因进程崩溃未被删除的用户代码目录
+     */
+    private void sweepLegacyDirs() {
+        File[] files = new File(System.getProperty("user.dir"), JavaCodeSandboxTemplate.GLOBAL_CODE_DIR_NAME).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory() && UUID_PATTERN.matcher(file.getName()).matches()) {
+                deleteTree(file.toPath(), true);
+            }
+        }
+    }
+
+    private static class ReapTask {
+
+        private final File workspaceDir;
+
+        /**
+         * 只清空不复用时的回调，为空时清空后放回空目录池
+         */
+        private final Consumer<Boolean> onCleaned;
+
+        ReapTask(File workspaceDir, Consumer<Boolean> onCleaned) {
+            this.workspaceDir = workspaceDir;
+            this.onCleaned = onCleaned;
+        }
+    }
+}
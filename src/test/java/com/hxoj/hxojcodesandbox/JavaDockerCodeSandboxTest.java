@@ -0,0 +1,172 @@
+package com.hxoj.hxojcodesandbox;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.ExecCreateCmd;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.ExecStartCmd;
+import com.github.dockerjava.api.command.InspectExecCmd;
+import com.github.dockerjava.api.command.InspectExecResponse;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import com.hxoj.hxojcodesandbox.docker.ContainerCgroupSampler;
+import com.hxoj.hxojcodesandbox.docker.DockerContainerPool;
+import com.hxoj.hxojcodesandbox.docker.ExecOutputCollector;
+import com.hxoj.hxojcodesandbox.docker.PooledContainer;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Docker 沙箱的执行结果封装，Docker 客户端与容器池均为模拟对象
+ */
+class JavaDockerCodeSandboxTest {
+
+    private final DockerClient dockerClient = mock(DockerClient.class);
+
+    private final DockerContainerPool dockerContainerPool = mock(DockerContainerPool.class);
+
+    private final PooledContainer pooledContainer = new PooledContainer();
+
+    private final JavaDockerCodeSandbox javaDockerCodeSandbox = new JavaDockerCodeSandbox();
+
+    private File userCodeFile;
+
+    @BeforeEach
+    void setUp() {
+        File workDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "docker-sandbox-test-" + System.nanoTime()));
+        userCodeFile = FileUtil.touch(new File(workDir, "code/Main.class"));
+        pooledContainer.setContainerId("container");
+        pooledContainer.setCodeDir(new File(workDir, "app"));
+        when(dockerContainerPool.lease()).thenReturn(pooledContainer);
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "dockerClient", dockerClient);
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "dockerContainerPool", dockerContainerPool);
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "containerCgroupSampler", mock(ContainerCgroupSampler.class));
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "dockerProperties", new DockerProperties());
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "executeProperties", new ExecuteProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(userCodeFile.getParentFile().getParentFile());
+    }
+
+    @Test
+    void successfulExitWithoutStderrIsSuccess() {
+        mockExec(0L, new Frame(StreamType.STDOUT, "3\n".getBytes(StandardCharsets.UTF_8)));
+        ExecuteMessage executeMessage = executeOneCase();
+        assertEquals(ExecuteStatus.SUCCESS, executeMessage.getStatus());
+        assertEquals("3", executeMessage.getMessage());
+        assertNull(executeMessage.getErrorMessage());
+        ExecuteCodeResponse executeCodeResponse = javaDockerCodeSandbox.collectOutput(Collections.singletonList(executeMessage));
+        assertEquals(1, executeCodeResponse.getStatus());
+        assertEquals(Collections.singletonList("3"), executeCodeResponse.getOutputList());
+        verify(dockerContainerPool).giveBack(pooledContainer, false);
+    }
+
+    @Test
+    void successfulExitWithStderrIsSuccess() {
+        mockExec(0L, new Frame(StreamType.STDOUT, "3".getBytes(StandardCharsets.UTF_8)),
+                new Frame(StreamType.STDERR, "warning\n".getBytes(StandardCharsets.UTF_8)));
+        ExecuteMessage executeMessage = executeOneCase();
+        assertEquals(ExecuteStatus.SUCCESS, executeMessage.getStatus());
+        assertEquals(1, javaDockerCodeSandbox.collectOutput(Collections.singletonList(executeMessage)).getStatus());
+    }
+
+    @Test
+    void nonZeroExitIsRuntimeError() {
+        mockExec(1L, new Frame(StreamType.STDERR, "Exception in thread \"main\"\n".getBytes(StandardCharsets.UTF_8)));
+        ExecuteMessage executeMessage = executeOneCase();
+        assertEquals(ExecuteStatus.RUNTIME_ERROR, executeMessage.getStatus());
+        assertEquals("Exception in thread \"main\"", executeMessage.getErrorMessage());
+        assertEquals(3, javaDockerCodeSandbox.collectOutput(Collections.singletonList(executeMessage)).getStatus());
+        verify(dockerContainerPool).giveBack(pooledContainer, true);
+    }
+
+    @Test
+    void nonZeroExitWithoutStderrIsRuntimeError() {
+        mockExec(137L);
+        ExecuteMessage executeMessage = executeOneCase();
+        assertEquals(ExecuteStatus.RUNTIME_ERROR, executeMessage.getStatus());
+        assertEquals(3, javaDockerCodeSandbox.collectOutput(Collections.singletonList(executeMessage)).getStatus());
+        // 被 OOM 结束的容器内可能残留进程，不再复用
+        verify(dockerContainerPool).giveBack(pooledContainer, true);
+    }
+
+    @Test
+    void outputOverLimitIsOutputLimitExceeded() {
+        ExecuteProperties executeProperties = new ExecuteProperties();
+        executeProperties.setOutputLimit(4L);
+        ReflectionTestUtils.setField(javaDockerCodeSandbox, "executeProperties", executeProperties);
+        mockExec(137L, new Frame(StreamType.STDOUT, "123456".getBytes(StandardCharsets.UTF_8)));
+        ExecuteMessage executeMessage = executeOneCase();
+        assertEquals(ExecuteStatus.OUTPUT_LIMIT_EXCEEDED, executeMessage.getStatus());
+        assertEquals("1234", executeMessage.getMessage());
+        assertEquals("输出超出限制", executeMessage.getErrorMessage());
+    }
+
+    private ExecuteMessage executeOneCase() {
+        List<ExecuteCase> caseList = Collections.singletonList(new ExecuteCase(0, "1 2", null, null));
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setInputList(Collections.singletonList("1 2"));
+        List<ExecuteMessage> executeMessageList = javaDockerCodeSandbox.executeTheCode(userCodeFile, executeCodeRequest, caseList,
+                OutputJudge.NONE, ExecuteListener.NONE);
+        assertEquals(1, executeMessageList.size());
+        return executeMessageList.get(0);
+    }
+
+    /**
+     * 模拟一次 exec：依次投递输出帧后结束，退出码由 inspect 返回。结束用户进程的 exec 同样由这里模拟
+     *
+     * @param exitCode
+     * @param frames
+     */
+    private void mockExec(Long exitCode, Frame... frames) {
+        ExecCreateCmd execCreateCmd = mock(ExecCreateCmd.class, RETURNS_SELF);
+        ExecCreateCmdResponse execCreateCmdResponse = new ExecCreateCmdResponse();
+        ReflectionTestUtils.setField(execCreateCmdResponse, "id", "exec");
+        doReturn(execCreateCmdResponse).when(execCreateCmd).exec();
+        when(dockerClient.execCreateCmd(anyString())).thenReturn(execCreateCmd);
+        ExecStartCmd execStartCmd = mock(ExecStartCmd.class, RETURNS_SELF);
+        doAnswer(invocation -> {
+            Object callback = invocation.getArgument(0);
+            if (callback instanceof ExecOutputCollector) {
+                ExecOutputCollector execOutputCollector = (ExecOutputCollector) callback;
+                Arrays.stream(frames).forEach(execOutputCollector::onNext);
+                execOutputCollector.onComplete();
+            }
+            return callback;
+        }).when(execStartCmd).exec(any());
+        when(dockerClient.execStartCmd(anyString())).thenReturn(execStartCmd);
+        InspectExecCmd inspectExecCmd = mock(InspectExecCmd.class);
+        InspectExecResponse inspectExecResponse = mock(InspectExecResponse.class);
+        when(inspectExecResponse.getExitCodeLong()).thenReturn(exitCode);
+        when(inspectExecCmd.exec()).thenReturn(inspectExecResponse);
+        when(dockerClient.inspectExecCmd(anyString())).thenReturn(inspectExecCmd);
+    }
+}
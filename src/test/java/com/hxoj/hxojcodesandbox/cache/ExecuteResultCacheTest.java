@@ -0,0 +1,248 @@
+package com.hxoj.hxojcodesandbox.cache;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONUtil;
+import com.hxoj.hxojcodesandbox.ExecuteCase;
+import com.hxoj.hxojcodesandbox.config.ResultCacheProperties;
+import com.hxoj.hxojcodesandbox.judge.OutputJudge;
+import com.hxoj.hxojcodesandbox.model.CaseVerdict;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import com.hxoj.hxojcodesandbox.model.JudgeVerdict;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 执行结果缓存的 key、过期、LRU 淘汰与可缓存的执行信息
+ */
+class ExecuteResultCacheTest {
+
+    private static final String SANDBOX_TYPE = "native";
+
+    private static final String LIMIT_IDENTITY = "limit";
+
+    private final ResultCacheProperties resultCacheProperties = new ResultCacheProperties();
+
+    private File cacheDir;
+
+    private ExecuteResultCache executeResultCache;
+
+    @BeforeEach
+    void setUp() {
+        resultCacheProperties.setEnabled(true);
+        cacheDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "result-cache-test-" + System.nanoTime()));
+        executeResultCache = newCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(cacheDir);
+    }
+
+    @Test
+    void keyDependsOnCaseInput() {
+        ExecuteCodeRequest executeCodeRequest = newRequest();
+        List<String> keyList = executeResultCache.buildKeyList(SANDBOX_TYPE, LIMIT_IDENTITY, executeCodeRequest,
+                newCaseList("1 2", "3 4", "1 2"));
+
+        assertEquals(3, keyList.size());
+        assertEquals(keyList.get(0), keyList.get(2));
+        assertNotEquals(keyList.get(0), keyList.get(1));
+        assertNotEquals(keyList.get(0), executeResultCache.buildKeyList("docker", LIMIT_IDENTITY, executeCodeRequest,
+                newCaseList("1 2")).get(0));
+        assertNotEquals(keyList.get(0), executeResultCache.buildKeyList(SANDBOX_TYPE, "other-limit", executeCodeRequest,
+                newCaseList("1 2")).get(0));
+        executeCodeRequest.setCode(executeCodeRequest.getCode() + " ");
+        assertNotEquals(keyList.get(0), executeResultCache.buildKeyList(SANDBOX_TYPE, LIMIT_IDENTITY, executeCodeRequest,
+                newCaseList("1 2")).get(0));
+    }
+
+    @Test
+    void disabledOrNonDeterministicIsBypassed() {
+        ExecuteCodeRequest executeCodeRequest = newRequest();
+        executeCodeRequest.setDeterministic(false);
+
+        assertNull(executeResultCache.buildKeyList(SANDBOX_TYPE, LIMIT_IDENTITY, executeCodeRequest, newCaseList("1 2")));
+        assertEquals(1L, executeResultCache.getBypassCount());
+
+        resultCacheProperties.setEnabled(false);
+        assertNull(executeResultCache.buildKeyList(SANDBOX_TYPE, LIMIT_IDENTITY, newRequest(), newCaseList("1 2")));
+    }
+
+    @Test
+    void hitRequiresAllCases() {
+        List<String> keyList = buildKeyList("1 2", "3 4");
+        executeResultCache.putAll(keyList.subList(0, 1), Collections.singletonList(newExecuteMessage("3")));
+
+        assertNull(executeResultCache.getAll(keyList, OutputJudge.NONE));
+        assertEquals(1L, executeResultCache.getMissCount());
+
+        executeResultCache.putAll(keyList, Arrays.asList(newExecuteMessage("3"), newExecuteMessage("7")));
+        List<ExecuteMessage> executeMessageList = executeResultCache.getAll(keyList, OutputJudge.NONE);
+
+        assertEquals("3", executeMessageList.get(0).getMessage());
+        assertEquals("7", executeMessageList.get(1).getMessage());
+        assertEquals(1L, executeResultCache.getHitCount());
+    }
+
+    @Test
+    void hitReturnsNewObjectsWithCurrentIndex() {
+        List<String> keyList = buildKeyList("1 2", "3 4");
+        ExecuteMessage executeMessage = newExecuteMessage("3");
+        executeMessage.setCaseVerdict(CaseVerdict.builder().index(0).verdict(JudgeVerdict.ACCEPTED).build());
+        executeResultCache.putAll(keyList.subList(0, 1), Collections.singletonList(executeMessage));
+        executeResultCache.putAll(keyList.subList(1, 2), Collections.singletonList(newExecuteMessage("7")));
+
+        // 相同的用例在另一次提交中排在第二个
+        List<ExecuteMessage> executeMessageList = executeResultCache.getAll(Arrays.asList(keyList.get(1), keyList.get(0)),
+                OutputJudge.NONE);
+        executeMessageList.get(1).setMessage("changed");
+
+        assertEquals(1, executeMessageList.get(1).getCaseVerdict().getIndex());
+        assertEquals("3", executeResultCache.getAll(keyList.subList(0, 1), OutputJudge.NONE).get(0).getMessage());
+    }
+
+    @Test
+    void entryExpiresAfterTtl() throws InterruptedException {
+        resultCacheProperties.setTtl(100L);
+        List<String> keyList = buildKeyList("1 2");
+        executeResultCache.putAll(keyList, Collections.singletonList(newExecuteMessage("3")));
+
+        assertNotNull(executeResultCache.getAll(keyList, OutputJudge.NONE));
+        Thread.sleep(200);
+
+        assertNull(executeResultCache.getAll(keyList, OutputJudge.NONE));
+        assertEquals(0L, executeResultCache.getMemoryCacheSize());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        List<String> keyList = buildKeyList("1", "2", "3");
+        // 内存缓存只能容纳两个同样大小的执行信息
+        long entrySize = 64L + JSONUtil.toJsonStr(newExecuteMessage("1")).length() * 2L;
+        resultCacheProperties.setMemorySize(entrySize * 2);
+        executeResultCache.putAll(keyList.subList(0, 1), Collections.singletonList(newExecuteMessage("1")));
+        executeResultCache.putAll(keyList.subList(1, 2), Collections.singletonList(newExecuteMessage("2")));
+        // 访问第一个后，第二个成为最久未使用的
+        assertNotNull(executeResultCache.getAll(keyList.subList(0, 1), OutputJudge.NONE));
+        executeResultCache.putAll(keyList.subList(2, 3), Collections.singletonList(newExecuteMessage("3")));
+
+        assertEquals(1L, executeResultCache.getEvictionCount());
+        assertEquals(entrySize * 2, executeResultCache.getMemoryCacheSize());
+        assertNull(executeResultCache.getAll(keyList.subList(1, 2), OutputJudge.NONE));
+        assertNotNull(executeResultCache.getAll(keyList.subList(0, 1), OutputJudge.NONE));
+        assertNotNull(executeResultCache.getAll(keyList.subList(2, 3), OutputJudge.NONE));
+    }
+
+    @Test
+    void entryLargerThanMemoryCacheIsNotKept() {
+        resultCacheProperties.setMemorySize(64L);
+        List<String> keyList = buildKeyList("1 2");
+        executeResultCache.putAll(keyList, Collections.singletonList(newExecuteMessage("3")));
+
+        assertNull(executeResultCache.getAll(keyList, OutputJudge.NONE));
+        assertEquals(0L, executeResultCache.getEvictionCount());
+    }
+
+    @Test
+    void onlyFinishedCasesAreCached() {
+        List<ExecuteMessage> executeMessageList = new ArrayList<>();
+        ExecuteMessage timeout = newExecuteMessage("");
+        timeout.setTimeout(true);
+        executeMessageList.add(timeout);
+        ExecuteMessage timeoutStatus = newExecuteMessage("");
+        timeoutStatus.setStatus(ExecuteStatus.TIMEOUT);
+        executeMessageList.add(timeoutStatus);
+        ExecuteMessage notExecuted = newExecuteMessage("");
+        notExecuted.setExitValue(null);
+        executeMessageList.add(notExecuted);
+        executeMessageList.add(newJudgedMessage(JudgeVerdict.SKIPPED));
+        executeMessageList.add(newJudgedMessage(JudgeVerdict.TIME_LIMIT_EXCEEDED));
+        executeMessageList.add(null);
+        executeMessageList.add(newJudgedMessage(JudgeVerdict.WRONG_ANSWER));
+        ExecuteMessage runtimeError = newExecuteMessage("");
+        runtimeError.setExitValue(1);
+        runtimeError.setStatus(ExecuteStatus.RUNTIME_ERROR);
+        executeMessageList.add(runtimeError);
+        List<String> keyList = buildKeyList("0", "1", "2", "3", "4", "5", "6", "7");
+
+        executeResultCache.putAll(keyList, executeMessageList);
+
+        for (int i = 0; i < 6; i++) {
+            assertNull(executeResultCache.getAll(keyList.subList(i, i + 1), OutputJudge.NONE), "第" + (i + 1) + "个用例");
+        }
+        assertEquals(JudgeVerdict.WRONG_ANSWER,
+                executeResultCache.getAll(keyList.subList(6, 7), OutputJudge.NONE).get(0).getCaseVerdict().getVerdict());
+        assertEquals(ExecuteStatus.RUNTIME_ERROR, executeResultCache.getAll(keyList.subList(7, 8), OutputJudge.NONE).get(0).getStatus());
+    }
+
+    @Test
+    void diskEntrySurvivesRestart() {
+        resultCacheProperties.setDiskEnabled(true);
+        resultCacheProperties.setDiskDir(cacheDir.getAbsolutePath());
+        executeResultCache = newCache();
+        List<String> keyList = buildKeyList("1 2");
+        executeResultCache.putAll(keyList, Collections.singletonList(newExecuteMessage("3")));
+
+        ExecuteResultCache restartedCache = newCache();
+        List<ExecuteMessage> executeMessageList = restartedCache.getAll(keyList, OutputJudge.NONE);
+
+        assertEquals("3", executeMessageList.get(0).getMessage());
+        assertEquals(1L, restartedCache.getDiskHitCount());
+        assertEquals(executeResultCache.getDiskCacheSize(), restartedCache.getDiskCacheSize());
+    }
+
+    private ExecuteResultCache newCache() {
+        ExecuteResultCache cache = new ExecuteResultCache();
+        ReflectionTestUtils.setField(cache, "resultCacheProperties", resultCacheProperties);
+        cache.init();
+        return cache;
+    }
+
+    private List<String> buildKeyList(String... stdins) {
+        return executeResultCache.buildKeyList(SANDBOX_TYPE, LIMIT_IDENTITY, newRequest(), newCaseList(stdins));
+    }
+
+    private static ExecuteCodeRequest newRequest() {
+        return ExecuteCodeRequest.builder()
+                .code("public class Main { public static void main(String[] args) { } }")
+                .build();
+    }
+
+    private static List<ExecuteCase> newCaseList(String... stdins) {
+        List<ExecuteCase> caseList = new ArrayList<>();
+        for (int i = 0; i < stdins.length; i++) {
+            caseList.add(new ExecuteCase(i, "", null, stdins[i]));
+        }
+        return caseList;
+    }
+
+    private static ExecuteMessage newExecuteMessage(String message) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(0);
+        executeMessage.setMessage(message);
+        executeMessage.setTime(10L);
+        executeMessage.setStatus(ExecuteStatus.SUCCESS);
+        return executeMessage;
+    }
+
+    private static ExecuteMessage newJudgedMessage(JudgeVerdict judgeVerdict) {
+        ExecuteMessage executeMessage = newExecuteMessage("");
+        executeMessage.setCaseVerdict(CaseVerdict.builder().index(0).verdict(judgeVerdict).build());
+        return executeMessage;
+    }
+}
@@ -0,0 +1,171 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.model.CompileDiagnostic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 编译结果缓存的 key、命中耗时与并发等待
+ */
+class CompiledClassCacheTest {
+
+    private static final String IDENTITY = "test-compiler";
+
+    private static final String CODE = "public class Main {\n    public static void main(String[] args) {\n    }\n}\n";
+
+    private final CompilerProperties compilerProperties = new CompilerProperties();
+
+    private File cacheDir;
+
+    private CompiledClassCache compiledClassCache;
+
+    @BeforeEach
+    void setUp() {
+        cacheDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "class-cache-test-" + System.nanoTime()));
+        compiledClassCache = newCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(cacheDir);
+    }
+
+    @Test
+    void keyIgnoresLineEndingsAndTrailingSpaces() {
+        String windowsCode = CODE.replace("\n", "  \r\n");
+        assertEquals(CompiledClassCache.buildKey(CODE, IDENTITY), CompiledClassCache.buildKey(windowsCode, IDENTITY));
+    }
+
+    @Test
+    void keyKeepsLeadingAndTrailingLines() {
+        // 行号不同的源码不能共用缓存的诊断信息
+        assertNotEquals(CompiledClassCache.buildKey(CODE, IDENTITY), CompiledClassCache.buildKey("\n\n" + CODE, IDENTITY));
+        assertNotEquals(CompiledClassCache.buildKey(CODE, IDENTITY), CompiledClassCache.buildKey(CODE + "\n\n", IDENTITY));
+        assertNotEquals(CompiledClassCache.buildKey(CODE, IDENTITY), CompiledClassCache.buildKey(CODE, "other-compiler"));
+    }
+
+    @Test
+    void memoryHitReportsLookupTime() {
+        CompileResult compiled = compiledClassCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+        CompileResult cached = compiledClassCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+
+        assertEquals(500L, compiled.getTime());
+        assertTrue(cached.getTime() < 100L);
+        assertSame(compiled.getClassBytes(), cached.getClassBytes());
+        assertEquals(1, compiledClassCache.getMemoryHitCount());
+        assertEquals(1, compiledClassCache.getMissCount());
+    }
+
+    @Test
+    void diskHitReportsLookupTime() {
+        compiledClassCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+        CompiledClassCache restartedCache = newCache();
+
+        CompileResult cached = restartedCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+
+        assertTrue(cached.getTime() < 500L);
+        assertEquals(1, cached.getClassBytes().size());
+        assertEquals(1, restartedCache.getDiskHitCount());
+        assertEquals(0, restartedCache.getMissCount());
+    }
+
+    @Test
+    void concurrentWaitersCountAsHits() throws Exception {
+        CountDownLatch compileStarted = new CountDownLatch(1);
+        CountDownLatch releaseCompile = new CountDownLatch(1);
+        AtomicInteger compileCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CompileResult>> futureList = new ArrayList<>();
+            futureList.add(executorService.submit(() -> compiledClassCache.get(CODE, IDENTITY, () -> {
+                compileCount.incrementAndGet();
+                compileStarted.countDown();
+                await(releaseCompile);
+                return newCompileResult(500L);
+            })));
+            assertTrue(compileStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                futureList.add(executorService.submit(() -> compiledClassCache.get(CODE, IDENTITY, () -> {
+                    compileCount.incrementAndGet();
+                    return newCompileResult(500L);
+                })));
+            }
+            // 等待方进入等待后再结束编译
+            Thread.sleep(200);
+            releaseCompile.countDown();
+            for (Future<CompileResult> future : futureList) {
+                assertTrue(future.get(5, TimeUnit.SECONDS).isSuccess());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(1, compileCount.get());
+        assertEquals(1, compiledClassCache.getMissCount());
+        assertEquals(3, compiledClassCache.getInFlightHitCount() + compiledClassCache.getMemoryHitCount());
+    }
+
+    @Test
+    void timeoutIsNotCached() {
+        compiledClassCache.get(CODE, IDENTITY, () -> CompileResult.timeout(10000L));
+        CompileResult compileResult = compiledClassCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+
+        assertTrue(compileResult.isSuccess());
+        assertEquals(2, compiledClassCache.getMissCount());
+    }
+
+    @Test
+    void compileErrorIsCachedWithDiagnostics() {
+        CompileResult compileError = new CompileResult();
+        compileError.getDiagnosticList().add(CompileDiagnostic.builder().kind("ERROR").line(3L).column(5L).message("错误").build());
+        compiledClassCache.get(CODE, IDENTITY, () -> compileError);
+
+        CompileResult cached = compiledClassCache.get(CODE, IDENTITY, () -> newCompileResult(500L));
+
+        assertFalse(cached.isSuccess());
+        assertEquals(3L, cached.getDiagnosticList().get(0).getLine());
+    }
+
+    private CompiledClassCache newCache() {
+        CompiledClassCache cache = new CompiledClassCache();
+        ReflectionTestUtils.setField(cache, "compilerProperties", compilerProperties);
+        ReflectionTestUtils.setField(cache, "cacheDir", cacheDir);
+        return cache;
+    }
+
+    private static CompileResult newCompileResult(long time) {
+        CompileResult compileResult = new CompileResult();
+        compileResult.setSuccess(true);
+        compileResult.setTime(time);
+        compileResult.getClassBytes().put("Main", new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+        return compileResult;
+    }
+
+    private static void await(CountDownLatch countDownLatch) {
+        try {
+            countDownLatch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
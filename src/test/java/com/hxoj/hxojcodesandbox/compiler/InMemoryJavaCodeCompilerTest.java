@@ -0,0 +1,61 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存编译器的编译参数与类路径隔离
+ */
+class InMemoryJavaCodeCompilerTest {
+
+    private final ProcessTimeoutService processTimeoutService = new ProcessTimeoutService();
+
+    private final InMemoryJavaCodeCompiler inMemoryJavaCodeCompiler = new InMemoryJavaCodeCompiler();
+
+    @BeforeEach
+    void setUp() {
+        processTimeoutService.init();
+        ReflectionTestUtils.setField(inMemoryJavaCodeCompiler, "compilerProperties", new CompilerProperties());
+        ReflectionTestUtils.setField(inMemoryJavaCodeCompiler, "processTimeoutService", processTimeoutService);
+        inMemoryJavaCodeCompiler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        inMemoryJavaCodeCompiler.destroy();
+        processTimeoutService.destroy();
+    }
+
+    @Test
+    void compilesAgainstJdkOnly() {
+        CompileResult compileResult = compile("import java.util.*;\npublic class Main { public static void main(String[] args) {"
+                + " System.out.println(new ArrayList<String>()); } }");
+
+        assertTrue(compileResult.isSuccess());
+        assertTrue(compileResult.getClassBytes().containsKey("Main"));
+        assertTrue(inMemoryJavaCodeCompiler.getIdentity().contains("-proc:none"));
+    }
+
+    @Test
+    void sandboxClassPathIsNotVisible() {
+        // 测试运行时 hutool 在沙箱自身的类路径上，用户代码不能引用
+        CompileResult compileResult = compile("import cn.hutool.core.util.StrUtil;\npublic class Main {"
+                + " public static void main(String[] args) { System.out.println(StrUtil.trim(\" 1 \")); } }");
+
+        assertFalse(compileResult.isSuccess());
+        assertTrue(compileResult.getDiagnosticList().get(0).getMessage().contains("cn.hutool.core.util"));
+    }
+
+    private CompileResult compile(String code) {
+        return inMemoryJavaCodeCompiler.compile(code, new File("Main.java"));
+    }
+}
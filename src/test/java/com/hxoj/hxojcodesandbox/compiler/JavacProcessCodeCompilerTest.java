@@ -0,0 +1,96 @@
+package com.hxoj.hxojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.config.CompilerProperties;
+import com.hxoj.hxojcodesandbox.process.ProcessTimeoutService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * javac 子进程编译器的编译参数与超时
+ */
+class JavacProcessCodeCompilerTest {
+
+    private static final String CODE = "public class Main { public static void main(String[] args) { System.out.println(1); } }";
+
+    private final CompilerProperties compilerProperties = new CompilerProperties();
+
+    private final ProcessTimeoutService processTimeoutService = new ProcessTimeoutService();
+
+    private File userCodeFile;
+
+    @BeforeEach
+    void setUp() {
+        processTimeoutService.init();
+        File workDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "javac-compiler-test-" + System.nanoTime()));
+        userCodeFile = FileUtil.writeString(CODE, new File(workDir, "Main.java"), StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        processTimeoutService.destroy();
+        FileUtil.del(userCodeFile.getParentFile());
+    }
+
+    @Test
+    void compilesForConfiguredRelease() {
+        JavacProcessCodeCompiler javacProcessCodeCompiler = newCompiler();
+
+        CompileResult compileResult = javacProcessCodeCompiler.compile(CODE, userCodeFile);
+
+        assertTrue(compileResult.isSuccess());
+        byte[] classBytes = compileResult.getClassBytes().get("Main");
+        // class 文件第 7、8 字节为主版本号，Java 8 为 52
+        assertEquals(52, ((classBytes[6] & 0xFF) << 8) | (classBytes[7] & 0xFF));
+        assertTrue(javacProcessCodeCompiler.getIdentity().contains("-proc:none"));
+        assertTrue(javacProcessCodeCompiler.getIdentity().endsWith("--release 8")
+                || javacProcessCodeCompiler.getIdentity().contains("javac 1.8"));
+    }
+
+    @Test
+    void versionLookupIsBoundedByTimeout() {
+        compilerProperties.setTimeout(1L);
+
+        assertThrows(IllegalStateException.class, this::newCompiler);
+        assertEquals(1L, processTimeoutService.getExpireCount());
+    }
+
+    @Test
+    void sandboxClassPathIsNotVisible() {
+        FileUtil.writeString("import cn.hutool.core.util.StrUtil;\npublic class Main {"
+                + " public static void main(String[] args) { System.out.println(StrUtil.trim(\" 1 \")); } }", userCodeFile, StandardCharsets.UTF_8);
+        JavacProcessCodeCompiler javacProcessCodeCompiler = newCompiler();
+
+        CompileResult compileResult = javacProcessCodeCompiler.compile(CODE, userCodeFile);
+
+        assertFalse(compileResult.isSuccess());
+        assertTrue(compileResult.getDiagnosticList().get(0).getMessage().contains("cn.hutool.core.util"));
+    }
+
+    @Test
+    void timeoutKillsJavac() {
+        JavacProcessCodeCompiler javacProcessCodeCompiler = newCompiler();
+        compilerProperties.setTimeout(1L);
+
+        CompileResult compileResult = javacProcessCodeCompiler.compile(CODE, userCodeFile);
+
+        assertFalse(compileResult.isSuccess());
+        assertEquals("TIMEOUT", compileResult.getDiagnosticList().get(0).getKind());
+        assertEquals(1L, processTimeoutService.getExpireCount());
+    }
+
+    private JavacProcessCodeCompiler newCompiler() {
+        JavacProcessCodeCompiler javacProcessCodeCompiler = new JavacProcessCodeCompiler(compilerProperties, processTimeoutService);
+        javacProcessCodeCompiler.init();
+        return javacProcessCodeCompiler;
+    }
+}
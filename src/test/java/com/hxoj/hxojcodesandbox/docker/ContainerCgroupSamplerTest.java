@@ -0,0 +1,75 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.config.ExecuteProperties;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 无法重置容器内存峰值时只统计用例执行期间的内存占用
+ */
+class ContainerCgroupSamplerTest {
+
+    private static final String CONTAINER_ID = "abc";
+
+    @TempDir
+    File cgroupRoot;
+
+    private final ContainerCgroupSampler containerCgroupSampler = new ContainerCgroupSampler();
+
+    private File containerDir;
+
+    @BeforeEach
+    void setUp() {
+        DockerProperties dockerProperties = new DockerProperties();
+        dockerProperties.setCgroupRoot(cgroupRoot.getAbsolutePath());
+        ReflectionTestUtils.setField(containerCgroupSampler, "dockerProperties", dockerProperties);
+        ReflectionTestUtils.setField(containerCgroupSampler, "executeProperties", new ExecuteProperties());
+        containerCgroupSampler.init();
+
+        // cgroup v2 布局，memory.peak 建成目录，模拟旧内核上无法写入重置
+        FileUtil.touch(new File(cgroupRoot, "cgroup.controllers"));
+        containerDir = FileUtil.mkdir(new File(cgroupRoot, "docker" + File.separator + CONTAINER_ID));
+        FileUtil.mkdir(new File(containerDir, "memory.peak"));
+        FileUtil.writeUtf8String("usage_usec 1000\n", new File(containerDir, "cpu.stat"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        containerCgroupSampler.destroy();
+    }
+
+    @Test
+    void unresettablePeakUsesSampledUsage() {
+        File currentFile = new File(containerDir, "memory.current");
+        FileUtil.writeUtf8String("2048\n", currentFile);
+
+        ContainerCgroupSampler.Sample sample = containerCgroupSampler.begin(CONTAINER_ID);
+        FileUtil.writeUtf8String("1024\n", currentFile);
+        FileUtil.writeUtf8String("usage_usec 6000\n", new File(containerDir, "cpu.stat"));
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        containerCgroupSampler.end(sample, executeMessage);
+
+        assertEquals(2048L, executeMessage.getMemory());
+        assertEquals(5L, executeMessage.getCpuTime());
+    }
+
+    @Test
+    void unresettablePeakWithoutUsageReportsNothing() {
+        ContainerCgroupSampler.Sample sample = containerCgroupSampler.begin(CONTAINER_ID);
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        containerCgroupSampler.end(sample, executeMessage);
+
+        assertNull(executeMessage.getMemory());
+    }
+}
@@ -0,0 +1,182 @@
+package com.hxoj.hxojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmd;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.ExecStartCmd;
+import com.github.dockerjava.api.command.InspectExecCmd;
+import com.github.dockerjava.api.command.InspectExecResponse;
+import com.github.dockerjava.api.command.RemoveContainerCmd;
+import com.hxoj.hxojcodesandbox.config.DockerProperties;
+import com.hxoj.hxojcodesandbox.config.WorkspaceProperties;
+import com.hxoj.hxojcodesandbox.workspace.WorkspaceManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 容器归还时的清理与销毁，Docker 客户端为模拟对象
+ */
+class DockerContainerPoolTest {
+
+    private final DockerClient dockerClient = mock(DockerClient.class);
+
+    private final DockerProperties dockerProperties = new DockerProperties();
+
+    private final DockerContainerPool dockerContainerPool = new DockerContainerPool();
+
+    private final PooledContainer pooledContainer = new PooledContainer();
+
+    private final ExecCreateCmd execCreateCmd = mock(ExecCreateCmd.class, RETURNS_SELF);
+
+    private final WorkspaceManager workspaceManager = new WorkspaceManager();
+
+    private File workspaceRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        workspaceRoot = FileUtil.file(FileUtil.getTmpDir(), "container-pool-test-" + System.nanoTime());
+        WorkspaceProperties workspaceProperties = new WorkspaceProperties();
+        workspaceProperties.setRoot(workspaceRoot.getAbsolutePath());
+        workspaceProperties.setPoolSize(1);
+        ReflectionTestUtils.setField(workspaceManager, "workspaceProperties", workspaceProperties);
+        workspaceManager.init();
+        // 不补充新容器，只观察归还的容器
+        dockerProperties.setPoolMinIdle(0);
+        ReflectionTestUtils.setField(dockerContainerPool, "dockerProperties", dockerProperties);
+        ReflectionTestUtils.setField(dockerContainerPool, "dockerClient", dockerClient);
+        ReflectionTestUtils.setField(dockerContainerPool, "workspaceManager", workspaceManager);
+        dockerContainerPool.init();
+        File codeDir = workspaceManager.acquire();
+        FileUtil.touch(new File(codeDir, "Main.class"));
+        pooledContainer.setContainerId("container");
+        pooledContainer.setCodeDir(codeDir);
+        pooledContainer.setUseCount(1);
+        when(dockerClient.removeContainerCmd(anyString())).thenReturn(mock(RemoveContainerCmd.class, RETURNS_SELF));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dockerContainerPool.destroy();
+        workspaceManager.destroy();
+        FileUtil.del(workspaceRoot);
+    }
+
+    @Test
+    void scrubbedContainerIsReused() throws InterruptedException {
+        mockScrubExec(0L);
+
+        dockerContainerPool.giveBack(pooledContainer, false);
+
+        awaitIdle();
+        verify(execCreateCmd).withCmd(eq("sh"), eq("-c"), anyString());
+        // 代码目录在工作目录的清理线程中清空，目录本身保留，容器继续挂载
+        assertTrue(FileUtil.isDirEmpty(pooledContainer.getCodeDir()));
+        assertEquals(1L, workspaceManager.getReapCount());
+        assertEquals(0, dockerContainerPool.getScrubFailCount());
+    }
+
+    @Test
+    void failedScrubDestroysContainer() throws InterruptedException {
+        mockScrubExec(1L);
+
+        dockerContainerPool.giveBack(pooledContainer, false);
+
+        awaitDestroyed();
+        assertEquals(0, dockerContainerPool.getIdleCount());
+        assertEquals(1, dockerContainerPool.getScrubFailCount());
+    }
+
+    @Test
+    void scrubDoesNotBlockGiveBack() throws InterruptedException {
+        CountDownLatch releaseScrub = new CountDownLatch(1);
+        mockScrubExec(0L, releaseScrub);
+
+        long startTime = System.currentTimeMillis();
+        dockerContainerPool.giveBack(pooledContainer, false);
+
+        // 清理完成前容器不能被再次租用
+        assertTrue(System.currentTimeMillis() - startTime < 1000L);
+        assertEquals(0, dockerContainerPool.getIdleCount());
+        releaseScrub.countDown();
+        awaitIdle();
+    }
+
+    @Test
+    void abnormalContainerIsDestroyedWithoutScrub() throws InterruptedException {
+        mockScrubExec(0L);
+
+        dockerContainerPool.giveBack(pooledContainer, true);
+
+        verify(dockerClient, never()).execCreateCmd(anyString());
+        assertEquals(0, dockerContainerPool.getIdleCount());
+        awaitDestroyed();
+    }
+
+    private void awaitDestroyed() throws InterruptedException {
+        // 销毁在后台线程中执行
+        for (int i = 0; i < 100 && dockerContainerPool.getDestroyCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dockerContainerPool.getDestroyCount());
+        // 代码目录交还工作目录管理，由清理线程清空后放回空目录池，空目录池已满时直接删除
+        for (int i = 0; i < 100 && workspaceManager.getReapCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        File codeDir = pooledContainer.getCodeDir();
+        assertTrue(!codeDir.exists() || FileUtil.isDirEmpty(codeDir));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        // 清理在后台线程中执行
+        for (int i = 0; i < 100 && dockerContainerPool.getIdleCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dockerContainerPool.getIdleCount());
+    }
+
+    private void mockScrubExec(Long exitCode) {
+        mockScrubExec(exitCode, new CountDownLatch(0));
+    }
+
+    private void mockScrubExec(Long exitCode, CountDownLatch releaseScrub) {
+        ExecCreateCmdResponse execCreateCmdResponse = new ExecCreateCmdResponse();
+        ReflectionTestUtils.setField(execCreateCmdResponse, "id", "exec");
+        doReturn(execCreateCmdResponse).when(execCreateCmd).exec();
+        when(dockerClient.execCreateCmd(anyString())).thenReturn(execCreateCmd);
+        ExecStartCmd execStartCmd = mock(ExecStartCmd.class, RETURNS_SELF);
+        doAnswer(invocation -> {
+            ResultCallback.Adapter<?> callback = invocation.getArgument(0);
+            releaseScrub.await(5, TimeUnit.SECONDS);
+            callback.onComplete();
+            return callback;
+        }).when(execStartCmd).exec(any());
+        when(dockerClient.execStartCmd(anyString())).thenReturn(execStartCmd);
+        InspectExecCmd inspectExecCmd = mock(InspectExecCmd.class);
+        InspectExecResponse inspectExecResponse = mock(InspectExecResponse.class);
+        when(inspectExecResponse.getExitCodeLong()).thenReturn(exitCode);
+        when(inspectExecCmd.exec()).thenReturn(inspectExecResponse);
+        when(dockerClient.inspectExecCmd(anyString())).thenReturn(inspectExecCmd);
+    }
+}
@@ -0,0 +1,137 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import com.hxoj.hxojcodesandbox.CodeSandbox;
+import com.hxoj.hxojcodesandbox.config.BatchProperties;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteRequest;
+import com.hxoj.hxojcodesandbox.model.BatchExecuteResult;
+import com.hxoj.hxojcodesandbox.model.BatchSubmission;
+import com.hxoj.hxojcodesandbox.model.CompareMode;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecutePriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批次中每份提交的执行请求携带批次的全部判题参数，取消批次时取消排队中的提交
+ */
+class BatchExecuteServiceTest {
+
+    private final CodeSandbox codeSandbox = mock(CodeSandbox.class);
+
+    private final ExecuteJobService executeJobService = mock(ExecuteJobService.class);
+
+    private final BatchExecuteService batchExecuteService = new BatchExecuteService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(batchExecuteService, "batchProperties", new BatchProperties());
+        ReflectionTestUtils.setField(batchExecuteService, "executeJobService", executeJobService);
+        batchExecuteService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchExecuteService.destroy();
+    }
+
+    @Test
+    void submissionRequestCarriesBatchOptions() throws Exception {
+        ExecuteJob executeJob = new ExecuteJob();
+        executeJob.setJobId("job");
+        when(executeJobService.submit(eq(codeSandbox), any())).thenReturn(executeJob);
+        BatchExecuteRequest batchExecuteRequest = BatchExecuteRequest.builder()
+                .inputList(Arrays.asList("1 2", "3 4"))
+                .inputFileList(Arrays.asList("in1", "in2"))
+                .stdinList(Arrays.asList("a", "b"))
+                .submissionList(Collections.singletonList(new BatchSubmission("s1", "code", "java")))
+                .parallelism(2)
+                .expectedOutputList(Arrays.asList("3", "7"))
+                .expectedOutputFileList(Arrays.asList("out1", "out2"))
+                .compareMode(CompareMode.FLOAT)
+                .tolerance(1e-3)
+                .stopOnFirstMismatch(true)
+                .deterministic(false)
+                .build();
+
+        List<BatchExecuteResult> resultList = submitAndFinish(batchExecuteRequest, executeJob);
+
+        ArgumentCaptor<ExecuteCodeRequest> captor = ArgumentCaptor.forClass(ExecuteCodeRequest.class);
+        verify(executeJobService).submit(eq(codeSandbox), captor.capture());
+        ExecuteCodeRequest executeCodeRequest = captor.getValue();
+        assertEquals(batchExecuteRequest.getInputList(), executeCodeRequest.getInputList());
+        assertEquals(batchExecuteRequest.getInputFileList(), executeCodeRequest.getInputFileList());
+        assertEquals(batchExecuteRequest.getStdinList(), executeCodeRequest.getStdinList());
+        assertEquals("code", executeCodeRequest.getCode());
+        assertEquals("java", executeCodeRequest.getLanguage());
+        assertEquals(2, executeCodeRequest.getParallelism());
+        assertEquals(ExecutePriority.BATCH, executeCodeRequest.getPriority());
+        assertEquals(batchExecuteRequest.getExpectedOutputList(), executeCodeRequest.getExpectedOutputList());
+        assertEquals(batchExecuteRequest.getExpectedOutputFileList(), executeCodeRequest.getExpectedOutputFileList());
+        assertEquals(CompareMode.FLOAT, executeCodeRequest.getCompareMode());
+        assertEquals(1e-3, executeCodeRequest.getTolerance());
+        assertEquals(true, executeCodeRequest.getStopOnFirstMismatch());
+        assertFalse(executeCodeRequest.getDeterministic());
+        assertEquals("s1", resultList.get(0).getSubmissionId());
+    }
+
+    @Test
+    void cancelledBatchCancelsQueuedSubmissions() throws Exception {
+        ExecuteJob runningJob = newJob("running", JobStatus.RUNNING);
+        ExecuteJob queuedJob = newJob("queued", JobStatus.QUEUED);
+        when(executeJobService.submit(eq(codeSandbox), any())).thenReturn(runningJob, queuedJob);
+        BatchExecuteRequest batchExecuteRequest = BatchExecuteRequest.builder()
+                .inputList(Collections.singletonList("1"))
+                .submissionList(Arrays.asList(new BatchSubmission("s1", "code1", "java"),
+                        new BatchSubmission("s2", "code2", "java"), new BatchSubmission("s3", "code3", "java")))
+                .concurrency(2)
+                .build();
+
+        CompletableFuture<List<BatchExecuteResult>> future = batchExecuteService.submit(codeSandbox, batchExecuteRequest, null);
+        verify(executeJobService, timeout(5000).times(2)).submit(eq(codeSandbox), any());
+        future.cancel(false);
+
+        // 只取消仍在排队的任务，正在执行的任务照常结束，第三份提交不再交给调度器
+        verify(executeJobService).cancelJob("queued");
+        verify(executeJobService, never()).cancelJob("running");
+        runningJob.getFuture().complete(runningJob);
+        Thread.sleep(100L);
+        verify(executeJobService, times(2)).submit(eq(codeSandbox), any());
+    }
+
+    private static ExecuteJob newJob(String jobId, JobStatus status) {
+        ExecuteJob executeJob = new ExecuteJob();
+        executeJob.setJobId(jobId);
+        executeJob.setStatus(status);
+        return executeJob;
+    }
+
+    private List<BatchExecuteResult> submitAndFinish(BatchExecuteRequest batchExecuteRequest, ExecuteJob executeJob)
+            throws Exception {
+        CompletableFuture<List<BatchExecuteResult>> future =
+                batchExecuteService.submit(codeSandbox, batchExecuteRequest, null);
+        // 预编译在线程池中进行，等到提交交给调度器后再结束任务
+        verify(executeJobService, timeout(5000)).submit(eq(codeSandbox), any());
+        executeJob.getFuture().complete(executeJob);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,205 @@
+package com.hxoj.hxojcodesandbox.job;
+
+import com.hxoj.hxojcodesandbox.CodeSandbox;
+import com.hxoj.hxojcodesandbox.ExecuteListener;
+import com.hxoj.hxojcodesandbox.config.JobProperties;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeRequest;
+import com.hxoj.hxojcodesandbox.model.ExecuteCodeResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 执行任务的合并与取消，调度器只记录排队的执行，由测试决定何时执行
+ */
+class ExecuteJobServiceTest {
+
+    private final JobProperties jobProperties = new JobProperties();
+
+    private final CodeSandbox codeSandbox = mock(CodeSandbox.class);
+
+    private final ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+
+    private final List<Runnable> scheduledTaskList = new ArrayList<>();
+
+    private final ExecuteJobService executeJobService = new ExecuteJobService();
+
+    @BeforeEach
+    void setUp() {
+        ExecutionScheduler executionScheduler = mock(ExecutionScheduler.class);
+        doAnswer(invocation -> scheduledTaskList.add(invocation.getArgument(1))).when(executionScheduler).schedule(any(), any());
+        when(codeSandbox.executeCode(any(), any())).thenReturn(executeCodeResponse);
+        ReflectionTestUtils.setField(executeJobService, "jobProperties", jobProperties);
+        ReflectionTestUtils.setField(executeJobService, "executionScheduler", executionScheduler);
+    }
+
+    @Test
+    void identicalSubmissionsRunOnce() {
+        ExecuteJob first = executeJobService.submit(codeSandbox, newRequest());
+        ExecuteJob second = executeJobService.submit(codeSandbox, newRequest());
+        ExecuteJob third = executeJobService.submit(codeSandbox, newRequest());
+        assertEquals(1, scheduledTaskList.size());
+        assertEquals(3, executeJobService.getFlightWaiterCount());
+
+        runScheduledTasks();
+
+        verify(codeSandbox, times(1)).executeCode(any(), any());
+        for (ExecuteJob executeJob : new ExecuteJob[]{first, second, third}) {
+            assertEquals(JobStatus.FINISHED, executeJob.getStatus());
+            assertSame(executeCodeResponse, executeJob.getExecuteCodeResponse());
+            assertTrue(executeJob.isDone());
+        }
+        assertEquals(1, executeJobService.getFlightLeaderCount());
+        assertEquals(2, executeJobService.getFlightJoinCount());
+        assertEquals(0, executeJobService.getFlightWaiterCount());
+        assertEquals(3, executeJobService.getFinishCount());
+    }
+
+    @Test
+    void fullFlightStartsNewFlight() {
+        jobProperties.setSingleFlightMaxWaiters(2);
+        for (int i = 0; i < 5; i++) {
+            executeJobService.submit(codeSandbox, newRequest());
+        }
+        // [1, 2] [3, 4] [5]
+        assertEquals(3, scheduledTaskList.size());
+        assertEquals(1, executeJobService.getFlightLeaderCount());
+        assertEquals(2, executeJobService.getFlightOverflowCount());
+        assertEquals(2, executeJobService.getFlightJoinCount());
+
+        runScheduledTasks();
+
+        verify(codeSandbox, times(3)).executeCode(any(), any());
+        assertEquals(5, executeJobService.getFinishCount());
+    }
+
+    @Test
+    void differentSubmissionsDoNotJoin() {
+        ExecuteCodeRequest otherRequest = newRequest();
+        otherRequest.setInputList(Collections.singletonList("3 4"));
+        executeJobService.submit(codeSandbox, newRequest());
+        executeJobService.submit(codeSandbox, otherRequest);
+        assertEquals(2, scheduledTaskList.size());
+    }
+
+    @Test
+    void nonDeterministicSubmissionsDoNotJoin() {
+        ExecuteCodeRequest executeCodeRequest = newRequest();
+        executeCodeRequest.setDeterministic(false);
+        executeJobService.submit(codeSandbox, executeCodeRequest);
+        executeJobService.submit(codeSandbox, executeCodeRequest);
+        assertEquals(2, scheduledTaskList.size());
+        assertEquals(0, executeJobService.getFlightLeaderCount());
+    }
+
+    @Test
+    void queuedFlightIsDroppedWhenAllWaitersCancel() {
+        ExecuteJob first = executeJobService.submit(codeSandbox, newRequest());
+        ExecuteJob second = executeJobService.submit(codeSandbox, newRequest());
+
+        assertSame(first, executeJobService.cancelJob(first.getJobId()));
+        assertSame(second, executeJobService.cancelJob(second.getJobId()));
+        assertEquals(JobStatus.CANCELLED, first.getStatus());
+        assertTrue(first.isDone());
+        assertNull(executeJobService.getJob(first.getJobId()));
+
+        runScheduledTasks();
+
+        verify(codeSandbox, never()).executeCode(any(), any());
+        assertEquals(1, executeJobService.getFlightCancelCount());
+        assertEquals(2, executeJobService.getCancelCount());
+        assertEquals(0, executeJobService.getFlightWaiterCount());
+        assertEquals(JobStatus.CANCELLED, second.getStatus());
+        assertNull(second.getExecuteCodeResponse());
+    }
+
+    @Test
+    void flightRunsWhileAnyWaiterRemains() {
+        ExecuteJob first = executeJobService.submit(codeSandbox, newRequest());
+        ExecuteJob second = executeJobService.submit(codeSandbox, newRequest());
+        // 最先提交的任务取消后，其余等待方仍拿到结果
+        executeJobService.cancelJob(first.getJobId());
+
+        runScheduledTasks();
+
+        verify(codeSandbox, times(1)).executeCode(any(), any());
+        assertEquals(0, executeJobService.getFlightCancelCount());
+        assertEquals(JobStatus.CANCELLED, first.getStatus());
+        assertNull(first.getExecuteCodeResponse());
+        assertEquals(JobStatus.FINISHED, second.getStatus());
+        assertSame(executeCodeResponse, second.getExecuteCodeResponse());
+    }
+
+    @Test
+    void cancelledFlightKeyAcceptsNewSubmissions() {
+        ExecuteJob first = executeJobService.submit(codeSandbox, newRequest());
+        executeJobService.cancelJob(first.getJobId());
+        // 已取消的等待方不再占用合并，新的相同提交仍合并到排队中的执行
+        ExecuteJob second = executeJobService.submit(codeSandbox, newRequest());
+        assertEquals(1, scheduledTaskList.size());
+
+        runScheduledTasks();
+
+        verify(codeSandbox, times(1)).executeCode(any(), any());
+        assertEquals(JobStatus.FINISHED, second.getStatus());
+    }
+
+    @Test
+    void queuedJobIsNotRunAfterCancel() {
+        ExecuteJob executeJob = executeJobService.submit(codeSandbox, newRequest(), mock(ExecuteListener.class));
+        executeJobService.cancelJob(executeJob.getJobId());
+
+        runScheduledTasks();
+
+        verify(codeSandbox, never()).executeCode(any(), any());
+        assertEquals(JobStatus.CANCELLED, executeJob.getStatus());
+    }
+
+    @Test
+    void cancelUnknownJobReturnsNull() {
+        assertNull(executeJobService.cancelJob("unknown"));
+    }
+
+    @Test
+    void failedFlightFailsAllWaiters() {
+        when(codeSandbox.executeCode(any(), any())).thenThrow(new RuntimeException("沙箱异常"));
+        ExecuteJob first = executeJobService.submit(codeSandbox, newRequest());
+        ExecuteJob second = executeJobService.submit(codeSandbox, newRequest());
+
+        runScheduledTasks();
+
+        assertEquals(JobStatus.FAILED, first.getStatus());
+        assertEquals(JobStatus.FAILED, second.getStatus());
+        assertEquals("沙箱异常", second.getErrorMessage());
+        assertEquals(2, executeJobService.getFailCount());
+    }
+
+    private void runScheduledTasks() {
+        for (Runnable task : new ArrayList<>(scheduledTaskList)) {
+            task.run();
+        }
+    }
+
+    private static ExecuteCodeRequest newRequest() {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setCode("public class Main {}");
+        executeCodeRequest.setInputList(Collections.singletonList("1 2"));
+        return executeCodeRequest;
+    }
+}
@@ -0,0 +1,164 @@
+package com.hxoj.hxojcodesandbox.judge;
+
+import com.hxoj.hxojcodesandbox.model.CompareMode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式输出比较的三种比较方式、换行差异与不一致片段
+ */
+class OutputComparatorTest {
+
+    @Test
+    void exactMatchesSameOutput() {
+        assertTrue(matches("1 2\n3", "1 2\n3", CompareMode.EXACT));
+        assertFalse(matches("1 2\n3", "1  2\n3", CompareMode.EXACT));
+        assertFalse(matches("1 2\n3", "1 2\n4", CompareMode.EXACT));
+        assertTrue(matches("", "", CompareMode.EXACT));
+        assertTrue(matches(null, "", CompareMode.EXACT));
+    }
+
+    @Test
+    void exactIgnoresLineSeparatorDifferences() {
+        assertTrue(matches("1\n2\n3", "1\r\n2\r\n3", CompareMode.EXACT));
+        assertTrue(matches("1\r\n2\r\n3", "1\n2\n3", CompareMode.EXACT));
+        // 单独的 \r 不是换行，必须一致
+        assertTrue(matches("1\r2", "1\r2", CompareMode.EXACT));
+        assertFalse(matches("12", "1\r2", CompareMode.EXACT));
+        assertFalse(matches("1\n2", "1\r2", CompareMode.EXACT));
+    }
+
+    @Test
+    void exactIgnoresTrailingNewlinesOnly() {
+        assertTrue(matches("1\n2", "1\n2\n", CompareMode.EXACT));
+        assertTrue(matches("1\n2\n", "1\n2", CompareMode.EXACT));
+        assertTrue(matches("1\n2\r\n\r\n", "1\n2\n\n\n", CompareMode.EXACT));
+        assertFalse(matches("1\n2", "1\n\n2", CompareMode.EXACT));
+        assertFalse(matches("1\n2", "1\n2 \n", CompareMode.EXACT));
+        assertFalse(matches("1\n2", "1\n", CompareMode.EXACT));
+    }
+
+    @Test
+    void chunkBoundariesDoNotChangeResult() {
+        String[][] caseList = {
+                {"1\n2\n3", "1\r\n2\r\n3\r\n"},
+                {"12", "1\r2"},
+                {"1.5 2", "1.50000001  2"},
+                {"1 2", "12"}
+        };
+        for (String[] testCase : caseList) {
+            for (CompareMode compareMode : CompareMode.values()) {
+                assertEquals(matches(testCase[0], testCase[1], compareMode),
+                        matchesByteByByte(testCase[0], testCase[1], compareMode),
+                        compareMode + "：" + testCase[1]);
+            }
+        }
+    }
+
+    @Test
+    void ignoreWhitespaceComparesTokens() {
+        assertTrue(matches("1 2\n3", "1   2 3\r\n\n", CompareMode.IGNORE_WHITESPACE));
+        assertTrue(matches("  1\t2  ", "1\n2", CompareMode.IGNORE_WHITESPACE));
+        assertFalse(matches("1 2", "12", CompareMode.IGNORE_WHITESPACE));
+        assertFalse(matches("12", "1 2", CompareMode.IGNORE_WHITESPACE));
+        assertFalse(matches("1 2 3", "1 2", CompareMode.IGNORE_WHITESPACE));
+        assertFalse(matches("1 2", "1 2 3", CompareMode.IGNORE_WHITESPACE));
+        assertFalse(matches("1.0", "1", CompareMode.IGNORE_WHITESPACE));
+    }
+
+    @Test
+    void floatAllowsToleranceBetweenNumbers() {
+        assertTrue(matches("0.333333333", "0.3333333", CompareMode.FLOAT));
+        assertTrue(matches("1", "1.0000", CompareMode.FLOAT));
+        assertTrue(matches("100", "1e2", CompareMode.FLOAT));
+        // 相对误差
+        assertTrue(matches("1000000", "1000000.5", CompareMode.FLOAT));
+        assertFalse(matches("1", "1.1", CompareMode.FLOAT));
+        assertFalse(matches("1 2", "1 2.001", CompareMode.FLOAT));
+        assertTrue(matches("ans 1.5", "ans\n1.5000001", CompareMode.FLOAT));
+        assertFalse(matches("yes", "no", CompareMode.FLOAT));
+    }
+
+    @Test
+    void floatRejectsNonDecimalNumbers() {
+        assertFalse(matches("1", "0x1p0", CompareMode.FLOAT));
+        assertFalse(matches("1", "1d", CompareMode.FLOAT));
+        assertFalse(matches("1", "Infinity", CompareMode.FLOAT));
+        // 两边写法完全相同时按字节一致处理
+        assertTrue(matches("NaN", "NaN", CompareMode.FLOAT));
+    }
+
+    @Test
+    void mismatchReportsLineAndExcerpts() {
+        OutputComparator outputComparator = new OutputComparator("a\nb\nc\nd", CompareMode.EXACT, 0D, false);
+        feed(outputComparator, "a\nb\nX\nd");
+
+        assertFalse(outputComparator.finish());
+        assertTrue(outputComparator.isMismatched());
+        assertEquals(3L, outputComparator.getMismatchLine());
+        assertEquals("a\nb\nc\nd", outputComparator.getExpectedExcerpt());
+        assertEquals("a\nb\nX\nd", outputComparator.getActualExcerpt());
+    }
+
+    @Test
+    void matchHasNoExcerpts() {
+        OutputComparator outputComparator = new OutputComparator("1", CompareMode.EXACT, 0D, false);
+        feed(outputComparator, "1\n");
+
+        assertTrue(outputComparator.finish());
+        assertTrue(outputComparator.finish());
+        assertNull(outputComparator.getExpectedExcerpt());
+        assertNull(outputComparator.getActualExcerpt());
+    }
+
+    @Test
+    void feedStopsAfterExcerptIsCollected() {
+        OutputComparator outputComparator = new OutputComparator("1", CompareMode.EXACT, 0D, true);
+        byte[] bytes = new byte[1024];
+        bytes[0] = '2';
+
+        assertFalse(outputComparator.feed(bytes, 0, bytes.length));
+        assertFalse(outputComparator.feed(bytes, 0, bytes.length));
+        assertFalse(outputComparator.finish());
+        // 片段只保留不一致位置之后的一小段
+        assertTrue(outputComparator.getActualExcerpt().length() < 64);
+    }
+
+    @Test
+    void expectedBufferPositionIsKept() {
+        ByteBuffer expected = ByteBuffer.wrap("1 2".getBytes(StandardCharsets.UTF_8));
+        OutputComparator outputComparator = new OutputComparator(expected, CompareMode.IGNORE_WHITESPACE,
+                OutputJudge.DEFAULT_TOLERANCE, false);
+        feed(outputComparator, "1 2");
+
+        assertTrue(outputComparator.finish());
+        assertEquals(0, expected.position());
+    }
+
+    private static boolean matches(String expected, String actual, CompareMode compareMode) {
+        OutputComparator outputComparator = new OutputComparator(expected, compareMode, OutputJudge.DEFAULT_TOLERANCE, false);
+        feed(outputComparator, actual);
+        return outputComparator.finish();
+    }
+
+    private static boolean matchesByteByByte(String expected, String actual, CompareMode compareMode) {
+        OutputComparator outputComparator = new OutputComparator(expected, compareMode, OutputJudge.DEFAULT_TOLERANCE, false);
+        byte[] bytes = actual.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            outputComparator.feed(bytes, i, 1);
+        }
+        return outputComparator.finish();
+    }
+
+    private static void feed(OutputComparator outputComparator, String actual) {
+        byte[] bytes = actual.getBytes(StandardCharsets.UTF_8);
+        outputComparator.feed(bytes, 0, bytes.length);
+    }
+}
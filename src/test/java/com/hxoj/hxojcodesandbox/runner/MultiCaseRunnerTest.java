@@ -0,0 +1,247 @@
+package com.hxoj.hxojcodesandbox.runner;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.hxoj.hxojcodesandbox.ExecuteCase;
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多用例执行器的结果帧协议与用例隔离，进程相关的用例会真正启动执行器 JVM
+ */
+class MultiCaseRunnerTest {
+
+    private static final long TIME_OUT = 5000L;
+
+    private File workDir;
+
+    @BeforeEach
+    void setUp() {
+        workDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "multi-case-runner-test-" + System.nanoTime()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(workDir);
+    }
+
+    @Test
+    void frameRoundTrip() throws IOException {
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        MultiCaseRunner.writeResult(new DataOutputStream(byteArrayOutputStream), MultiCaseRunner.newMac(runKey), newCaseResult(0, "3"));
+
+        List<MultiCaseRunner.CaseResult> caseResultList = readResults(byteArrayOutputStream.toByteArray(), runKey);
+
+        assertEquals(1, caseResultList.size());
+        MultiCaseRunner.CaseResult caseResult = caseResultList.get(0);
+        assertEquals(0, caseResult.exitValue);
+        assertEquals(2048L, caseResult.peakMemory);
+        assertEquals("3", new String(caseResult.stdoutBytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void forgedAndBrokenFramesAreSkipped() throws IOException {
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+        dataOutputStream.write("用户直接写入的输出".getBytes(StandardCharsets.UTF_8));
+        // 使用其他密钥签名的帧
+        MultiCaseRunner.writeResult(dataOutputStream, MultiCaseRunner.newMac(MultiCaseRunner.newRunKey()), newCaseResult(0, "forged"));
+        // 声明了超长内容的帧头
+        dataOutputStream.writeInt(MultiCaseRunner.RESULT_MAGIC);
+        dataOutputStream.writeInt(Integer.MAX_VALUE);
+        // 帧长度覆盖了后面真正结果帧的帧头
+        dataOutputStream.writeInt(MultiCaseRunner.RESULT_MAGIC);
+        dataOutputStream.writeInt(16);
+        MultiCaseRunner.writeResult(dataOutputStream, MultiCaseRunner.newMac(runKey), newCaseResult(0, "3"));
+
+        List<MultiCaseRunner.CaseResult> caseResultList = readResults(byteArrayOutputStream.toByteArray(), runKey);
+
+        assertEquals(1, caseResultList.size());
+        assertEquals("3", new String(caseResultList.get(0).stdoutBytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void resultsStopAtMissingIndex() throws IOException {
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        Mac mac = MultiCaseRunner.newMac(runKey);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+        MultiCaseRunner.writeResult(dataOutputStream, mac, newCaseResult(0, "1"));
+        MultiCaseRunner.writeResult(dataOutputStream, mac, newCaseResult(2, "3"));
+
+        assertEquals(1, readResults(byteArrayOutputStream.toByteArray(), runKey).size());
+    }
+
+    @Test
+    void runsAllCasesWithStatusAndMemory() throws Exception {
+        compileMain("Scanner scanner = new Scanner(System.in);"
+                + "System.out.println(scanner.nextInt() + scanner.nextInt());");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, "1 2", "3 4");
+
+        assertEquals(2, executeMessageList.size());
+        assertEquals("3", executeMessageList.get(0).getMessage());
+        assertEquals("7", executeMessageList.get(1).getMessage());
+        for (ExecuteMessage executeMessage : executeMessageList) {
+            assertEquals(ExecuteStatus.SUCCESS, executeMessage.getStatus());
+            assertNull(executeMessage.getErrorMessage());
+            assertTrue(executeMessage.getMemory() > 0);
+        }
+    }
+
+    @Test
+    void runtimeErrorKeepsStderr() throws Exception {
+        compileMain("throw new IllegalStateException(\"boom\");");
+
+        ExecuteMessage executeMessage = runRunner(1024L, "").get(0);
+
+        assertEquals(ExecuteStatus.RUNTIME_ERROR, executeMessage.getStatus());
+        assertEquals(1, executeMessage.getExitValue());
+        assertTrue(executeMessage.getErrorMessage().contains("boom"));
+    }
+
+    @Test
+    void framesWrittenByUserCodeAreIgnored() throws Exception {
+        compileMain("java.io.DataOutputStream out = new java.io.DataOutputStream("
+                + "new java.io.FileOutputStream(java.io.FileDescriptor.out));"
+                + "out.writeInt(" + MultiCaseRunner.RESULT_MAGIC + "); out.writeInt(4); out.writeInt(0); out.flush();"
+                + "System.out.print(\"ok\");");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, "", "");
+
+        assertEquals(2, executeMessageList.size());
+        assertEquals("ok", executeMessageList.get(0).getMessage());
+        assertEquals("ok", executeMessageList.get(1).getMessage());
+    }
+
+    @Test
+    void outputOverLimitStopsRunner() throws Exception {
+        compileMain("for (int i = 0; i < 100000; i++) { System.out.print(\"0123456789\"); }");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, "", "");
+
+        // 超出上限后执行器退出，剩余用例由沙箱重新启动执行器执行
+        assertEquals(1, executeMessageList.size());
+        ExecuteMessage executeMessage = executeMessageList.get(0);
+        assertEquals(ExecuteStatus.OUTPUT_LIMIT_EXCEEDED, executeMessage.getStatus());
+        assertTrue(executeMessage.getTruncated());
+        assertEquals(1024, executeMessage.getMessage().length());
+        assertEquals("输出超出限制", executeMessage.getErrorMessage());
+    }
+
+    @Test
+    void nonDaemonThreadsAreAwaited() throws Exception {
+        compileMain("new Thread() { public void run() {"
+                + "try { Thread.sleep(200); } catch (InterruptedException e) { }"
+                + "System.out.print(\"late\"); } }.start();");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, "", "");
+
+        assertEquals(2, executeMessageList.size());
+        assertEquals("late", executeMessageList.get(0).getMessage());
+        assertEquals("late", executeMessageList.get(1).getMessage());
+    }
+
+    @Test
+    void leakedThreadStopsRunner() throws Exception {
+        compileMain("Thread thread = new Thread() { public void run() {"
+                + "while (true) { System.out.print(\"x\"); try { Thread.sleep(5); } catch (InterruptedException e) { } } } };"
+                + "thread.setDaemon(true); thread.start(); System.out.print(\"done\");");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, "", "");
+
+        // 守护线程仍在运行，后续用例不能在同一个 JVM 中执行
+        assertEquals(1, executeMessageList.size());
+        assertEquals(ExecuteStatus.SUCCESS, executeMessageList.get(0).getStatus());
+        assertTrue(executeMessageList.get(0).getMessage().contains("done"));
+    }
+
+    @Test
+    void timeoutStopsRunner() throws Exception {
+        compileMain("while (true) { }");
+
+        List<ExecuteMessage> executeMessageList = runRunner(1024L, 500L, "", "");
+
+        assertEquals(1, executeMessageList.size());
+        assertEquals(ExecuteStatus.TIMEOUT, executeMessageList.get(0).getStatus());
+        assertTrue(executeMessageList.get(0).getTimeout());
+    }
+
+    private static MultiCaseRunner.CaseResult newCaseResult(int index, String stdout) {
+        MultiCaseRunner.CaseResult caseResult = new MultiCaseRunner.CaseResult();
+        caseResult.index = index;
+        caseResult.peakMemory = 2048L;
+        caseResult.stdoutBytes = stdout.getBytes(StandardCharsets.UTF_8);
+        caseResult.stderrBytes = new byte[0];
+        return caseResult;
+    }
+
+    private static List<MultiCaseRunner.CaseResult> readResults(byte[] bytes, byte[] runKey) throws IOException {
+        return MultiCaseRunner.readResults(new DataInputStream(new ByteArrayInputStream(bytes)), runKey, 1024L);
+    }
+
+    private void compileMain(String mainBody) {
+        File sourceFile = FileUtil.writeString("import java.util.*;\npublic class Main {\n"
+                + "    public static void main(String[] args) throws Exception {\n" + mainBody + "\n    }\n}\n",
+                new File(workDir, "Main.java"), StandardCharsets.UTF_8);
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, javaCompiler.run(null, null, null, "-encoding", "UTF-8", "-d", workDir.getAbsolutePath(),
+                sourceFile.getAbsolutePath()));
+        MultiCaseRunnerSupport.copyRunnerClasses(workDir);
+    }
+
+    private List<ExecuteMessage> runRunner(long outputLimit, String... stdins) throws Exception {
+        return runRunner(outputLimit, TIME_OUT, stdins);
+    }
+
+    private List<ExecuteMessage> runRunner(long outputLimit, long timeout, String... stdins) throws Exception {
+        List<ExecuteCase> caseList = new ArrayList<>();
+        for (int i = 0; i < stdins.length; i++) {
+            caseList.add(new ExecuteCase(i, null, null, stdins[i]));
+        }
+        String java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+        Process process = new ProcessBuilder(Arrays.asList(java, "-Xmx256m", "-cp", workDir.getAbsolutePath(),
+                MultiCaseRunnerSupport.RUNNER_CLASS_NAME, String.valueOf(timeout), String.valueOf(outputLimit), workDir.getAbsolutePath()))
+                .redirectError(new File(workDir, "runner.err"))
+                .start();
+        byte[] runKey = MultiCaseRunner.newRunKey();
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write(MultiCaseRunnerSupport.encodeCases(runKey, caseList));
+        }
+        List<MultiCaseRunner.CaseResult> caseResultList = MultiCaseRunner.readResults(
+                new DataInputStream(new BufferedInputStream(process.getInputStream())), runKey, outputLimit);
+        assertTrue(process.waitFor(TIME_OUT * (caseList.size() + 1), TimeUnit.MILLISECONDS),
+                IoUtil.read(FileUtil.getInputStream(new File(workDir, "runner.err")), StandardCharsets.UTF_8));
+        List<ExecuteMessage> executeMessageList = new ArrayList<>();
+        for (MultiCaseRunner.CaseResult caseResult : caseResultList) {
+            executeMessageList.add(MultiCaseRunnerSupport.toExecuteMessage(caseResult));
+        }
+        return executeMessageList;
+    }
+}
@@ -0,0 +1,199 @@
+package com.hxoj.hxojcodesandbox.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 有上限的输出缓冲区的截断、跨字节块写入与解码
+ */
+class BoundedOutputBufferTest {
+
+    @Test
+    void emptyBufferDecodesToEmptyString() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L);
+
+        assertEquals("", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        assertEquals("", boundedOutputBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8));
+        assertEquals(0L, boundedOutputBuffer.size());
+        assertFalse(boundedOutputBuffer.isTruncated());
+    }
+
+    @Test
+    void writeUpToLimitIsNotTruncated() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(4L);
+
+        assertTrue(write(boundedOutputBuffer, "ab"));
+        assertTrue(write(boundedOutputBuffer, "cd"));
+        assertTrue(write(boundedOutputBuffer, ""));
+
+        assertEquals("abcd", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        assertFalse(boundedOutputBuffer.isTruncated());
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void writeOverLimitKeepsPrefix() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(4L);
+
+        assertTrue(write(boundedOutputBuffer, "abc"));
+        assertFalse(write(boundedOutputBuffer, "def"));
+        assertFalse(write(boundedOutputBuffer, "g"));
+
+        assertEquals(4L, boundedOutputBuffer.size());
+        assertEquals("abcd", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        assertTrue(boundedOutputBuffer.isTruncated());
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void zeroLimitKeepsNothing() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(0L);
+
+        assertFalse(write(boundedOutputBuffer, "a"));
+
+        assertEquals("", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        assertTrue(boundedOutputBuffer.isTruncated());
+    }
+
+    @Test
+    void writeAcrossChunks() {
+        int length = BoundedOutputBuffer.CHUNK_SIZE * 2 + 100;
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(length);
+        StringBuilder expected = new StringBuilder();
+        // 每次写入的长度与字节块大小不对齐
+        byte[] bytes = new byte[1000];
+        for (int written = 0; written < length; written += bytes.length) {
+            int count = Math.min(bytes.length, length - written);
+            for (int i = 0; i < count; i++) {
+                bytes[i] = (byte) ('a' + (written + i) % 26);
+                expected.append((char) bytes[i]);
+            }
+            assertTrue(boundedOutputBuffer.write(bytes, 0, count));
+        }
+
+        assertEquals(expected.toString(), boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void multiByteCharactersSplitAcrossWrites() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L);
+        byte[] bytes = "输出：中文\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            boundedOutputBuffer.write(bytes, i, 1);
+        }
+
+        assertEquals("输出：中文\n", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        assertEquals("输出：中文", boundedOutputBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8));
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void truncatedMultiByteCharacterIsReplaced() {
+        // “中文”共 6 个字节，截断在第二个字的中间
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(4L);
+
+        assertFalse(write(boundedOutputBuffer, "中文"));
+
+        String decoded = boundedOutputBuffer.decode(StandardCharsets.UTF_8);
+        assertTrue(decoded.startsWith("中"));
+        assertFalse(decoded.contains("文"));
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void decodeWithoutLastLineSeparator() {
+        assertEquals("a", decodeWithoutLastLineSeparator("a\n"));
+        assertEquals("a", decodeWithoutLastLineSeparator("a\r\n"));
+        assertEquals("a\n", decodeWithoutLastLineSeparator("a\n\n"));
+        assertEquals("a\r", decodeWithoutLastLineSeparator("a\r"));
+        assertEquals("a", decodeWithoutLastLineSeparator("a"));
+        assertEquals("", decodeWithoutLastLineSeparator("\n"));
+        assertEquals("", decodeWithoutLastLineSeparator("\r\n"));
+    }
+
+    @Test
+    void decodeLinesNormalizesLineSeparators() {
+        assertEquals("a\nb\nc", decodeLines("a\r\nb\r\nc\r\n"));
+        assertEquals("a\nb", decodeLines("a\rb\r"));
+        assertEquals("a\n\nb", decodeLines("a\r\n\nb\n"));
+        assertEquals("a\n", decodeLines("a\n\r"));
+        assertEquals("a\nb", decodeLines("a\nb"));
+        assertEquals("", decodeLines("\r"));
+        assertEquals("", decodeLines(""));
+    }
+
+    @Test
+    void decodeLinesMatchesReadLine() throws Exception {
+        String[] textList = {"1 2\r\n3\r\n", "x\r\ry\n\n", "中文\r\n输出", "\n\n"};
+        for (String text : textList) {
+            BufferedReader bufferedReader = new BufferedReader(new StringReader(text));
+            List<String> lineList = new ArrayList<>();
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineList.add(line);
+            }
+            assertEquals(String.join("\n", lineList), decodeLines(text));
+        }
+    }
+
+    @Test
+    void lineSeparatorAcrossChunkBoundary() {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L * 1024L);
+        byte[] bytes = new byte[BoundedOutputBuffer.CHUNK_SIZE - 1];
+        Arrays.fill(bytes, (byte) 'x');
+        boundedOutputBuffer.write(bytes, 0, bytes.length);
+        // \r 在第一个字节块的末尾，\n 在第二个字节块的开头
+        write(boundedOutputBuffer, "\r\n");
+
+        String decoded = boundedOutputBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8);
+        assertEquals(bytes.length, decoded.length());
+        assertTrue(decoded.endsWith("x"));
+        boundedOutputBuffer.release();
+    }
+
+    @Test
+    void reusedChunksDoNotLeakPreviousOutput() {
+        BoundedOutputBuffer previous = new BoundedOutputBuffer(1024L);
+        write(previous, "previous output");
+        previous.release();
+        assertEquals(0L, previous.size());
+
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L);
+        write(boundedOutputBuffer, "ok");
+
+        assertEquals("ok", boundedOutputBuffer.decode(StandardCharsets.UTF_8));
+        boundedOutputBuffer.release();
+    }
+
+    private static boolean write(BoundedOutputBuffer boundedOutputBuffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return boundedOutputBuffer.write(bytes, 0, bytes.length);
+    }
+
+    private static String decodeLines(String text) {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L);
+        write(boundedOutputBuffer, text);
+        String decoded = boundedOutputBuffer.decodeLines(StandardCharsets.UTF_8);
+        boundedOutputBuffer.release();
+        return decoded;
+    }
+
+    private static String decodeWithoutLastLineSeparator(String text) {
+        BoundedOutputBuffer boundedOutputBuffer = new BoundedOutputBuffer(1024L);
+        write(boundedOutputBuffer, text);
+        String decoded = boundedOutputBuffer.decodeWithoutLastLineSeparator(StandardCharsets.UTF_8);
+        boundedOutputBuffer.release();
+        return decoded;
+    }
+}
@@ -0,0 +1,69 @@
+package com.hxoj.hxojcodesandbox.utils;
+
+import com.hxoj.hxojcodesandbox.model.ExecuteMessage;
+import com.hxoj.hxojcodesandbox.model.ExecuteStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 进程输出按行解码，读取失败时不填写退出码
+ */
+class ProcessUtilsTest {
+
+    @Test
+    void outputLineSeparatorsAreNormalized() throws Exception {
+        Process process = mockProcess(stream("1 2\r\n3\r\n"), stream(""));
+        when(process.waitFor()).thenReturn(0);
+
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行");
+
+        assertEquals(0, executeMessage.getExitValue());
+        assertEquals(ExecuteStatus.SUCCESS, executeMessage.getStatus());
+        assertEquals("1 2\n3", executeMessage.getMessage());
+    }
+
+    @Test
+    void errorOutputLineSeparatorsAreNormalized() throws Exception {
+        Process process = mockProcess(stream(""), stream("Exception\r\n\tat Main.main\r\n"));
+        when(process.waitFor()).thenReturn(1);
+
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行");
+
+        assertEquals(ExecuteStatus.RUNTIME_ERROR, executeMessage.getStatus());
+        assertEquals("Exception\n\tat Main.main", executeMessage.getErrorMessage());
+    }
+
+    @Test
+    void readFailureLeavesExitValueEmpty() throws Exception {
+        InputStream failingStream = mock(InputStream.class);
+        when(failingStream.read(any())).thenThrow(new IOException("closed"));
+        Process process = mockProcess(failingStream, stream(""));
+
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "执行");
+
+        // 调用方需要判断退出码为空的情况
+        assertNull(executeMessage.getExitValue());
+        assertNull(executeMessage.getStatus());
+    }
+
+    private static Process mockProcess(InputStream inputStream, InputStream errorStream) {
+        Process process = mock(Process.class);
+        when(process.getInputStream()).thenReturn(inputStream);
+        when(process.getErrorStream()).thenReturn(errorStream);
+        return process;
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}